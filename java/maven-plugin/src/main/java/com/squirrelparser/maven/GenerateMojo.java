@@ -0,0 +1,67 @@
+package com.squirrelparser.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import com.squirrelparser.parser.GrammarSourceGenerator;
+
+/**
+ * Generates a grammar class from each configured grammar file (see {@link GrammarSourceGenerator}),
+ * and adds the output directory to the project's compile source roots, so the generated classes
+ * are compiled with the project. A class is only generated again when its grammar file is newer.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /** The directory the grammar files are relative to. */
+    @Parameter(defaultValue = "${project.basedir}/src/main/peg")
+    private File grammarDirectory;
+
+    /** The source directory the grammar classes are generated in. */
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/squirrel")
+    private File outputDirectory;
+
+    /** The grammar files, each with the name of its class and optionally its default top rule. */
+    @Parameter(required = true)
+    private List<GrammarFile> grammars;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        Path outputDir = outputDirectory.toPath();
+        for (GrammarFile grammar : grammars) {
+            if (grammar.getFile() == null || grammar.getClassName() == null) {
+                throw new MojoFailureException("Each grammar needs a file and a className");
+            }
+            Path grammarFile = grammarDirectory.toPath().resolve(grammar.getFile());
+            Path outputFile = outputDir.resolve(grammar.getClassName().replace('.', '/') + ".java");
+            try {
+                if (Files.exists(outputFile)
+                        && Files.getLastModifiedTime(outputFile).compareTo(Files.getLastModifiedTime(grammarFile)) >= 0) {
+                    getLog().debug(outputFile + " is up to date");
+                    continue;
+                }
+                getLog().info("Generating " + grammar.getClassName() + " from " + grammarFile);
+                GrammarSourceGenerator.generateFile(grammarFile, outputDir, grammar.getClassName(),
+                                                    grammar.getTopRule());
+            } catch (IllegalArgumentException e) {
+                throw new MojoFailureException("Invalid grammar " + grammarFile + ": " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not generate " + outputFile, e);
+            }
+        }
+        project.addCompileSourceRoot(outputDir.toString());
+    }
+}
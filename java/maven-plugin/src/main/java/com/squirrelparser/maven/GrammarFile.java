@@ -0,0 +1,19 @@
+package com.squirrelparser.maven;
+
+/**
+ * A grammar file to generate a class from, as configured in the plugin's grammars parameter.
+ */
+public class GrammarFile {
+    /** The grammar file, relative to the grammar directory. */
+    private String file;
+
+    /** The fully-qualified name of the class to generate. */
+    private String className;
+
+    /** The default top rule (optional). */
+    private String topRule;
+
+    public String getFile() { return file; }
+    public String getClassName() { return className; }
+    public String getTopRule() { return topRule; }
+}
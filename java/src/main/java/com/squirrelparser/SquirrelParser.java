@@ -1,10 +1,10 @@
 package com.squirrelparser;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import com.squirrelparser.parser.MetaGrammar;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.ParseResult;
-import com.squirrelparser.parser.Parser;
 import com.squirrelparser.tree.ASTBuilder;
 import com.squirrelparser.tree.ASTNode;
 import com.squirrelparser.tree.CSTBuilder;
@@ -17,6 +17,39 @@ import com.squirrelparser.tree.CSTNodeFactoryFn;
 public final class SquirrelParser {
     private SquirrelParser() {}
 
+    /** Maximum number of compiled grammars kept in the grammar cache. */
+    public static final int GRAMMAR_CACHE_SIZE = 64;
+
+    /** LRU cache of compiled grammars, keyed by grammar spec text. */
+    private static final Map<String, Grammar> grammarCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Grammar> eldest) {
+            return size() > GRAMMAR_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Compile a grammar specification, or return the cached compiled grammar if the same spec
+     * was compiled recently. The returned grammar is immutable and can be shared between threads.
+     *
+     * @param grammarSpec The grammar specification string
+     * @return The compiled grammar (with no default top rule)
+     */
+    public static Grammar compileGrammar(String grammarSpec) {
+        synchronized (grammarCache) {
+            Grammar grammar = grammarCache.get(grammarSpec);
+            if (grammar != null) {
+                return grammar;
+            }
+        }
+        // Compile outside the lock, so that slow compiles don't block other threads
+        Grammar grammar = Grammar.compile(grammarSpec, null);
+        synchronized (grammarCache) {
+            Grammar existing = grammarCache.putIfAbsent(grammarSpec, grammar);
+            return existing != null ? existing : grammar;
+        }
+    }
+
     /**
      * Parse input and return a Concrete Syntax Tree (CST).
      *
@@ -50,7 +83,7 @@ public final class SquirrelParser {
             String grammarSpec,
             String topRuleName,
             Map<String, CSTNodeFactoryFn> factories,
-            String input,
+            CharSequence input,
             boolean allowSyntaxErrors) {
         return CSTBuilder.buildCST(
             squirrelParseAST(grammarSpec, topRuleName, input),
@@ -70,7 +103,7 @@ public final class SquirrelParser {
      * @param input       The input string to parse
      * @return The AST root node
      */
-    public static ASTNode squirrelParseAST(String grammarSpec, String topRuleName, String input) {
+    public static ASTNode squirrelParseAST(String grammarSpec, String topRuleName, CharSequence input) {
         return ASTBuilder.buildAST(squirrelParsePT(grammarSpec, topRuleName, input));
     }
 
@@ -83,7 +116,19 @@ public final class SquirrelParser {
      * @param input       The input string to parse
      * @return The parse result
      */
-    public static ParseResult squirrelParsePT(String grammarSpec, String topRuleName, String input) {
-        return new Parser(MetaGrammar.parseGrammar(grammarSpec), topRuleName, input).parse();
+    public static ParseResult squirrelParsePT(String grammarSpec, String topRuleName, CharSequence input) {
+        return squirrelParsePT(compileGrammar(grammarSpec), topRuleName, input);
+    }
+
+    /**
+     * Parse input with a compiled grammar and return the raw parse tree (PT).
+     *
+     * @param grammar     The compiled grammar
+     * @param topRuleName The top-level rule name to parse
+     * @param input       The input string to parse
+     * @return The parse result
+     */
+    public static ParseResult squirrelParsePT(Grammar grammar, String topRuleName, CharSequence input) {
+        return grammar.withTopRule(topRuleName).parse(input);
     }
 }
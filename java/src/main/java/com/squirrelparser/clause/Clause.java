@@ -3,12 +3,66 @@ package com.squirrelparser.clause;
 import java.util.Map;
 
 import com.squirrelparser.parser.MatchResult;
+import com.squirrelparser.parser.MemoPolicy;
 import com.squirrelparser.parser.Parser;
 
 /**
  * Base class for all grammar clauses.
  */
 public abstract class Clause {
+    /** Dense index of this clause within its grammar (-1 until the grammar is built). */
+    private int clauseIdx = -1;
+
+    /** Explicit memoization annotation of the rule this is the clause of (null if none). */
+    private MemoPolicy.Annotation memoAnnotation;
+
+    /** Name of the rule this is the clause of (null if it is not the clause of a rule). */
+    private String ownerRule;
+
+    /**
+     * Get the dense index of this clause, used to key the memo table.
+     */
+    public int clauseIdx() {
+        return clauseIdx;
+    }
+
+    /**
+     * Set the dense index of this clause. Called when the grammar is built.
+     */
+    public void setClauseIdx(int clauseIdx) {
+        this.clauseIdx = clauseIdx;
+    }
+
+    /**
+     * Get the explicit memoization annotation (@memo or @nomemo) of the rule this is the clause of,
+     * or null if the rule is not annotated.
+     */
+    public MemoPolicy.Annotation memoAnnotation() {
+        return memoAnnotation;
+    }
+
+    /**
+     * Set the explicit memoization annotation of the rule this is the clause of.
+     */
+    public void setMemoAnnotation(MemoPolicy.Annotation memoAnnotation) {
+        this.memoAnnotation = memoAnnotation;
+    }
+
+    /**
+     * Get the name of the rule this is the clause of, or null if it is not the clause of a rule
+     * (set when the grammar is compiled). A match of a rule's clause marks a rule boundary in the
+     * parse tree.
+     */
+    public String ownerRule() {
+        return ownerRule;
+    }
+
+    /**
+     * Set the name of the rule this is the clause of. Called when the grammar is compiled.
+     */
+    public void setOwnerRule(String ownerRule) {
+        this.ownerRule = ownerRule;
+    }
 
     /**
      * Match this clause at the given position.
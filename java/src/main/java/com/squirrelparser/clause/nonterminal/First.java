@@ -1,26 +1,169 @@
 package com.squirrelparser.clause.nonterminal;
 
+import static com.squirrelparser.parser.MatchResult.cutMismatch;
 import static com.squirrelparser.parser.MatchResult.mismatch;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.Str;
+import com.squirrelparser.parser.FirstSet;
+import com.squirrelparser.parser.GrammarAnalysis;
 import com.squirrelparser.parser.Match;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.Utf8Input;
 
 /**
  * Ordered choice: matches the first successful sub-clause.
+ *
+ * In the discovery phase, the next input character is used to skip alternatives that can't
+ * match at the position (see {@link #buildDispatchTable}). The remaining alternatives are still
+ * tried in order, so the first one that matches wins, as in a full scan.
+ *
+ * If all alternatives are literals (e.g. a choice of keywords or operators), they are matched
+ * together with a trie instead (see {@link #buildKeywordTrie}).
  */
 public final class First extends HasMultipleSubClauses {
+    private static final int NON_ASCII = 128;
+    private static final int END_OF_INPUT = 129;
+
+    /**
+     * The indices of the alternatives to try, by the next input character (ASCII characters, then
+     * any non-ASCII character, then the end of the input), or null to try all alternatives.
+     */
+    private int[][] dispatchTable;
+
+    /** The trie of the literals, if all alternatives are literals, for UTF-16 and UTF-8 input. */
+    private Literals literals;
+    private Literals utf8Literals;
+
+    /** The literals of the alternatives, in a trie, and their lengths by alternative index. */
+    private record Literals(KeywordTrie trie, int[] lengths) {}
+
     public First(List<Clause> subClauses) {
         super(subClauses);
     }
 
+    /**
+     * Build the dispatch table from the FIRST sets of the alternatives. An alternative is only
+     * skipped for a character if it is not nullable and its FIRST set is known and doesn't
+     * contain the character; for a non-ASCII character, only if its FIRST set is all ASCII. An
+     * alternative that can pass a cut before consuming input is never skipped, since its failure
+     * after the cut fails the whole choice.
+     * Called when the grammar is compiled, after {@link #buildKeywordTrie}, which supersedes it.
+     */
+    public void buildDispatchTable(GrammarAnalysis analysis) {
+        if (literals != null) {
+            return;
+        }
+        int[][] table = new int[END_OF_INPUT + 1][];
+        List<int[]> distinctRows = new ArrayList<>();
+        boolean skipsAny = false;
+        for (int c = 0; c <= END_OF_INPUT; c++) {
+            int[] row = new int[subClauses.size()];
+            int n = 0;
+            for (int i = 0; i < subClauses.size(); i++) {
+                Clause subClause = subClauses.get(i);
+                FirstSet firstSet = analysis.firstSet(subClause);
+                boolean canMatch = analysis.isNullable(subClause) || analysis.canCutAtStart(subClause)
+                    || firstSet.isAny()
+                    || (c < NON_ASCII ? firstSet.contains(c)
+                        : c == NON_ASCII && firstSet.containsAny(NON_ASCII, Character.MAX_CODE_POINT));
+                if (canMatch) {
+                    row[n++] = i;
+                }
+            }
+            skipsAny |= n < subClauses.size();
+            row = Arrays.copyOf(row, n);
+            // (Share the rows, since most characters select the same alternatives)
+            int[] distinctRow = row;
+            for (int[] other : distinctRows) {
+                if (Arrays.equals(other, row)) {
+                    distinctRow = other;
+                    break;
+                }
+            }
+            if (distinctRow == row) {
+                distinctRows.add(row);
+            }
+            table[c] = distinctRow;
+        }
+        dispatchTable = skipsAny ? table : null;
+    }
+
+    /**
+     * Whether alternatives are selected by a keyword trie or dispatch table (see
+     * {@link #buildKeywordTrie} and {@link #buildDispatchTable}), rather than all tried in order.
+     */
+    public boolean hasDispatch() {
+        return literals != null || dispatchTable != null;
+    }
+
+    /**
+     * Whether the alternatives are matched together with a keyword trie (see
+     * {@link #buildKeywordTrie}), so matching the choice doesn't match its sub-clauses.
+     */
+    public boolean hasKeywordTrie() {
+        return literals != null;
+    }
+
+    /**
+     * The indices of the alternatives to try at a position in the discovery phase, in order, or
+     * null to try all of them (see {@link #buildDispatchTable}).
+     */
+    public int[] alternatives(Parser parser, int pos) {
+        return dispatchTable == null ? null : dispatchTable[dispatchIndex(parser, pos)];
+    }
+
+    /**
+     * If all alternatives are literals (Str or Char), build a trie of them, so the first listed
+     * literal that matches is found in one pass over the input, in time proportional to the length
+     * of the literals rather than their number. Called when the grammar is compiled.
+     */
+    public void buildKeywordTrie() {
+        List<String> texts = new ArrayList<>();
+        for (Clause subClause : subClauses) {
+            if (subClause instanceof Str str) {
+                texts.add(str.text());
+            } else if (subClause instanceof Char ch) {
+                texts.add(ch.ch());
+            } else {
+                return;
+            }
+        }
+        if (texts.size() < 2) {
+            return;
+        }
+        literals = buildLiterals(texts);
+        utf8Literals = buildLiterals(texts.stream().map(Utf8Input::encode).toList());
+    }
+
+    private static Literals buildLiterals(List<String> texts) {
+        var trie = new KeywordTrie();
+        int[] lengths = new int[texts.size()];
+        for (int i = 0; i < texts.size(); i++) {
+            trie.add(texts.get(i), i);
+            lengths[i] = texts.get(i).length();
+        }
+        return new Literals(trie, lengths);
+    }
+
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
-        for (int i = 0; i < subClauses.size(); i++) {
+        if (literals != null) {
+            return matchLiterals(parser, pos);
+        }
+        // Error recovery can skip input, so the next character only rules out alternatives in the
+        // discovery phase
+        int[] alternatives = parser.inRecoveryPhase() ? null : alternatives(parser, pos);
+        int numAlternatives = alternatives != null ? alternatives.length : subClauses.size();
+        for (int k = 0; k < numAlternatives; k++) {
+            int i = alternatives != null ? alternatives[k] : k;
             MatchResult result = parser.match(subClauses.get(i), pos, bound);
             if (!result.isMismatch()) {
                 if (parser.inRecoveryPhase() && i == 0 && result.totDescendantErrors() > 0) {
@@ -33,14 +176,7 @@ public final class First extends HasMultipleSubClauses {
                         if (!altResult.isMismatch()) {
                             int altLen = altResult.len();
                             int altErrors = altResult.totDescendantErrors();
-
-                            double bestErrorRate = bestLen > 0 ? (double) bestErrors / bestLen : 0.0;
-                            double altErrorRate = altLen > 0 ? (double) altErrors / altLen : 0.0;
-                            double errorRateThreshold = 0.5;
-
-                            if ((bestErrorRate >= errorRateThreshold && altErrorRate < errorRateThreshold)
-                                    || altLen > bestLen
-                                    || (altLen == bestLen && altErrors < bestErrors)) {
+                            if (prefersRecoveredAlternative(bestLen, bestErrors, altLen, altErrors)) {
                                 bestResult = altResult;
                                 bestLen = altLen;
                                 bestErrors = altErrors;
@@ -52,12 +188,61 @@ public final class First extends HasMultipleSubClauses {
                     }
                     return Match.withChildren(this, List.of(bestResult), bestResult.isComplete());
                 }
+                if (parser.buildsLazyMatch(this)) {
+                    return Match.lazy(this, result.pos(), result.len(), result.isComplete(),
+                                      result.isFromLRContext(), result.totDescendantErrors());
+                }
                 return Match.withChildren(this, List.of(result), result.isComplete());
             }
+            if (result == cutMismatch()) {
+                break; // Alternative failed after a cut: don't try the remaining alternatives
+            }
         }
         return mismatch();
     }
 
+    /**
+     * Whether, in the recovery phase, a match of a later alternative with altLen and altErrors
+     * syntax errors is preferred to the best match so far, when the first alternative only matched
+     * with syntax errors: it has a low error rate where the best match has a high one, or it is
+     * longer, or as long with fewer errors.
+     */
+    public static boolean prefersRecoveredAlternative(int bestLen, int bestErrors, int altLen, int altErrors) {
+        double bestErrorRate = bestLen > 0 ? (double) bestErrors / bestLen : 0.0;
+        double altErrorRate = altLen > 0 ? (double) altErrors / altLen : 0.0;
+        double errorRateThreshold = 0.5;
+        return (bestErrorRate >= errorRateThreshold && altErrorRate < errorRateThreshold)
+            || altLen > bestLen
+            || (altLen == bestLen && altErrors < bestErrors);
+    }
+
+    /**
+     * Match the literals with the trie. A literal can't contain a syntax error, so this is the
+     * same in both phases.
+     */
+    private MatchResult matchLiterals(Parser parser, int pos) {
+        Literals literals = parser.utf8Input() != null ? utf8Literals : this.literals;
+        int i = literals.trie().match(parser, pos);
+        if (i < 0) {
+            return mismatch();
+        }
+        int len = literals.lengths()[i];
+        if (parser.buildsLazyMatch(this)) {
+            return Match.lazy(this, pos, len, true, false, 0);
+        }
+        return Match.withChildren(this, List.of(new Match(subClauses.get(i), pos, len)), true);
+    }
+
+    private static int dispatchIndex(Parser parser, int pos) {
+        parser.examine(pos + 1);
+        if (pos >= parser.input().length()) {
+            return END_OF_INPUT;
+        }
+        // (For UTF-8 input, this is the first byte of the character)
+        char c = parser.input().charAt(pos);
+        return c < NON_ASCII ? c : NON_ASCII;
+    }
+
     @Override
     public String toString() {
         return "(" + subClauses.stream().map(Object::toString).collect(Collectors.joining(" / ")) + ")";
@@ -17,7 +17,7 @@ public final class FollowedBy extends HasOneSubClause {
 
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
-        MatchResult result = parser.match(subClause, pos, bound);
+        MatchResult result = parser.matchLookahead(subClause, pos, bound);
         return result.isMismatch() ? mismatch() : new Match(this, pos, 0);
     }
 
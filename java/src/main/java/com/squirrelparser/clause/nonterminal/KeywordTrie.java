@@ -0,0 +1,90 @@
+package com.squirrelparser.clause.nonterminal;
+
+import java.util.Arrays;
+
+import com.squirrelparser.parser.Parser;
+
+/**
+ * A trie of the literals of an ordered choice, for matching them all in one pass over the input.
+ * Each node records the lowest index of the alternatives whose literal ends at the node, and the
+ * lowest index in its subtree, so the walk can stop as soon as no deeper literal could be listed
+ * before the best match found so far.
+ */
+final class KeywordTrie {
+    private static final int NONE = Integer.MAX_VALUE;
+
+    /** The characters of the edges to the children, sorted. */
+    private char[] keys = new char[0];
+
+    private KeywordTrie[] children = new KeywordTrie[0];
+
+    /** The lowest index of the alternatives whose literal ends at this node, or NONE. */
+    private int alternative = NONE;
+
+    /** The lowest index of the alternatives whose literal ends in this subtree, or NONE. */
+    private int subtreeAlternative = NONE;
+
+    /**
+     * Add the literal of an alternative. If the literal was already added by an earlier
+     * alternative, the later alternative can never match, and is ignored.
+     */
+    void add(String literal, int alternativeIdx) {
+        KeywordTrie node = this;
+        node.subtreeAlternative = Math.min(node.subtreeAlternative, alternativeIdx);
+        for (int i = 0; i < literal.length(); i++) {
+            node = node.child(literal.charAt(i));
+            node.subtreeAlternative = Math.min(node.subtreeAlternative, alternativeIdx);
+        }
+        node.alternative = Math.min(node.alternative, alternativeIdx);
+    }
+
+    private KeywordTrie child(char c) {
+        int i = Arrays.binarySearch(keys, c);
+        if (i >= 0) {
+            return children[i];
+        }
+        int insertAt = -i - 1;
+        var child = new KeywordTrie();
+        keys = insert(keys, insertAt, c);
+        KeywordTrie[] newChildren = Arrays.copyOf(children, children.length + 1);
+        System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+        newChildren[insertAt] = child;
+        children = newChildren;
+        return child;
+    }
+
+    private static char[] insert(char[] arr, int idx, char c) {
+        char[] newArr = Arrays.copyOf(arr, arr.length + 1);
+        System.arraycopy(arr, idx, newArr, idx + 1, arr.length - idx);
+        newArr[idx] = c;
+        return newArr;
+    }
+
+    /**
+     * Find the first listed alternative whose literal matches the input at a position. Records
+     * the input examined with {@link Parser#examine}.
+     *
+     * @return The index of the alternative, or -1 if none of the literals match
+     */
+    int match(Parser parser, int pos) {
+        CharSequence input = parser.input();
+        int best = alternative;
+        KeywordTrie node = this;
+        int curr = pos;
+        while (node.subtreeAlternative < best && node.keys.length > 0) {
+            // (Examining past the end of the input too, since a longer input could match)
+            parser.examine(curr + 1);
+            if (curr >= input.length()) {
+                break;
+            }
+            int i = Arrays.binarySearch(node.keys, input.charAt(curr));
+            if (i < 0) {
+                break;
+            }
+            node = node.children[i];
+            curr++;
+            best = Math.min(best, node.alternative);
+        }
+        return best == NONE ? -1 : best;
+    }
+}
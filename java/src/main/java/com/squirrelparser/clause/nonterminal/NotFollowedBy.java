@@ -17,7 +17,7 @@ public final class NotFollowedBy extends HasOneSubClause {
 
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
-        MatchResult result = parser.match(subClause, pos, bound);
+        MatchResult result = parser.matchLookahead(subClause, pos, bound);
         return result.isMismatch() ? new Match(this, pos, 0) : mismatch();
     }
 
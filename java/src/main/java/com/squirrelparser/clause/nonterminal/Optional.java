@@ -1,5 +1,8 @@
 package com.squirrelparser.clause.nonterminal;
 
+import static com.squirrelparser.parser.MatchResult.cutMismatch;
+import static com.squirrelparser.parser.MatchResult.mismatch;
+
 import java.util.List;
 
 import com.squirrelparser.clause.Clause;
@@ -19,11 +22,18 @@ public final class Optional extends HasOneSubClause {
     public MatchResult match(Parser parser, int pos, Clause bound) {
         MatchResult result = parser.match(subClause, pos, bound);
 
+        if (result == cutMismatch()) {
+            return mismatch();
+        }
         if (result.isMismatch()) {
             boolean incomplete = !parser.inRecoveryPhase() && pos < parser.input().length();
             return new Match(this, pos, 0, List.of(), !incomplete, false, 0);
         }
 
+        if (parser.buildsLazyMatch(this)) {
+            return Match.lazy(this, result.pos(), result.len(), result.isComplete(),
+                              result.isFromLRContext(), result.totDescendantErrors());
+        }
         return Match.withChildren(this, List.of(result), result.isComplete());
     }
 
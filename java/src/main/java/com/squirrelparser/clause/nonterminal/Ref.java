@@ -1,5 +1,8 @@
 package com.squirrelparser.clause.nonterminal;
 
+import static com.squirrelparser.parser.MatchResult.cutMismatch;
+import static com.squirrelparser.parser.MatchResult.mismatch;
+
 import java.util.List;
 import java.util.Map;
 
@@ -9,10 +12,13 @@ import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.Parser;
 
 /**
- * Reference to a named rule.
+ * Reference to a named rule. The reference is resolved to the rule's clause when the grammar is
+ * compiled, and the match of the rule's clause is returned as is: the rule boundary is recorded
+ * by the clause's {@link Clause#ownerRule()}, so no wrapper match is needed.
  */
 public final class Ref extends Clause {
     private final String ruleName;
+    private Clause target;
 
     public Ref(String ruleName) {
         this.ruleName = ruleName;
@@ -22,16 +28,38 @@ public final class Ref extends Clause {
         return ruleName;
     }
 
+    /**
+     * Get the clause of the referenced rule (null until the grammar is compiled).
+     */
+    public Clause target() {
+        return target;
+    }
+
+    /**
+     * Set the clause of the referenced rule. Called when the grammar is compiled.
+     */
+    public void setTarget(Clause target) {
+        this.target = target;
+    }
+
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
-        Clause clause = parser.rules().get(ruleName);
-        if (clause == null) {
+        if (target == null) {
             throw new IllegalArgumentException("Rule \"" + ruleName + "\" not found");
         }
-        MatchResult result = parser.match(clause, pos, bound);
+        MatchResult result = parser.match(target, pos, bound);
         if (result.isMismatch()) {
+            // Cuts are scoped to the rule they appear in
+            return result == cutMismatch() ? mismatch() : result;
+        }
+        if (ownerRule() == null) {
             return result;
         }
+        // This is the clause of an alias rule (A <- B): wrap the match of B to record A's boundary
+        if (parser.buildsLazyMatch(this)) {
+            return Match.lazy(this, result.pos(), result.len(), result.isComplete(),
+                              result.isFromLRContext(), result.totDescendantErrors());
+        }
         return Match.withChildren(this, List.of(result), result.isComplete());
     }
 
@@ -1,11 +1,19 @@
 package com.squirrelparser.clause.nonterminal;
 
+import static com.squirrelparser.parser.MatchResult.allComplete;
+import static com.squirrelparser.parser.MatchResult.cutMismatch;
 import static com.squirrelparser.parser.MatchResult.mismatch;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.terminal.AnyChar;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.CharSet;
+import com.squirrelparser.clause.terminal.Str;
+import com.squirrelparser.clause.terminal.Terminal;
 import com.squirrelparser.parser.Match;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.Parser;
@@ -14,18 +22,57 @@ import com.squirrelparser.parser.SyntaxError;
 
 /**
  * Base class for repetition (OneOrMore, ZeroOrMore).
+ *
+ * A repetition of a single-character terminal (e.g. {@code [0-9]+} or {@code [ \t]*}), or of
+ * the idiom {@code (!t .)*} for a literal or character class t, is a run: in the discovery phase,
+ * it is matched in one scan of the input, without a match call or Match per character. The
+ * children of a run of single-unit characters are a view that creates each child when it is read.
  */
 public sealed class Repetition extends HasOneSubClause permits OneOrMore, ZeroOrMore {
     private final boolean requireOne;
 
+    /** The terminal that each iteration of a run consumes, or null if this is not a run. */
+    private final Terminal runTerminal;
+
+    /** For the idiom {@code (!t .)*}, the terminal t that ends the run, otherwise null. */
+    private final Terminal runEnd;
+
     protected Repetition(Clause subClause, boolean requireOne) {
         super(subClause);
         this.requireOne = requireOne;
+        if (subClause instanceof CharSet || subClause instanceof Char || subClause instanceof AnyChar) {
+            this.runTerminal = (Terminal) subClause;
+            this.runEnd = null;
+        } else if (subClause instanceof Seq seq && seq.subClauses().size() == 2
+                && seq.subClauses().get(0) instanceof NotFollowedBy notFollowedBy
+                && (notFollowedBy.subClause() instanceof CharSet || notFollowedBy.subClause() instanceof Char
+                    || notFollowedBy.subClause() instanceof Str)
+                && seq.subClauses().get(1) instanceof AnyChar anyChar) {
+            this.runTerminal = anyChar;
+            this.runEnd = (Terminal) notFollowedBy.subClause();
+        } else {
+            this.runTerminal = null;
+            this.runEnd = null;
+        }
+    }
+
+    /**
+     * Whether this is a run, which is matched in the discovery phase without matching its
+     * sub-clause.
+     */
+    public boolean isRun() {
+        return runTerminal != null;
     }
 
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
-        List<MatchResult> children = new ArrayList<>();
+        if (runTerminal != null && !parser.inRecoveryPhase()) {
+            return matchRun(parser, pos);
+        }
+        if (parser.buildsLazyMatch(this)) {
+            return matchLazy(parser, pos);
+        }
+        int mark = parser.childMark();
         int curr = pos;
         boolean incomplete = false;
         boolean hasRecovered = false;
@@ -38,6 +85,10 @@ public sealed class Repetition extends HasOneSubClause permits OneOrMore, ZeroOr
             }
 
             MatchResult result = parser.match(subClause, curr);
+            if (result == cutMismatch()) {
+                parser.dropChildren(mark);
+                return mismatch(); // Iteration failed after a cut: the repetition fails
+            }
             if (result.isMismatch()) {
                 if (!parser.inRecoveryPhase() && curr < parser.input().length()) {
                     incomplete = true;
@@ -49,10 +100,10 @@ public sealed class Repetition extends HasOneSubClause permits OneOrMore, ZeroOr
                         ParserStats.recordRecovery();
                         int skip = recovery.skip;
                         MatchResult probe = recovery.probe;
-                        children.add(new SyntaxError(curr, skip));
+                        parser.pushChild(new SyntaxError(curr, skip));
                         hasRecovered = true;
                         if (probe != null) {
-                            children.add(probe);
+                            parser.pushChild(probe);
                             curr += skip + probe.len();
                             continue;
                         } else {
@@ -66,16 +117,132 @@ public sealed class Repetition extends HasOneSubClause permits OneOrMore, ZeroOr
             if (result.len() == 0) {
                 break;
             }
-            children.add(result);
+            parser.pushChild(result);
+            curr += result.len();
+        }
+        if (parser.numChildren(mark) == 0) {
+            return requireOne ? mismatch() : new Match(this, pos, 0, List.of(), !incomplete, false, 0);
+        }
+        List<MatchResult> children = parser.popChildren(mark);
+        return Match.withChildren(this, children, !incomplete && allComplete(children));
+    }
+
+    /**
+     * Match without building children (in the discovery phase, so there is no recovery).
+     */
+    private MatchResult matchLazy(Parser parser, int pos) {
+        int curr = pos;
+        int count = 0;
+        boolean incomplete = false;
+        boolean allComplete = true;
+        boolean isFromLRContext = false;
+        int totDescendantErrors = 0;
+        while (curr <= parser.input().length()) {
+            MatchResult result = parser.match(subClause, curr);
+            if (result == cutMismatch()) {
+                return mismatch();
+            }
+            if (result.isMismatch()) {
+                incomplete = curr < parser.input().length();
+                break;
+            }
+            if (result.len() == 0) {
+                break;
+            }
+            count++;
+            allComplete &= result.isComplete();
+            isFromLRContext |= result.isFromLRContext();
+            totDescendantErrors += result.totDescendantErrors();
             curr += result.len();
         }
-        if (requireOne && children.isEmpty()) {
+        if (requireOne && count == 0) {
             return mismatch();
         }
-        if (children.isEmpty()) {
+        if (count == 0) {
             return new Match(this, pos, 0, List.of(), !incomplete, false, 0);
         }
-        return Match.withChildren(this, children, !incomplete && allComplete(children));
+        return Match.lazy(this, pos, curr - pos, !incomplete && allComplete, isFromLRContext, totDescendantErrors);
+    }
+
+    /**
+     * Match a run in one scan (in the discovery phase, so there is no recovery). The result is the
+     * same as matching each iteration with {@link Parser#match}.
+     */
+    private MatchResult matchRun(Parser parser, int pos) {
+        int curr = pos;
+        int count = 0;
+        while (true) {
+            ParserStats.recordMatch();
+            if (runEnd != null && runEnd.matchLen(parser, curr) >= 0) {
+                break;
+            }
+            int len = runTerminal.matchLen(parser, curr);
+            if (len < 0) {
+                break;
+            }
+            curr += len;
+            count++;
+        }
+        // (The run ends at a mismatch, which only leaves the match complete at the end of the input)
+        boolean isComplete = curr >= parser.input().length();
+        if (count == 0) {
+            return requireOne ? mismatch() : new Match(this, pos, 0, List.of(), isComplete, false, 0);
+        }
+        if (parser.buildsLazyMatch(this)) {
+            return Match.lazy(this, pos, curr - pos, isComplete, false, 0);
+        }
+        List<MatchResult> children;
+        if (curr - pos == count) {
+            children = new RunChildren(pos, count);
+        } else {
+            // Some characters are wider than one unit (surrogate pairs, or multi-byte UTF-8), so
+            // the positions of the children are only known by scanning again
+            children = new ArrayList<>(count);
+            for (int i = 0, p = pos; i < count; i++) {
+                int len = runTerminal.matchLen(parser, p);
+                children.add(runChild(p, len));
+                p += len;
+            }
+        }
+        return new Match(this, pos, curr - pos, children, isComplete, false, 0);
+    }
+
+    /**
+     * The match of one iteration of a run, as {@link Parser#match} would return it.
+     */
+    private Match runChild(int pos, int len) {
+        Match terminalMatch = new Match(runTerminal, pos, len);
+        if (runEnd == null) {
+            return terminalMatch;
+        }
+        var notFollowedBy = ((Seq) subClause).subClauses().get(0);
+        return Match.withChildren(subClause, List.of(new Match(notFollowedBy, pos, 0), terminalMatch), true);
+    }
+
+    /**
+     * The children of a run of single-unit characters, created when they are read.
+     */
+    private final class RunChildren extends AbstractList<MatchResult> {
+        private final int pos;
+        private final int count;
+
+        RunChildren(int pos, int count) {
+            this.pos = pos;
+            this.count = count;
+        }
+
+        @Override
+        public MatchResult get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return runChild(pos + index, 1);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
     }
 
     private record RepetitionRecovery(int skip, MatchResult probe) {}
@@ -93,8 +260,4 @@ public sealed class Repetition extends HasOneSubClause permits OneOrMore, ZeroOr
         }
         return null;
     }
-
-    private static boolean allComplete(List<MatchResult> children) {
-        return children.stream().allMatch(c -> c.isMismatch() || c.isComplete());
-    }
 }
@@ -1,12 +1,14 @@
 package com.squirrelparser.clause.nonterminal;
 
+import static com.squirrelparser.parser.MatchResult.allComplete;
+import static com.squirrelparser.parser.MatchResult.cutMismatch;
 import static com.squirrelparser.parser.MatchResult.mismatch;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.terminal.Cut;
 import com.squirrelparser.clause.terminal.Str;
 import com.squirrelparser.parser.Match;
 import com.squirrelparser.parser.MatchResult;
@@ -18,15 +20,31 @@ import com.squirrelparser.parser.SyntaxError;
  * Sequence: matches all sub-clauses in order, with error recovery.
  */
 public final class Seq extends HasMultipleSubClauses {
+    /** True if a cut appears directly in this sequence, or in a nested (parenthesized) sequence. */
+    private final boolean containsCut;
+
     public Seq(List<Clause> subClauses) {
         super(subClauses);
+        this.containsCut = subClauses.stream()
+            .anyMatch(c -> c instanceof Cut || (c instanceof Seq s && s.containsCut));
+    }
+
+    /**
+     * Whether a cut appears directly in this sequence, or in a nested (parenthesized) sequence.
+     */
+    public boolean containsCut() {
+        return containsCut;
     }
 
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
-        List<MatchResult> children = new ArrayList<>();
+        if (parser.buildsLazyMatch(this)) {
+            return matchLazy(parser, pos, bound);
+        }
+        int mark = parser.childMark();
         int curr = pos;
         int i = 0;
+        boolean passedCut = false;
 
         while (i < subClauses.size()) {
             Clause clause = subClauses.get(i);
@@ -44,11 +62,11 @@ public final class Seq extends HasMultipleSubClauses {
                         MatchResult probe = recovery.probe;
 
                         if (inputSkip > 0) {
-                            children.add(new SyntaxError(curr, inputSkip));
+                            parser.pushChild(new SyntaxError(curr, inputSkip));
                         }
 
                         for (int j = 0; j < grammarSkip; j++) {
-                            children.add(new SyntaxError(curr + inputSkip, 0, subClauses.get(i + j)));
+                            parser.pushChild(new SyntaxError(curr + inputSkip, 0, subClauses.get(i + j)));
                         }
 
                         if (probe == null) {
@@ -56,27 +74,57 @@ public final class Seq extends HasMultipleSubClauses {
                             break;
                         }
 
-                        children.add(probe);
+                        parser.pushChild(probe);
                         curr += inputSkip + probe.len();
                         i += grammarSkip + 1;
                         continue;
                     }
                 }
-                return mismatch();
+                parser.dropChildren(mark);
+                return passedCut || result == cutMismatch() ? cutMismatch() : mismatch();
             }
 
-            children.add(result);
+            if (clause instanceof Cut || (clause instanceof Seq s && s.containsCut)) {
+                passedCut = true;
+            }
+            parser.pushChild(result);
             curr += result.len();
             i++;
         }
 
-        if (children.isEmpty()) {
+        if (parser.numChildren(mark) == 0) {
             return new Match(this, pos, 0);
         }
 
+        List<MatchResult> children = parser.popChildren(mark);
         return Match.withChildren(this, children, allComplete(children));
     }
 
+    /**
+     * Match without building children (in the discovery phase, so there is no recovery).
+     */
+    private MatchResult matchLazy(Parser parser, int pos, Clause bound) {
+        int curr = pos;
+        boolean passedCut = false;
+        boolean isComplete = true;
+        boolean isFromLRContext = false;
+        int totDescendantErrors = 0;
+        for (Clause clause : subClauses) {
+            MatchResult result = parser.match(clause, curr, bound);
+            if (result.isMismatch()) {
+                return passedCut || result == cutMismatch() ? cutMismatch() : mismatch();
+            }
+            if (clause instanceof Cut || (clause instanceof Seq s && s.containsCut)) {
+                passedCut = true;
+            }
+            isComplete &= result.isComplete();
+            isFromLRContext |= result.isFromLRContext();
+            totDescendantErrors += result.totDescendantErrors();
+            curr += result.len();
+        }
+        return Match.lazy(this, pos, curr - pos, isComplete, isFromLRContext, totDescendantErrors);
+    }
+
     private record Recovery(int inputSkip, int grammarSkip, MatchResult probe) {}
 
     private Recovery recover(Parser parser, int curr, int i) {
@@ -101,28 +149,13 @@ public final class Seq extends HasMultipleSubClauses {
                 int clauseIdx = i + grammarSkip;
                 Clause clause = subClauses.get(clauseIdx);
 
-                Clause failedClause = subClauses.get(i);
-                if (failedClause instanceof Str str && str.text().length() == 1 && inputSkip > 1) {
-                    if (clauseIdx + 1 < subClauses.size()) {
-                        Clause nextClause = subClauses.get(clauseIdx + 1);
-                        if (nextClause instanceof Str nextStr) {
-                            String skipped = parser.input().substring(curr, curr + inputSkip);
-                            if (skipped.contains(nextStr.text())) {
-                                continue;
-                            }
-                        }
-                    }
+                if (skipsRecoveryProbe(parser, curr, clauseIdx, inputSkip)) {
+                    continue;
                 }
                 MatchResult probe = parser.probe(clause, probePos);
                 if (!probe.isMismatch()) {
-                    if (clause instanceof Str str && inputSkip > str.text().length()) {
-                        if (str.text().length() > 1) {
-                            continue;
-                        }
-                        String skipped = parser.input().substring(curr, curr + inputSkip);
-                        if (skipped.contains(str.text())) {
-                            continue;
-                        }
+                    if (rejectsRecoveryProbe(parser, curr, clauseIdx, inputSkip)) {
+                        continue;
                     }
                     return new Recovery(inputSkip, grammarSkip, probe);
                 }
@@ -131,8 +164,33 @@ public final class Seq extends HasMultipleSubClauses {
         return null;
     }
 
-    private static boolean allComplete(List<MatchResult> children) {
-        return children.stream().allMatch(c -> c.isMismatch() || c.isComplete());
+    /**
+     * Whether error recovery for the failed sub-clause i at curr doesn't probe the sub-clause
+     * after skipping inputSkip input: a one-character literal is not skipped past the literal that
+     * follows it. Lengths are compared in UTF-16 chars, as the skipped input is decoded to a String
+     * (for UTF-8 input, inputSkip is in bytes, and is never less than the skipped length).
+     */
+    public boolean skipsRecoveryProbe(Parser parser, int curr, int i, int inputSkip) {
+        if (subClauses.get(i) instanceof Str str && str.text().length() == 1 && inputSkip > 1
+                && i + 1 < subClauses.size() && subClauses.get(i + 1) instanceof Str nextStr) {
+            String skipped = parser.input().subSequence(curr, curr + inputSkip).toString();
+            return skipped.length() > 1 && skipped.contains(nextStr.text());
+        }
+        return false;
+    }
+
+    /**
+     * Whether error recovery for the failed sub-clause i at curr rejects a successful probe of the
+     * sub-clause after skipping inputSkip input: a literal is not found by skipping more input
+     * than its length, unless it is a one-character literal that the skipped input doesn't contain.
+     */
+    public boolean rejectsRecoveryProbe(Parser parser, int curr, int i, int inputSkip) {
+        if (subClauses.get(i) instanceof Str str && inputSkip > str.text().length()) {
+            String skipped = parser.input().subSequence(curr, curr + inputSkip).toString();
+            return skipped.length() > str.text().length()
+                && (str.text().length() > 1 || skipped.contains(str.text()));
+        }
+        return false;
     }
 
     @Override
@@ -6,17 +6,34 @@ import com.squirrelparser.clause.Clause;
 import com.squirrelparser.parser.Match;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.Utf8Input;
 
 /**
- * Matches any single character.
+ * Matches any single code point: a surrogate pair in a String input, or up to 4 bytes in a UTF-8
+ * input. An unpaired surrogate or a malformed UTF-8 byte is matched on its own.
  */
 public final class AnyChar extends Terminal {
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
+        int len = matchLen(parser, pos);
+        return len < 0 ? mismatch() : new Match(this, pos, len);
+    }
+
+    @Override
+    public int matchLen(Parser parser, int pos) {
         if (pos >= parser.input().length()) {
-            return mismatch();
+            parser.examine(pos + 1);
+            return -1;
+        }
+        Utf8Input utf8 = parser.utf8Input();
+        if (utf8 != null) {
+            int c = utf8.codePointAt(pos);
+            parser.examine(pos + (c < 0 ? 4 : Utf8Input.encodedLength(c)));
+            return c < 0 ? 1 : Utf8Input.encodedLength(c);
         }
-        return new Match(this, pos, 1);
+        // (A high surrogate is examined together with the next char, even if it is unpaired)
+        parser.examine(pos + (Character.isHighSurrogate(parser.input().charAt(pos)) ? 2 : 1));
+        return Character.charCount(Character.codePointAt(parser.input(), pos));
     }
 
     @Override
@@ -6,6 +6,7 @@ import com.squirrelparser.clause.Clause;
 import com.squirrelparser.parser.Match;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.Utf8Input;
 import com.squirrelparser.parser.Utils;
 
 /**
@@ -14,11 +15,15 @@ import com.squirrelparser.parser.Utils;
 public final class Char extends Terminal {
     private final String ch;
 
+    /** The UTF-8 encoding of the character, for matching a {@link Utf8Input}. */
+    private final String utf8Ch;
+
     public Char(String ch) {
         if (ch.length() != 1) {
             throw new IllegalArgumentException("Char must be a single character");
         }
         this.ch = ch;
+        this.utf8Ch = Utf8Input.encode(ch);
     }
 
     public String ch() {
@@ -27,15 +32,23 @@ public final class Char extends Terminal {
 
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
+        int len = matchLen(parser, pos);
+        return len < 0 ? mismatch() : new Match(this, pos, len);
+    }
+
+    @Override
+    public int matchLen(Parser parser, int pos) {
+        String ch = parser.utf8Input() != null ? utf8Ch : this.ch;
+        parser.examine(pos + ch.length());
         if (pos + ch.length() > parser.input().length()) {
-            return mismatch();
+            return -1;
         }
         for (int i = 0; i < ch.length(); i++) {
             if (parser.input().charAt(pos + i) != ch.charAt(i)) {
-                return mismatch();
+                return -1;
             }
         }
-        return new Match(this, pos, ch.length());
+        return ch.length();
     }
 
     @Override
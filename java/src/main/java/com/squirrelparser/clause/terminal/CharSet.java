@@ -2,30 +2,71 @@ package com.squirrelparser.clause.terminal;
 
 import static com.squirrelparser.parser.MatchResult.mismatch;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 import com.squirrelparser.clause.Clause;
 import com.squirrelparser.parser.Match;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.Utf8Input;
 import com.squirrelparser.parser.Utils;
 
 /**
  * Matches a single character in a set of character ranges.
  *
  * Supports multiple ranges and an optional inversion flag for negated character
- * classes like `[^a-zA-Z0-9]`.
+ * classes like `[^a-zA-Z0-9]`. Ranges are code point ranges, so a match consumes a
+ * whole code point: a surrogate pair, or for UTF-8 input, a 1 to 4 byte sequence.
+ *
+ * The set is compiled when it is created, with the inversion folded in: the Basic Multilingual
+ * Plane is looked up in a two-level bitmap (256 blocks of 256 bits, with empty and full blocks
+ * shared), and supplementary code points by binary search of the sorted ranges above the BMP.
  */
 public final class CharSet extends Terminal {
-    /** List of character ranges as (lo, hi) code unit pairs (inclusive). */
+    private static final long[] EMPTY_BLOCK = new long[4];
+    private static final long[] FULL_BLOCK = {-1L, -1L, -1L, -1L};
+
+    /** List of character ranges as (lo, hi) code point pairs (inclusive). */
     private final List<int[]> ranges;
 
     /** If true, matches any character NOT in the set. */
     private final boolean inverted;
 
+    /** The bitmap of the BMP code points in the set, by block (the high byte of the code point). */
+    private final long[][] bmpBlocks;
+
+    /** The supplementary code points in the set, as sorted (lo, hi) pairs (inclusive). */
+    private final int[] supplementaryRanges;
+
     public CharSet(List<int[]> ranges, boolean inverted) {
         this.ranges = ranges;
         this.inverted = inverted;
+        int[] normalized = normalizeRanges(ranges, inverted);
+        var bmp = new BitSet(0x10000);
+        int numSupplementary = 0;
+        for (int i = 0; i < normalized.length; i += 2) {
+            if (normalized[i] <= 0xFFFF) {
+                bmp.set(normalized[i], Math.min(normalized[i + 1], 0xFFFF) + 1);
+            }
+            if (normalized[i + 1] > 0xFFFF) {
+                numSupplementary += 2;
+            }
+        }
+        long[] bits = Arrays.copyOf(bmp.toLongArray(), 0x10000 / 64);
+        this.bmpBlocks = new long[256][];
+        for (int block = 0; block < 256; block++) {
+            long[] blockBits = Arrays.copyOfRange(bits, block * 4, block * 4 + 4);
+            bmpBlocks[block] = Arrays.equals(blockBits, EMPTY_BLOCK) ? EMPTY_BLOCK
+                : Arrays.equals(blockBits, FULL_BLOCK) ? FULL_BLOCK : blockBits;
+        }
+        this.supplementaryRanges = Arrays.copyOfRange(normalized, normalized.length - numSupplementary,
+                                                      normalized.length);
+        if (numSupplementary > 0 && supplementaryRanges[0] <= 0xFFFF) {
+            supplementaryRanges[0] = 0x10000;
+        }
     }
 
     public CharSet(List<int[]> ranges) {
@@ -56,25 +97,100 @@ public final class CharSet extends Terminal {
         return inverted;
     }
 
-    @Override
-    public MatchResult match(Parser parser, int pos, Clause bound) {
-        if (pos >= parser.input().length()) {
-            return mismatch();
+    /**
+     * Sort and merge code point ranges, given as (lo, hi) pairs (inclusive, in any order), and
+     * take their complement if inverted.
+     *
+     * @return The set as sorted, disjoint, non-adjacent (lo, hi) pairs, flattened
+     */
+    public static int[] normalizeRanges(List<int[]> ranges, boolean inverted) {
+        List<int[]> sorted = new ArrayList<>(ranges);
+        sorted.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] merged = new int[sorted.size() * 2];
+        int n = 0;
+        for (int[] range : sorted) {
+            if (range[0] > range[1]) {
+                continue;
+            }
+            if (n > 0 && range[0] <= merged[n - 1] + 1) {
+                merged[n - 1] = Math.max(merged[n - 1], range[1]);
+            } else {
+                merged[n++] = range[0];
+                merged[n++] = range[1];
+            }
+        }
+        if (!inverted) {
+            return Arrays.copyOf(merged, n);
         }
-        int c = parser.input().codePointAt(pos);
+        int[] complement = new int[n + 2];
+        int m = 0;
+        int next = 0;
+        for (int i = 0; i < n; i += 2) {
+            if (merged[i] > next) {
+                complement[m++] = next;
+                complement[m++] = merged[i] - 1;
+            }
+            next = merged[i + 1] + 1;
+        }
+        if (next <= Character.MAX_CODE_POINT) {
+            complement[m++] = next;
+            complement[m++] = Character.MAX_CODE_POINT;
+        }
+        return Arrays.copyOf(complement, m);
+    }
 
-        boolean inSet = false;
-        for (int[] range : ranges) {
-            if (c >= range[0] && c <= range[1]) {
-                inSet = true;
-                break;
+    /**
+     * Whether the set contains a code point (with the inversion applied).
+     */
+    public boolean contains(int c) {
+        if (c <= 0xFFFF) {
+            return (bmpBlocks[c >>> 8][(c >>> 6) & 3] & (1L << c)) != 0;
+        }
+        int lo = 0;
+        int hi = supplementaryRanges.length / 2 - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c < supplementaryRanges[mid * 2]) {
+                hi = mid - 1;
+            } else if (c > supplementaryRanges[mid * 2 + 1]) {
+                lo = mid + 1;
+            } else {
+                return true;
             }
         }
+        return false;
+    }
 
-        if (inverted ? !inSet : inSet) {
-            return new Match(this, pos, 1);
+    @Override
+    public MatchResult match(Parser parser, int pos, Clause bound) {
+        int len = matchLen(parser, pos);
+        return len < 0 ? mismatch() : new Match(this, pos, len);
+    }
+
+    @Override
+    public int matchLen(Parser parser, int pos) {
+        if (pos >= parser.input().length()) {
+            parser.examine(pos + 1);
+            return -1;
+        }
+        Utf8Input utf8 = parser.utf8Input();
+        int c;
+        int len;
+        if (utf8 != null) {
+            c = utf8.codePointAt(pos);
+            if (c < 0) {
+                parser.examine(pos + 4);
+                return -1; // Malformed UTF-8
+            }
+            len = Utf8Input.encodedLength(c);
+            parser.examine(pos + len);
+        } else {
+            c = Character.codePointAt(parser.input(), pos);
+            len = Character.charCount(c);
+            // (A high surrogate is examined together with the next char, even if it is unpaired)
+            parser.examine(pos + (Character.isHighSurrogate(parser.input().charAt(pos)) ? 2 : 1));
         }
-        return mismatch();
+        return contains(c) ? len : -1;
     }
 
     @Override
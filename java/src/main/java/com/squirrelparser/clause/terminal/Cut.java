@@ -0,0 +1,28 @@
+package com.squirrelparser.clause.terminal;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Match;
+import com.squirrelparser.parser.MatchResult;
+import com.squirrelparser.parser.Parser;
+
+/**
+ * Cut: always succeeds without consuming any input, and commits the parse to the current position.
+ *
+ * If a later element of the enclosing sequence (or of a sequence it is nested in) fails, the
+ * innermost enclosing choice (First, Optional or Repetition) fails rather than trying its other
+ * alternatives. The cut also tells the parser that memo entries before this position can be
+ * evicted. Cuts are scoped to the rule they appear in, and cuts inside lookaheads and recovery
+ * probes don't commit.
+ */
+public final class Cut extends Terminal {
+    @Override
+    public MatchResult match(Parser parser, int pos, Clause bound) {
+        parser.commit(pos);
+        return new Match(this, pos, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "^";
+    }
+}
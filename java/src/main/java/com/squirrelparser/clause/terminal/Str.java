@@ -6,6 +6,7 @@ import com.squirrelparser.clause.Clause;
 import com.squirrelparser.parser.Match;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.Utf8Input;
 import com.squirrelparser.parser.Utils;
 
 /**
@@ -14,8 +15,12 @@ import com.squirrelparser.parser.Utils;
 public final class Str extends Terminal {
     private final String text;
 
+    /** The UTF-8 encoding of the text, for matching a {@link Utf8Input}. */
+    private final String utf8Text;
+
     public Str(String text) {
         this.text = text;
+        this.utf8Text = Utf8Input.encode(text);
     }
 
     public String text() {
@@ -24,15 +29,23 @@ public final class Str extends Terminal {
 
     @Override
     public MatchResult match(Parser parser, int pos, Clause bound) {
+        int len = matchLen(parser, pos);
+        return len < 0 ? mismatch() : new Match(this, pos, len);
+    }
+
+    @Override
+    public int matchLen(Parser parser, int pos) {
+        String text = parser.utf8Input() != null ? utf8Text : this.text;
+        parser.examine(pos + text.length());
         if (pos + text.length() > parser.input().length()) {
-            return mismatch();
+            return -1;
         }
         for (int i = 0; i < text.length(); i++) {
             if (parser.input().charAt(pos + i) != text.charAt(i)) {
-                return mismatch();
+                return -1;
             }
         }
-        return new Match(this, pos, text.length());
+        return text.length();
     }
 
     @Override
@@ -3,14 +3,27 @@ package com.squirrelparser.clause.terminal;
 import java.util.Map;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.MatchResult;
+import com.squirrelparser.parser.Parser;
 
 /**
  * Abstract base class for terminal clauses.
  */
-public abstract sealed class Terminal extends Clause permits Str, Char, CharSet, AnyChar, Nothing {
+public abstract sealed class Terminal extends Clause permits Str, Char, CharSet, AnyChar, Nothing, Cut {
     /** The AST/CST node label for terminals. */
     public static final String NODE_LABEL = "<Terminal>";
 
+    /**
+     * Match at a position without creating a Match, so that runs of a terminal can be scanned
+     * without allocating (see Repetition). Like match, this records the examined input.
+     *
+     * @return The length of the match, or -1 for a mismatch
+     */
+    public int matchLen(Parser parser, int pos) {
+        MatchResult result = match(parser, pos, null);
+        return result.isMismatch() ? -1 : result.len();
+    }
+
     @Override
     public void checkRuleRefs(Map<String, Clause> grammarMap) {
         // Terminals have no references to check.
@@ -0,0 +1,17 @@
+package com.squirrelparser.parser;
+
+import com.squirrelparser.clause.Clause;
+
+/**
+ * Matches the clauses of one grammar, by clause index, for the compiled engine. Implemented by a
+ * hidden class generated by {@link MatcherCompiler}, or by a class generated at build time by
+ * {@link GrammarSourceGenerator} (see {@link Grammar#withCompiledMatcher}).
+ */
+@FunctionalInterface
+public interface CompiledMatcher {
+    /**
+     * Match the clause with the given index at a position, without memoization (the equivalent of
+     * {@link Clause#match}).
+     */
+    MatchResult match(int clauseIdx, Parser parser, int pos, Clause bound);
+}
@@ -0,0 +1,127 @@
+package com.squirrelparser.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.squirrelparser.clause.terminal.CharSet;
+
+/**
+ * The FIRST set of a clause: the code points that the first character a clause consumes can be.
+ * Stored as sorted, disjoint, non-adjacent code point ranges. {@link #ANY} is used when the set
+ * is unknown or unrestricted (e.g. for AnyChar).
+ *
+ * The FIRST set says nothing about a clause that can match without consuming input, so it can
+ * only be used to rule out a clause that is not nullable (see {@link GrammarAnalysis#firstSet}).
+ */
+public final class FirstSet {
+    /** The empty set (e.g. for a clause that never consumes input). */
+    public static final FirstSet EMPTY = new FirstSet(new int[0]);
+
+    /** Any code point (unknown or unrestricted). */
+    public static final FirstSet ANY = new FirstSet(new int[]{0, Character.MAX_CODE_POINT});
+
+    /** (lo, hi) pairs of code points (inclusive). */
+    private final int[] ranges;
+
+    private FirstSet(int[] ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Create a set of code point ranges, given as (lo, hi) pairs (inclusive, in any order), or the
+     * complement of the ranges if inverted.
+     */
+    public static FirstSet of(List<int[]> ranges, boolean inverted) {
+        return canonical(CharSet.normalizeRanges(ranges, inverted));
+    }
+
+    /** Create the set of one code point. */
+    public static FirstSet of(int codePoint) {
+        return new FirstSet(new int[]{codePoint, codePoint});
+    }
+
+    private static FirstSet canonical(int[] ranges) {
+        if (ranges.length == 0) {
+            return EMPTY;
+        }
+        return Arrays.equals(ranges, ANY.ranges) ? ANY : new FirstSet(ranges);
+    }
+
+    /** The union of this set and another. */
+    public FirstSet union(FirstSet other) {
+        if (this == ANY || other == ANY) {
+            return ANY;
+        }
+        if (other == EMPTY || this.equals(other)) {
+            return this;
+        }
+        if (this == EMPTY) {
+            return other;
+        }
+        List<int[]> ranges = new ArrayList<>();
+        for (int i = 0; i < this.ranges.length; i += 2) {
+            ranges.add(new int[]{this.ranges[i], this.ranges[i + 1]});
+        }
+        for (int i = 0; i < other.ranges.length; i += 2) {
+            ranges.add(new int[]{other.ranges[i], other.ranges[i + 1]});
+        }
+        return of(ranges, false);
+    }
+
+    public boolean isAny() {
+        return this == ANY;
+    }
+
+    /** Whether the set contains a code point. */
+    public boolean contains(int codePoint) {
+        int lo = 0;
+        int hi = ranges.length / 2 - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (codePoint < ranges[mid * 2]) {
+                hi = mid - 1;
+            } else if (codePoint > ranges[mid * 2 + 1]) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether the set contains any code point in the range lo to hi (inclusive). */
+    public boolean containsAny(int lo, int hi) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] <= hi && ranges[i + 1] >= lo) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof FirstSet other && Arrays.equals(ranges, other.ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        if (this == ANY) {
+            return "ANY";
+        }
+        var buf = new StringBuilder("[");
+        for (int i = 0; i < ranges.length; i += 2) {
+            buf.append(Utils.escapeString(Character.toString(ranges[i])));
+            if (ranges[i + 1] != ranges[i]) {
+                buf.append('-').append(Utils.escapeString(Character.toString(ranges[i + 1])));
+            }
+        }
+        return buf.append(']').toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.squirrelparser.parser;
+
+/**
+ * Input text that the parser edits in place for incremental reparsing (see
+ * {@link Parser#applyEdit}). The text is stored in one array with a gap at the last edit, so an
+ * edit only moves the text between the last edit and this one, and copies the new text into the
+ * gap; the array is only copied when the gap is too small for the new text.
+ */
+final class GapBuffer implements CharSequence {
+    private char[] chars;
+    private int gapStart;
+    private int gapEnd;
+
+    /**
+     * Copy text into a new buffer, with the gap at the end.
+     */
+    GapBuffer(CharSequence text) {
+        int length = text.length();
+        chars = new char[length + length / 8 + 16];
+        text.toString().getChars(0, length, chars, 0);
+        gapStart = length;
+        gapEnd = chars.length;
+    }
+
+    @Override
+    public int length() {
+        return chars.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        return chars[index < gapStart ? index : index + gapEnd - gapStart];
+    }
+
+    /**
+     * Replace oldLen characters at start with newText.
+     */
+    void replace(int start, int oldLen, CharSequence newText) {
+        moveGap(start);
+        gapEnd += oldLen;
+        int newLen = newText.length();
+        if (gapEnd - gapStart < newLen) {
+            int length = length();
+            char[] newChars = new char[length + newLen + (length + newLen) / 8 + 16];
+            int newGapEnd = newChars.length - (chars.length - gapEnd);
+            System.arraycopy(chars, 0, newChars, 0, gapStart);
+            System.arraycopy(chars, gapEnd, newChars, newGapEnd, chars.length - gapEnd);
+            chars = newChars;
+            gapEnd = newGapEnd;
+        }
+        newText.toString().getChars(0, newLen, chars, gapStart);
+        gapStart += newLen;
+    }
+
+    /** Move the gap to pos, by moving the text between the gap and pos across it. */
+    private void moveGap(int pos) {
+        if (pos < gapStart) {
+            System.arraycopy(chars, pos, chars, gapEnd - (gapStart - pos), gapStart - pos);
+            gapEnd -= gapStart - pos;
+        } else {
+            System.arraycopy(chars, gapEnd, chars, gapStart, pos - gapStart);
+            gapEnd += pos - gapStart;
+        }
+        gapStart = pos;
+    }
+
+    /**
+     * Copy a range of the text to a String (the buffer changes with later edits).
+     */
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        if (end <= gapStart) {
+            return new String(chars, start, end - start);
+        }
+        if (start >= gapStart) {
+            return new String(chars, start + gapEnd - gapStart, end - start);
+        }
+        return new StringBuilder(end - start)
+            .append(chars, start, gapStart - start)
+            .append(chars, gapEnd, end - gapStart)
+            .toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length());
+    }
+}
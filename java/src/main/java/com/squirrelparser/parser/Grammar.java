@@ -0,0 +1,357 @@
+package com.squirrelparser.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.FollowedBy;
+import com.squirrelparser.clause.nonterminal.HasMultipleSubClauses;
+import com.squirrelparser.clause.nonterminal.HasOneSubClause;
+import com.squirrelparser.clause.nonterminal.NotFollowedBy;
+import com.squirrelparser.clause.nonterminal.OneOrMore;
+import com.squirrelparser.clause.nonterminal.Optional;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.nonterminal.ZeroOrMore;
+import com.squirrelparser.clause.terminal.AnyChar;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.CharSet;
+import com.squirrelparser.clause.terminal.Cut;
+import com.squirrelparser.clause.terminal.Nothing;
+import com.squirrelparser.clause.terminal.Str;
+
+/**
+ * A compiled grammar: the resolved rules, the transparent rule set, dense clause indices,
+ * and the top rule.
+ *
+ * A Grammar is immutable once compiled, so it can be compiled once and shared between
+ * threads, with each thread creating its own Parser for each input. Compiling a rule map
+ * copies its clauses, so the caller's clauses are never modified, and can be compiled into
+ * any number of grammars.
+ */
+public final class Grammar {
+    private final Map<String, Clause> rules;
+    private final Set<String> transparentRules;
+    private final List<Clause> allClauses;
+    private final GrammarAnalysis analysis;
+    private final boolean[] memoized;
+    private final boolean[] memoRequired;
+    private final String topRuleName;
+    /** The compiled engine's matcher, compiled on first use (shared with views of other top rules). */
+    private final AtomicReference<CompiledMatcher> compiledMatcher;
+    /** The instruction VM's program, compiled on first use (shared with views of other top rules). */
+    private final AtomicReference<InstructionVM.Program> vmProgram;
+
+    private Grammar(Map<String, Clause> rules, Set<String> transparentRules, List<Clause> allClauses,
+                    GrammarAnalysis analysis, boolean[] memoized, boolean[] memoRequired, String topRuleName,
+                    AtomicReference<CompiledMatcher> compiledMatcher,
+                    AtomicReference<InstructionVM.Program> vmProgram) {
+        this.rules = rules;
+        this.transparentRules = transparentRules;
+        this.allClauses = allClauses;
+        this.analysis = analysis;
+        this.memoized = memoized;
+        this.memoRequired = memoRequired;
+        this.topRuleName = topRuleName;
+        this.compiledMatcher = compiledMatcher;
+        this.vmProgram = vmProgram;
+    }
+
+    /**
+     * Compile a grammar from a rule map, as returned by {@link MetaGrammar#parseGrammar(String)}.
+     * Rule names with a '~' prefix are transparent. A rule's clause may carry a memoization
+     * annotation (see {@link MemoPolicy}). The grammar is built from a copy of the clauses.
+     *
+     * @param rules       The rule map
+     * @param topRuleName The default top rule name (may be null if given per parse)
+     */
+    public static Grammar compile(Map<String, Clause> rules, String topRuleName) {
+        return compileClauses(copyClauses(rules), topRuleName);
+    }
+
+    /**
+     * Compile a grammar from a rule map whose clauses are not used anywhere else, since compiling
+     * assigns their clause indices, rule owners, Ref targets and First dispatch tables.
+     */
+    private static Grammar compileClauses(Map<String, Clause> rules, String topRuleName) {
+        var resolvedRules = new HashMap<String, Clause>();
+        var transparentRules = new HashSet<String>();
+
+        // Process rules: strip '~' prefix indicating a transparent rule
+        for (var entry : rules.entrySet()) {
+            if (entry.getKey().startsWith("~")) {
+                String ruleName = entry.getKey().substring(1);
+                resolvedRules.put(ruleName, entry.getValue());
+                transparentRules.add(ruleName);
+            } else {
+                resolvedRules.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        List<Clause> allClauses = Collections.unmodifiableList(assignClauseIndices(resolvedRules));
+        link(resolvedRules, allClauses);
+        GrammarAnalysis analysis = new GrammarAnalysis(allClauses);
+        for (Clause clause : allClauses) {
+            if (clause instanceof First first) {
+                first.buildKeywordTrie();
+                first.buildDispatchTable(analysis);
+            }
+        }
+        return new Grammar(
+            Collections.unmodifiableMap(resolvedRules),
+            Collections.unmodifiableSet(transparentRules),
+            allClauses,
+            analysis,
+            MemoPolicy.memoizedClauses(resolvedRules, allClauses, analysis),
+            MemoPolicy.memoRequiredClauses(resolvedRules, allClauses, analysis),
+            topRuleName,
+            new AtomicReference<>(),
+            new AtomicReference<>()
+        );
+    }
+
+    /**
+     * Parse a grammar specification with the MetaGrammar, optimize it (see {@link GrammarOptimizer})
+     * and compile it.
+     */
+    public static Grammar compile(String grammarSpec, String topRuleName) {
+        // (The clauses are freshly built by the MetaGrammar and the optimizer, so they aren't copied)
+        return compileClauses(GrammarOptimizer.optimize(MetaGrammar.parseGrammar(grammarSpec)).rules(),
+                              topRuleName);
+    }
+
+    /**
+     * Copy the clauses of a rule map. A clause reachable from several parents is copied once, so
+     * the copy keeps the sharing of the original, except that rules with the same clause instance
+     * each get their own copy of it, since a rule's clause records the rule it belongs to. (Other
+     * uses of the instance share the copy of the first of those rules by name.)
+     */
+    private static Map<String, Clause> copyClauses(Map<String, Clause> rules) {
+        Map<Clause, Clause> copies = new IdentityHashMap<>();
+        Set<Clause> ruleClauses = Collections.newSetFromMap(new IdentityHashMap<>());
+        var copiedRules = new HashMap<String, Clause>();
+        for (String ruleName : new TreeSet<>(rules.keySet())) {
+            Clause copy = copyClause(rules.get(ruleName), copies);
+            if (!ruleClauses.add(copy)) {
+                copy = newCopy(rules.get(ruleName), copies);
+                ruleClauses.add(copy);
+            }
+            copiedRules.put(ruleName, copy);
+        }
+        return copiedRules;
+    }
+
+    private static Clause copyClause(Clause clause, Map<Clause, Clause> copies) {
+        Clause copy = copies.get(clause);
+        if (copy == null) {
+            copy = newCopy(clause, copies);
+            copies.put(clause, copy);
+        }
+        return copy;
+    }
+
+    /** Make a new copy of a clause, whose sub-clauses are shared copies. */
+    private static Clause newCopy(Clause clause, Map<Clause, Clause> copies) {
+        Clause copy = switch (clause) {
+            case Str str -> new Str(str.text());
+            case Char ch -> new Char(ch.ch());
+            case CharSet charSet -> new CharSet(charSet.ranges(), charSet.inverted());
+            case AnyChar a -> new AnyChar();
+            case Cut cut -> new Cut();
+            case Nothing nothing -> new Nothing();
+            case Ref ref -> new Ref(ref.ruleName());
+            case Seq seq -> new Seq(copyClauses(seq.subClauses(), copies));
+            case First first -> new First(copyClauses(first.subClauses(), copies));
+            case OneOrMore o -> new OneOrMore(copyClause(o.subClause(), copies));
+            case ZeroOrMore z -> new ZeroOrMore(copyClause(z.subClause(), copies));
+            case Optional o -> new Optional(copyClause(o.subClause(), copies));
+            case FollowedBy f -> new FollowedBy(copyClause(f.subClause(), copies));
+            case NotFollowedBy n -> new NotFollowedBy(copyClause(n.subClause(), copies));
+            default -> throw new IllegalArgumentException("Unsupported clause type: " + clause.getClass().getName());
+        };
+        copy.setMemoAnnotation(clause.memoAnnotation());
+        return copy;
+    }
+
+    private static List<Clause> copyClauses(List<Clause> clauses, Map<Clause, Clause> copies) {
+        List<Clause> copied = new ArrayList<>(clauses.size());
+        for (Clause clause : clauses) {
+            copied.add(copyClause(clause, copies));
+        }
+        return copied;
+    }
+
+    /**
+     * Assign a dense index to every clause reachable from the rules, in a deterministic order
+     * (rules sorted by name, then depth-first), so the memo table can be keyed by clause index.
+     */
+    private static List<Clause> assignClauseIndices(Map<String, Clause> rules) {
+        List<Clause> clauses = new ArrayList<>();
+        Set<Clause> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<String> ruleNames = new ArrayList<>(rules.keySet());
+        Collections.sort(ruleNames);
+        for (String ruleName : ruleNames) {
+            collectClauses(rules.get(ruleName), visited, clauses);
+        }
+        for (int i = 0; i < clauses.size(); i++) {
+            clauses.get(i).setClauseIdx(i);
+        }
+        return clauses;
+    }
+
+    /**
+     * Record the rule each rule's clause belongs to, and resolve each Ref to the clause of the rule
+     * it refers to, so rule references cost no lookup when matching. (Unknown rules are left
+     * unresolved, and fail when matched.) A memoization annotation on an alias rule (A <- B) is
+     * rejected, since a Ref is never memoized (see {@link MemoPolicy}).
+     */
+    private static void link(Map<String, Clause> rules, List<Clause> allClauses) {
+        Set<Clause> ruleClauses = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (var entry : rules.entrySet()) {
+            if (!ruleClauses.add(entry.getValue())) {
+                throw new IllegalArgumentException(
+                    "Rule \"" + entry.getKey() + "\" has the same clause instance as another rule");
+            }
+            if (entry.getValue() instanceof Ref ref && entry.getValue().memoAnnotation() != null) {
+                throw new IllegalArgumentException("Rule \"" + entry.getKey() + "\" is an alias of rule \""
+                    + ref.ruleName() + "\", so it can't have a memoization annotation (annotate \""
+                    + ref.ruleName() + "\" instead)");
+            }
+            entry.getValue().setOwnerRule(entry.getKey());
+        }
+        for (Clause clause : allClauses) {
+            if (clause instanceof Ref ref) {
+                ref.setTarget(rules.get(ref.ruleName()));
+            }
+        }
+    }
+
+    private static void collectClauses(Clause clause, Set<Clause> visited, List<Clause> clauses) {
+        if (!visited.add(clause)) {
+            return;
+        }
+        clauses.add(clause);
+        if (clause instanceof HasOneSubClause h) {
+            collectClauses(h.subClause(), visited, clauses);
+        } else if (clause instanceof HasMultipleSubClauses h) {
+            for (Clause subClause : h.subClauses()) {
+                collectClauses(subClause, visited, clauses);
+            }
+        }
+    }
+
+    /**
+     * Get a view of this grammar with a different top rule. The compiled state is shared.
+     */
+    public Grammar withTopRule(String topRuleName) {
+        if (Objects.equals(topRuleName, this.topRuleName)) {
+            return this;
+        }
+        return new Grammar(rules, transparentRules, allClauses, analysis, memoized, memoRequired, topRuleName,
+                           compiledMatcher, vmProgram);
+    }
+
+    /**
+     * Get a view of this grammar whose compiled engine uses the given matcher, rather than one
+     * compiled on first use. The matcher must match this grammar's clauses by clause index, as the
+     * matchers generated by {@link GrammarSourceGenerator} do.
+     */
+    public Grammar withCompiledMatcher(CompiledMatcher matcher) {
+        return new Grammar(rules, transparentRules, allClauses, analysis, memoized, memoRequired, topRuleName,
+                           new AtomicReference<>(Objects.requireNonNull(matcher, "matcher")), vmProgram);
+    }
+
+    public Map<String, Clause> rules() { return rules; }
+    public Set<String> transparentRules() { return transparentRules; }
+    public List<Clause> allClauses() { return allClauses; }
+    public GrammarAnalysis analysis() { return analysis; }
+    public String topRuleName() { return topRuleName; }
+
+    /**
+     * Whether matches of a clause are memoized, as decided by the {@link MemoPolicy}.
+     */
+    public boolean isMemoized(Clause clause) {
+        return memoized[clause.clauseIdx()];
+    }
+
+    /**
+     * Whether a clause must always be memoized, because it is the clause of a recursive rule
+     * (adaptive memoization never turns these off).
+     */
+    public boolean isMemoRequired(Clause clause) {
+        return memoRequired[clause.clauseIdx()];
+    }
+
+    /**
+     * The matcher of the compiled engine (see {@link ParserOptions.Engine#COMPILED}), compiled the
+     * first time it is needed.
+     */
+    CompiledMatcher compiledMatcher() {
+        CompiledMatcher matcher = compiledMatcher.get();
+        if (matcher == null) {
+            // (Two threads may both compile the grammar; either matcher can be used)
+            compiledMatcher.compareAndSet(null, MatcherCompiler.compile(this));
+            matcher = compiledMatcher.get();
+        }
+        return matcher;
+    }
+
+    /**
+     * The program of the instruction VM (see {@link ParserOptions.Engine#VM}), compiled the first
+     * time it is needed.
+     */
+    InstructionVM.Program vmProgram() {
+        InstructionVM.Program program = vmProgram.get();
+        if (program == null) {
+            vmProgram.compareAndSet(null, InstructionVM.compile(this));
+            program = vmProgram.get();
+        }
+        return program;
+    }
+
+    /**
+     * Create a new parser for the input, starting from the top rule.
+     */
+    public Parser newParser(CharSequence input) {
+        return new Parser(this, input);
+    }
+
+    /**
+     * Create a new parser for the input with the given options, starting from the top rule.
+     */
+    public Parser newParser(CharSequence input, ParserOptions options) {
+        return new Parser(this, input, options);
+    }
+
+    /**
+     * Parse input with two-phase error recovery, starting from the top rule.
+     */
+    public ParseResult parse(CharSequence input) {
+        return newParser(input).parse();
+    }
+
+    /**
+     * Parse input with two-phase error recovery and the given parser options.
+     */
+    public ParseResult parse(CharSequence input, ParserOptions options) {
+        return newParser(input, options).parse();
+    }
+
+    /**
+     * Parse input in chunks on the common ForkJoinPool, if the top rule is a repetition with sync
+     * points (see {@link ParallelParser}), otherwise sequentially.
+     */
+    public ParseResult parseParallel(CharSequence input) {
+        return new ParallelParser(this).parse(input);
+    }
+}
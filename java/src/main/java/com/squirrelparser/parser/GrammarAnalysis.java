@@ -0,0 +1,398 @@
+package com.squirrelparser.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.FollowedBy;
+import com.squirrelparser.clause.nonterminal.HasMultipleSubClauses;
+import com.squirrelparser.clause.nonterminal.HasOneSubClause;
+import com.squirrelparser.clause.nonterminal.NotFollowedBy;
+import com.squirrelparser.clause.nonterminal.OneOrMore;
+import com.squirrelparser.clause.nonterminal.Optional;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Repetition;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.AnyChar;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.CharSet;
+import com.squirrelparser.clause.terminal.Cut;
+import com.squirrelparser.clause.terminal.Nothing;
+import com.squirrelparser.clause.terminal.Str;
+
+/**
+ * Static analysis of a compiled grammar, indexed by clause index: which clauses can match the
+ * empty string, which clauses are on a recursive cycle, which are on a left-recursive cycle
+ * (a cycle of calls that can occur without consuming input), and which cycle, how many places use
+ * each clause, the FIRST set of each clause (the characters it can start by consuming), and which
+ * clauses can pass a cut before consuming input.
+ *
+ * A Ref is treated as a call of the rule it refers to (Refs are resolved before the analysis).
+ */
+public final class GrammarAnalysis {
+    private final List<Clause> allClauses;
+    private final boolean[] nullable;
+    private final boolean[] recursive;
+    private final boolean[] leftRecursive;
+    private final int[] leftRecursiveCycle;
+    private final boolean[] leftRecursionHead;
+    private final int numLeftRecursiveCycles;
+    private final int[] useCount;
+    private final FirstSet[] firstSets;
+    private final boolean[] cutsAtStart;
+
+    GrammarAnalysis(List<Clause> allClauses) {
+        this.allClauses = allClauses;
+        int n = allClauses.size();
+        this.nullable = computeNullable();
+        this.recursive = stronglyConnectedComponents(false).onCycle;
+        Tarjan leftCalls = stronglyConnectedComponents(true);
+        this.leftRecursive = leftCalls.onCycle;
+        this.leftRecursiveCycle = new int[n];
+        int numCycles = 0;
+        int[] cycleOfComponent = new int[leftCalls.numComponents];
+        Arrays.fill(cycleOfComponent, -1);
+        for (int i = 0; i < n; i++) {
+            int component = leftCalls.component[i];
+            if (leftRecursive[i] && cycleOfComponent[component] < 0) {
+                cycleOfComponent[component] = numCycles++;
+            }
+            leftRecursiveCycle[i] = leftRecursive[i] ? cycleOfComponent[component] : -1;
+        }
+        this.numLeftRecursiveCycles = numCycles;
+        this.leftRecursionHead = findLeftRecursionHeads();
+        this.firstSets = computeFirstSets();
+        this.cutsAtStart = new boolean[n];
+        for (Clause clause : allClauses) {
+            cutsAtStart[clause.clauseIdx()] = computeCutsAtStart(clause);
+        }
+        this.useCount = new int[n];
+        for (Clause clause : allClauses) {
+            if (clause instanceof Ref ref) {
+                Clause target = ref.target();
+                if (target != null) {
+                    useCount[target.clauseIdx()]++;
+                }
+            } else {
+                for (Clause subClause : subClauses(clause)) {
+                    useCount[subClause.clauseIdx()]++;
+                }
+            }
+        }
+    }
+
+    /** Whether the clause can match the empty string. */
+    public boolean isNullable(Clause clause) {
+        return nullable[clause.clauseIdx()];
+    }
+
+    /** Whether the clause is on a cycle of rule references (i.e. it can be re-entered). */
+    public boolean isRecursive(Clause clause) {
+        return recursive[clause.clauseIdx()];
+    }
+
+    /** Whether the clause is on a left-recursive cycle (it can be re-entered at the same position). */
+    public boolean isLeftRecursive(Clause clause) {
+        return leftRecursive[clause.clauseIdx()];
+    }
+
+    /**
+     * The index of the left-recursive cycle that the clause is on (a strongly connected component of
+     * the calls that can occur without consuming input), or -1 if it is not left-recursive.
+     */
+    public int leftRecursiveCycle(Clause clause) {
+        return leftRecursiveCycle[clause.clauseIdx()];
+    }
+
+    /** The number of left-recursive cycles in the grammar. */
+    public int numLeftRecursiveCycles() {
+        return numLeftRecursiveCycles;
+    }
+
+    /**
+     * Whether the clause is the head of a left-recursive cycle: a clause on the cycle that is called
+     * from outside it or after input has been consumed (or not called at all, e.g. the top rule),
+     * so that left recursion can be entered and expanded from it.
+     */
+    public boolean isLeftRecursionHead(Clause clause) {
+        return leftRecursionHead[clause.clauseIdx()];
+    }
+
+    /**
+     * The number of places a clause is used: the number of parent clauses, or for a rule's
+     * clause, the number of Refs to the rule.
+     */
+    public int useCount(Clause clause) {
+        return useCount[clause.clauseIdx()];
+    }
+
+    /**
+     * The FIRST set of a clause: the code points that the first character consumed by a match of
+     * the clause can be. If the clause is not nullable, it can only match at a position where the
+     * input starts with a character in its FIRST set (in the discovery phase; error recovery can
+     * skip input).
+     */
+    public FirstSet firstSet(Clause clause) {
+        return firstSets[clause.clauseIdx()];
+    }
+
+    /**
+     * Whether a match of the clause can pass a cut before consuming any input, so that it can fail
+     * with a cut mismatch (failing the enclosing ordered choice) at a position where the input
+     * doesn't start with a character in its FIRST set, e.g. {@code '-'? ^ [0-9]+} or
+     * {@code &x ^ y}.
+     */
+    public boolean canCutAtStart(Clause clause) {
+        return cutsAtStart[clause.clauseIdx()];
+    }
+
+    private static List<Clause> subClauses(Clause clause) {
+        if (clause instanceof HasOneSubClause h) {
+            return List.of(h.subClause());
+        } else if (clause instanceof HasMultipleSubClauses h) {
+            return h.subClauses();
+        }
+        return List.of();
+    }
+
+    /** The clauses that a clause may call: its sub-clauses, or for a Ref, the rule's clause. */
+    private List<Clause> callees(Clause clause) {
+        if (clause instanceof Ref ref) {
+            Clause target = ref.target();
+            return target == null ? List.of() : List.of(target);
+        }
+        return subClauses(clause);
+    }
+
+    /**
+     * The clauses that a clause may call at its own start position: all sub-clauses of First, the
+     * sub-clauses of Seq up to and including the first that is not nullable, and the sub-clause of
+     * Optional, Repetition and lookaheads.
+     */
+    private List<Clause> leftCallees(Clause clause) {
+        if (clause instanceof Seq seq) {
+            List<Clause> leftCallees = new ArrayList<>();
+            for (Clause subClause : seq.subClauses()) {
+                leftCallees.add(subClause);
+                if (!nullable[subClause.clauseIdx()]) {
+                    break;
+                }
+            }
+            return leftCallees;
+        }
+        return callees(clause);
+    }
+
+    private boolean[] computeNullable() {
+        boolean[] nullable = new boolean[allClauses.size()];
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (Clause clause : allClauses) {
+                int idx = clause.clauseIdx();
+                if (!nullable[idx] && computeNullable(clause, nullable)) {
+                    nullable[idx] = true;
+                    changed = true;
+                }
+            }
+        }
+        return nullable;
+    }
+
+    private boolean computeNullable(Clause clause, boolean[] nullable) {
+        return switch (clause) {
+            case Str str -> str.text().isEmpty();
+            case Char c -> false;
+            case CharSet c -> false;
+            case AnyChar c -> false;
+            case Seq seq -> seq.subClauses().stream().allMatch(c -> nullable[c.clauseIdx()]);
+            case First first -> first.subClauses().stream().anyMatch(c -> nullable[c.clauseIdx()]);
+            case OneOrMore oneOrMore -> nullable[oneOrMore.subClause().clauseIdx()];
+            case Ref ref -> {
+                Clause target = ref.target();
+                yield target != null && nullable[target.clauseIdx()];
+            }
+            // Nothing, Cut, Optional, ZeroOrMore, FollowedBy and NotFollowedBy
+            default -> true;
+        };
+    }
+
+    /**
+     * A cut mismatch is only returned by a Seq (Refs, ordered choices, optionals, repetitions and
+     * lookaheads turn it into a plain mismatch), so a clause can cut at its start if it is a Seq
+     * with a cut, or a Seq that can cut at its start, before its first sub-clause that is not
+     * nullable (or as that sub-clause).
+     */
+    private boolean computeCutsAtStart(Clause clause) {
+        if (clause instanceof Seq seq) {
+            for (Clause subClause : seq.subClauses()) {
+                if (subClause instanceof Cut || computeCutsAtStart(subClause)) {
+                    return true;
+                }
+                if (!nullable[subClause.clauseIdx()]) {
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    private FirstSet[] computeFirstSets() {
+        FirstSet[] firstSets = new FirstSet[allClauses.size()];
+        Arrays.fill(firstSets, FirstSet.EMPTY);
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (Clause clause : allClauses) {
+                int idx = clause.clauseIdx();
+                FirstSet firstSet = firstSets[idx].union(computeFirstSet(clause, firstSets));
+                if (!firstSet.equals(firstSets[idx])) {
+                    firstSets[idx] = firstSet;
+                    changed = true;
+                }
+            }
+        }
+        return firstSets;
+    }
+
+    private FirstSet computeFirstSet(Clause clause, FirstSet[] firstSets) {
+        return switch (clause) {
+            case Str str -> str.text().isEmpty() ? FirstSet.EMPTY : firstCodePoint(str.text());
+            case Char c -> firstCodePoint(c.ch());
+            case CharSet c -> FirstSet.of(c.ranges(), c.inverted());
+            case Seq seq -> {
+                // The FIRST sets of the sub-clauses up to and including the first that is not nullable
+                FirstSet firstSet = FirstSet.EMPTY;
+                for (Clause subClause : seq.subClauses()) {
+                    firstSet = firstSet.union(firstSets[subClause.clauseIdx()]);
+                    if (!nullable[subClause.clauseIdx()]) {
+                        break;
+                    }
+                }
+                yield firstSet;
+            }
+            case First first -> {
+                FirstSet firstSet = FirstSet.EMPTY;
+                for (Clause subClause : first.subClauses()) {
+                    firstSet = firstSet.union(firstSets[subClause.clauseIdx()]);
+                }
+                yield firstSet;
+            }
+            case Repetition repetition -> firstSets[repetition.subClause().clauseIdx()];
+            case Optional optional -> firstSets[optional.subClause().clauseIdx()];
+            case Ref ref -> ref.target() == null ? FirstSet.ANY : firstSets[ref.target().clauseIdx()];
+            // Lookaheads, Nothing and Cut don't consume input
+            case FollowedBy c -> FirstSet.EMPTY;
+            case NotFollowedBy c -> FirstSet.EMPTY;
+            case Nothing c -> FirstSet.EMPTY;
+            case Cut c -> FirstSet.EMPTY;
+            // AnyChar, and any other clause
+            default -> FirstSet.ANY;
+        };
+    }
+
+    /** The FIRST set of a literal: its first code point (unknown if it starts with a lone surrogate). */
+    private static FirstSet firstCodePoint(String text) {
+        int codePoint = text.codePointAt(0);
+        boolean isLoneSurrogate = codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+        return isLoneSurrogate ? FirstSet.ANY : FirstSet.of(codePoint);
+    }
+
+    private boolean[] findLeftRecursionHeads() {
+        boolean[] heads = new boolean[allClauses.size()];
+        boolean[] called = new boolean[allClauses.size()];
+        for (Clause caller : allClauses) {
+            int callerCycle = leftRecursiveCycle[caller.clauseIdx()];
+            List<Clause> leftCallees = leftCallees(caller);
+            for (Clause callee : callees(caller)) {
+                int idx = callee.clauseIdx();
+                called[idx] = true;
+                // A call from outside the cycle, or after input has been consumed, enters the cycle
+                if (leftRecursive[idx] && (leftRecursiveCycle[idx] != callerCycle
+                                           || leftCallees.stream().noneMatch(c -> c == callee))) {
+                    heads[idx] = true;
+                }
+            }
+        }
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] |= leftRecursive[i] && !called[i];
+        }
+        return heads;
+    }
+
+    /**
+     * Find the strongly connected components of the call graph (or of the left call graph), and the
+     * clauses on a cycle, using Tarjan's algorithm.
+     */
+    private Tarjan stronglyConnectedComponents(boolean leftCallsOnly) {
+        int n = allClauses.size();
+        List<List<Clause>> edges = new ArrayList<>(n);
+        for (Clause clause : allClauses) {
+            edges.add(leftCallsOnly ? leftCallees(clause) : callees(clause));
+        }
+        var tarjan = new Tarjan(edges);
+        for (int i = 0; i < n; i++) {
+            if (tarjan.index[i] < 0) {
+                tarjan.visit(i);
+            }
+        }
+        return tarjan;
+    }
+
+    private static final class Tarjan {
+        final List<List<Clause>> edges;
+        final int[] index;
+        final int[] lowLink;
+        final boolean[] onStack;
+        final boolean[] onCycle;
+        final int[] component;
+        final int[] stack;
+        int stackSize;
+        int nextIndex;
+        int numComponents;
+
+        Tarjan(List<List<Clause>> edges) {
+            int n = edges.size();
+            this.edges = edges;
+            index = new int[n];
+            Arrays.fill(index, -1);
+            lowLink = new int[n];
+            onStack = new boolean[n];
+            onCycle = new boolean[n];
+            component = new int[n];
+            stack = new int[n];
+        }
+
+        void visit(int v) {
+            index[v] = lowLink[v] = nextIndex++;
+            stack[stackSize++] = v;
+            onStack[v] = true;
+            for (Clause callee : edges.get(v)) {
+                int w = callee.clauseIdx();
+                if (w == v) {
+                    onCycle[v] = true;
+                }
+                if (index[w] < 0) {
+                    visit(w);
+                    lowLink[v] = Math.min(lowLink[v], lowLink[w]);
+                } else if (onStack[w]) {
+                    lowLink[v] = Math.min(lowLink[v], index[w]);
+                }
+            }
+            if (lowLink[v] == index[v]) {
+                int sccStart = stackSize;
+                do {
+                    sccStart--;
+                } while (stack[sccStart] != v);
+                boolean isCycle = stackSize - sccStart > 1;
+                for (int i = sccStart; i < stackSize; i++) {
+                    onStack[stack[i]] = false;
+                    onCycle[stack[i]] |= isCycle;
+                    component[stack[i]] = numComponents;
+                }
+                numComponents++;
+                stackSize = sccStart;
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.squirrelparser.parser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.FollowedBy;
+import com.squirrelparser.clause.nonterminal.HasMultipleSubClauses;
+import com.squirrelparser.clause.nonterminal.HasOneSubClause;
+import com.squirrelparser.clause.nonterminal.NotFollowedBy;
+import com.squirrelparser.clause.nonterminal.OneOrMore;
+import com.squirrelparser.clause.nonterminal.Optional;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.nonterminal.ZeroOrMore;
+import com.squirrelparser.clause.terminal.Cut;
+import com.squirrelparser.clause.terminal.Str;
+
+/**
+ * Rewrites a rule map, as returned by {@link MetaGrammar#parseGrammar(String)}, into an equivalent
+ * rule map with fewer clauses to match. Run by {@link Grammar#compile(String, String)}.
+ *
+ * The rewrite keeps parse trees, ASTs and syntax errors the same, including in the recovery
+ * phase, whose heuristics depend on the shape of sequences: a Ref to a non-recursive rule is
+ * replaced by the rule's clause (the clause's matches are already returned unwrapped by Ref). Refs
+ * to recursive rules are kept, so the clause graph stays acyclic, and so are Refs that are a whole
+ * rule (A <- B), which keep the A node. A Ref to a cut, or to a sequence containing a cut, is kept,
+ * since the Ref scopes the cut to the referenced rule. In a Seq, a Ref to a literal is kept, since
+ * Seq recovery treats those specially.
+ *
+ * Nested ordered choices are not flattened, and choices of single characters are not merged into
+ * one CharSet, since both would change the parse tree (each First, and the Char or CharSet that
+ * matched, is a node of the tree). Nested sequences are not flattened, and adjacent literals are
+ * not merged, since Seq recovery skips input to resynchronize on each sub-clause, so both would
+ * change the syntax errors found.
+ */
+public final class GrammarOptimizer {
+    /**
+     * The optimized rules, and the number of distinct clauses reachable from the rules before and
+     * after optimization.
+     */
+    public record Result(Map<String, Clause> rules, int numClausesBefore, int numClausesAfter) {
+        public int numClausesRemoved() {
+            return numClausesBefore - numClausesAfter;
+        }
+    }
+
+    private final Map<String, Clause> rules;
+    /** The rule map key (with any '~' prefix) of each rule name. */
+    private final Map<String, String> ruleKeys = new HashMap<>();
+    private final Set<String> recursiveRules;
+    private final Map<String, Clause> optimizedRules = new HashMap<>();
+    private final Map<Clause, Clause> optimized = new IdentityHashMap<>();
+
+    private GrammarOptimizer(Map<String, Clause> rules) {
+        this.rules = rules;
+        for (var entry : rules.entrySet()) {
+            String key = entry.getKey();
+            ruleKeys.put(key.startsWith("~") ? key.substring(1) : key, key);
+        }
+        this.recursiveRules = findRecursiveRules();
+    }
+
+    /**
+     * Optimize a rule map. The clauses of the given rules are not modified.
+     */
+    public static Result optimize(Map<String, Clause> rules) {
+        var optimizer = new GrammarOptimizer(rules);
+        var optimizedRules = new HashMap<String, Clause>();
+        for (String key : rules.keySet()) {
+            optimizedRules.put(key, optimizer.optimizeRule(key));
+        }
+        return new Result(optimizedRules, countClauses(rules.values()), countClauses(optimizedRules.values()));
+    }
+
+    private Clause optimizeRule(String key) {
+        Clause clause = optimizedRules.get(key);
+        if (clause == null) {
+            Clause original = rules.get(key);
+            clause = optimize(original);
+            if (clause != original) {
+                clause.setMemoAnnotation(original.memoAnnotation());
+            }
+            optimizedRules.put(key, clause);
+        }
+        return clause;
+    }
+
+    private Clause optimize(Clause clause) {
+        Clause result = optimized.get(clause);
+        if (result != null) {
+            return result;
+        }
+        result = switch (clause) {
+            case Seq seq -> {
+                List<Clause> subClauses = optimizeSubClauses(seq.subClauses(), true);
+                yield subClauses.equals(seq.subClauses()) ? seq : new Seq(subClauses);
+            }
+            case First first -> optimizeFirst(first);
+            case HasOneSubClause h -> {
+                Clause subClause = optimizeSubClause(h.subClause(), false);
+                yield subClause == h.subClause() ? clause : switch (clause) {
+                    case OneOrMore o -> new OneOrMore(subClause);
+                    case ZeroOrMore z -> new ZeroOrMore(subClause);
+                    case Optional o -> new Optional(subClause);
+                    case FollowedBy f -> new FollowedBy(subClause);
+                    case NotFollowedBy n -> new NotFollowedBy(subClause);
+                    default -> clause;
+                };
+            }
+            default -> clause;
+        };
+        optimized.put(clause, result);
+        return result;
+    }
+
+    private List<Clause> optimizeSubClauses(List<Clause> subClauses, boolean inSeq) {
+        List<Clause> result = new ArrayList<>(subClauses.size());
+        for (Clause subClause : subClauses) {
+            result.add(optimizeSubClause(subClause, inSeq));
+        }
+        return result;
+    }
+
+    /**
+     * Optimize a sub-clause, replacing a Ref to a non-recursive rule with the rule's clause.
+     */
+    private Clause optimizeSubClause(Clause subClause, boolean inSeq) {
+        if (subClause instanceof Ref ref) {
+            String key = ruleKeys.get(ref.ruleName());
+            if (key != null && !recursiveRules.contains(key)) {
+                Clause target = optimizeRule(key);
+                // A cut in the target is scoped to the target's rule by the Ref, in any context
+                boolean cuts = target instanceof Cut || (target instanceof Seq seq && seq.containsCut());
+                if (!cuts && !(inSeq && target instanceof Str)) {
+                    return target;
+                }
+            }
+        }
+        return optimize(subClause);
+    }
+
+    private Clause optimizeFirst(First first) {
+        List<Clause> subClauses = optimizeSubClauses(first.subClauses(), false);
+        return subClauses.equals(first.subClauses()) ? first : new First(subClauses);
+    }
+
+    /**
+     * Find the rules that are on a cycle of rule references.
+     */
+    private Set<String> findRecursiveRules() {
+        Map<String, Set<String>> refs = new HashMap<>();
+        for (var entry : rules.entrySet()) {
+            Set<String> keys = new HashSet<>();
+            collectRefs(entry.getValue(), keys, Collections.newSetFromMap(new IdentityHashMap<>()));
+            refs.put(entry.getKey(), keys);
+        }
+        Set<String> recursive = new HashSet<>();
+        for (String key : rules.keySet()) {
+            Set<String> reachable = new HashSet<>();
+            List<String> stack = new ArrayList<>(refs.get(key));
+            while (!stack.isEmpty()) {
+                String next = stack.removeLast();
+                if (reachable.add(next)) {
+                    stack.addAll(refs.get(next));
+                }
+            }
+            if (reachable.contains(key)) {
+                recursive.add(key);
+            }
+        }
+        return recursive;
+    }
+
+    private void collectRefs(Clause clause, Set<String> keys, Set<Clause> visited) {
+        if (!visited.add(clause)) {
+            return;
+        }
+        if (clause instanceof Ref ref) {
+            String key = ruleKeys.get(ref.ruleName());
+            if (key != null) {
+                keys.add(key);
+            }
+        } else if (clause instanceof HasOneSubClause h) {
+            collectRefs(h.subClause(), keys, visited);
+        } else if (clause instanceof HasMultipleSubClauses h) {
+            for (Clause subClause : h.subClauses()) {
+                collectRefs(subClause, keys, visited);
+            }
+        }
+    }
+
+    private static int countClauses(Collection<Clause> ruleClauses) {
+        Set<Clause> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Clause clause : ruleClauses) {
+            countClauses(clause, visited);
+        }
+        return visited.size();
+    }
+
+    private static void countClauses(Clause clause, Set<Clause> visited) {
+        if (!visited.add(clause)) {
+            return;
+        }
+        if (clause instanceof HasOneSubClause h) {
+            countClauses(h.subClause(), visited);
+        } else if (clause instanceof HasMultipleSubClauses h) {
+            for (Clause subClause : h.subClauses()) {
+                countClauses(subClause, visited);
+            }
+        }
+    }
+}
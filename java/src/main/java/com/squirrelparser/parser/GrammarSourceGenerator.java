@@ -0,0 +1,306 @@
+package com.squirrelparser.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.lang.model.SourceVersion;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.FollowedBy;
+import com.squirrelparser.clause.nonterminal.HasMultipleSubClauses;
+import com.squirrelparser.clause.nonterminal.HasOneSubClause;
+import com.squirrelparser.clause.nonterminal.NotFollowedBy;
+import com.squirrelparser.clause.nonterminal.OneOrMore;
+import com.squirrelparser.clause.nonterminal.Optional;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.nonterminal.ZeroOrMore;
+import com.squirrelparser.clause.terminal.AnyChar;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.CharSet;
+import com.squirrelparser.clause.terminal.Cut;
+import com.squirrelparser.clause.terminal.Nothing;
+import com.squirrelparser.clause.terminal.Str;
+
+/**
+ * Generates the Java source of a class holding a grammar, from a grammar specification, at build
+ * time. The generated class builds the optimized clause graph (see {@link GrammarOptimizer})
+ * directly and compiles it into a {@link Grammar} once, so the MetaGrammar and the optimizer aren't
+ * run when the grammar is loaded.
+ *
+ * The generated class also contains the grammar's matching code for the compiled engine (see
+ * {@link MatcherSourceGenerator}), and parses with the compiled engine: the sequences, ordered
+ * choices and literals of each rule are matched by generated methods in the discovery phase, so
+ * the JIT can inline them, and by the clauses' own match methods in the recovery phase. Matching
+ * still goes through {@link Parser#match}, so memoization, left recursion and error recovery are
+ * the same as for {@link Grammar#compile(String, String)}.
+ *
+ * The generated class has a Rule enum with one constant per rule, for selecting the top rule and
+ * for comparing against the rule names in parse trees and ASTs.
+ *
+ * Run from Maven with the generate goal of the squirrel-parser-maven-plugin (see maven-plugin/),
+ * which generates the classes in the generate-sources phase and adds them to the compiled sources,
+ * or from the command line:
+ *
+ *   java com.squirrelparser.parser.GrammarSourceGenerator grammar.peg outputDir com.example.MyGrammar [TopRule]
+ */
+public final class GrammarSourceGenerator {
+    /** The number of clause constructions per generated method, to stay below the method size limit. */
+    private static final int CLAUSES_PER_METHOD = 500;
+
+    private final List<Clause> clauses = new ArrayList<>();
+    private final Map<Clause, Integer> clauseSlots = new IdentityHashMap<>();
+    private final Set<String> imports = new TreeSet<>();
+
+    private GrammarSourceGenerator() {}
+
+    /**
+     * Generate the source of a grammar class.
+     *
+     * @param grammarSpec The grammar specification
+     * @param className   The fully-qualified name of the class to generate
+     * @param topRuleName The default top rule name (may be null)
+     * @param sourceName  The name of the grammar file, for the generated comment
+     * @return The Java source
+     */
+    public static String generate(String grammarSpec, String className, String topRuleName, String sourceName) {
+        Map<String, Clause> rules = GrammarOptimizer.optimize(MetaGrammar.parseGrammar(grammarSpec)).rules();
+        if (topRuleName != null && !rules.containsKey(topRuleName) && !rules.containsKey("~" + topRuleName)) {
+            throw new IllegalArgumentException("Top rule \"" + topRuleName + "\" is not defined in " + sourceName);
+        }
+        // The generated class compiles the same rule map, so its grammar has the same clause indices
+        String matcherSource = MatcherSourceGenerator.generate(Grammar.compile(rules, topRuleName));
+        return new GrammarSourceGenerator().generateSource(new TreeMap<>(rules), className, topRuleName, sourceName,
+                                                           matcherSource);
+    }
+
+    private String generateSource(Map<String, Clause> rules, String className, String topRuleName,
+                                  String sourceName, String matcherSource) {
+        for (Clause clause : rules.values()) {
+            assignSlots(clause);
+        }
+        int lastDot = className.lastIndexOf('.');
+        String packageName = lastDot < 0 ? null : className.substring(0, lastDot);
+        String simpleName = className.substring(lastDot + 1);
+
+        var buildMethods = new StringBuilder();
+        int numMethods = (clauses.size() + CLAUSES_PER_METHOD - 1) / CLAUSES_PER_METHOD;
+        for (int m = 0; m < numMethods; m++) {
+            buildMethods.append("\n    private static void build").append(m).append("(Clause[] c) {\n");
+            for (int i = m * CLAUSES_PER_METHOD; i < Math.min(clauses.size(), (m + 1) * CLAUSES_PER_METHOD); i++) {
+                Clause clause = clauses.get(i);
+                buildMethods.append("        c[").append(i).append("] = ").append(construct(clause)).append(";\n");
+                if (clause.memoAnnotation() != null) {
+                    imports.add(MemoPolicy.class.getName());
+                    buildMethods.append("        c[").append(i).append("].setMemoAnnotation(MemoPolicy.Annotation.")
+                        .append(clause.memoAnnotation().name()).append(");\n");
+                }
+            }
+            buildMethods.append("    }\n");
+        }
+        imports.add(Clause.class.getName());
+        imports.add(Grammar.class.getName());
+        imports.add(ParseResult.class.getName());
+        imports.add(ParserOptions.class.getName());
+        if (matcherSource != null) {
+            imports.add(CompiledMatcher.class.getName());
+            imports.add(Match.class.getName());
+            imports.add(MatchResult.class.getName());
+            imports.add(Parser.class.getName());
+        }
+
+        var src = new StringBuilder();
+        src.append("// Generated by ").append(GrammarSourceGenerator.class.getName()).append(" from ")
+            .append(sourceName).append(". Do not edit.\n");
+        if (packageName != null) {
+            src.append("package ").append(packageName).append(";\n");
+        }
+        src.append("\nimport java.util.HashMap;\nimport java.util.List;\nimport java.util.Map;\n\n");
+        for (String imp : imports) {
+            src.append("import ").append(imp).append(";\n");
+        }
+        src.append("\n/**\n * The grammar compiled from ").append(sourceName).append(".\n */\n");
+        src.append("public final class ").append(simpleName).append(" {\n");
+        src.append("    /** The rules of the grammar. */\n");
+        src.append("    public enum Rule {\n");
+        List<String> constants = new ArrayList<>();
+        for (String key : rules.keySet()) {
+            String ruleName = key.startsWith("~") ? key.substring(1) : key;
+            String constant = SourceVersion.isName(ruleName) ? ruleName : ruleName + "_";
+            constants.add("        " + constant + "(" + javaString(ruleName) + ")");
+        }
+        src.append(String.join(",\n", constants)).append(";\n\n");
+        src.append("        private final String ruleName;\n\n");
+        src.append("        Rule(String ruleName) {\n            this.ruleName = ruleName;\n        }\n\n");
+        src.append("        /** The rule name, as used in parse trees and ASTs. */\n");
+        src.append("        public String ruleName() {\n            return ruleName;\n        }\n    }\n\n");
+        src.append("    private static final Grammar GRAMMAR = compile();\n\n");
+        src.append("    /** The options of the parse methods: the compiled engine, with the generated matcher. */\n");
+        src.append("    public static final ParserOptions OPTIONS = ParserOptions.DEFAULT.withEngine(")
+            .append("ParserOptions.Engine.COMPILED);\n\n");
+        src.append("    private ").append(simpleName).append("() {}\n\n");
+        src.append("    private static Grammar compile() {\n");
+        src.append("        Grammar grammar = Grammar.compile(rules(), ")
+            .append(topRuleName == null ? "null" : javaString(topRuleName)).append(");\n");
+        src.append(matcherSource == null ? "        return grammar;\n"
+            : "        return grammar.withCompiledMatcher(new Matcher(grammar.allClauses()));\n");
+        src.append("    }\n\n");
+        src.append("    /** The compiled grammar (the compiled engine uses the generated matcher, see OPTIONS). */\n");
+        src.append("    public static Grammar grammar() {\n        return GRAMMAR;\n    }\n\n");
+        src.append("    /** Parse the input from the given top rule. */\n");
+        src.append("    public static ParseResult parse(Rule topRule, CharSequence input) {\n");
+        src.append("        return GRAMMAR.withTopRule(topRule.ruleName()).parse(input, OPTIONS);\n    }\n");
+        if (topRuleName != null) {
+            src.append("\n    /** Parse the input from the top rule ").append(topRuleName).append(". */\n");
+            src.append("    public static ParseResult parse(CharSequence input) {\n");
+            src.append("        return GRAMMAR.parse(input, OPTIONS);\n    }\n");
+        }
+        src.append("\n    private static Map<String, Clause> rules() {\n");
+        src.append("        Clause[] c = new Clause[").append(clauses.size()).append("];\n");
+        for (int m = 0; m < numMethods; m++) {
+            src.append("        build").append(m).append("(c);\n");
+        }
+        src.append("        Map<String, Clause> rules = new HashMap<>();\n");
+        for (var entry : rules.entrySet()) {
+            src.append("        rules.put(").append(javaString(entry.getKey())).append(", c[")
+                .append(clauseSlots.get(entry.getValue())).append("]);\n");
+        }
+        src.append("        return rules;\n    }\n");
+        src.append(buildMethods);
+        if (matcherSource != null) {
+            src.append("\n").append(matcherSource);
+        }
+        src.append("}\n");
+        return src.toString();
+    }
+
+    /**
+     * Give each clause a slot in the clause array, sub-clauses first. A clause reachable from
+     * several parents is constructed once, so the clause graph keeps its sharing.
+     */
+    private void assignSlots(Clause clause) {
+        if (clauseSlots.containsKey(clause)) {
+            return;
+        }
+        if (clause instanceof HasOneSubClause h) {
+            assignSlots(h.subClause());
+        } else if (clause instanceof HasMultipleSubClauses h) {
+            for (Clause subClause : h.subClauses()) {
+                assignSlots(subClause);
+            }
+        }
+        clauseSlots.put(clause, clauses.size());
+        clauses.add(clause);
+    }
+
+    /**
+     * The constructor call for a clause, whose sub-clauses are already in the clause array.
+     */
+    private String construct(Clause clause) {
+        imports.add(clause.getClass().getName());
+        return switch (clause) {
+            case Str str -> "new Str(" + javaString(str.text()) + ")";
+            case Char ch -> "new Char(" + javaString(ch.ch()) + ")";
+            case CharSet charSet -> {
+                List<String> ranges = new ArrayList<>();
+                for (int[] range : charSet.ranges()) {
+                    ranges.add("new int[]{" + range[0] + ", " + range[1] + "}");
+                }
+                yield "new CharSet(List.of(" + String.join(", ", ranges) + "), " + charSet.inverted() + ")";
+            }
+            case AnyChar a -> "new AnyChar()";
+            case Cut cut -> "new Cut()";
+            case Nothing nothing -> "new Nothing()";
+            case Ref ref -> "new Ref(" + javaString(ref.ruleName()) + ")";
+            case Seq seq -> "new Seq(" + subClauseList(seq.subClauses()) + ")";
+            case First first -> "new First(" + subClauseList(first.subClauses()) + ")";
+            case OneOrMore o -> "new OneOrMore(" + slot(o.subClause()) + ")";
+            case ZeroOrMore z -> "new ZeroOrMore(" + slot(z.subClause()) + ")";
+            case Optional o -> "new Optional(" + slot(o.subClause()) + ")";
+            case FollowedBy f -> "new FollowedBy(" + slot(f.subClause()) + ")";
+            case NotFollowedBy n -> "new NotFollowedBy(" + slot(n.subClause()) + ")";
+            default -> throw new IllegalArgumentException("Unsupported clause type: " + clause.getClass().getName());
+        };
+    }
+
+    private String subClauseList(List<Clause> subClauses) {
+        List<String> slots = new ArrayList<>();
+        for (Clause subClause : subClauses) {
+            slots.add(slot(subClause));
+        }
+        return "List.of(" + String.join(", ", slots) + ")";
+    }
+
+    private String slot(Clause clause) {
+        return "c[" + clauseSlots.get(clause) + "]";
+    }
+
+    /**
+     * A Java string literal (unlike {@link Utils#escapeString}, characters outside ASCII are
+     * escaped as UTF-16 units).
+     */
+    static String javaString(String s) {
+        var buffer = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '"' -> buffer.append("\\\"");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                case '\t' -> buffer.append("\\t");
+                default -> {
+                    if (c < 0x20 || c >= 0x7f) {
+                        buffer.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        buffer.append(c);
+                    }
+                }
+            }
+        }
+        return buffer.append('"').toString();
+    }
+
+    /**
+     * Generate a grammar class from a grammar file, into a source directory.
+     *
+     * @param grammarFile The grammar file
+     * @param outputDir   The source directory to write the class to, in a directory per package
+     * @param className   The fully-qualified name of the class to generate
+     * @param topRuleName The default top rule name (may be null)
+     * @return The generated source file
+     */
+    public static Path generateFile(Path grammarFile, Path outputDir, String className, String topRuleName)
+            throws IOException {
+        String source = generate(Files.readString(grammarFile), className, topRuleName,
+                                 grammarFile.getFileName().toString());
+        Path outputFile = outputDir.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(outputFile.getParent());
+        Files.writeString(outputFile, source);
+        return outputFile;
+    }
+
+    /**
+     * Generate a grammar class from a grammar file. Nothing is written to stdout; errors are thrown.
+     *
+     * Arguments: grammar file, output source directory, fully-qualified class name, and optionally
+     * the default top rule.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length > 4) {
+            throw new IllegalArgumentException(
+                "Usage: GrammarSourceGenerator <grammar.peg> <outputDir> <className> [topRule]");
+        }
+        generateFile(Path.of(args[0]), Path.of(args[1]), args[2],
+                     args.length == 4 && !args[3].isEmpty() ? args[3] : null);
+    }
+}
@@ -0,0 +1,716 @@
+package com.squirrelparser.parser;
+
+import static com.squirrelparser.parser.MatchResult.allComplete;
+import static com.squirrelparser.parser.MatchResult.cutMismatch;
+import static com.squirrelparser.parser.MatchResult.mismatch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.FollowedBy;
+import com.squirrelparser.clause.nonterminal.NotFollowedBy;
+import com.squirrelparser.clause.nonterminal.OneOrMore;
+import com.squirrelparser.clause.nonterminal.Optional;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Repetition;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.Cut;
+
+/**
+ * The instruction VM (see {@link ParserOptions.Engine#VM}): matches a grammar in both phases in a
+ * single loop, with an explicit stack of frames on the heap rather than Java stack frames, so
+ * deeply nested input can't overflow the thread's stack, whether or not it has syntax errors.
+ *
+ * The grammar is compiled into a flat instruction array (see {@link #compile}): for each clause,
+ * an opcode and its operands, e.g. the indices of its sub-clauses. The loop switches on the opcode
+ * of the top frame, which either pushes the frame of a sub-clause to match, or pops itself and
+ * passes its result to the frame below. Memo entries are matched in steps (see
+ * {@link MemoSlot#beginMatch}), with a frame of their own while their clause is matched, and so are
+ * recovery probes (see {@link Parser#probe}) and matches of the tracked clause of a parallel parse
+ * chunk (see {@link Parser#trackExamined}). So memoization, left recursion expansion, cuts, error
+ * recovery and lazy matches are the same as in the interpreter, as are the matches.
+ *
+ * Terminals, choices of literals (see {@link First#hasKeywordTrie}) and, in the discovery phase,
+ * runs (see {@link Repetition#isRun}) don't match sub-clauses, so they are matched by their own
+ * match method.
+ */
+final class InstructionVM {
+    // Opcodes, with the operands that follow them in the instruction array
+    private static final int MATCH = 0;            // (none): matched by the clause's match method
+    private static final int SEQ = 1;              // n, then n (sub-clause, passes a cut) pairs
+    private static final int FIRST = 2;            // n, then n sub-clauses
+    private static final int ONE_OR_MORE = 3;      // sub-clause, is a run
+    private static final int ZERO_OR_MORE = 4;     // sub-clause, is a run
+    private static final int OPTIONAL = 5;         // sub-clause
+    private static final int FOLLOWED_BY = 6;      // sub-clause
+    private static final int NOT_FOLLOWED_BY = 7;  // sub-clause
+    private static final int REF = 8;              // target
+    private static final int ALIAS_REF = 9;        // target (the clause of an alias rule, A <- B)
+
+    // The opcodes of frames that are not the frame of a clause
+    private static final int MEMO = -1;            // A memo entry, below the frame of its clause
+    private static final int PROBE = -2;           // A recovery probe of a clause
+    private static final int TRACK = -3;           // A match of the tracked clause
+
+    /** The bound of a frame that has none. */
+    private static final int NO_BOUND = -1;
+
+    // What the pending call of a frame is for
+    private static final int CALL_SUB_CLAUSE = 0;      // The next sub-clause, alternative or iteration
+    private static final int CALL_RECOVERY_PROBE = 1;  // A probe after skipping frameSkip input
+    private static final int CALL_BOUND_PROBE = 2;     // A probe of the bound of a repetition
+    private static final int CALL_ALTERNATIVE = 3;     // An alternative compared with the recovered first one
+
+    // Frame flags
+    private static final int PASSED_CUT = 1;
+    private static final int FAILED_AFTER_CUT = 1 << 1;    // The failure being recovered from was a cut mismatch
+    private static final int INCOMPLETE = 1 << 2;
+    private static final int HAS_RECOVERED = 1 << 3;
+    private static final int LAZY = 1 << 4;                // Builds a lazy match (see Parser#buildsLazyMatch)
+    private static final int IN_RECOVERY_PHASE = 1 << 5;   // The phase a probe was started in
+
+    /**
+     * A grammar compiled into instructions: the instruction of the clause with index i starts at
+     * code[start[i]].
+     */
+    record Program(Clause[] clauses, int[] code, int[] start) {}
+
+    private final Parser parser;
+    private final MemoStore memoTable;
+    private final Clause[] clauses;
+    private final int[] code;
+    private final int[] start;
+    private int inputLength;
+
+    // The frame stack, one frame per clause (or memo entry, probe or tracked match) being matched
+    private int sp = 0;
+    private int[] frameOp = new int[64];
+    private int[] frameClause = new int[64];
+    private int[] framePos = new int[64];
+    private int[] frameBound = new int[64];               // Index of the bound clause, or NO_BOUND
+    private int[] frameState = new int[64];               // What the pending call is for (CALL_*)
+    private int[] frameStep = new int[64];                // Index of the sub-clause (or alternative) being matched
+    private int[] frameCurr = new int[64];                // Position after the sub-clauses matched so far
+    private int[] frameSkip = new int[64];                // Input skipped by the pending recovery probe
+    private int[] frameMark = new int[64];                // Child stack mark (see Parser#childMark)
+    private int[] frameFlags = new int[64];
+    private int[][] frameAlternatives = new int[64][];    // Alternatives of a choice (see First#alternatives)
+    private MatchResult[] frameBest = new MatchResult[64]; // Best recovered match of a choice
+    private MemoSlot[] frameSlot = new MemoSlot[64];
+
+    InstructionVM(Parser parser, Program program) {
+        this.parser = parser;
+        this.memoTable = parser.memoTable();
+        this.clauses = program.clauses();
+        this.code = program.code();
+        this.start = program.start();
+    }
+
+    /**
+     * Compile the clauses of a grammar into instructions.
+     */
+    static Program compile(Grammar grammar) {
+        Clause[] clauses = grammar.allClauses().toArray(new Clause[0]);
+        int[] start = new int[clauses.length];
+        IntStream.Builder code = IntStream.builder();
+        int size = 0;
+        for (int i = 0; i < clauses.length; i++) {
+            int[] instruction = instruction(clauses[i]);
+            start[i] = size;
+            for (int operand : instruction) {
+                code.add(operand);
+            }
+            size += instruction.length;
+        }
+        return new Program(clauses, code.build().toArray(), start);
+    }
+
+    private static int[] instruction(Clause clause) {
+        return switch (clause) {
+            case Seq seq -> {
+                List<Clause> subClauses = seq.subClauses();
+                int[] instruction = new int[2 + 2 * subClauses.size()];
+                instruction[0] = SEQ;
+                instruction[1] = subClauses.size();
+                for (int i = 0; i < subClauses.size(); i++) {
+                    Clause subClause = subClauses.get(i);
+                    boolean passesCut = subClause instanceof Cut || (subClause instanceof Seq s && s.containsCut());
+                    instruction[2 + 2 * i] = subClause.clauseIdx();
+                    instruction[3 + 2 * i] = passesCut ? 1 : 0;
+                }
+                yield instruction;
+            }
+            case First first when !first.hasKeywordTrie() -> {
+                List<Clause> subClauses = first.subClauses();
+                int[] instruction = new int[2 + subClauses.size()];
+                instruction[0] = FIRST;
+                instruction[1] = subClauses.size();
+                for (int i = 0; i < subClauses.size(); i++) {
+                    instruction[2 + i] = subClauses.get(i).clauseIdx();
+                }
+                yield instruction;
+            }
+            case Repetition repetition ->
+                new int[] {repetition instanceof OneOrMore ? ONE_OR_MORE : ZERO_OR_MORE,
+                           repetition.subClause().clauseIdx(), repetition.isRun() ? 1 : 0};
+            case Optional optional -> new int[] {OPTIONAL, optional.subClause().clauseIdx()};
+            case FollowedBy followedBy -> new int[] {FOLLOWED_BY, followedBy.subClause().clauseIdx()};
+            case NotFollowedBy notFollowedBy -> new int[] {NOT_FOLLOWED_BY, notFollowedBy.subClause().clauseIdx()};
+            // (A Ref without a target throws when it is matched)
+            case Ref ref when ref.target() != null ->
+                new int[] {ref.ownerRule() == null ? REF : ALIAS_REF, ref.target().clauseIdx()};
+            default -> new int[] {MATCH};
+        };
+    }
+
+
+    /**
+     * Match a clause at a position, as {@link Parser#match} would.
+     */
+    MatchResult match(Clause clause, int pos) {
+        int base = sp;
+        inputLength = parser.input().length();
+        return run(base, call(clause.clauseIdx(), pos, NO_BOUND));
+    }
+
+    /**
+     * Match a clause at a position without memoization, as {@link Parser#matchClause} would (to
+     * rebuild a lazy match, see {@link Parser#materialize}).
+     */
+    MatchResult matchClause(Clause clause, int pos) {
+        int base = sp;
+        inputLength = parser.input().length();
+        return run(base, enter(code[start[clause.clauseIdx()]], clause.clauseIdx(), pos, NO_BOUND));
+    }
+
+    /**
+     * Run the frames above base until they have all been popped, starting with the result of the
+     * call that pushed them (null if it pushed any), and return the result of the call.
+     */
+    private MatchResult run(int base, MatchResult result) {
+        while (sp > base) {
+            // Resume the top frame with the result of its pending call (null if it was just pushed)
+            int f = sp - 1;
+            result = switch (frameOp[f]) {
+                case MEMO -> resumeMemo(f, result);
+                case PROBE -> resumeProbe(f, result);
+                case TRACK -> resumeTrack(f, result);
+                case SEQ -> resumeSeq(f, result);
+                case FIRST -> resumeFirst(f, result);
+                case ONE_OR_MORE, ZERO_OR_MORE -> resumeRepetition(f, result);
+                case OPTIONAL -> resumeOptional(f, result);
+                case FOLLOWED_BY, NOT_FOLLOWED_BY -> resumeLookahead(f, result);
+                case REF, ALIAS_REF -> resumeRef(f, result);
+                default -> throw new IllegalStateException("Unknown opcode " + frameOp[f]);
+            };
+        }
+        return result;
+    }
+
+    /**
+     * Start matching a clause at a position, with memoization (the equivalent of
+     * {@link Parser#match}): return the result, or null if frames were pushed to compute it.
+     */
+    private MatchResult call(int clauseIdx, int pos, int bound) {
+        if (pos > inputLength) {
+            return mismatch();
+        }
+        Clause clause = clauses[clauseIdx];
+        if (clause == parser.trackedClause()) {
+            push(TRACK, clauseIdx, pos, bound);
+            return null;
+        }
+        int op = code[start[clauseIdx]];
+        // C5 (Ref Transparency): Don't memoize Ref independently
+        if (clause instanceof Ref) {
+            return enter(op, clauseIdx, pos, bound);
+        }
+        if (!parser.usesMemoTable(clause)) {
+            ParserStats.recordMatch();
+            return enter(op, clauseIdx, pos, bound);
+        }
+        MemoSlot slot = memoSlot(clause, pos);
+        MatchResult result = slot.beginMatch(parser, clause, pos);
+        while (result == null) {
+            ParserStats.recordMatch();
+            if (!matchesDirectly(op, clauseIdx)) {
+                push(MEMO, clauseIdx, pos, bound);
+                frameSlot[sp - 1] = slot;
+                push(op, clauseIdx, pos, bound);
+                return null;
+            }
+            result = slot.endMatch(parser, clause, pos, clause.match(parser, pos, boundClause(bound)));
+        }
+        return result;
+    }
+
+    private MemoSlot memoSlot(Clause clause, int pos) {
+        return switch (memoTable) {
+            case MemoTable heapMemoTable -> heapMemoTable.getOrCreate(clause.clauseIdx(), pos);
+            case OffHeapMemoTable offHeapMemoTable -> offHeapMemoTable.memoSlot(clause, pos);
+        };
+    }
+
+    /**
+     * Start matching a clause at a position without memoization (the equivalent of
+     * {@link Clause#match}): return the result, or null if its frame was pushed.
+     */
+    private MatchResult enter(int op, int clauseIdx, int pos, int bound) {
+        if (matchesDirectly(op, clauseIdx)) {
+            return clauses[clauseIdx].match(parser, pos, boundClause(bound));
+        }
+        push(op, clauseIdx, pos, bound);
+        return null;
+    }
+
+    /** Whether a clause is matched by its own match method, rather than in frames. */
+    private boolean matchesDirectly(int op, int clauseIdx) {
+        return op == MATCH
+            || ((op == ONE_OR_MORE || op == ZERO_OR_MORE) && code[start[clauseIdx] + 2] != 0
+                && !parser.inRecoveryPhase());
+    }
+
+    private Clause boundClause(int bound) {
+        return bound == NO_BOUND ? null : clauses[bound];
+    }
+
+    /**
+     * Probe a clause at a position (the equivalent of {@link Parser#probe}): return the result,
+     * or null if frames were pushed to compute it.
+     */
+    private MatchResult probe(int clauseIdx, int pos) {
+        push(PROBE, clauseIdx, pos, NO_BOUND);
+        return resumeProbe(sp - 1, null);
+    }
+
+    private void push(int op, int clauseIdx, int pos, int bound) {
+        if (sp == frameOp.length) {
+            int capacity = sp * 2;
+            frameOp = Arrays.copyOf(frameOp, capacity);
+            frameClause = Arrays.copyOf(frameClause, capacity);
+            framePos = Arrays.copyOf(framePos, capacity);
+            frameBound = Arrays.copyOf(frameBound, capacity);
+            frameState = Arrays.copyOf(frameState, capacity);
+            frameStep = Arrays.copyOf(frameStep, capacity);
+            frameCurr = Arrays.copyOf(frameCurr, capacity);
+            frameSkip = Arrays.copyOf(frameSkip, capacity);
+            frameMark = Arrays.copyOf(frameMark, capacity);
+            frameFlags = Arrays.copyOf(frameFlags, capacity);
+            frameAlternatives = Arrays.copyOf(frameAlternatives, capacity);
+            frameBest = Arrays.copyOf(frameBest, capacity);
+            frameSlot = Arrays.copyOf(frameSlot, capacity);
+        }
+        frameOp[sp] = op;
+        frameClause[sp] = clauseIdx;
+        framePos[sp] = pos;
+        frameBound[sp] = bound;
+        frameState[sp] = CALL_SUB_CLAUSE;
+        frameFlags[sp] = 0;
+        sp++;
+    }
+
+    /**
+     * Pop a frame that built its children on the child stack, and return its lazy match (see
+     * {@link Match#lazy}) of length len, dropping the children.
+     */
+    private MatchResult popLazy(int f, int len, boolean isComplete) {
+        boolean isFromLRContext = false;
+        int totDescendantErrors = 0;
+        for (int i = frameMark[f], end = parser.childMark(); i < end; i++) {
+            MatchResult child = parser.childAt(i);
+            isComplete &= child.isComplete();
+            isFromLRContext |= child.isFromLRContext();
+            totDescendantErrors += child.totDescendantErrors();
+        }
+        parser.dropChildren(frameMark[f]);
+        sp--;
+        return Match.lazy(clauses[frameClause[f]], framePos[f], len, isComplete, isFromLRContext, totDescendantErrors);
+    }
+
+    // Each resume method is passed the result of the frame's pending call, or null if the frame
+    // was just pushed. It returns the frame's result after popping the frame, or null if it pushed
+    // the frames of a call.
+
+    /**
+     * A memo entry's clause was matched: finish the entry, or match the clause again to expand
+     * its left recursion seed (see {@link MemoSlot#endMatch}).
+     */
+    private MatchResult resumeMemo(int f, MatchResult result) {
+        int clauseIdx = frameClause[f];
+        int pos = framePos[f];
+        MatchResult entryResult = frameSlot[f].endMatch(parser, clauses[clauseIdx], pos, result);
+        if (entryResult == null) {
+            ParserStats.recordMatch();
+            push(code[start[clauseIdx]], clauseIdx, pos, frameBound[f]);
+            return null;
+        }
+        frameSlot[f] = null;
+        sp--;
+        return entryResult;
+    }
+
+    /** See {@link Parser#probe}. */
+    private MatchResult resumeProbe(int f, MatchResult result) {
+        if (result == null) {
+            frameFlags[f] = parser.beginProbe() ? IN_RECOVERY_PHASE : 0;
+            result = call(frameClause[f], framePos[f], NO_BOUND);
+            if (result == null) {
+                return null;
+            }
+        }
+        parser.endProbe((frameFlags[f] & IN_RECOVERY_PHASE) != 0);
+        sp--;
+        return result;
+    }
+
+    /** See {@link Parser#trackExamined}. */
+    private MatchResult resumeTrack(int f, MatchResult result) {
+        if (result == null) {
+            frameCurr[f] = parser.beginTracked(framePos[f]);
+            result = call(frameClause[f], framePos[f], frameBound[f]);
+            if (result == null) {
+                return null;
+            }
+        }
+        parser.endTracked(clauses[frameClause[f]], framePos[f], frameCurr[f]);
+        sp--;
+        return result;
+    }
+
+    /** See {@link Seq#match}, including its error recovery. */
+    private MatchResult resumeSeq(int f, MatchResult result) {
+        int clauseIdx = frameClause[f];
+        Seq seq = (Seq) clauses[clauseIdx];
+        int pc = start[clauseIdx];
+        int numSubClauses = code[pc + 1];
+        if (result == null) {
+            frameStep[f] = 0;
+            frameCurr[f] = framePos[f];
+            frameMark[f] = parser.childMark();
+            frameFlags[f] = parser.buildsLazyMatch(seq) ? LAZY : 0;
+        }
+        while (true) {
+            if (result != null) {
+                int i = frameStep[f];
+                int curr = frameCurr[f];
+                if (frameState[f] == CALL_SUB_CLAUSE) {
+                    if (!result.isMismatch()) {
+                        if (code[pc + 3 + 2 * i] != 0) {
+                            frameFlags[f] |= PASSED_CUT;
+                        }
+                        parser.pushChild(result);
+                        frameCurr[f] = curr + result.len();
+                        frameStep[f] = i + 1;
+                    } else if (!parser.inRecoveryPhase() || result.isFromLRContext()) {
+                        parser.dropChildren(frameMark[f]);
+                        sp--;
+                        return (frameFlags[f] & PASSED_CUT) != 0 || result == cutMismatch() ? cutMismatch() : mismatch();
+                    } else if (curr >= inputLength) {
+                        // At the end of the input, the remaining sub-clauses are recorded as missing
+                        ParserStats.recordRecovery();
+                        for (int j = i; j < numSubClauses; j++) {
+                            parser.pushChild(new SyntaxError(curr, 0, clauses[code[pc + 2 + 2 * j]]));
+                        }
+                        break;
+                    } else {
+                        // Recover by skipping input until the failed sub-clause matches
+                        frameFlags[f] = result == cutMismatch() ? frameFlags[f] | FAILED_AFTER_CUT
+                            : frameFlags[f] & ~FAILED_AFTER_CUT;
+                        frameState[f] = CALL_RECOVERY_PROBE;
+                        frameSkip[f] = 0;
+                    }
+                } else if (!result.isMismatch() && !seq.rejectsRecoveryProbe(parser, curr, i, frameSkip[f])) {
+                    ParserStats.recordRecovery();
+                    parser.pushChild(new SyntaxError(curr, frameSkip[f]));
+                    parser.pushChild(result);
+                    frameCurr[f] = curr + frameSkip[f] + result.len();
+                    frameStep[f] = i + 1;
+                    frameState[f] = CALL_SUB_CLAUSE;
+                }
+            }
+            int i = frameStep[f];
+            int curr = frameCurr[f];
+            if (frameState[f] == CALL_RECOVERY_PROBE) {
+                int skip = frameSkip[f] + 1;
+                while (curr + skip < inputLength && seq.skipsRecoveryProbe(parser, curr, i, skip)) {
+                    skip++;
+                }
+                if (curr + skip >= inputLength) {
+                    parser.dropChildren(frameMark[f]);
+                    sp--;
+                    return (frameFlags[f] & (PASSED_CUT | FAILED_AFTER_CUT)) != 0 ? cutMismatch() : mismatch();
+                }
+                frameSkip[f] = skip;
+                result = probe(code[pc + 2 + 2 * i], curr + skip);
+            } else {
+                if (i == numSubClauses) {
+                    break;
+                }
+                int bound = parser.inRecoveryPhase() && i + 1 < numSubClauses ? code[pc + 4 + 2 * i] : frameBound[f];
+                result = call(code[pc + 2 + 2 * i], curr, bound);
+            }
+            if (result == null) {
+                return null;
+            }
+        }
+        if ((frameFlags[f] & LAZY) != 0) {
+            return popLazy(f, frameCurr[f] - framePos[f], true);
+        }
+        sp--;
+        if (parser.numChildren(frameMark[f]) == 0) {
+            return new Match(seq, framePos[f], 0);
+        }
+        List<MatchResult> children = parser.popChildren(frameMark[f]);
+        return Match.withChildren(seq, children, allComplete(children));
+    }
+
+    /** See {@link First#match}, including its error recovery. */
+    private MatchResult resumeFirst(int f, MatchResult result) {
+        int pc = start[frameClause[f]];
+        int numSubClauses = code[pc + 1];
+        First first = (First) clauses[frameClause[f]];
+        int pos = framePos[f];
+        if (result == null) {
+            frameStep[f] = 0;
+            // Error recovery can skip input, so the next character only rules out alternatives in
+            // the discovery phase
+            frameAlternatives[f] = parser.inRecoveryPhase() ? null : first.alternatives(parser, pos);
+        }
+        while (true) {
+            if (result != null) {
+                if (frameState[f] == CALL_ALTERNATIVE) {
+                    MatchResult best = frameBest[f];
+                    if (!result.isMismatch()) {
+                        if (First.prefersRecoveredAlternative(best.len(), best.totDescendantErrors(),
+                                                              result.len(), result.totDescendantErrors())) {
+                            best = frameBest[f] = result;
+                        }
+                        if (result.totDescendantErrors() == 0 && result.len() >= best.len()) {
+                            return popFirst(f, best);
+                        }
+                    }
+                    frameStep[f]++;
+                } else if (!result.isMismatch()) {
+                    int[] alternatives = frameAlternatives[f];
+                    int i = alternatives != null ? alternatives[frameStep[f]] : frameStep[f];
+                    if (parser.inRecoveryPhase() && i == 0 && result.totDescendantErrors() > 0) {
+                        // The first alternative recovered: pick the best of the alternatives
+                        frameBest[f] = result;
+                        frameState[f] = CALL_ALTERNATIVE;
+                        frameStep[f] = 1;
+                    } else {
+                        frameAlternatives[f] = null;
+                        sp--;
+                        if (parser.buildsLazyMatch(first)) {
+                            return Match.lazy(first, result.pos(), result.len(), result.isComplete(),
+                                              result.isFromLRContext(), result.totDescendantErrors());
+                        }
+                        return Match.withChildren(first, List.of(result), result.isComplete());
+                    }
+                } else if (result == cutMismatch()) {
+                    break; // Alternative failed after a cut: don't try the remaining alternatives
+                } else {
+                    frameStep[f]++;
+                }
+            }
+            int k = frameStep[f];
+            if (frameState[f] == CALL_ALTERNATIVE) {
+                if (k == numSubClauses) {
+                    return popFirst(f, frameBest[f]);
+                }
+                result = call(code[pc + 2 + k], pos, frameBound[f]);
+            } else {
+                int[] alternatives = frameAlternatives[f];
+                if (k == (alternatives != null ? alternatives.length : numSubClauses)) {
+                    break;
+                }
+                result = call(code[pc + 2 + (alternatives != null ? alternatives[k] : k)], pos, frameBound[f]);
+            }
+            if (result == null) {
+                return null;
+            }
+        }
+        frameAlternatives[f] = null;
+        sp--;
+        return mismatch();
+    }
+
+    private MatchResult popFirst(int f, MatchResult best) {
+        frameBest[f] = null;
+        sp--;
+        return Match.withChildren(clauses[frameClause[f]], List.of(best), best.isComplete());
+    }
+
+    /** See {@link Repetition#match}, including its error recovery. */
+    private MatchResult resumeRepetition(int f, MatchResult result) {
+        int clauseIdx = frameClause[f];
+        int subClauseIdx = code[start[clauseIdx] + 1];
+        if (result == null) {
+            frameCurr[f] = framePos[f];
+            frameMark[f] = parser.childMark();
+            frameFlags[f] = parser.buildsLazyMatch(clauses[clauseIdx]) ? LAZY : 0;
+        }
+        loop:
+        while (true) {
+            if (result != null) {
+                int curr = frameCurr[f];
+                switch (frameState[f]) {
+                    case CALL_BOUND_PROBE -> {
+                        if (!result.isMismatch() && result.len() > 0) {
+                            break loop; // The bound matches here (see Parser#canMatchNonzeroAt)
+                        }
+                        frameState[f] = CALL_SUB_CLAUSE;
+                        result = call(subClauseIdx, curr, NO_BOUND);
+                        if (result == null) {
+                            return null;
+                        }
+                        continue;
+                    }
+                    case CALL_SUB_CLAUSE -> {
+                        if (result == cutMismatch()) {
+                            parser.dropChildren(frameMark[f]);
+                            sp--;
+                            return mismatch(); // Iteration failed after a cut: the repetition fails
+                        }
+                        if (result.isMismatch()) {
+                            if (!parser.inRecoveryPhase()) {
+                                if (curr < inputLength) {
+                                    frameFlags[f] |= INCOMPLETE;
+                                }
+                                break loop;
+                            }
+                            // Recover by skipping input until the sub-clause matches
+                            frameState[f] = CALL_RECOVERY_PROBE;
+                            frameSkip[f] = 0;
+                        } else if (result.len() == 0) {
+                            break loop;
+                        } else {
+                            parser.pushChild(result);
+                            frameCurr[f] = curr + result.len();
+                        }
+                    }
+                    default -> {
+                        if (!result.isMismatch()) {
+                            ParserStats.recordRecovery();
+                            parser.pushChild(new SyntaxError(curr, frameSkip[f]));
+                            parser.pushChild(result);
+                            frameFlags[f] |= HAS_RECOVERED;
+                            frameCurr[f] = curr + frameSkip[f] + result.len();
+                            frameState[f] = CALL_SUB_CLAUSE;
+                        }
+                    }
+                }
+            }
+            int curr = frameCurr[f];
+            if (frameState[f] == CALL_RECOVERY_PROBE) {
+                int skip = frameSkip[f] + 1;
+                if (curr + skip > inputLength) {
+                    if ((frameFlags[f] & HAS_RECOVERED) != 0 && curr < inputLength) {
+                        // Skip the rest of the input
+                        ParserStats.recordRecovery();
+                        parser.pushChild(new SyntaxError(curr, inputLength - curr));
+                        frameCurr[f] = inputLength;
+                    }
+                    break;
+                }
+                frameSkip[f] = skip;
+                result = probe(subClauseIdx, curr + skip);
+            } else {
+                if (curr > inputLength) {
+                    break;
+                }
+                int bound = frameBound[f];
+                if (parser.inRecoveryPhase() && bound != NO_BOUND && !parser.ruledOutWithoutProbe(clauses[bound], curr)) {
+                    frameState[f] = CALL_BOUND_PROBE;
+                    result = probe(bound, curr);
+                } else {
+                    result = call(subClauseIdx, curr, NO_BOUND);
+                }
+            }
+            if (result == null) {
+                return null;
+            }
+        }
+        boolean incomplete = (frameFlags[f] & INCOMPLETE) != 0;
+        Clause repetition = clauses[clauseIdx];
+        if (parser.numChildren(frameMark[f]) == 0) {
+            sp--;
+            return frameOp[f] == ONE_OR_MORE ? mismatch()
+                : new Match(repetition, framePos[f], 0, List.of(), !incomplete, false, 0);
+        }
+        if ((frameFlags[f] & LAZY) != 0) {
+            return popLazy(f, frameCurr[f] - framePos[f], !incomplete);
+        }
+        sp--;
+        List<MatchResult> children = parser.popChildren(frameMark[f]);
+        return Match.withChildren(repetition, children, !incomplete && allComplete(children));
+    }
+
+    /** See {@link Optional#match}. */
+    private MatchResult resumeOptional(int f, MatchResult result) {
+        int pos = framePos[f];
+        if (result == null) {
+            result = call(code[start[frameClause[f]] + 1], pos, frameBound[f]);
+            if (result == null) {
+                return null;
+            }
+        }
+        sp--;
+        if (result == cutMismatch()) {
+            return mismatch();
+        }
+        Clause optional = clauses[frameClause[f]];
+        if (result.isMismatch()) {
+            boolean incomplete = !parser.inRecoveryPhase() && pos < inputLength;
+            return new Match(optional, pos, 0, List.of(), !incomplete, false, 0);
+        }
+        if (parser.buildsLazyMatch(optional)) {
+            return Match.lazy(optional, result.pos(), result.len(), result.isComplete(),
+                              result.isFromLRContext(), result.totDescendantErrors());
+        }
+        return Match.withChildren(optional, List.of(result), result.isComplete());
+    }
+
+    /** See {@link FollowedBy#match} and {@link NotFollowedBy#match}. */
+    private MatchResult resumeLookahead(int f, MatchResult result) {
+        if (result == null) {
+            // Cuts inside a lookahead don't commit (see Parser#matchLookahead)
+            parser.beginNoCommit();
+            result = call(code[start[frameClause[f]] + 1], framePos[f], frameBound[f]);
+            if (result == null) {
+                return null;
+            }
+        }
+        parser.endNoCommit();
+        sp--;
+        boolean matches = frameOp[f] == FOLLOWED_BY ? !result.isMismatch() : result.isMismatch();
+        return matches ? new Match(clauses[frameClause[f]], framePos[f], 0) : mismatch();
+    }
+
+    /** See {@link Ref#match}. */
+    private MatchResult resumeRef(int f, MatchResult result) {
+        if (result == null) {
+            result = call(code[start[frameClause[f]] + 1], framePos[f], frameBound[f]);
+            if (result == null) {
+                return null;
+            }
+        }
+        sp--;
+        if (result.isMismatch()) {
+            // Cuts are scoped to the rule they appear in
+            return result == cutMismatch() ? mismatch() : result;
+        }
+        if (frameOp[f] == REF) {
+            return result;
+        }
+        Clause ref = clauses[frameClause[f]];
+        if (parser.buildsLazyMatch(ref)) {
+            return Match.lazy(ref, result.pos(), result.len(), result.isComplete(),
+                              result.isFromLRContext(), result.totDescendantErrors());
+        }
+        return Match.withChildren(ref, List.of(result), result.isComplete());
+    }
+}
@@ -0,0 +1,86 @@
+package com.squirrelparser.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped file input: the file is mapped into memory and parsed in place, without decoding
+ * it into a String first. Since input positions are ints, the file must be smaller than 2GB.
+ */
+public final class MappedInput {
+    private MappedInput() {}
+
+    /**
+     * Map a UTF-16 file as a CharBuffer. Since each char is stored directly in the file, the
+     * CharBuffer is a view of the mapped file, and nothing is decoded or copied.
+     */
+    public static CharBuffer mapUtf16(Path path, ByteOrder byteOrder) throws IOException {
+        return map(path).order(byteOrder).asCharBuffer();
+    }
+
+    /**
+     * Map a file of 8-bit characters (ASCII or ISO-8859-1, e.g. log files) as a CharSequence
+     * view, where each byte is one char. Nothing is decoded or copied up front, and sub-sequences
+     * (e.g. from {@link com.squirrelparser.tree.Node#getInputSpan(CharSequence)}) are also views.
+     */
+    public static CharSequence mapLatin1(Path path) throws IOException {
+        return new Latin1CharSequence(map(path));
+    }
+
+    /**
+     * Map a UTF-8 file for byte-level parsing (see {@link Utf8Input}). Nothing is decoded or copied.
+     */
+    public static Utf8Input mapUtf8(Path path) throws IOException {
+        return Utf8Input.of(map(path));
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File is too large to parse (" + size + " bytes): " + path);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * A CharSequence view of a ByteBuffer of 8-bit characters.
+     */
+    private static final class Latin1CharSequence implements CharSequence {
+        private final ByteBuffer bytes;
+
+        Latin1CharSequence(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+            }
+            return new Latin1CharSequence(bytes.slice(start, end - start));
+        }
+
+        @Override
+        public String toString() {
+            return StandardCharsets.ISO_8859_1.decode(bytes.duplicate()).toString();
+        }
+    }
+}
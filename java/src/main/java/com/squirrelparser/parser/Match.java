@@ -1,5 +1,6 @@
 package com.squirrelparser.parser;
 
+import java.util.AbstractList;
 import java.util.List;
 
 import com.squirrelparser.clause.Clause;
@@ -12,6 +13,7 @@ import com.squirrelparser.clause.nonterminal.Ref;
 public final class Match extends MatchResult {
     private final List<MatchResult> subClauseMatches;
     private final boolean isMismatch;
+    private final boolean isLazy;          // Children not built yet (see ParserOptions.lazyTree)
 
     /**
      * Create a match with explicit values.
@@ -26,6 +28,15 @@ public final class Match extends MatchResult {
               totDescendantErrors);
         this.subClauseMatches = subClauseMatches;
         this.isMismatch = (pos == -1 && len == -1);
+        this.isLazy = false;
+    }
+
+    private Match(Clause clause, int pos, int len, boolean isComplete, boolean isFromLRContext,
+                  int totDescendantErrors, boolean isLazy) {
+        super(clause, pos, len, isComplete, isFromLRContext, totDescendantErrors);
+        this.subClauseMatches = List.of();
+        this.isMismatch = false;
+        this.isLazy = isLazy;
     }
 
     /**
@@ -48,10 +59,11 @@ public final class Match extends MatchResult {
               isFromLRContext != null ? isFromLRContext :
                   (subClauseMatches.isEmpty() ? false : MatchResult.anyFromLR(subClauseMatches)),
               addSubClauseErrors ?
-                  numSyntaxErrors + subClauseMatches.stream().mapToInt(MatchResult::totDescendantErrors).sum() :
+                  numSyntaxErrors + MatchResult.totalDescendantErrors(subClauseMatches) :
                   numSyntaxErrors);
         this.subClauseMatches = subClauseMatches;
         this.isMismatch = (pos == -1 && len == -1 && subClauseMatches.isEmpty());
+        this.isLazy = false;
     }
 
     /**
@@ -65,6 +77,15 @@ public final class Match extends MatchResult {
         return new Match(clause, 0, 0, children, isComplete, null, 0, true);
     }
 
+    /**
+     * Create a lazy match of a nonterminal: only the span and flags are recorded, and the
+     * children are rebuilt after the parse by {@link Parser#materialize(MatchResult)}.
+     */
+    public static Match lazy(Clause clause, int pos, int len, boolean isComplete, boolean isFromLRContext,
+                             int totDescendantErrors) {
+        return new Match(clause, pos, len, isComplete, isFromLRContext, totDescendantErrors, true);
+    }
+
     @Override
     public List<MatchResult> subClauseMatches() {
         return subClauseMatches;
@@ -75,6 +96,13 @@ public final class Match extends MatchResult {
         return isMismatch;
     }
 
+    /**
+     * Whether this is a lazy match, whose children have not been built yet.
+     */
+    public boolean isLazy() {
+        return isLazy;
+    }
+
     @Override
     public MatchResult withLRContext() {
         if (isMismatch) {
@@ -83,21 +111,73 @@ public final class Match extends MatchResult {
         if (isFromLRContext()) {
             return this;
         }
+        if (isLazy) {
+            return new Match(clause(), pos(), len(), isComplete(), true, totDescendantErrors(), true);
+        }
         return new Match(clause(), pos(), len(), subClauseMatches, isComplete(), true,
                          totDescendantErrors(), false);
     }
 
     @Override
-    public String toPrettyString(String input, int indent) {
+    MatchResult shifted(int delta) {
+        if (isMismatch || delta == 0) {
+            return this;
+        }
+        if (isLazy) {
+            return new Match(clause(), pos() + delta, len(), isComplete(), isFromLRContext(),
+                             totDescendantErrors(), true);
+        }
+        return new Match(clause(), pos() + delta, len(), ShiftedList.of(subClauseMatches, delta),
+                         isComplete(), isFromLRContext(), totDescendantErrors());
+    }
+
+    /**
+     * A view of a list of sub-clause matches, with each match moved by delta positions.
+     */
+    private static final class ShiftedList extends AbstractList<MatchResult> {
+        private final List<MatchResult> matches;
+        private final int delta;
+
+        private ShiftedList(List<MatchResult> matches, int delta) {
+            this.matches = matches;
+            this.delta = delta;
+        }
+
+        static List<MatchResult> of(List<MatchResult> matches, int delta) {
+            if (matches.isEmpty()) {
+                return matches;
+            }
+            // Combine shifts, rather than wrapping views in views after repeated edits
+            return matches instanceof ShiftedList s
+                ? new ShiftedList(s.matches, s.delta + delta)
+                : new ShiftedList(matches, delta);
+        }
+
+        @Override
+        public MatchResult get(int index) {
+            return matches.get(index).shifted(delta);
+        }
+
+        @Override
+        public int size() {
+            return matches.size();
+        }
+    }
+
+    @Override
+    public String toPrettyString(CharSequence input, int indent) {
         var buffer = new StringBuilder();
         buffer.append("  ".repeat(indent));
         if (isMismatch) {
             buffer.append("MISMATCH\n");
             return buffer.toString();
         }
+        if (clause().ownerRule() != null) {
+            buffer.append(clause().ownerRule()).append(" <- ");
+        }
         buffer.append(clause() instanceof Ref ? clause().toString() : clause().getClass().getSimpleName());
         if (subClauseMatches.isEmpty()) {
-            buffer.append(": \"").append(input.substring(pos(), pos() + len())).append("\"");
+            buffer.append(": \"").append(input.subSequence(pos(), pos() + len())).append("\"");
         }
         buffer.append("\n");
         for (var child : subClauseMatches) {
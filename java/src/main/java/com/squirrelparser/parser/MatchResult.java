@@ -57,19 +57,32 @@ public abstract sealed class MatchResult permits Match, SyntaxError {
      */
     public abstract MatchResult withLRContext();
 
-    public abstract String toPrettyString(String input, int indent);
+    /**
+     * Create a copy of this result (and its descendants) moved by delta positions, after an edit
+     * of the input before it. Descendants are moved lazily, as they are accessed.
+     */
+    abstract MatchResult shifted(int delta);
 
-    public String toPrettyString(String input) {
+    public abstract String toPrettyString(CharSequence input, int indent);
+
+    public String toPrettyString(CharSequence input) {
         return toPrettyString(input, 0);
     }
 
     // Static factory methods and constants
     private static final Match MISMATCH = new Match(null, -1, -1, List.of(), true, false, 0);
     private static final Match LR_PENDING = new Match(null, -1, -1, List.of(), true, true, 0);
+    private static final Match CUT_MISMATCH = new Match(null, -1, -1, List.of(), true, false, 0);
 
     public static MatchResult mismatch() { return MISMATCH; }
     public static MatchResult lrPending() { return LR_PENDING; }
 
+    /**
+     * A mismatch of a sequence after a cut was passed: the enclosing choice must fail
+     * rather than try its other alternatives.
+     */
+    public static MatchResult cutMismatch() { return CUT_MISMATCH; }
+
     // Helper functions
     static int totalLength(List<MatchResult> children) {
         if (children.isEmpty()) {
@@ -80,7 +93,35 @@ public abstract sealed class MatchResult permits Match, SyntaxError {
         return last.pos() + last.len() - first.pos();
     }
 
+    // (Indexed loops rather than streams: these run for every match that has children)
+
+    /**
+     * Whether all children that matched are complete.
+     */
+    public static boolean allComplete(List<MatchResult> children) {
+        for (int i = 0; i < children.size(); i++) {
+            MatchResult child = children.get(i);
+            if (!child.isMismatch() && !child.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     static boolean anyFromLR(List<MatchResult> children) {
-        return children.stream().anyMatch(MatchResult::isFromLRContext);
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i).isFromLRContext()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int totalDescendantErrors(List<MatchResult> children) {
+        int total = 0;
+        for (int i = 0; i < children.size(); i++) {
+            total += children.get(i).totDescendantErrors();
+        }
+        return total;
     }
 }
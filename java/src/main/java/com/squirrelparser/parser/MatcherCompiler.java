@@ -0,0 +1,354 @@
+package com.squirrelparser.parser;
+
+import static java.lang.constant.ConstantDescs.CD_List;
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static java.lang.constant.ConstantDescs.CD_String;
+import static java.lang.constant.ConstantDescs.CD_boolean;
+import static java.lang.constant.ConstantDescs.CD_char;
+import static java.lang.constant.ConstantDescs.CD_int;
+import static java.lang.constant.ConstantDescs.CD_void;
+import static java.lang.constant.ConstantDescs.INIT_NAME;
+import static java.lang.constant.ConstantDescs.MTD_void;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.classfile.TypeKind;
+import java.lang.classfile.instruction.SwitchCase;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.DynamicConstantDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.Cut;
+import com.squirrelparser.clause.terminal.Str;
+
+/**
+ * Compiles a grammar into a hidden class implementing {@link CompiledMatcher}, for the compiled
+ * engine (see {@link ParserOptions.Engine#COMPILED}).
+ *
+ * The generated match method switches on the clause index. Each sequence, ordered choice and
+ * literal of the grammar gets its own method, in which the loop over sub-clauses is unrolled, the
+ * sub-clauses and literal characters are constants, and Refs are replaced by their targets. Every
+ * other clause is matched by its own match method, called from a call site of its own, so that
+ * each call site sees only one clause class.
+ *
+ * Sub-clauses are still matched through {@link Parser#match}, so memoization, left recursion and
+ * incremental reparsing work as in the interpreter. The generated methods only cover the discovery
+ * phase with full trees: in the recovery phase, for lazy trees, and for literals in UTF-8 input,
+ * they call the clause's own match method. Ordered choices that select alternatives with a keyword
+ * trie or dispatch table are also left to the clause, so both engines try the same alternatives.
+ */
+final class MatcherCompiler {
+    /** Above this many clauses the dispatch method would be too large, so the grammar is interpreted. */
+    static final int MAX_CLAUSES = 4000;
+    /** Longer literals are matched by the clause rather than unrolled. */
+    private static final int MAX_UNROLLED_LITERAL = 32;
+
+    private static final ClassDesc CD_THIS = ClassDesc.of(MatcherCompiler.class.getPackageName(),
+                                                          "CompiledGrammarMatcher");
+    private static final ClassDesc CD_COMPILED_MATCHER = desc(CompiledMatcher.class);
+    private static final ClassDesc CD_CLAUSE = desc(Clause.class);
+    private static final ClassDesc CD_PARSER = desc(Parser.class);
+    private static final ClassDesc CD_MATCH_RESULT = desc(MatchResult.class);
+    private static final ClassDesc CD_MATCH = desc(Match.class);
+    private static final ClassDesc CD_UTF8_INPUT = desc(Utf8Input.class);
+    private static final ClassDesc CD_CHAR_SEQUENCE = desc(CharSequence.class);
+    private static final ClassDesc CD_ILLEGAL_ARGUMENT = desc(IllegalArgumentException.class);
+
+    /** match(int clauseIdx, Parser parser, int pos, Clause bound) */
+    private static final MethodTypeDesc MTD_DISPATCH =
+        MethodTypeDesc.of(CD_MATCH_RESULT, CD_int, CD_PARSER, CD_int, CD_CLAUSE);
+    /** match(Parser parser, int pos, Clause bound), of a clause or a generated method */
+    private static final MethodTypeDesc MTD_MATCH = MethodTypeDesc.of(CD_MATCH_RESULT, CD_PARSER, CD_int, CD_CLAUSE);
+    /** Parser.match(Clause clause, int pos, Clause bound) */
+    private static final MethodTypeDesc MTD_PARSER_MATCH =
+        MethodTypeDesc.of(CD_MATCH_RESULT, CD_CLAUSE, CD_int, CD_CLAUSE);
+    private static final MethodTypeDesc MTD_RESULT = MethodTypeDesc.of(CD_MATCH_RESULT);
+    private static final MethodTypeDesc MTD_INT = MethodTypeDesc.of(CD_int);
+    private static final MethodTypeDesc MTD_BOOLEAN = MethodTypeDesc.of(CD_boolean);
+    private static final MethodTypeDesc MTD_WITH_CHILDREN =
+        MethodTypeDesc.of(CD_MATCH, CD_CLAUSE, CD_List, CD_boolean);
+
+    private final List<Clause> clauses;
+
+    private MatcherCompiler(List<Clause> clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * Compile the clauses of a grammar. The generated class gets the grammar's clause list as its
+     * class data, and loads each clause it refers to as a constant.
+     */
+    static CompiledMatcher compile(Grammar grammar) {
+        List<Clause> clauses = grammar.allClauses();
+        if (clauses.size() > MAX_CLAUSES) {
+            return (clauseIdx, parser, pos, bound) -> clauses.get(clauseIdx).match(parser, pos, bound);
+        }
+        byte[] bytes = new MatcherCompiler(clauses).generate();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(bytes, clauses, true);
+            return (CompiledMatcher) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                .invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not load compiled grammar", e);
+        }
+    }
+
+    private byte[] generate() {
+        ClassFile classFile = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(
+            ClassHierarchyResolver.defaultResolver().orElse(
+                ClassHierarchyResolver.ofClassLoading(MatcherCompiler.class.getClassLoader()))));
+        return classFile.build(CD_THIS, cb -> {
+            cb.withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC);
+            cb.withSuperclass(CD_Object);
+            cb.withInterfaceSymbols(CD_COMPILED_MATCHER);
+            cb.withMethodBody(INIT_NAME, MTD_void, ClassFile.ACC_PUBLIC, code -> code
+                .aload(0)
+                .invokespecial(CD_Object, INIT_NAME, MTD_void)
+                .return_());
+            cb.withMethodBody("match", MTD_DISPATCH, ClassFile.ACC_PUBLIC, this::generateDispatch);
+            for (Clause clause : clauses) {
+                if (isSpecialized(clause)) {
+                    cb.withMethodBody(methodName(clause), MTD_MATCH, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC,
+                                      code -> generateMatch(code, clause));
+                }
+            }
+        });
+    }
+
+    /**
+     * Whether a clause gets a generated method, rather than being matched by its own match method.
+     */
+    static boolean isSpecialized(Clause clause) {
+        return switch (clause) {
+            case Str str -> str.text().length() <= MAX_UNROLLED_LITERAL;
+            case Char ch -> true;
+            case Seq seq -> !seq.subClauses().isEmpty();
+            case First first -> !first.hasDispatch();
+            default -> false;
+        };
+    }
+
+    private static String methodName(Clause clause) {
+        return (clause.ownerRule() != null ? clause.ownerRule() : "clause") + "$" + clause.clauseIdx();
+    }
+
+    private void generateDispatch(CodeBuilder code) {
+        Label unknownClause = code.newLabel();
+        if (!clauses.isEmpty()) {
+            List<SwitchCase> cases = new ArrayList<>(clauses.size());
+            for (int i = 0; i < clauses.size(); i++) {
+                cases.add(SwitchCase.of(i, code.newLabel()));
+            }
+            code.iload(1).tableswitch(0, clauses.size() - 1, unknownClause, cases);
+            for (int i = 0; i < clauses.size(); i++) {
+                Clause clause = clauses.get(i);
+                code.labelBinding(cases.get(i).target());
+                if (isSpecialized(clause)) {
+                    code.aload(2).iload(3).aload(4).invokestatic(CD_THIS, methodName(clause), MTD_MATCH);
+                } else {
+                    loadClause(code, clause);
+                    code.aload(2).iload(3).aload(4).invokevirtual(typeOf(clause), "match", MTD_MATCH);
+                }
+                code.areturn();
+            }
+        }
+        code.labelBinding(unknownClause);
+        code.new_(CD_ILLEGAL_ARGUMENT)
+            .dup()
+            .ldc("Clause is not part of the compiled grammar")
+            .invokespecial(CD_ILLEGAL_ARGUMENT, INIT_NAME, MethodTypeDesc.of(CD_void, CD_String))
+            .athrow();
+    }
+
+    /**
+     * Generate the method for a specialized clause. Locals 0, 1 and 2 are the parser, the position
+     * and the bound.
+     */
+    private void generateMatch(CodeBuilder code, Clause clause) {
+        switch (clause) {
+            case Str str -> generateLiteral(code, str, str.text());
+            case Char ch -> generateLiteral(code, ch, ch.ch());
+            case Seq seq -> generateSeq(code, seq);
+            case First first -> generateFirst(code, first);
+            default -> throw new IllegalArgumentException("Not a specialized clause: " + clause);
+        }
+    }
+
+    /**
+     * Str.match, with the literal's characters unrolled into constant comparisons.
+     */
+    private void generateLiteral(CodeBuilder code, Clause clause, String text) {
+        Label utf16 = code.newLabel();
+        Label mismatch = code.newLabel();
+        int input = code.allocateLocal(TypeKind.REFERENCE);
+        // UTF-8 input is compared to the encoded literal by the clause itself
+        code.aload(0).invokevirtual(CD_PARSER, "utf8Input", MethodTypeDesc.of(CD_UTF8_INPUT)).ifnull(utf16);
+        callClause(code, clause);
+        code.labelBinding(utf16);
+        code.aload(0).iload(1).loadConstant(text.length()).iadd()
+            .invokevirtual(CD_PARSER, "examine", MethodTypeDesc.of(CD_void, CD_int));
+        code.aload(0).invokevirtual(CD_PARSER, "input", MethodTypeDesc.of(CD_CHAR_SEQUENCE)).astore(input);
+        code.iload(1).loadConstant(text.length()).iadd()
+            .aload(input).invokeinterface(CD_CHAR_SEQUENCE, "length", MTD_INT)
+            .if_icmpgt(mismatch);
+        for (int i = 0; i < text.length(); i++) {
+            code.aload(input).iload(1).loadConstant(i).iadd()
+                .invokeinterface(CD_CHAR_SEQUENCE, "charAt", MethodTypeDesc.of(CD_char, CD_int))
+                .loadConstant((int) text.charAt(i))
+                .if_icmpne(mismatch);
+        }
+        code.new_(CD_MATCH).dup();
+        loadClause(code, clause);
+        code.iload(1).loadConstant(text.length())
+            .invokespecial(CD_MATCH, INIT_NAME, MethodTypeDesc.of(CD_void, CD_CLAUSE, CD_int, CD_int))
+            .areturn();
+        code.labelBinding(mismatch);
+        code.invokestatic(CD_MATCH_RESULT, "mismatch", MTD_RESULT).areturn();
+    }
+
+    /**
+     * The discovery phase of Seq.match, with the sub-clause loop unrolled.
+     */
+    private void generateSeq(CodeBuilder code, Seq seq) {
+        Label callClause = code.newLabel();
+        int mark = code.allocateLocal(TypeKind.INT);
+        int curr = code.allocateLocal(TypeKind.INT);
+        int result = code.allocateLocal(TypeKind.REFERENCE);
+        int children = code.allocateLocal(TypeKind.REFERENCE);
+        checkDiscoveryPhase(code, seq, callClause);
+        code.aload(0).invokevirtual(CD_PARSER, "childMark", MTD_INT).istore(mark);
+        code.iload(1).istore(curr);
+        boolean passedCut = false;
+        for (Clause subClause : seq.subClauses()) {
+            Label matched = code.newLabel();
+            code.aload(0);
+            loadClause(code, resolve(subClause));
+            code.iload(curr).aload(2).invokevirtual(CD_PARSER, "match", MTD_PARSER_MATCH).astore(result);
+            code.aload(result).invokevirtual(CD_MATCH_RESULT, "isMismatch", MTD_BOOLEAN).ifeq(matched);
+            code.aload(0).iload(mark).invokevirtual(CD_PARSER, "dropChildren", MethodTypeDesc.of(CD_void, CD_int));
+            if (passedCut) {
+                code.invokestatic(CD_MATCH_RESULT, "cutMismatch", MTD_RESULT).areturn();
+            } else if (resolve(subClause) != subClause) {
+                // A cut in the referenced rule is scoped to that rule
+                code.invokestatic(CD_MATCH_RESULT, "mismatch", MTD_RESULT).areturn();
+            } else {
+                Label notCut = code.newLabel();
+                code.aload(result).invokestatic(CD_MATCH_RESULT, "cutMismatch", MTD_RESULT).if_acmpne(notCut);
+                code.aload(result).areturn();
+                code.labelBinding(notCut);
+                code.invokestatic(CD_MATCH_RESULT, "mismatch", MTD_RESULT).areturn();
+            }
+            code.labelBinding(matched);
+            code.aload(0).aload(result)
+                .invokevirtual(CD_PARSER, "pushChild", MethodTypeDesc.of(CD_void, CD_MATCH_RESULT));
+            code.iload(curr).aload(result).invokevirtual(CD_MATCH_RESULT, "len", MTD_INT).iadd().istore(curr);
+            passedCut |= subClause instanceof Cut || (subClause instanceof Seq s && s.containsCut());
+        }
+        code.aload(0).iload(mark).invokevirtual(CD_PARSER, "popChildren", MethodTypeDesc.of(CD_List, CD_int))
+            .astore(children);
+        loadClause(code, seq);
+        code.aload(children)
+            .aload(children).invokestatic(CD_MATCH_RESULT, "allComplete", MethodTypeDesc.of(CD_boolean, CD_List))
+            .invokestatic(CD_MATCH, "withChildren", MTD_WITH_CHILDREN)
+            .areturn();
+        code.labelBinding(callClause);
+        callClause(code, seq);
+    }
+
+    /**
+     * The discovery phase of First.match, with the alternatives unrolled.
+     */
+    private void generateFirst(CodeBuilder code, First first) {
+        Label callClause = code.newLabel();
+        Label noMatch = code.newLabel();
+        int result = code.allocateLocal(TypeKind.REFERENCE);
+        checkDiscoveryPhase(code, first, callClause);
+        for (Clause subClause : first.subClauses()) {
+            Label mismatched = code.newLabel();
+            code.aload(0);
+            loadClause(code, resolve(subClause));
+            code.iload(1).aload(2).invokevirtual(CD_PARSER, "match", MTD_PARSER_MATCH).astore(result);
+            code.aload(result).invokevirtual(CD_MATCH_RESULT, "isMismatch", MTD_BOOLEAN).ifne(mismatched);
+            loadClause(code, first);
+            code.aload(result).invokestatic(CD_List, "of", MethodTypeDesc.of(CD_List, CD_Object), true)
+                .aload(result).invokevirtual(CD_MATCH_RESULT, "isComplete", MTD_BOOLEAN)
+                .invokestatic(CD_MATCH, "withChildren", MTD_WITH_CHILDREN)
+                .areturn();
+            code.labelBinding(mismatched);
+            if (resolve(subClause) == subClause) {
+                // A cut in the alternative commits to it (a cut in a referenced rule is scoped to
+                // that rule)
+                code.aload(result).invokestatic(CD_MATCH_RESULT, "cutMismatch", MTD_RESULT)
+                    .if_acmpeq(noMatch);
+            }
+        }
+        code.labelBinding(noMatch);
+        code.invokestatic(CD_MATCH_RESULT, "mismatch", MTD_RESULT).areturn();
+        code.labelBinding(callClause);
+        callClause(code, first);
+    }
+
+    /**
+     * Jump to the given label in the recovery phase, or if the clause builds a lazy match.
+     */
+    private void checkDiscoveryPhase(CodeBuilder code, Clause clause, Label otherwise) {
+        code.aload(0).invokevirtual(CD_PARSER, "inRecoveryPhase", MTD_BOOLEAN).ifne(otherwise);
+        code.aload(0);
+        loadClause(code, clause);
+        code.invokevirtual(CD_PARSER, "buildsLazyMatch", MethodTypeDesc.of(CD_boolean, CD_CLAUSE)).ifne(otherwise);
+    }
+
+    /**
+     * Return the clause's own match of the current arguments.
+     */
+    private void callClause(CodeBuilder code, Clause clause) {
+        loadClause(code, clause);
+        code.aload(0).iload(1).aload(2).invokevirtual(typeOf(clause), "match", MTD_MATCH).areturn();
+    }
+
+    /**
+     * The clause to match for a sub-clause: a Ref that doesn't wrap its match (see
+     * {@link Ref#match}) is skipped, as Parser.match would otherwise just pass it on. The caller
+     * must then scope cuts to the rule, as Ref.match does, by treating a cut mismatch as a
+     * mismatch.
+     */
+    private static Clause resolve(Clause subClause) {
+        return subClause instanceof Ref ref && ref.ownerRule() == null && ref.target() != null
+            ? ref.target() : subClause;
+    }
+
+    /**
+     * Load a clause of the grammar, from the class data, as a constant.
+     */
+    private static void loadClause(CodeBuilder code, Clause clause) {
+        code.ldc(DynamicConstantDesc.ofNamed(ConstantDescs.BSM_CLASS_DATA_AT, ConstantDescs.DEFAULT_NAME,
+                                             typeOf(clause), clause.clauseIdx()));
+    }
+
+    /**
+     * The clause's own class, if the generated class can refer to it, otherwise Clause.
+     */
+    private static ClassDesc typeOf(Clause clause) {
+        Class<?> cls = clause.getClass();
+        boolean accessible = Modifier.isPublic(cls.getModifiers()) && !cls.isHidden() && !cls.isAnonymousClass()
+            && cls.getPackageName().startsWith(Clause.class.getPackageName());
+        return accessible ? desc(cls) : CD_CLAUSE;
+    }
+
+    private static ClassDesc desc(Class<?> cls) {
+        return cls.describeConstable().orElseThrow();
+    }
+}
@@ -0,0 +1,210 @@
+package com.squirrelparser.parser;
+
+import java.util.List;
+
+import javax.lang.model.SourceVersion;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.Cut;
+import com.squirrelparser.clause.terminal.Str;
+
+/**
+ * Generates the Java source of a {@link CompiledMatcher} for a grammar, for the classes generated
+ * by {@link GrammarSourceGenerator}. The generated matcher is the source equivalent of the hidden
+ * class generated by {@link MatcherCompiler}, so it is compiled with the rest of the application
+ * rather than when the grammar is first used.
+ *
+ * As in MatcherCompiler, each sequence, ordered choice and literal gets its own method, in which
+ * the loop over sub-clauses is unrolled and Refs are replaced by their targets, and only the
+ * discovery phase with full trees is generated: in the recovery phase, for lazy trees, and for
+ * literals in UTF-8 input, the generated methods call the clause's own match method.
+ *
+ * The generated matcher refers to clauses by clause index, so it must be used with a grammar
+ * compiled from the same rule map as the grammar it was generated from.
+ */
+final class MatcherSourceGenerator {
+    private final Grammar grammar;
+    private final StringBuilder src = new StringBuilder();
+
+    private MatcherSourceGenerator(Grammar grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Generate the source of a nested class named Matcher, with a constructor that takes the
+     * grammar's clauses (see {@link Grammar#allClauses()}). Returns null if the grammar has too
+     * many clauses for the dispatch method, in which case the grammar is interpreted.
+     */
+    static String generate(Grammar grammar) {
+        if (grammar.allClauses().size() > MatcherCompiler.MAX_CLAUSES) {
+            return null;
+        }
+        return new MatcherSourceGenerator(grammar).generateMatcher();
+    }
+
+    private String generateMatcher() {
+        List<Clause> clauses = grammar.allClauses();
+        line(1, "/** Matches the clauses of the grammar for the compiled engine. */");
+        line(1, "private static final class Matcher implements CompiledMatcher {");
+        line(2, "private final Clause[] c;");
+        line(0, "");
+        line(2, "Matcher(List<Clause> clauses) {");
+        line(3, "if (clauses.size() != " + clauses.size() + ") {");
+        line(4, "throw new IllegalStateException(\"The grammar does not match the generated matcher\");");
+        line(3, "}");
+        line(3, "this.c = clauses.toArray(new Clause[0]);");
+        line(2, "}");
+        line(0, "");
+        line(2, "@Override");
+        line(2, "public MatchResult match(int clauseIdx, Parser parser, int pos, Clause bound) {");
+        line(3, "return switch (clauseIdx) {");
+        for (Clause clause : clauses) {
+            if (MatcherCompiler.isSpecialized(clause)) {
+                line(4, "case " + clause.clauseIdx() + " -> " + methodName(clause) + "(parser, pos, bound);");
+            }
+        }
+        line(4, "default -> c[clauseIdx].match(parser, pos, bound);");
+        line(3, "};");
+        line(2, "}");
+        for (Clause clause : clauses) {
+            if (MatcherCompiler.isSpecialized(clause)) {
+                line(0, "");
+                line(2, "private MatchResult " + methodName(clause) + "(Parser parser, int pos, Clause bound) {");
+                switch (clause) {
+                    case Str str -> generateLiteral(str, str.text());
+                    case Char ch -> generateLiteral(ch, ch.ch());
+                    case Seq seq -> generateSeq(seq);
+                    case First first -> generateFirst(first);
+                    default -> throw new IllegalArgumentException("Not a specialized clause: " + clause);
+                }
+                line(2, "}");
+            }
+        }
+        line(1, "}");
+        return src.toString();
+    }
+
+    /**
+     * Str.match, with the literal's characters unrolled into constant comparisons.
+     */
+    private void generateLiteral(Clause clause, String text) {
+        // UTF-8 input is compared to the encoded literal by the clause itself
+        line(3, "if (parser.utf8Input() != null) {");
+        line(4, "return " + clauseRef(clause) + ".match(parser, pos, bound);");
+        line(3, "}");
+        line(3, "parser.examine(pos + " + text.length() + ");");
+        line(3, "CharSequence input = parser.input();");
+        var condition = new StringBuilder("pos + " + text.length() + " > input.length()");
+        for (int i = 0; i < text.length(); i++) {
+            condition.append("\n").append(indent(5)).append("|| input.charAt(pos")
+                .append(i == 0 ? "" : " + " + i).append(") != ").append(javaChar(text.charAt(i)));
+        }
+        line(3, "if (" + condition + ") {");
+        line(4, "return MatchResult.mismatch();");
+        line(3, "}");
+        line(3, "return new Match(" + clauseRef(clause) + ", pos, " + text.length() + ");");
+    }
+
+    /**
+     * The discovery phase of Seq.match, with the sub-clause loop unrolled.
+     */
+    private void generateSeq(Seq seq) {
+        checkDiscoveryPhase(seq);
+        line(3, "int mark = parser.childMark();");
+        line(3, "int curr = pos;");
+        line(3, "MatchResult result;");
+        boolean passedCut = false;
+        for (Clause subClause : seq.subClauses()) {
+            line(3, "result = parser.match(" + clauseRef(resolve(subClause)) + ", curr, bound);");
+            line(3, "if (result.isMismatch()) {");
+            line(4, "parser.dropChildren(mark);");
+            if (passedCut) {
+                line(4, "return MatchResult.cutMismatch();");
+            } else if (resolve(subClause) != subClause) {
+                // A cut in the referenced rule is scoped to that rule
+                line(4, "return MatchResult.mismatch();");
+            } else {
+                line(4, "return result == MatchResult.cutMismatch() ? result : MatchResult.mismatch();");
+            }
+            line(3, "}");
+            line(3, "parser.pushChild(result);");
+            line(3, "curr += result.len();");
+            passedCut |= subClause instanceof Cut || (subClause instanceof Seq s && s.containsCut());
+        }
+        line(3, "List<MatchResult> children = parser.popChildren(mark);");
+        line(3, "return Match.withChildren(" + clauseRef(seq) + ", children, MatchResult.allComplete(children));");
+    }
+
+    /**
+     * The discovery phase of First.match, with the alternatives unrolled.
+     */
+    private void generateFirst(First first) {
+        checkDiscoveryPhase(first);
+        line(3, "MatchResult result;");
+        for (Clause subClause : first.subClauses()) {
+            line(3, "result = parser.match(" + clauseRef(resolve(subClause)) + ", pos, bound);");
+            line(3, "if (!result.isMismatch()) {");
+            line(4, "return Match.withChildren(" + clauseRef(first) + ", List.of(result), result.isComplete());");
+            line(3, "}");
+            if (resolve(subClause) == subClause) {
+                // A cut in the alternative commits to it (a cut in a referenced rule is scoped to
+                // that rule)
+                line(3, "if (result == MatchResult.cutMismatch()) {");
+                line(4, "return MatchResult.mismatch();");
+                line(3, "}");
+            }
+        }
+        line(3, "return MatchResult.mismatch();");
+    }
+
+    /**
+     * Call the clause's own match method in the recovery phase, or if the clause builds a lazy
+     * match.
+     */
+    private void checkDiscoveryPhase(Clause clause) {
+        line(3, "if (parser.inRecoveryPhase() || parser.buildsLazyMatch(" + clauseRef(clause) + ")) {");
+        line(4, "return " + clauseRef(clause) + ".match(parser, pos, bound);");
+        line(3, "}");
+    }
+
+    private static Clause resolve(Clause subClause) {
+        return subClause instanceof Ref ref && ref.ownerRule() == null && ref.target() != null
+            ? ref.target() : subClause;
+    }
+
+    private static String methodName(Clause clause) {
+        String ruleName = clause.ownerRule();
+        return (ruleName != null && SourceVersion.isName(ruleName) ? ruleName : "clause") + "$" + clause.clauseIdx();
+    }
+
+    private static String clauseRef(Clause clause) {
+        return "c[" + clause.clauseIdx() + "]";
+    }
+
+    /**
+     * A Java char constant. (Characters outside printable ASCII are written as a cast, since a
+     * Unicode escape in a char literal would be translated before the literal is parsed.)
+     */
+    private static String javaChar(char c) {
+        return switch (c) {
+            case '\\' -> "'\\\\'";
+            case '\'' -> "'\\''";
+            default -> c < 0x20 || c >= 0x7f ? String.format("(char) 0x%04x", (int) c) : "'" + c + "'";
+        };
+    }
+
+    private void line(int depth, String text) {
+        if (!text.isEmpty()) {
+            src.append(indent(depth)).append(text);
+        }
+        src.append('\n');
+    }
+
+    private static String indent(int depth) {
+        return "    ".repeat(depth);
+    }
+}
@@ -1,99 +1,100 @@
 package com.squirrelparser.parser;
 
-import static com.squirrelparser.parser.MatchResult.lrPending;
-import static com.squirrelparser.parser.MatchResult.mismatch;
-
-import com.squirrelparser.clause.Clause;
-
 /**
- * A memo table entry for a (clause, position) pair.
+ * A memo table entry for a (clause, position) pair, in the heap memo table, with the entry state
+ * in fields (see {@link MemoSlot} for the memoization algorithm).
  *
- * SATISFIES:
- *   - A1 (Packrat Invariant): Memoization ensures each (clause, pos) evaluated once per phase
- *   - A4 (LR Fixed Point): Tracks inRecPath/foundLeftRec for cycle detection and expansion
- *   - C7 (Phase Isolation): cachedInRecoveryPhase prevents cross-phase pollution
+ * After an edit, the memo table checks the entry and moves it to its new position lazily, when it
+ * is next looked up (see {@link MemoTable#applyEdit}).
  */
-public final class MemoEntry {
+public final class MemoEntry extends MemoSlot {
     private MatchResult result;
-    private boolean inRecPath = false;     // Currently on call stack (for LR cycle detection)
-    private boolean foundLeftRec = false;  // Left recursion detected (triggers expansion)
-    private int memoVersion = 0;           // Version tag for LR seed invalidation
+    private int flags = 0;
+    private int memoVersion = 0;
+    private int examinedLen = 0;
+    private int enclosingExaminedEnd = 0;
+    private int pos;                       // Position of the entry as of edit number numEdits
+    private int numEdits;
+
+    /** An entry whose position is never moved. */
+    public MemoEntry() {
+        this(0, 0);
+    }
 
-    /** CONSTRAINT C7 (Phase Isolation): Tracks which phase cached this result. */
-    private boolean cachedInRecoveryPhase = false;
+    MemoEntry(int pos, int numEdits) {
+        this.pos = pos;
+        this.numEdits = numEdits;
+    }
+
+    /** The number of edits of the input when the entry was stored or last moved. */
+    int numEdits() {
+        return numEdits;
+    }
 
     /**
-     * Match a clause at a position, handling left recursion and caching.
+     * Move the entry to its position after the edits since it was last moved, none of which fell
+     * inside the input it examined. A result cached in the recovery phase of the earlier parse may
+     * contain syntax errors that the edits fixed, so it can't be used outside of the recovery phase
+     * of the reparse.
      */
-    public MatchResult match(Parser parser, Clause clause, int pos, Clause bound) {
-        // Cache validation (A1 - Packrat Invariant, C7 - Phase Isolation)
-        if (result != null && memoVersion == parser.memoVersion()[pos]) {
-            boolean phaseMatches = (cachedInRecoveryPhase == parser.inRecoveryPhase());
-
-            // Special case: Top-level complete results that didn't reach EOF
-            if (!result.isMismatch() &&
-                result.isComplete() &&
-                pos == 0 &&
-                result.pos() + result.len() < parser.input().length() &&
-                !phaseMatches) {
-                // Phase 1 result didn't reach EOF; retry in Phase 2
-            } else if ((!result.isMismatch() && result.isComplete() && !foundLeftRec) ||
-                       phaseMatches) {
-                ParserStats.recordCacheHit();
-                return result;
-            }
+    void moveTo(int pos, int numEdits) {
+        if (result != null) {
+            result = result.shifted(pos - this.pos);
         }
-
-        // Left recursion cycle detection
-        if (inRecPath) {
-            if (result == null) {
-                foundLeftRec = true;
-                result = mismatch();
-            }
-            if (result.isMismatch()) {
-                return lrPending();
-            }
-            return result;
+        if ((flags & CACHED_IN_RECOVERY_PHASE) != 0) {
+            flags |= RECOVERED_BEFORE_EDIT;
         }
+        this.pos = pos;
+        this.numEdits = numEdits;
+    }
 
-        inRecPath = true;
+    @Override
+    MatchResult result() {
+        return result;
+    }
 
-        // Clear stale results before expansion loop
-        if (result != null &&
-            (memoVersion != parser.memoVersion()[pos] ||
-             (foundLeftRec && cachedInRecoveryPhase != parser.inRecoveryPhase()))) {
-            result = null;
-        }
+    @Override
+    void setResult(MatchResult result) {
+        this.result = result;
+    }
 
-        // Left recursion expansion loop
-        do {
-            ParserStats.recordMatch();
-            MatchResult newResult = clause.match(parser, pos, bound);
+    @Override
+    int flags() {
+        return flags;
+    }
 
-            if (result != null && newResult.len() <= result.len()) {
-                break; // No progress - fixed point reached
-            }
+    @Override
+    void setFlags(int flags) {
+        this.flags = flags;
+    }
 
-            result = newResult;
+    @Override
+    int memoVersion() {
+        return memoVersion;
+    }
 
-            if (!foundLeftRec) {
-                break; // No left recursion - done in one iteration
-            }
+    @Override
+    void setMemoVersion(int memoVersion) {
+        this.memoVersion = memoVersion;
+    }
 
-            ParserStats.recordLRExpansion();
-            parser.memoVersion()[pos]++;
-            memoVersion = parser.memoVersion()[pos];
-        } while (true);
+    @Override
+    int examinedLen() {
+        return examinedLen;
+    }
 
-        // Update cache metadata
-        inRecPath = false;
-        memoVersion = parser.memoVersion()[pos];
-        cachedInRecoveryPhase = parser.inRecoveryPhase();
+    @Override
+    void setExaminedLen(int examinedLen) {
+        this.examinedLen = examinedLen;
+    }
 
-        // Mark LR results
-        if (foundLeftRec && !result.isMismatch() && !result.isFromLRContext()) {
-            result = result.withLRContext();
-        }
-        return result;
+    @Override
+    int enclosingExaminedEnd() {
+        return enclosingExaminedEnd;
+    }
+
+    @Override
+    void setEnclosingExaminedEnd(int enclosingExaminedEnd) {
+        this.enclosingExaminedEnd = enclosingExaminedEnd;
     }
 }
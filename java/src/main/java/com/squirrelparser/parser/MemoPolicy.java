@@ -0,0 +1,102 @@
+package com.squirrelparser.parser;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.terminal.Terminal;
+
+/**
+ * Static memoization policy: decides, per clause, whether matches of the clause are memoized.
+ *
+ * A memo lookup costs more than re-running a terminal, and a clause that is only used in one
+ * place is usually only matched once at each position, so memoizing these clauses only adds
+ * overhead. The policy is, in order of precedence:
+ *
+ *   - Ref: never memoized (CONSTRAINT C5, Ref Transparency).
+ *   - The clause of a rule on a recursive cycle: always memoized. This includes every left
+ *     recursion head, since the memo entry is where left recursion is detected and expanded
+ *     (CONSTRAINT A4). (Error recovery can re-enter a recursive rule at the same position even
+ *     when it is not left-recursive, so all recursive rules are treated the same way.)
+ *   - The clause of a rule annotated with @memo or @nomemo: memoized as annotated. (An alias
+ *     rule, A <- B, can't be annotated, since its clause is a Ref: see {@link Grammar}.)
+ *   - Terminals: never memoized.
+ *   - Other clauses: memoized only if they are used in more than one place (the clause of a
+ *     rule that is referenced more than once, or a clause instance shared between parents).
+ *
+ * Since every rule on a recursive cycle is memoized, each (rule, pos) pair is still matched
+ * at most once per phase, so the packrat linearity guarantee (CONSTRAINT A1) is preserved.
+ */
+public final class MemoPolicy {
+    /**
+     * An explicit memoization annotation on a rule.
+     */
+    public enum Annotation {
+        /** Always memoize the rule (@memo). */
+        MEMO,
+        /** Never memoize the rule (@nomemo), unless it is recursive. */
+        NOMEMO
+    }
+
+    private MemoPolicy() {}
+
+    /**
+     * Decide which clauses to memoize.
+     *
+     * @return An array indexed by clause index: true if the clause should be memoized
+     */
+    static boolean[] memoizedClauses(Map<String, Clause> rules, List<Clause> allClauses,
+                                     GrammarAnalysis analysis) {
+        Set<Clause> ruleClauses = ruleClauses(rules);
+        boolean[] memoized = new boolean[allClauses.size()];
+        for (Clause clause : allClauses) {
+            memoized[clause.clauseIdx()] = shouldMemoize(clause, ruleClauses.contains(clause), analysis);
+        }
+        return memoized;
+    }
+
+    /**
+     * Find the clauses that must always be memoized: the clauses of rules on a recursive cycle.
+     *
+     * @return An array indexed by clause index: true if the clause must be memoized
+     */
+    static boolean[] memoRequiredClauses(Map<String, Clause> rules, List<Clause> allClauses,
+                                         GrammarAnalysis analysis) {
+        Set<Clause> ruleClauses = ruleClauses(rules);
+        boolean[] required = new boolean[allClauses.size()];
+        for (Clause clause : allClauses) {
+            required[clause.clauseIdx()] = isMemoRequired(clause, ruleClauses.contains(clause), analysis);
+        }
+        return required;
+    }
+
+    private static Set<Clause> ruleClauses(Map<String, Clause> rules) {
+        Set<Clause> ruleClauses = Collections.newSetFromMap(new IdentityHashMap<>());
+        ruleClauses.addAll(rules.values());
+        return ruleClauses;
+    }
+
+    private static boolean isMemoRequired(Clause clause, boolean isRuleClause, GrammarAnalysis analysis) {
+        return isRuleClause && !(clause instanceof Ref) && analysis.isRecursive(clause);
+    }
+
+    private static boolean shouldMemoize(Clause clause, boolean isRuleClause, GrammarAnalysis analysis) {
+        if (clause instanceof Ref) {
+            return false;
+        }
+        if (isMemoRequired(clause, isRuleClause, analysis)) {
+            return true;
+        }
+        if (isRuleClause && clause.memoAnnotation() != null) {
+            return clause.memoAnnotation() == Annotation.MEMO;
+        }
+        if (clause instanceof Terminal) {
+            return false;
+        }
+        return analysis.useCount(clause) > 1;
+    }
+}
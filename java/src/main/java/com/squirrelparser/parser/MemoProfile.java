@@ -0,0 +1,177 @@
+package com.squirrelparser.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.squirrelparser.clause.Clause;
+
+/**
+ * Per-clause memo table lookup and hit counts, used for adaptive memoization.
+ *
+ * When adaptive memoization is enabled ({@link ParserOptions#adaptiveMemo()}), the parser records
+ * a profile while parsing, and stops memoizing a clause for the rest of the parse once it has
+ * been looked up at least {@link #MIN_LOOKUPS} times with a hit ratio below
+ * {@link #MIN_HIT_RATIO}: most memo entries of such a clause are written and never read again.
+ *
+ * A profile can be saved, and loaded on later runs ({@link ParserOptions#withMemoProfile}), so that
+ * low hit rate clauses are not memoized from the start of the parse. A profile is only valid for
+ * the grammar it was recorded with.
+ */
+public final class MemoProfile {
+    /** The minimum number of lookups of a clause before its hit ratio is used. */
+    public static final int MIN_LOOKUPS = 1024;
+
+    /** Clauses with a hit ratio below this are not memoized. */
+    public static final double MIN_HIT_RATIO = 0.01;
+
+    private static final String HEADER = "# Squirrel parser memo profile";
+
+    private final long grammarFingerprint;
+    private final long[] lookups;
+    private final long[] hits;
+
+    private MemoProfile(long grammarFingerprint, int numClauses) {
+        this.grammarFingerprint = grammarFingerprint;
+        this.lookups = new long[numClauses];
+        this.hits = new long[numClauses];
+    }
+
+    /**
+     * Create an empty profile for a grammar.
+     */
+    public MemoProfile(Grammar grammar) {
+        this(fingerprint(grammar), grammar.allClauses().size());
+    }
+
+    /**
+     * A fingerprint of the grammar structure, used to check that a profile matches a grammar
+     * (clause indices are assigned deterministically, so they are stable for the same grammar).
+     */
+    private static long fingerprint(Grammar grammar) {
+        List<String> ruleNames = new ArrayList<>(grammar.rules().keySet());
+        ruleNames.sort(null);
+        long hash = grammar.allClauses().size();
+        for (String ruleName : ruleNames) {
+            hash = hash * 31 + ruleName.hashCode();
+            hash = hash * 31 + grammar.rules().get(ruleName).toString().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Create a copy of this profile to continue recording into, checking that it was recorded
+     * with the given grammar.
+     */
+    MemoProfile copyFor(Grammar grammar) {
+        if (fingerprint(grammar) != grammarFingerprint || grammar.allClauses().size() != lookups.length) {
+            throw new IllegalArgumentException("Memo profile was recorded with a different grammar");
+        }
+        MemoProfile copy = new MemoProfile(grammarFingerprint, lookups.length);
+        System.arraycopy(lookups, 0, copy.lookups, 0, lookups.length);
+        System.arraycopy(hits, 0, copy.hits, 0, hits.length);
+        return copy;
+    }
+
+    /**
+     * Record a memo table lookup of a clause.
+     *
+     * @return true if the clause has just been found to have a low hit rate
+     */
+    boolean recordLookup(int clauseIdx) {
+        long n = ++lookups[clauseIdx];
+        // Only re-check the hit ratio periodically
+        return (n & 0xFF) == 0 && isLowHitRate(clauseIdx);
+    }
+
+    /** Record a memo table hit for a clause. */
+    void recordHit(int clauseIdx) {
+        hits[clauseIdx]++;
+    }
+
+    boolean isLowHitRate(int clauseIdx) {
+        return lookups[clauseIdx] >= MIN_LOOKUPS && hits[clauseIdx] < lookups[clauseIdx] * MIN_HIT_RATIO;
+    }
+
+    /** Whether the profile shows that a clause is not worth memoizing. */
+    public boolean isLowHitRate(Clause clause) {
+        return isLowHitRate(clause.clauseIdx());
+    }
+
+    /** The number of memo table lookups recorded for a clause. */
+    public long lookups(Clause clause) {
+        return lookups[clause.clauseIdx()];
+    }
+
+    /** The number of memo table hits recorded for a clause. */
+    public long hits(Clause clause) {
+        return hits[clause.clauseIdx()];
+    }
+
+    /**
+     * Add the counts from another profile for the same grammar (e.g. from another parser).
+     */
+    public void merge(MemoProfile other) {
+        if (other.grammarFingerprint != grammarFingerprint || other.lookups.length != lookups.length) {
+            throw new IllegalArgumentException("Memo profile was recorded with a different grammar");
+        }
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] += other.lookups[i];
+            hits[i] += other.hits[i];
+        }
+    }
+
+    /**
+     * Save the profile as text: a header, the grammar fingerprint, then one
+     * "clauseIdx lookups hits" line per clause that was looked up.
+     */
+    public void save(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        lines.add("grammar " + Long.toHexString(grammarFingerprint) + " " + lookups.length);
+        for (int i = 0; i < lookups.length; i++) {
+            if (lookups[i] > 0) {
+                lines.add(i + " " + lookups[i] + " " + hits[i]);
+            }
+        }
+        Files.write(path, lines);
+    }
+
+    /**
+     * Load a profile saved by {@link #save(Path)}.
+     */
+    public static MemoProfile load(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path);
+        if (lines.size() < 2 || !lines.get(0).equals(HEADER) || !lines.get(1).startsWith("grammar ")) {
+            throw new IOException("Not a memo profile: " + path);
+        }
+        try {
+            String[] grammarLine = lines.get(1).split(" ");
+            MemoProfile profile = new MemoProfile(Long.parseUnsignedLong(grammarLine[1], 16),
+                Integer.parseInt(grammarLine[2]));
+            for (String line : lines.subList(2, lines.size())) {
+                String[] parts = line.split(" ");
+                int clauseIdx = Integer.parseInt(parts[0]);
+                profile.lookups[clauseIdx] = Long.parseLong(parts[1]);
+                profile.hits[clauseIdx] = Long.parseLong(parts[2]);
+            }
+            return profile;
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid memo profile: " + path, e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MemoProfile other && other.grammarFingerprint == grammarFingerprint
+            && Arrays.equals(other.lookups, lookups) && Arrays.equals(other.hits, hits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(grammarFingerprint) * 31 + Arrays.hashCode(lookups);
+    }
+}
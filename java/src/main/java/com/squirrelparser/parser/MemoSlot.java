@@ -0,0 +1,205 @@
+package com.squirrelparser.parser;
+
+import static com.squirrelparser.parser.MatchResult.lrPending;
+import static com.squirrelparser.parser.MatchResult.mismatch;
+
+import com.squirrelparser.clause.Clause;
+
+/**
+ * The state of a memo table entry for a (clause, position) pair, behind accessors, and the
+ * memoization algorithm over that state, which is shared by the memo backends: a {@link MemoEntry}
+ * holds the state in its fields, and an {@link OffHeapMemoTable} slot in an entry page.
+ *
+ * SATISFIES:
+ *   - A1 (Packrat Invariant): Memoization ensures each (clause, pos) evaluated once per phase
+ *   - A4 (LR Fixed Point): Tracks inRecPath/foundLeftRec for cycle detection and expansion
+ *   - C7 (Phase Isolation): cachedInRecoveryPhase prevents cross-phase pollution
+ *
+ * For incremental reparsing, the entry also records how much of the input its result depends
+ * on (examinedLen).
+ *
+ * In the discovery phase, clauses that the grammar analysis shows are not left-recursive are
+ * matched once, without cycle detection, the expansion loop or memo version checks.
+ */
+abstract sealed class MemoSlot permits MemoEntry, OffHeapMemoTable.Slot {
+    // Flags
+    static final int IN_REC_PATH = 1;               // Currently on call stack (for LR cycle detection)
+    static final int FOUND_LEFT_REC = 1 << 1;       // Left recursion detected (triggers expansion)
+    /** CONSTRAINT C7 (Phase Isolation): Tracks which phase cached this result. */
+    static final int CACHED_IN_RECOVERY_PHASE = 1 << 2;
+    static final int STATIC_RESULT = 1 << 3;        // Computed without left recursion handling (see endMatchOnce)
+    static final int RECOVERED_BEFORE_EDIT = 1 << 4; // Cached in the recovery phase before an edit
+    static final int MATCHING_ONCE = 1 << 5;        // Being matched without left recursion handling
+    static final int NUM_FLAG_BITS = 6;
+
+    /** The result, or null if there is none. */
+    abstract MatchResult result();
+
+    abstract void setResult(MatchResult result);
+
+    abstract int flags();
+
+    abstract void setFlags(int flags);
+
+    /** Version tag for LR seed invalidation. */
+    abstract int memoVersion();
+
+    abstract void setMemoVersion(int memoVersion);
+
+    /** Length of the input examined to compute the result. */
+    abstract int examinedLen();
+
+    abstract void setExaminedLen(int examinedLen);
+
+    /** Examined end of the enclosing entry, while matching. */
+    abstract int enclosingExaminedEnd();
+
+    abstract void setEnclosingExaminedEnd(int enclosingExaminedEnd);
+
+    /**
+     * Whether this entry is currently on the call stack (it must not be evicted: in the off-heap
+     * backend, its slot would be reused).
+     */
+    final boolean inProgress() {
+        return (flags() & (IN_REC_PATH | MATCHING_ONCE)) != 0;
+    }
+
+    final boolean foundLeftRec() {
+        return (flags() & FOUND_LEFT_REC) != 0;
+    }
+
+    /**
+     * Match a clause at a position, handling left recursion and caching.
+     */
+    public final MatchResult match(Parser parser, Clause clause, int pos, Clause bound) {
+        MatchResult result = beginMatch(parser, clause, pos);
+        while (result == null) {
+            ParserStats.recordMatch();
+            result = endMatch(parser, clause, pos, parser.matchClause(clause, pos, bound));
+        }
+        return result;
+    }
+
+    /**
+     * Start matching a clause at a position: return the cached result (or the LR seed, if the
+     * entry is re-entered during left recursion expansion), or null if the clause must be matched,
+     * in which case each match of the clause must be passed to {@link #endMatch}. Split from
+     * {@link #match} so the instruction VM can match the clause without recursing.
+     */
+    final MatchResult beginMatch(Parser parser, Clause clause, int pos) {
+        MatchResult result = result();
+        int flags = flags();
+
+        boolean canSkipLeftRecursion = (flags & (IN_REC_PATH | FOUND_LEFT_REC)) == 0
+            && parser.canSkipLeftRecursion(clause);
+
+        // Cache validation (A1 - Packrat Invariant, C7 - Phase Isolation). A result computed without
+        // left recursion handling doesn't depend on an LR seed, so memo versions don't apply to it.
+        if (result != null && ((canSkipLeftRecursion && (flags & STATIC_RESULT) != 0)
+                               || memoVersion() == parser.memoVersion(clause, pos))) {
+            boolean phaseMatches = ((flags & CACHED_IN_RECOVERY_PHASE) != 0) == parser.inRecoveryPhase();
+
+            // Special case: Top-level complete results that didn't reach EOF
+            if (!result.isMismatch() &&
+                result.isComplete() &&
+                pos == 0 &&
+                result.pos() + result.len() < parser.input().length() &&
+                !phaseMatches) {
+                // Phase 1 result didn't reach EOF; retry in Phase 2
+            } else if (phaseMatches ||
+                       (!result.isMismatch() && result.isComplete()
+                        && (flags & (FOUND_LEFT_REC | RECOVERED_BEFORE_EDIT)) == 0)) {
+                parser.recordCacheHit(clause);
+                parser.examine(pos + examinedLen());
+                return result;
+            }
+        }
+
+        if (canSkipLeftRecursion) {
+            // Matched once, without left recursion detection and expansion (see endMatchOnce)
+            setFlags(flags | MATCHING_ONCE);
+            setEnclosingExaminedEnd(parser.startExamining(pos));
+            return null;
+        }
+
+        // Left recursion cycle detection
+        if ((flags & IN_REC_PATH) != 0) {
+            if (result == null) {
+                setFlags(flags | FOUND_LEFT_REC);
+                result = mismatch();
+                setResult(result);
+            }
+            // The seed depends on the input examined by earlier expansion iterations
+            parser.examine(pos + examinedLen());
+            if (result.isMismatch()) {
+                return lrPending();
+            }
+            return result;
+        }
+
+        setFlags(flags | IN_REC_PATH);
+
+        // Clear stale results before expansion loop
+        if (result != null &&
+            (memoVersion() != parser.memoVersion(clause, pos) ||
+             ((flags & FOUND_LEFT_REC) != 0
+              && ((flags & CACHED_IN_RECOVERY_PHASE) != 0) != parser.inRecoveryPhase()) ||
+             ((flags & RECOVERED_BEFORE_EDIT) != 0 && !parser.inRecoveryPhase()))) {
+            setResult(null);
+        }
+        setEnclosingExaminedEnd(parser.startExamining(pos));
+        setExaminedLen(0);
+        return null;
+    }
+
+    /**
+     * Finish a match of the clause started by {@link #beginMatch}: return the result, or null if
+     * the left recursion expansion loop needs another iteration, i.e. the clause must be matched
+     * again and passed to this method again. (The state is read again here, since a nested match
+     * may have seeded this entry.)
+     */
+    final MatchResult endMatch(Parser parser, Clause clause, int pos, MatchResult newResult) {
+        if ((flags() & IN_REC_PATH) == 0) {
+            return endMatchOnce(parser, clause, pos, newResult);
+        }
+
+        // Left recursion expansion loop
+        setExaminedLen(parser.examinedEnd() - pos);
+        MatchResult result = result();
+        if (result == null || newResult.len() > result.len()) { // Otherwise no progress - fixed point reached
+            result = newResult;
+            setResult(result);
+            if (foundLeftRec()) {
+                ParserStats.recordLRExpansion();
+                setMemoVersion(parser.incrementMemoVersion(clause, pos));
+                return null;
+            }
+            // No left recursion - done in one iteration
+        }
+
+        // Update cache metadata
+        setExaminedLen(parser.endExamining(enclosingExaminedEnd()) - pos);
+        int flags = flags() & ~(IN_REC_PATH | CACHED_IN_RECOVERY_PHASE | RECOVERED_BEFORE_EDIT | STATIC_RESULT);
+        setFlags(flags | (parser.inRecoveryPhase() ? CACHED_IN_RECOVERY_PHASE : 0));
+        setMemoVersion(parser.memoVersion(clause, pos));
+
+        // Mark LR results
+        if ((flags & FOUND_LEFT_REC) != 0 && !result.isMismatch() && !result.isFromLRContext()) {
+            result = result.withLRContext();
+            setResult(result);
+        }
+        return result;
+    }
+
+    /**
+     * Finish the match of a clause that can't be re-entered at this position (see
+     * {@link Parser#canSkipLeftRecursion}), without left recursion detection and expansion.
+     */
+    private MatchResult endMatchOnce(Parser parser, Clause clause, int pos, MatchResult newResult) {
+        setResult(newResult);
+        setExaminedLen(parser.endExamining(enclosingExaminedEnd()) - pos);
+        setMemoVersion(parser.memoVersion(clause, pos));
+        setFlags((flags() & ~(MATCHING_ONCE | CACHED_IN_RECOVERY_PHASE | RECOVERED_BEFORE_EDIT)) | STATIC_RESULT);
+        return newResult;
+    }
+}
@@ -0,0 +1,34 @@
+package com.squirrelparser.parser;
+
+import com.squirrelparser.clause.Clause;
+
+/**
+ * Memo table storage for a parser, selected by {@link ParserOptions#memoBackend()}.
+ */
+public sealed interface MemoStore permits MemoTable, OffHeapMemoTable {
+    /**
+     * Match a clause at a position, returning the memoized result if there is a valid one.
+     */
+    MatchResult match(Parser parser, Clause clause, int pos, Clause bound);
+
+    /** Number of memoized (clause, pos) entries. */
+    int size();
+
+    /**
+     * Evict all entries and memo versions for positions before pos, other than entries that are
+     * still in progress. Called when a cut commits the parse to pos.
+     */
+    void evictBefore(int pos);
+
+    /**
+     * Get the memo version at a position for clauses on the given left-recursive cycle, or for
+     * clauses on no cycle if cycle < 0 (CONSTRAINT A4: used to invalidate LR seeds).
+     */
+    int version(int cycle, int pos);
+
+    /**
+     * Increment the memo version at a position for the given left-recursive cycle, or for all
+     * clauses if cycle < 0, and return the new version for clauses on the cycle.
+     */
+    int incrementVersion(int cycle, int pos);
+}
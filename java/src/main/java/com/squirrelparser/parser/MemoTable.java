@@ -0,0 +1,281 @@
+package com.squirrelparser.parser;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+import com.squirrelparser.clause.Clause;
+
+/**
+ * The heap memo table: an open-addressed hash table from (clauseIdx, pos) to MemoEntry, plus the
+ * per-position memo versions used for LR seed invalidation.
+ *
+ * The clause index and position are packed into a single long key, so a lookup costs one
+ * multiplicative hash and a short linear probe, with no boxing and no per-entry node allocation.
+ *
+ * After the input is edited, entries are keyed by position id rather than position (see
+ * {@link PositionIds}), so an edit doesn't have to move the entries after it.
+ */
+public final class MemoTable implements MemoStore {
+    static final long EMPTY = -1L;
+    static final int MIN_CAPACITY_BITS = 10;
+    /** Don't rebase the table while the input has fewer pieces than this (see applyEdit). */
+    static final int MIN_REBASE_PIECES = 256;
+
+    private long[] keys;
+    private MemoEntry[] entries;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    private final MemoVersions versions;
+    private final PositionIds positionIds;
+    private int inputLength;
+
+    /** Don't evict again until the table has grown to this size (amortizes the cost of eviction). */
+    private int evictionThreshold;
+
+    /**
+     * Create a memo table for an input of the given length.
+     */
+    public MemoTable(int inputLength) {
+        allocate(MIN_CAPACITY_BITS);
+        versions = new MemoVersions(inputLength);
+        positionIds = new PositionIds(inputLength);
+        this.inputLength = inputLength;
+        evictionThreshold = 1 << MIN_CAPACITY_BITS;
+    }
+
+    private void allocate(int capacityBits) {
+        int capacity = 1 << capacityBits;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        entries = new MemoEntry[capacity];
+        shift = 64 - capacityBits;
+        resizeThreshold = capacity >>> 1; // Max load factor 0.5
+    }
+
+    static long key(int clauseIdx, int pos) {
+        return ((long) pos << 32) | (clauseIdx & 0xFFFFFFFFL);
+    }
+
+    static int keyPos(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /** Fibonacci hashing: take the high bits of the key times 2^64/phi. */
+    static int slot(long key, int shift) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private int slot(long key) {
+        return slot(key, shift);
+    }
+
+    @Override
+    public MatchResult match(Parser parser, Clause clause, int pos, Clause bound) {
+        return getOrCreate(clause.clauseIdx(), pos).match(parser, clause, pos, bound);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the MemoEntry for a clause at a position, or null if there is none.
+     */
+    public MemoEntry get(int clauseIdx, int pos) {
+        long key = key(clauseIdx, positionIds.id(pos));
+        int mask = keys.length - 1;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return current(i, pos) ? entries[i] : null;
+            }
+            if (k == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Get the MemoEntry for a clause at a position, creating it if it does not exist.
+     */
+    public MemoEntry getOrCreate(int clauseIdx, int pos) {
+        long key = key(clauseIdx, positionIds.id(pos));
+        int mask = keys.length - 1;
+        int i = slot(key);
+        for (; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                if (!current(i, pos)) {
+                    entries[i] = new MemoEntry(pos, positionIds.numEdits());
+                }
+                return entries[i];
+            }
+            if (k == EMPTY) {
+                break;
+            }
+        }
+        MemoEntry entry = new MemoEntry(pos, positionIds.numEdits());
+        keys[i] = key;
+        entries[i] = entry;
+        if (++size > resizeThreshold) {
+            rehash(65 - shift, Integer.MIN_VALUE);
+        }
+        return entry;
+    }
+
+    /**
+     * Rehash into a table of the given capacity, dropping entries before minPos unless they are
+     * still in progress (on the recursion path), since left recursion detection depends on them.
+     */
+    private void rehash(int capacityBits, int minPos) {
+        long[] oldKeys = keys;
+        MemoEntry[] oldEntries = entries;
+        allocate(capacityBits);
+        size = 0;
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k != EMPTY && (keyPos(k) >= minPos || oldEntries[j].inProgress())) {
+                int i = slot(k);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = k;
+                entries[i] = oldEntries[j];
+                size++;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} Eviction is amortized: the table is only compacted once it has doubled in
+     * size since the last compaction.
+     */
+    @Override
+    public void evictBefore(int pos) {
+        if (size < evictionThreshold) {
+            return;
+        }
+        if (positionIds.numPieces() > 1) {
+            rebase();
+        }
+        int minInProgressPos = pos;
+        int numRemaining = 0;
+        for (int j = 0; j < keys.length; j++) {
+            long k = keys[j];
+            if (k != EMPTY) {
+                if (entries[j].inProgress()) {
+                    minInProgressPos = Math.min(minInProgressPos, keyPos(k));
+                    numRemaining++;
+                } else if (keyPos(k) >= pos) {
+                    numRemaining++;
+                }
+            }
+        }
+        int capacityBits = MIN_CAPACITY_BITS;
+        while ((1 << capacityBits) >>> 1 <= numRemaining) {
+            capacityBits++;
+        }
+        rehash(capacityBits, pos);
+        versions.evictBefore(minInProgressPos);
+        evictionThreshold = Math.max(1 << MIN_CAPACITY_BITS, size * 2);
+    }
+
+    /**
+     * Check an entry found at pos that was stored before the last edit: if no edit since then
+     * fell inside the input it examined, move it to pos and return true, otherwise return false
+     * (the caller must not use the entry).
+     */
+    private boolean current(int i, int pos) {
+        MemoEntry entry = entries[i];
+        int numEdits = positionIds.numEdits();
+        if (entry.numEdits() == numEdits) {
+            return true;
+        }
+        if (!positionIds.unchangedSince(entry.numEdits(), pos, entry.examinedLen())) {
+            if (entry.foundLeftRec()) {
+                // Other entries at this position may hold results from the dropped LR expansion
+                versions.increment(-1, positionIds.id(pos));
+            }
+            return false;
+        }
+        entry.moveTo(pos, numEdits);
+        return true;
+    }
+
+    /**
+     * Update the table after an edit that replaced oldLen characters at start with newLen
+     * characters. Entries are keyed by position id, which the edit doesn't change for the
+     * positions it keeps, so no entry is moved here: each entry is checked when it is next looked
+     * up, and is dropped if the edit fell inside the input it examined (including entries before
+     * the edit that looked ahead into it), or moved to its new position otherwise. So an edit takes
+     * time linear in the number of edits since the table was last rebased, not in the size of the
+     * table. The table is rebased once the number of edits is a fraction of its size, so the cost
+     * of rebasing is constant per edit, amortized.
+     */
+    void applyEdit(int start, int oldLen, int newLen, int newInputLength) {
+        positionIds.applyEdit(start, oldLen, newLen);
+        inputLength = newInputLength;
+        if (positionIds.numPieces() > Math.max(MIN_REBASE_PIECES, size >>> 4)) {
+            rebase();
+        }
+    }
+
+    /**
+     * Check every entry stored before the last edit (see {@link #current}), drop the entries of
+     * deleted positions, and key the remaining entries and memo versions by position again, so
+     * that the position ids can be reset.
+     */
+    private void rebase() {
+        IntUnaryOperator positionOf = positionIds.positions(inputLength);
+        versions.remap(positionOf, inputLength);
+        int numEdits = positionIds.numEdits();
+        long[] oldKeys = keys;
+        MemoEntry[] oldEntries = entries;
+        allocate(64 - shift);
+        size = 0;
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k == EMPTY) {
+                continue;
+            }
+            MemoEntry entry = oldEntries[j];
+            int pos = positionOf.applyAsInt(keyPos(k));
+            if (pos < 0) {
+                continue;
+            }
+            if (entry.numEdits() != numEdits) {
+                if (!positionIds.unchangedSince(entry.numEdits(), pos, entry.examinedLen())) {
+                    if (entry.foundLeftRec()) {
+                        versions.increment(-1, pos);
+                    }
+                    continue;
+                }
+                entry.moveTo(pos, numEdits);
+            }
+            k = key((int) k, pos);
+            int i = slot(k);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = k;
+            entries[i] = entry;
+            size++;
+        }
+        positionIds.reset(inputLength);
+    }
+
+    @Override
+    public int version(int cycle, int pos) {
+        return versions.version(cycle, positionIds.id(pos));
+    }
+
+    @Override
+    public int incrementVersion(int cycle, int pos) {
+        return versions.increment(cycle, positionIds.id(pos));
+    }
+}
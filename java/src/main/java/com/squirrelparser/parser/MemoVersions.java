@@ -0,0 +1,135 @@
+package com.squirrelparser.parser;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Per-position memo versions, used to invalidate LR seeds (CONSTRAINT A4).
+ *
+ * Each position has a global version, and a version per left-recursive cycle of the grammar (see
+ * {@link GrammarAnalysis#leftRecursiveCycle}). The version of a clause at a position is the global
+ * version plus the version of the clause's cycle, so incrementing the global version invalidates
+ * all seeds at the position, while incrementing a cycle's version only invalidates the seeds of
+ * the clauses on that cycle. Both only ever increase, so the sum changes whenever either does.
+ *
+ * Versions are stored in pages that are only allocated when a version is first incremented
+ * (i.e. on left recursion expansion), so grammars without left recursion pay nothing for them.
+ *
+ * Versions are indexed by position id (see {@link PositionIds}), which is the position until the
+ * input is edited.
+ */
+final class MemoVersions {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private int[][] pages;
+
+    /** Pages of the versions for each left-recursive cycle, allocated when first incremented. */
+    private int[][][] cyclePages = new int[0][][];
+
+    MemoVersions(int inputLength) {
+        pages = new int[(inputLength >> PAGE_BITS) + 1][];
+    }
+
+    /** The version of a clause on the given cycle (or on no cycle if cycle < 0) at pos. */
+    int version(int cycle, int pos) {
+        int version = get(pages, pos);
+        if (cycle >= 0 && cycle < cyclePages.length && cyclePages[cycle] != null) {
+            version += get(cyclePages[cycle], pos);
+        }
+        return version;
+    }
+
+    /**
+     * Increment the version for the given cycle at pos (or the global version, if cycle < 0), and
+     * return the new version of a clause on the cycle.
+     */
+    int increment(int cycle, int pos) {
+        if (cycle < 0) {
+            pages = withPage(pages, pos);
+            return increment(pages, pos);
+        }
+        if (cycle >= cyclePages.length) {
+            cyclePages = Arrays.copyOf(cyclePages, cycle + 1);
+        }
+        if (cyclePages[cycle] == null) {
+            cyclePages[cycle] = new int[pages.length][];
+        }
+        cyclePages[cycle] = withPage(cyclePages[cycle], pos);
+        return get(pages, pos) + increment(cyclePages[cycle], pos);
+    }
+
+    private static int get(int[][] pages, int pos) {
+        int[] page = (pos >> PAGE_BITS) < pages.length ? pages[pos >> PAGE_BITS] : null;
+        return page == null ? 0 : page[pos & PAGE_MASK];
+    }
+
+    /**
+     * The pages, grown to include the page for pos if needed (the ids of inserted positions are
+     * past the end of the original input).
+     */
+    private static int[][] withPage(int[][] pages, int pos) {
+        return (pos >> PAGE_BITS) < pages.length ? pages
+            : Arrays.copyOf(pages, Math.max(pages.length * 2, (pos >> PAGE_BITS) + 1));
+    }
+
+    private static int increment(int[][] pages, int pos) {
+        int[] page = pages[pos >> PAGE_BITS];
+        if (page == null) {
+            page = pages[pos >> PAGE_BITS] = new int[1 << PAGE_BITS];
+        }
+        return ++page[pos & PAGE_MASK];
+    }
+
+    /**
+     * Move the versions from position ids to positions, before the ids are reset (see
+     * {@link PositionIds#reset}), dropping the versions of deleted positions.
+     *
+     * @param positionOf The position of each id, or -1 if the position was deleted
+     */
+    void remap(IntUnaryOperator positionOf, int inputLength) {
+        pages = remap(pages, positionOf, inputLength);
+        for (int cycle = 0; cycle < cyclePages.length; cycle++) {
+            if (cyclePages[cycle] != null) {
+                cyclePages[cycle] = remap(cyclePages[cycle], positionOf, inputLength);
+            }
+        }
+    }
+
+    private static int[][] remap(int[][] oldPages, IntUnaryOperator positionOf, int inputLength) {
+        int[][] pages = new int[(inputLength >> PAGE_BITS) + 1][];
+        for (int page = 0; page < oldPages.length; page++) {
+            if (oldPages[page] == null) {
+                continue;
+            }
+            for (int i = 0; i <= PAGE_MASK; i++) {
+                int version = oldPages[page][i];
+                int pos = version != 0 ? positionOf.applyAsInt((page << PAGE_BITS) + i) : -1;
+                if (pos >= 0) {
+                    int[] newPage = pages[pos >> PAGE_BITS];
+                    if (newPage == null) {
+                        newPage = pages[pos >> PAGE_BITS] = new int[1 << PAGE_BITS];
+                    }
+                    newPage[pos & PAGE_MASK] = version;
+                }
+            }
+        }
+        return pages;
+    }
+
+    /** Drop the pages that only cover positions before pos. */
+    void evictBefore(int pos) {
+        evictBefore(pages, pos);
+        for (int[][] cycle : cyclePages) {
+            if (cycle != null) {
+                evictBefore(cycle, pos);
+            }
+        }
+    }
+
+    private static void evictBefore(int[][] pages, int pos) {
+        for (int page = 0; page < Math.min(pos >> PAGE_BITS, pages.length); page++) {
+            pages[page] = null;
+        }
+    }
+}
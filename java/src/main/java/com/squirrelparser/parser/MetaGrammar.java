@@ -20,6 +20,7 @@ import com.squirrelparser.clause.nonterminal.ZeroOrMore;
 import com.squirrelparser.clause.terminal.AnyChar;
 import com.squirrelparser.clause.terminal.Char;
 import com.squirrelparser.clause.terminal.CharSet;
+import com.squirrelparser.clause.terminal.Cut;
 import com.squirrelparser.clause.terminal.Nothing;
 import com.squirrelparser.clause.terminal.Str;
 import com.squirrelparser.tree.ASTBuilder;
@@ -44,6 +45,7 @@ public final class MetaGrammar {
             )))
         )));
         RULES.put("Rule", new Seq(List.of(
+            new ZeroOrMore(new Ref("Annotation")),
             new Optional(new Str("~")),
             new Ref("Identifier"),
             new Ref("WS"),
@@ -54,6 +56,11 @@ public final class MetaGrammar {
             new Str(";"),
             new Ref("WS")
         )));
+        RULES.put("Annotation", new Seq(List.of(
+            new Str("@"),
+            new Ref("Identifier"),
+            new Ref("WS")
+        )));
         RULES.put("Expression", new Ref("Choice"));
         RULES.put("Choice", new Seq(List.of(
             new Ref("Sequence"),
@@ -89,6 +96,7 @@ public final class MetaGrammar {
             new Ref("CharLiteral"),
             new Ref("CharClass"),
             new Ref("AnyChar"),
+            new Ref("Cut"),
             new Ref("Parens")
         )));
         RULES.put("Parens", new Seq(List.of(
@@ -98,18 +106,11 @@ public final class MetaGrammar {
             new Ref("WS"),
             new Str(")")
         )));
+        // One CharSet per position rather than a First of ranges, so each character is one lookup
         RULES.put("Identifier", new Seq(List.of(
-            new First(List.of(
-                CharSet.range("a", "z"),
-                CharSet.range("A", "Z"),
-                new Char("_")
-            )),
-            new ZeroOrMore(new First(List.of(
-                CharSet.range("a", "z"),
-                CharSet.range("A", "Z"),
-                CharSet.range("0", "9"),
-                new Char("_")
-            )))
+            new CharSet(List.of(new int[]{'a', 'z'}, new int[]{'A', 'Z'}, new int[]{'_', '_'})),
+            new ZeroOrMore(new CharSet(List.of(
+                new int[]{'a', 'z'}, new int[]{'A', 'Z'}, new int[]{'0', '9'}, new int[]{'_', '_'})))
         )));
         RULES.put("StringLiteral", new Seq(List.of(
             new Str("\""),
@@ -169,6 +170,7 @@ public final class MetaGrammar {
             ))
         )));
         RULES.put("AnyChar", new Str("."));
+        RULES.put("Cut", new Str("^"));
         RULES.put("~WS", new ZeroOrMore(new First(List.of(
             new Char(" "),
             new Char("\t"),
@@ -186,11 +188,14 @@ public final class MetaGrammar {
         )));
     }
 
+    /** The compiled meta-grammar, shared by all calls to {@link #parseGrammar(String)}. */
+    private static final Grammar GRAMMAR = Grammar.compile(RULES, "Grammar");
+
     /**
      * Parse a grammar specification and return the rules.
      */
     public static Map<String, Clause> parseGrammar(String grammarSpec) {
-        var parser = new Parser(RULES, "Grammar", grammarSpec);
+        var parser = new Parser(GRAMMAR, grammarSpec);
         var parseResult = parser.parse();
         if (parseResult.hasSyntaxErrors()) {
             var errors = parseResult.getSyntaxErrors().stream()
@@ -243,6 +248,15 @@ public final class MetaGrammar {
             }
 
             Clause clause = buildClause(expressionNode, grammarSpec);
+            for (var child : ruleNode.children()) {
+                if (child.label().equals("Annotation")) {
+                    if (clause.memoAnnotation() != null) {
+                        throw new IllegalArgumentException(
+                            "Rule \"" + ruleName + "\" has more than one memoization annotation");
+                    }
+                    clause.setMemoAnnotation(parseAnnotation(child, grammarSpec));
+                }
+            }
 
             if (isTransparent) {
                 grammarMap.put("~" + ruleName, clause);
@@ -265,6 +279,20 @@ public final class MetaGrammar {
         return grammarMap;
     }
 
+    private static MemoPolicy.Annotation parseAnnotation(ASTNode node, String input) {
+        String name = "";
+        for (var child : node.children()) {
+            if (child.label().equals("Identifier")) {
+                name = child.getInputSpan(input);
+            }
+        }
+        return switch (name) {
+            case "memo" -> MemoPolicy.Annotation.MEMO;
+            case "nomemo" -> MemoPolicy.Annotation.NOMEMO;
+            default -> throw new IllegalArgumentException("Unknown rule annotation \"@" + name + "\"");
+        };
+    }
+
     private static Clause buildClause(ASTNode node, String input) {
         switch (node.label()) {
             case "Expression" -> {
@@ -390,6 +418,9 @@ public final class MetaGrammar {
             case "AnyChar" -> {
                 return new AnyChar();
             }
+            case "Cut" -> {
+                return new Cut();
+            }
             default -> throw new IllegalArgumentException("Unknown AST node label: " + node.label());
         }
     }
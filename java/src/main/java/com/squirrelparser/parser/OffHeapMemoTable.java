@@ -0,0 +1,411 @@
+package com.squirrelparser.parser;
+
+import static com.squirrelparser.parser.MatchResult.cutMismatch;
+import static com.squirrelparser.parser.MatchResult.lrPending;
+import static com.squirrelparser.parser.MatchResult.mismatch;
+import static com.squirrelparser.parser.MemoTable.EMPTY;
+import static com.squirrelparser.parser.MemoTable.MIN_CAPACITY_BITS;
+import static com.squirrelparser.parser.MemoTable.key;
+import static com.squirrelparser.parser.MemoTable.keyPos;
+import static com.squirrelparser.parser.MemoTable.slot;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.List;
+
+import com.squirrelparser.clause.Clause;
+
+/**
+ * The off-heap memo table: the same open-addressed (clauseIdx, pos) hash table as {@link MemoTable},
+ * but with the hash index and all memo entry state stored in MemorySegments rather than in one
+ * MemoEntry object per entry.
+ *
+ * Each entry is a 24-byte slot holding the match length, flags, total descendant error count, memo
+ * version, examined length and enclosing examined end, which the memoization algorithm shared with
+ * the heap backend reads and writes through a {@link Slot}. Entries live in fixed-size pages, so an
+ * entry index stays valid while the index is rehashed (entries that are on the call stack are
+ * referred to by index). Mismatches, childless matches (i.e. terminals) and lazy matches are
+ * rebuilt from the stored length and flags on a cache hit; only matches with children, which make
+ * up the parse tree, are retained on the heap.
+ *
+ * Segments are allocated from automatic arenas, so off-heap memory is released once the parser
+ * is no longer reachable.
+ */
+public final class OffHeapMemoTable implements MemoStore {
+    private static final int ENTRY_BYTES = 24;
+    private static final long LEN_OFFSET = 0;
+    private static final long FLAGS_OFFSET = 4;
+    private static final long ERRORS_OFFSET = 8;
+    private static final long VERSION_OFFSET = 12;
+    private static final long EXAMINED_LEN_OFFSET = 16;
+    private static final long ENCLOSING_EXAMINED_END_OFFSET = 20;
+
+    private static final int ENTRY_PAGE_BITS = 14;
+    private static final int ENTRY_PAGE_MASK = (1 << ENTRY_PAGE_BITS) - 1;
+
+    // Result kind, stored in the low bits of the flags
+    private static final int KIND_MASK = 7;
+    private static final int KIND_NONE = 0;
+    private static final int KIND_MISMATCH = 1;
+    private static final int KIND_LR_PENDING = 2;
+    private static final int KIND_CUT_MISMATCH = 3;
+    private static final int KIND_CHILDLESS = 4;
+    private static final int KIND_RETAINED = 5;
+    private static final int KIND_LAZY = 6;
+
+    private static final int IS_COMPLETE = 1 << 3;
+    private static final int IS_FROM_LR_CONTEXT = 1 << 4;
+    // The flags of the memoization algorithm (see MemoSlot) are stored above the result flags
+    private static final int STATE_SHIFT = 5;
+
+    // Hash index: key -> entry index
+    private MemorySegment keys;
+    private MemorySegment entryIndices;
+    private int capacity;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    // Entry pages, and retained matches (with children) for each page
+    private MemorySegment[] entryPages = new MemorySegment[16];
+    private MatchResult[][] retainedPages = new MatchResult[16][];
+    private int numAllocatedEntries;
+    private int[] freeEntries = new int[16];
+    private int numFreeEntries;
+
+    private final MemoVersions versions;
+
+    /** Don't evict again until the table has grown to this size (amortizes the cost of eviction). */
+    private int evictionThreshold;
+
+    /**
+     * Create an off-heap memo table for an input of the given length.
+     */
+    public OffHeapMemoTable(int inputLength) {
+        allocateIndex(MIN_CAPACITY_BITS);
+        versions = new MemoVersions(inputLength);
+        evictionThreshold = 1 << MIN_CAPACITY_BITS;
+    }
+
+    private void allocateIndex(int capacityBits) {
+        capacity = 1 << capacityBits;
+        Arena arena = Arena.ofAuto();
+        keys = arena.allocate((long) capacity * Long.BYTES, Long.BYTES);
+        keys.fill((byte) 0xFF); // EMPTY
+        entryIndices = arena.allocate((long) capacity * Integer.BYTES, Integer.BYTES);
+        shift = 64 - capacityBits;
+        resizeThreshold = capacity >>> 1; // Max load factor 0.5
+    }
+
+    private long keyAt(int i) {
+        return keys.getAtIndex(ValueLayout.JAVA_LONG, i);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the entry index for a clause at a position, creating the entry if it does not exist.
+     */
+    private int getOrCreate(int clauseIdx, int pos) {
+        long key = key(clauseIdx, pos);
+        int mask = capacity - 1;
+        int i = slot(key, shift);
+        for (; ; i = (i + 1) & mask) {
+            long k = keyAt(i);
+            if (k == key) {
+                return entryIndices.getAtIndex(ValueLayout.JAVA_INT, i);
+            }
+            if (k == EMPTY) {
+                break;
+            }
+        }
+        int e = allocateEntry();
+        keys.setAtIndex(ValueLayout.JAVA_LONG, i, key);
+        entryIndices.setAtIndex(ValueLayout.JAVA_INT, i, e);
+        if (++size > resizeThreshold) {
+            rehash(65 - shift, Integer.MIN_VALUE);
+        }
+        return e;
+    }
+
+    private int allocateEntry() {
+        int e;
+        if (numFreeEntries > 0) {
+            e = freeEntries[--numFreeEntries];
+        } else {
+            e = numAllocatedEntries++;
+            int page = e >>> ENTRY_PAGE_BITS;
+            if (page == entryPages.length) {
+                entryPages = Arrays.copyOf(entryPages, page * 2);
+                retainedPages = Arrays.copyOf(retainedPages, page * 2);
+            }
+            if (entryPages[page] == null) {
+                entryPages[page] = Arena.ofAuto().allocate((long) ENTRY_BYTES << ENTRY_PAGE_BITS, Long.BYTES);
+            }
+        }
+        entryPage(e).asSlice(entryOffset(e), ENTRY_BYTES).fill((byte) 0);
+        return e;
+    }
+
+    private void freeEntry(int e) {
+        MatchResult[] retained = retainedPages[e >>> ENTRY_PAGE_BITS];
+        if (retained != null) {
+            retained[e & ENTRY_PAGE_MASK] = null;
+        }
+        if (numFreeEntries == freeEntries.length) {
+            freeEntries = Arrays.copyOf(freeEntries, numFreeEntries * 2);
+        }
+        freeEntries[numFreeEntries++] = e;
+    }
+
+    /**
+     * Rehash the index into a table of the given capacity, dropping (and freeing) entries before
+     * minPos unless they are still in progress (on the recursion path).
+     */
+    private void rehash(int capacityBits, int minPos) {
+        MemorySegment oldKeys = keys;
+        MemorySegment oldEntryIndices = entryIndices;
+        int oldCapacity = capacity;
+        allocateIndex(capacityBits);
+        size = 0;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldCapacity; j++) {
+            long k = oldKeys.getAtIndex(ValueLayout.JAVA_LONG, j);
+            if (k == EMPTY) {
+                continue;
+            }
+            int e = oldEntryIndices.getAtIndex(ValueLayout.JAVA_INT, j);
+            if (keyPos(k) >= minPos || inProgress(e)) {
+                int i = slot(k, shift);
+                while (keyAt(i) != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys.setAtIndex(ValueLayout.JAVA_LONG, i, k);
+                entryIndices.setAtIndex(ValueLayout.JAVA_INT, i, e);
+                size++;
+            } else {
+                freeEntry(e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} Eviction is amortized: the index is only compacted once it has doubled in
+     * size since the last compaction, and evicted entries are reused.
+     */
+    @Override
+    public void evictBefore(int pos) {
+        if (size < evictionThreshold) {
+            return;
+        }
+        int minInProgressPos = pos;
+        int numRemaining = 0;
+        for (int j = 0; j < capacity; j++) {
+            long k = keyAt(j);
+            if (k != EMPTY) {
+                if (inProgress(entryIndices.getAtIndex(ValueLayout.JAVA_INT, j))) {
+                    minInProgressPos = Math.min(minInProgressPos, keyPos(k));
+                    numRemaining++;
+                } else if (keyPos(k) >= pos) {
+                    numRemaining++;
+                }
+            }
+        }
+        int capacityBits = MIN_CAPACITY_BITS;
+        while ((1 << capacityBits) >>> 1 <= numRemaining) {
+            capacityBits++;
+        }
+        rehash(capacityBits, pos);
+        versions.evictBefore(minInProgressPos);
+        evictionThreshold = Math.max(1 << MIN_CAPACITY_BITS, size * 2);
+    }
+
+    @Override
+    public int version(int cycle, int pos) {
+        return versions.version(cycle, pos);
+    }
+
+    @Override
+    public int incrementVersion(int cycle, int pos) {
+        return versions.increment(cycle, pos);
+    }
+
+    // Entry field access
+
+    private MemorySegment entryPage(int e) {
+        return entryPages[e >>> ENTRY_PAGE_BITS];
+    }
+
+    private static long entryOffset(int e) {
+        return (long) (e & ENTRY_PAGE_MASK) * ENTRY_BYTES;
+    }
+
+    private int getInt(int e, long fieldOffset) {
+        return entryPage(e).get(ValueLayout.JAVA_INT, entryOffset(e) + fieldOffset);
+    }
+
+    private void setInt(int e, long fieldOffset, int value) {
+        entryPage(e).set(ValueLayout.JAVA_INT, entryOffset(e) + fieldOffset, value);
+    }
+
+    private int flags(int e) {
+        return getInt(e, FLAGS_OFFSET);
+    }
+
+    /** Whether the entry is in progress (see {@link MemoSlot#inProgress}). */
+    private boolean inProgress(int e) {
+        return ((flags(e) >>> STATE_SHIFT) & (MemoSlot.IN_REC_PATH | MemoSlot.MATCHING_ONCE)) != 0;
+    }
+
+    /**
+     * Get the result stored in an entry, rebuilding mismatches and childless matches, or null
+     * if there is no result.
+     */
+    private MatchResult result(int e, Clause clause, int pos) {
+        MemorySegment page = entryPage(e);
+        long offset = entryOffset(e);
+        int flags = page.get(ValueLayout.JAVA_INT, offset + FLAGS_OFFSET);
+        return switch (flags & KIND_MASK) {
+            case KIND_NONE -> null;
+            case KIND_MISMATCH -> mismatch();
+            case KIND_LR_PENDING -> lrPending();
+            case KIND_CUT_MISMATCH -> cutMismatch();
+            case KIND_CHILDLESS -> new Match(clause, pos, page.get(ValueLayout.JAVA_INT, offset + LEN_OFFSET),
+                List.of(), (flags & IS_COMPLETE) != 0, (flags & IS_FROM_LR_CONTEXT) != 0,
+                page.get(ValueLayout.JAVA_INT, offset + ERRORS_OFFSET));
+            case KIND_LAZY -> Match.lazy(clause, pos, page.get(ValueLayout.JAVA_INT, offset + LEN_OFFSET),
+                (flags & IS_COMPLETE) != 0, (flags & IS_FROM_LR_CONTEXT) != 0,
+                page.get(ValueLayout.JAVA_INT, offset + ERRORS_OFFSET));
+            default -> retainedPages[e >>> ENTRY_PAGE_BITS][e & ENTRY_PAGE_MASK];
+        };
+    }
+
+    /**
+     * Store a result in an entry (or clear it, if result is null).
+     */
+    private void setResult(int e, MatchResult result, Clause clause, int pos) {
+        MemorySegment page = entryPage(e);
+        long offset = entryOffset(e);
+        int flags = page.get(ValueLayout.JAVA_INT, offset + FLAGS_OFFSET)
+            & ~(KIND_MASK | IS_COMPLETE | IS_FROM_LR_CONTEXT);
+        int kind;
+        if (result == null) {
+            kind = KIND_NONE;
+        } else if (result == mismatch()) {
+            kind = KIND_MISMATCH;
+        } else if (result == lrPending()) {
+            kind = KIND_LR_PENDING;
+        } else if (result == cutMismatch()) {
+            kind = KIND_CUT_MISMATCH;
+        } else if (result instanceof Match m && m.isLazy() && result.clause() == clause && result.pos() == pos) {
+            kind = KIND_LAZY;
+        } else if (result instanceof Match && !result.isMismatch() && result.clause() == clause
+                   && result.pos() == pos && result.subClauseMatches().isEmpty()) {
+            kind = KIND_CHILDLESS;
+        } else {
+            kind = KIND_RETAINED;
+        }
+        MatchResult[] retained = retainedPages[e >>> ENTRY_PAGE_BITS];
+        if (kind == KIND_RETAINED) {
+            if (retained == null) {
+                retained = retainedPages[e >>> ENTRY_PAGE_BITS] = new MatchResult[1 << ENTRY_PAGE_BITS];
+            }
+            retained[e & ENTRY_PAGE_MASK] = result;
+        } else if (retained != null) {
+            retained[e & ENTRY_PAGE_MASK] = null;
+        }
+        if (result != null) {
+            flags |= (result.isComplete() ? IS_COMPLETE : 0) | (result.isFromLRContext() ? IS_FROM_LR_CONTEXT : 0);
+            page.set(ValueLayout.JAVA_INT, offset + LEN_OFFSET, result.len());
+            page.set(ValueLayout.JAVA_INT, offset + ERRORS_OFFSET, result.totDescendantErrors());
+        }
+        page.set(ValueLayout.JAVA_INT, offset + FLAGS_OFFSET, flags | kind);
+    }
+
+    @Override
+    public MatchResult match(Parser parser, Clause clause, int pos, Clause bound) {
+        return memoSlot(clause, pos).match(parser, clause, pos, bound);
+    }
+
+    /**
+     * Get the slot of the entry for a clause at a position, creating the entry if it does not exist.
+     */
+    Slot memoSlot(Clause clause, int pos) {
+        return new Slot(getOrCreate(clause.clauseIdx(), pos), clause, pos);
+    }
+
+    /**
+     * The state of the entry with index e, for a clause at a position, read from and written to
+     * its slot in the entry pages. The entry index stays valid while the entry is in progress,
+     * since entries in progress are not evicted.
+     */
+    final class Slot extends MemoSlot {
+        private final int e;
+        private final Clause clause;
+        private final int pos;
+
+        private Slot(int e, Clause clause, int pos) {
+            this.e = e;
+            this.clause = clause;
+            this.pos = pos;
+        }
+
+        @Override
+        MatchResult result() {
+            return OffHeapMemoTable.this.result(e, clause, pos);
+        }
+
+        @Override
+        void setResult(MatchResult result) {
+            OffHeapMemoTable.this.setResult(e, result, clause, pos);
+        }
+
+        @Override
+        int flags() {
+            return OffHeapMemoTable.this.flags(e) >>> STATE_SHIFT;
+        }
+
+        @Override
+        void setFlags(int flags) {
+            MemorySegment page = entryPage(e);
+            long offset = entryOffset(e) + FLAGS_OFFSET;
+            page.set(ValueLayout.JAVA_INT, offset,
+                     (page.get(ValueLayout.JAVA_INT, offset) & ((1 << STATE_SHIFT) - 1)) | (flags << STATE_SHIFT));
+        }
+
+        @Override
+        int memoVersion() {
+            return getInt(e, VERSION_OFFSET);
+        }
+
+        @Override
+        void setMemoVersion(int memoVersion) {
+            setInt(e, VERSION_OFFSET, memoVersion);
+        }
+
+        @Override
+        int examinedLen() {
+            return getInt(e, EXAMINED_LEN_OFFSET);
+        }
+
+        @Override
+        void setExaminedLen(int examinedLen) {
+            setInt(e, EXAMINED_LEN_OFFSET, examinedLen);
+        }
+
+        @Override
+        int enclosingExaminedEnd() {
+            return getInt(e, ENCLOSING_EXAMINED_END_OFFSET);
+        }
+
+        @Override
+        void setEnclosingExaminedEnd(int enclosingExaminedEnd) {
+            setInt(e, ENCLOSING_EXAMINED_END_OFFSET, enclosingExaminedEnd);
+        }
+    }
+}
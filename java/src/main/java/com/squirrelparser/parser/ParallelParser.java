@@ -0,0 +1,317 @@
+package com.squirrelparser.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Repetition;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.Char;
+import com.squirrelparser.clause.terminal.Str;
+
+/**
+ * Parses long lists in parallel, for grammars whose top rule is a repetition of items (e.g.
+ * lines of NDJSON or a log file, or a list of statements).
+ *
+ * The input is split into chunks at sync points: just after an occurrence of a delimiter that
+ * ends every item. The delimiter is declared with {@link #withSyncDelimiter(String)}, or inferred
+ * from the grammar when the top rule's item is a sequence ending in a literal (as in
+ * {@code Lines <- Line*; Line <- [^\n]* '\n';}). The chunks are parsed on a ForkJoinPool, each
+ * with its own Parser and two-phase error recovery, and their items are stitched into one
+ * ParseResult.
+ *
+ * A sync point can be wrong, e.g. when the delimiter also appears inside a string literal. A
+ * boundary between two chunks is only kept if every item of the chunk before it whose match
+ * examined the end of the chunk (the last item, and any earlier item that looked ahead to the end
+ * of the chunk, e.g. an unterminated quoted field that fell back to a shorter alternative) matches
+ * the same way in the whole input, and the first item of the chunk after it matches without
+ * errors. Otherwise the two chunks are merged and parsed again, so in the worst case the whole input is
+ * parsed sequentially. Since error recovery is per chunk, a syntax error never affects the parse
+ * of other chunks. (ParserStats counts are not reliable in parallel mode.)
+ */
+public final class ParallelParser {
+    /** The default target chunk length: smaller chunks cost more than they gain. */
+    public static final int DEFAULT_CHUNK_LENGTH = 1 << 16;
+
+    private final Grammar grammar;
+    private final ParserOptions options;
+    private final ForkJoinPool pool;
+    private final String syncDelimiter;
+    private final int chunkLength;
+
+    /**
+     * Create a parallel parser that parses chunks on the common ForkJoinPool.
+     */
+    public ParallelParser(Grammar grammar) {
+        this(grammar, ParserOptions.DEFAULT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a parallel parser that parses chunks on the given pool, with the given options.
+     */
+    public ParallelParser(Grammar grammar, ParserOptions options, ForkJoinPool pool) {
+        this(grammar, options, pool, null, DEFAULT_CHUNK_LENGTH);
+    }
+
+    private ParallelParser(Grammar grammar, ParserOptions options, ForkJoinPool pool,
+                           String syncDelimiter, int chunkLength) {
+        this.grammar = grammar;
+        this.options = options;
+        this.pool = pool;
+        this.syncDelimiter = syncDelimiter;
+        this.chunkLength = chunkLength;
+    }
+
+    /**
+     * Split the input just after occurrences of the delimiter, rather than at the inferred sync
+     * points. Each item of the top rule's repetition must end with the delimiter.
+     */
+    public ParallelParser withSyncDelimiter(String syncDelimiter) {
+        if (syncDelimiter != null && syncDelimiter.isEmpty()) {
+            throw new IllegalArgumentException("Sync delimiter must not be empty");
+        }
+        return new ParallelParser(grammar, options, pool, syncDelimiter, chunkLength);
+    }
+
+    /**
+     * Set the target chunk length (the number of chunks is also limited to a few per thread).
+     */
+    public ParallelParser withChunkLength(int chunkLength) {
+        if (chunkLength <= 0) {
+            throw new IllegalArgumentException("Chunk length must be positive");
+        }
+        return new ParallelParser(grammar, options, pool, syncDelimiter, chunkLength);
+    }
+
+    /**
+     * Get the clause of the top rule's repetition, or null if the top rule is not a repetition.
+     */
+    private Repetition topRepetition() {
+        Clause clause = resolve(grammar.rules().get(grammar.topRuleName()));
+        return clause instanceof Repetition repetition ? repetition : null;
+    }
+
+    private Clause resolve(Clause clause) {
+        // (A cycle of Refs can't be a top rule that matches anything, so bound the search)
+        for (int i = 0; clause instanceof Ref ref && i < grammar.rules().size(); i++) {
+            clause = ref.target();
+        }
+        return clause;
+    }
+
+    /**
+     * Infer the sync delimiter: the literal at the end of the top rule's item, or null if none.
+     */
+    private String inferSyncDelimiter(Repetition repetition) {
+        if (resolve(repetition.subClause()) instanceof Seq seq) {
+            Clause last = resolve(seq.subClauses().getLast());
+            if (last instanceof Str str && !str.text().isEmpty()) {
+                return str.text();
+            }
+            if (last instanceof Char ch) {
+                return ch.ch();
+            }
+        }
+        return null;
+    }
+
+    private record Chunk(int start, int end) {}
+
+    private record ChunkResult(Chunk chunk, ParseResult result, boolean itemsVerified) {}
+
+    /**
+     * Parse the input, in parallel if the grammar has sync points and the input is long enough,
+     * otherwise sequentially.
+     */
+    public ParseResult parse(CharSequence input) {
+        Repetition repetition = topRepetition();
+        String delimiter = repetition == null ? null
+            : syncDelimiter != null ? syncDelimiter : inferSyncDelimiter(repetition);
+        List<Chunk> chunks = delimiter == null ? List.of() : split(input, delimiter);
+        if (chunks.size() < 2) {
+            return grammar.newParser(input, options).parse();
+        }
+
+        List<ChunkResult> results = parseChunks(input, repetition, chunks, new ArrayList<>());
+        while (true) {
+            // Merge the chunks on both sides of each wrong boundary
+            List<Chunk> merged = new ArrayList<>();
+            List<ChunkResult> kept = new ArrayList<>();
+            int groupStart = 0;
+            for (int i = 0; i < results.size(); i++) {
+                if (i + 1 < results.size() && !isValidBoundary(results.get(i), results.get(i + 1))) {
+                    continue;
+                }
+                if (groupStart == i) {
+                    kept.add(results.get(i));
+                } else {
+                    kept.add(null);
+                }
+                merged.add(new Chunk(results.get(groupStart).chunk.start, results.get(i).chunk.end));
+                groupStart = i + 1;
+            }
+            if (merged.size() == results.size()) {
+                break;
+            }
+            if (merged.size() == 1) {
+                // Every boundary was wrong: this is a sequential parse of the whole input
+                return grammar.newParser(input, options).parse();
+            }
+            results = parseChunks(input, repetition, merged, kept);
+        }
+        return stitch(input, repetition, results);
+    }
+
+    /**
+     * Find the chunk boundaries: just after the first delimiter at or after each of a number of
+     * evenly spaced split positions.
+     */
+    private List<Chunk> split(CharSequence input, String delimiter) {
+        if (input instanceof Utf8Input) {
+            delimiter = Utf8Input.encode(delimiter);
+        }
+        int length = input.length();
+        int numChunks = Math.min(length / chunkLength, pool.getParallelism() * 4);
+        List<Chunk> chunks = new ArrayList<>();
+        if (numChunks < 2) {
+            return chunks;
+        }
+        int start = 0;
+        for (int i = 1; i < numChunks; i++) {
+            int boundary = indexOf(input, delimiter, Math.max(start, (int) ((long) length * i / numChunks)));
+            if (boundary < 0) {
+                break;
+            }
+            boundary += delimiter.length();
+            if (boundary > start && boundary < length) {
+                chunks.add(new Chunk(start, boundary));
+                start = boundary;
+            }
+        }
+        chunks.add(new Chunk(start, length));
+        return chunks;
+    }
+
+    private static int indexOf(CharSequence input, String text, int from) {
+        char first = text.charAt(0);
+        for (int i = from, last = input.length() - text.length(); i <= last; i++) {
+            if (input.charAt(i) == first) {
+                int j = 1;
+                while (j < text.length() && input.charAt(i + j) == text.charAt(j)) {
+                    j++;
+                }
+                if (j == text.length()) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parse the chunks in parallel, reusing the non-null results in reuse (if any).
+     */
+    private List<ChunkResult> parseChunks(CharSequence input, Repetition repetition, List<Chunk> chunks,
+                                          List<ChunkResult> reuse) {
+        List<ForkJoinTask<ChunkResult>> tasks = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            boolean reused = i < reuse.size() && reuse.get(i) != null;
+            tasks.add(reused ? null : pool.submit(() -> parseChunk(input, repetition, chunk)));
+        }
+        List<ChunkResult> results = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            results.add(tasks.get(i) == null ? reuse.get(i) : tasks.get(i).join());
+        }
+        return results;
+    }
+
+    private ChunkResult parseChunk(CharSequence input, Repetition repetition, Chunk chunk) {
+        // (The chunks' trees are stitched as Match objects, then flattened if compactTree is set)
+        Parser parser = grammar.newParser(input.subSequence(chunk.start, chunk.end), options.withCompactTree(false));
+        parser.trackExamined(repetition.subClause());
+        ParseResult result = parser.parse();
+        boolean itemsVerified = chunk.end == input.length()
+            || (!result.root().isMismatch() && result.unmatchedInput() == null
+                && verifyItems(input, repetition, chunk, parser, result.root().subClauseMatches()));
+        return new ChunkResult(chunk, result, itemsVerified);
+    }
+
+    /**
+     * Check that the items of a chunk whose match examined the end of the chunk (which an item can
+     * only do by matching up to it, or by looking past its own end) match the same way in the whole
+     * input, where they can see the input after the chunk.
+     */
+    private boolean verifyItems(CharSequence input, Repetition repetition, Chunk chunk, Parser chunkParser,
+                                List<MatchResult> items) {
+        int chunkLength = chunk.end - chunk.start;
+        Parser inputParser = null;
+        for (MatchResult item : items) {
+            int itemEnd = item.pos() + item.len();
+            // (Examining the end of the input counts as examining the position after it)
+            if (itemEnd < chunkLength && chunkParser.trackedExaminedEnd(item.pos()) <= chunkLength) {
+                continue;
+            }
+            if (!isCleanMatch(item)) {
+                return false;
+            }
+            if (inputParser == null) {
+                inputParser = new Parser(grammar, input, options);
+            }
+            MatchResult inContext = inputParser.matchTop(repetition.subClause(), chunk.start + item.pos());
+            if (!isCleanMatch(inContext) || inContext.len() != item.len()) {
+                return false;
+            }
+        }
+        return !items.isEmpty() && items.getLast().pos() + items.getLast().len() == chunkLength;
+    }
+
+    private static boolean isCleanMatch(MatchResult result) {
+        return result instanceof Match && !result.isMismatch() && result.totDescendantErrors() == 0;
+    }
+
+    /**
+     * Check that a boundary falls between two items of the sequential parse.
+     */
+    private static boolean isValidBoundary(ChunkResult before, ChunkResult after) {
+        if (!before.itemsVerified || after.result.root().isMismatch()) {
+            return false;
+        }
+        List<MatchResult> items = after.result.root().subClauseMatches();
+        return !items.isEmpty() && items.getFirst().pos() == 0 && isCleanMatch(items.getFirst());
+    }
+
+    /**
+     * Join the items of the chunks into one match of the top rule's repetition.
+     */
+    private ParseResult stitch(CharSequence input, Repetition repetition, List<ChunkResult> results) {
+        List<MatchResult> items = new ArrayList<>();
+        boolean isComplete = true;
+        boolean hasSyntaxErrors = false;
+        for (ChunkResult chunkResult : results) {
+            MatchResult root = chunkResult.result.root();
+            for (MatchResult item : root.subClauseMatches()) {
+                items.add(item.shifted(chunkResult.chunk.start));
+            }
+            isComplete &= root.isComplete();
+            hasSyntaxErrors |= chunkResult.result.hasSyntaxErrors();
+        }
+        ChunkResult last = results.getLast();
+        SyntaxError unmatchedInput = last.result.unmatchedInput() == null ? null
+            : new SyntaxError(last.result.unmatchedInput().pos() + last.chunk.start,
+                              last.result.unmatchedInput().len());
+        MatchResult root = Match.withChildren(repetition, items, isComplete);
+        return new ParseResult(
+            input,
+            options.compactTree() ? null : root,
+            options.compactTree() ? ParseTree.of(root, grammar.allClauses()) : null,
+            grammar.topRuleName(),
+            grammar.transparentRules(),
+            hasSyntaxErrors,
+            unmatchedInput
+        );
+    }
+}
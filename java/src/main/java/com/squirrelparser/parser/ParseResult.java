@@ -1,20 +1,51 @@
 package com.squirrelparser.parser;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
 
 /**
  * The result of parsing the input.
+ *
+ * @param source The input that was parsed (any CharSequence, e.g. a memory-mapped CharBuffer)
+ * @param root   The parse tree, as Match objects (null if the result holds a compact tree)
+ * @param tree   The parse tree, as a compact {@link ParseTree} (null unless
+ *               {@link ParserOptions#compactTree()} was set)
  */
 public record ParseResult(
-    String input,
+    CharSequence source,
     MatchResult root,
+    ParseTree tree,
     String topRuleName,
     Set<String> transparentRules,
     boolean hasSyntaxErrors,
     SyntaxError unmatchedInput
 ) {
+    public ParseResult(CharSequence source, MatchResult root, String topRuleName, Set<String> transparentRules,
+                       boolean hasSyntaxErrors, SyntaxError unmatchedInput) {
+        this(source, root, null, topRuleName, transparentRules, hasSyntaxErrors, unmatchedInput);
+    }
+
+    /**
+     * Get the root of the parse tree. If the result holds a compact tree, the first call rebuilds
+     * the Match objects, which the compact tree then keeps (see {@link ParseTree#toMatchResult()});
+     * use {@link #tree()} to avoid that.
+     */
+    @Override
+    public MatchResult root() {
+        return root != null ? root : tree.toMatchResult();
+    }
+
+    /**
+     * Get the input as a String. If the source is not a String (e.g. it is a memory-mapped
+     * CharBuffer), this copies it; use {@link #source()} to avoid the copy.
+     */
+    public String input() {
+        return source.toString();
+    }
+
     /**
      * Get the syntax errors from the parse.
      */
@@ -22,20 +53,32 @@ public record ParseResult(
         if (!hasSyntaxErrors) {
             return List.of();
         }
-        List<SyntaxError> errors = new ArrayList<>();
-        collectErrors(root, errors);
+        List<SyntaxError> errors;
+        if (tree != null) {
+            errors = tree.syntaxErrors();
+        } else {
+            errors = new ArrayList<>();
+            collectErrors(root, errors);
+        }
         if (unmatchedInput != null) {
             errors.add(unmatchedInput);
         }
         return errors;
     }
 
-    private void collectErrors(MatchResult result, List<SyntaxError> errors) {
-        if (result instanceof SyntaxError se) {
-            errors.add(se);
-        } else if (!result.isMismatch()) {
-            for (MatchResult sub : result.subClauseMatches()) {
-                collectErrors(sub, errors);
+    /** Collect the syntax errors in a tree, in order, with an explicit stack (the tree may be deep). */
+    private static void collectErrors(MatchResult root, List<SyntaxError> errors) {
+        Deque<MatchResult> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            MatchResult result = stack.pop();
+            if (result instanceof SyntaxError se) {
+                errors.add(se);
+            } else if (!result.isMismatch()) {
+                List<MatchResult> subs = result.subClauseMatches();
+                for (int i = subs.size() - 1; i >= 0; i--) {
+                    stack.push(subs.get(i));
+                }
             }
         }
     }
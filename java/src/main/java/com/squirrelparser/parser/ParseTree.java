@@ -0,0 +1,291 @@
+package com.squirrelparser.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import com.squirrelparser.clause.Clause;
+
+/**
+ * A compact parse tree, stored in flat primitive arrays rather than as one Match object (plus a
+ * child list) per node. Nodes are numbered in preorder, so the root is node 0 and the first child
+ * of a node (if any) is the next node, so only a has-children flag is needed to find it. Each node
+ * records its clause index, position, length, flags, total descendant error count, and the index
+ * of its next sibling (-1 for the last child).
+ *
+ * Syntax error nodes record the index of the deleted clause, or -1 if input was skipped.
+ * Mismatches are not stored. Use {@link #cursor()} to walk the tree.
+ */
+public final class ParseTree {
+    private static final byte COMPLETE = 1;
+    private static final byte FROM_LR_CONTEXT = 2;
+    private static final byte SYNTAX_ERROR = 4;
+    private static final byte HAS_CHILDREN = 8;
+
+    private final List<Clause> clauses;
+    private int[] clauseIdx;
+    private int[] pos;
+    private int[] len;
+    private byte[] flags;
+    private int[] errorCount;
+    private int[] nextSibling;
+    private int size;
+    private MatchResult matchTree; // The rebuilt Match tree (see toMatchResult), or null
+
+    private ParseTree(List<Clause> clauses, int capacity) {
+        this.clauses = clauses;
+        clauseIdx = new int[capacity];
+        pos = new int[capacity];
+        len = new int[capacity];
+        flags = new byte[capacity];
+        errorCount = new int[capacity];
+        nextSibling = new int[capacity];
+    }
+
+    /**
+     * Flatten a parse tree (the root must not be a mismatch).
+     *
+     * @param root    The root of the parse tree
+     * @param clauses The clauses of the grammar the tree was parsed with, by clause index
+     */
+    public static ParseTree of(MatchResult root, List<Clause> clauses) {
+        return of(root, clauses, UnaryOperator.identity());
+    }
+
+    /**
+     * Build a compact tree from a tree of lazy matches, passing each node through expand (which
+     * rebuilds a lazy match with its children) just before it is added. The rebuilt nodes are only
+     * referenced until their children have been added, so the whole Match tree is never built.
+     */
+    static ParseTree of(MatchResult root, List<Clause> clauses, UnaryOperator<MatchResult> expand) {
+        if (root.isMismatch()) {
+            throw new IllegalArgumentException("Can't flatten a mismatch");
+        }
+        var tree = new ParseTree(clauses, 64);
+        tree.add(expand.apply(root), expand);
+        tree.trim();
+        return tree;
+    }
+
+    /**
+     * Add a node and its descendants, in preorder. The nodes whose children are being added are
+     * kept on an explicit stack, so deeply nested trees don't overflow the call stack.
+     */
+    private void add(MatchResult root, UnaryOperator<MatchResult> expand) {
+        List<List<MatchResult>> children = new ArrayList<>();
+        int[] parents = new int[16];
+        int[] nextChild = new int[16];
+        int[] prevChild = new int[16];
+        parents[0] = addNode(root);
+        prevChild[0] = -1;
+        children.add(root.subClauseMatches());
+        int depth = 1;
+        while (depth > 0) {
+            int top = depth - 1;
+            List<MatchResult> siblings = children.get(top);
+            if (nextChild[top] == siblings.size()) {
+                if (prevChild[top] >= 0) {
+                    flags[parents[top]] |= HAS_CHILDREN;
+                }
+                children.remove(top);
+                depth--;
+                continue;
+            }
+            MatchResult child = siblings.get(nextChild[top]++);
+            if (child.isMismatch()) {
+                continue;
+            }
+            child = expand.apply(child);
+            int childNode = addNode(child);
+            if (prevChild[top] >= 0) {
+                nextSibling[prevChild[top]] = childNode;
+            }
+            prevChild[top] = childNode;
+            if (depth == parents.length) {
+                parents = Arrays.copyOf(parents, depth * 2);
+                nextChild = Arrays.copyOf(nextChild, depth * 2);
+                prevChild = Arrays.copyOf(prevChild, depth * 2);
+            }
+            parents[depth] = childNode;
+            nextChild[depth] = 0;
+            prevChild[depth] = -1;
+            children.add(child.subClauseMatches());
+            depth++;
+        }
+    }
+
+    /** Add a node, without its children. */
+    private int addNode(MatchResult result) {
+        if (size == clauseIdx.length) {
+            int capacity = size * 2;
+            clauseIdx = Arrays.copyOf(clauseIdx, capacity);
+            pos = Arrays.copyOf(pos, capacity);
+            len = Arrays.copyOf(len, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            errorCount = Arrays.copyOf(errorCount, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+        }
+        int node = size++;
+        clauseIdx[node] = result.clause() != null ? result.clause().clauseIdx() : -1;
+        pos[node] = result.pos();
+        len[node] = result.len();
+        flags[node] = (byte) ((result.isComplete() ? COMPLETE : 0)
+            | (result.isFromLRContext() ? FROM_LR_CONTEXT : 0)
+            | (result instanceof SyntaxError ? SYNTAX_ERROR : 0));
+        errorCount[node] = result.totDescendantErrors();
+        nextSibling[node] = -1;
+        return node;
+    }
+
+    private void trim() {
+        clauseIdx = Arrays.copyOf(clauseIdx, size);
+        pos = Arrays.copyOf(pos, size);
+        len = Arrays.copyOf(len, size);
+        flags = Arrays.copyOf(flags, size);
+        errorCount = Arrays.copyOf(errorCount, size);
+        nextSibling = Arrays.copyOf(nextSibling, size);
+    }
+
+    /** The number of nodes. */
+    public int size() { return size; }
+
+    /** The clause of a node (for a syntax error, the deleted clause, or null if input was skipped). */
+    public Clause clause(int node) {
+        return clauseIdx[node] < 0 ? null : clauses.get(clauseIdx[node]);
+    }
+
+    public int clauseIdx(int node) { return clauseIdx[node]; }
+    public int pos(int node) { return pos[node]; }
+    public int len(int node) { return len[node]; }
+    public boolean isComplete(int node) { return (flags[node] & COMPLETE) != 0; }
+    public boolean isFromLRContext(int node) { return (flags[node] & FROM_LR_CONTEXT) != 0; }
+    public boolean isSyntaxError(int node) { return (flags[node] & SYNTAX_ERROR) != 0; }
+
+    /** The total number of syntax errors in the subtree of a node. */
+    public int errorCount(int node) { return errorCount[node]; }
+
+    /** The first child of a node, or -1 if it has no children. */
+    public int firstChild(int node) {
+        return (flags[node] & HAS_CHILDREN) != 0 ? node + 1 : -1;
+    }
+
+    /** The next sibling of a node, or -1 if it is the last child. */
+    public int nextSibling(int node) { return nextSibling[node]; }
+
+    /**
+     * Get the syntax error at a node.
+     */
+    public SyntaxError syntaxError(int node) {
+        return new SyntaxError(pos[node], len[node], clause(node));
+    }
+
+    /**
+     * Collect the syntax errors in the tree, in order, skipping subtrees that have none.
+     */
+    public List<SyntaxError> syntaxErrors() {
+        List<SyntaxError> errors = new ArrayList<>();
+        var cursor = cursor();
+        while (true) {
+            if (cursor.isSyntaxError()) {
+                errors.add(cursor.syntaxError());
+            } else if (cursor.errorCount() > 0 && cursor.gotoFirstChild()) {
+                continue;
+            }
+            while (!cursor.gotoNextSibling()) {
+                if (!cursor.gotoParent()) {
+                    return errors;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild the Match tree. It is built on the first call, and then kept by this tree, so the
+     * Match objects stay reachable for as long as the tree is.
+     */
+    public MatchResult toMatchResult() {
+        if (matchTree == null) {
+            // Nodes are built from the last to the first: a node's children come after it in
+            // preorder, so they are built before it, without recursing
+            MatchResult[] built = new MatchResult[size];
+            for (int node = size - 1; node >= 0; node--) {
+                if (isSyntaxError(node)) {
+                    built[node] = syntaxError(node);
+                    continue;
+                }
+                List<MatchResult> children = new ArrayList<>();
+                for (int child = firstChild(node); child >= 0; child = nextSibling[child]) {
+                    children.add(built[child]);
+                    built[child] = null;
+                }
+                built[node] = new Match(clause(node), pos[node], len[node],
+                                        children.isEmpty() ? List.of() : children, isComplete(node),
+                                        isFromLRContext(node), errorCount[node]);
+            }
+            matchTree = built[0];
+        }
+        return matchTree;
+    }
+
+    /**
+     * Create a cursor at the root of the tree.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A cursor for walking the tree without allocating an object per node.
+     */
+    public final class Cursor {
+        private int node = 0;
+        private int[] parents = new int[16];
+        private int depth = 0;
+
+        private Cursor() {}
+
+        public ParseTree tree() { return ParseTree.this; }
+        public int node() { return node; }
+        public int depth() { return depth; }
+        public Clause clause() { return ParseTree.this.clause(node); }
+        public int pos() { return pos[node]; }
+        public int len() { return len[node]; }
+        public boolean isComplete() { return ParseTree.this.isComplete(node); }
+        public boolean isSyntaxError() { return ParseTree.this.isSyntaxError(node); }
+        public int errorCount() { return errorCount[node]; }
+        public SyntaxError syntaxError() { return ParseTree.this.syntaxError(node); }
+
+        /** Move to the first child of the current node, if it has one. */
+        public boolean gotoFirstChild() {
+            int child = firstChild(node);
+            if (child < 0) {
+                return false;
+            }
+            if (depth == parents.length) {
+                parents = Arrays.copyOf(parents, depth * 2);
+            }
+            parents[depth++] = node;
+            node = child;
+            return true;
+        }
+
+        /** Move to the next sibling of the current node, if it has one. */
+        public boolean gotoNextSibling() {
+            if (nextSibling[node] < 0) {
+                return false;
+            }
+            node = nextSibling[node];
+            return true;
+        }
+
+        /** Move to the parent of the current node, unless it is the root. */
+        public boolean gotoParent() {
+            if (depth == 0) {
+                return false;
+            }
+            node = parents[--depth];
+            return true;
+        }
+    }
+}
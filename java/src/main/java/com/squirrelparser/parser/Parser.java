@@ -2,8 +2,12 @@ package com.squirrelparser.parser;
 
 import static com.squirrelparser.parser.MatchResult.mismatch;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -14,41 +18,134 @@ import com.squirrelparser.clause.nonterminal.Ref;
  * The squirrel parser with bounded error recovery.
  */
 public final class Parser {
-    private final Map<String, Clause> rules;
-    private final Set<String> transparentRules;
-    private final String topRuleName;
-    private final String input;
-    private final Map<Clause, Map<Integer, MemoEntry>> memoTable;
-    private final int[] memoVersion;
+    private final Grammar grammar;
+    private CharSequence input;
+    private Utf8Input utf8Input;                  // Non-null if the input is parsed as UTF-8 bytes
+    private boolean isEditedInput = false;        // Whether the input is the parser's own edit buffer
+    private final ParserOptions options;
+    private final MemoStore memoTable;
+    private final MemoProfile memoProfile;        // Non-null if adaptive memoization is enabled
+    private final boolean[] notMemoized;          // Clauses that adaptive memoization stopped memoizing
+    private final CompiledMatcher compiledMatcher; // Non-null if the compiled engine is used
+    private final InstructionVM instructionVM;    // Non-null if the instruction VM is used
     private boolean inRecoveryPhase = false;
+    private int committedPos = 0;
+    private int noCommitDepth = 0;
+    private int probeDepth = 0;                   // Nonzero while probing in the recovery phase
+    private int examinedEnd = 0;                  // End of the input examined by the current memo entry
+    private Clause trackedClause;                 // Clause whose examined input is recorded (see trackExamined)
+    private int[] trackedExaminedEnds;            // End of the input examined by the tracked clause, by position
+    private int materializeDepth = 0;             // Nonzero while lazy matches are being rebuilt
+    private MatchResult[] childStack = new MatchResult[64]; // Children of the matches being built
+    private int childStackTop = 0;
 
-    public Parser(Map<String, Clause> rules, String topRuleName, String input) {
-        this.rules = new HashMap<>();
-        this.transparentRules = new HashSet<>();
-        this.topRuleName = topRuleName;
+    /**
+     * Create a parser for the input from a rule map, starting from the given top rule. The rules
+     * are compiled for each parser (see {@link Grammar#compile(Map, String)}, which doesn't modify
+     * them); to parse many inputs, compile a Grammar once and create parsers from it.
+     */
+    public Parser(Map<String, Clause> rules, String topRuleName, CharSequence input) {
+        this(Grammar.compile(rules, topRuleName), input);
+    }
+
+    /**
+     * Create a parser for the input from a compiled grammar, starting from its top rule.
+     *
+     * The input may be any CharSequence, e.g. a CharBuffer over a memory-mapped file (see
+     * {@link MappedInput}), which is parsed in place without being copied. The input must not be
+     * modified during parsing, and a Buffer's position must stay at zero. If the input is a
+     * {@link Utf8Input}, it is parsed at the byte level, and all positions are byte offsets.
+     */
+    public Parser(Grammar grammar, CharSequence input) {
+        this(grammar, input, ParserOptions.DEFAULT);
+    }
+
+    /**
+     * Create a parser for the input from a compiled grammar, with the given options.
+     */
+    public Parser(Grammar grammar, CharSequence input, ParserOptions options) {
+        this.grammar = grammar;
         this.input = input;
-        this.memoTable = new HashMap<>();
-        this.memoVersion = new int[input.length() + 1];
-
-        // Process rules: strip '~' prefix indicating a transparent rule
-        for (var entry : rules.entrySet()) {
-            if (entry.getKey().startsWith("~")) {
-                String ruleName = entry.getKey().substring(1);
-                this.rules.put(ruleName, entry.getValue());
-                transparentRules.add(ruleName);
-            } else {
-                this.rules.put(entry.getKey(), entry.getValue());
+        this.utf8Input = input instanceof Utf8Input utf8 ? utf8 : null;
+        this.options = options;
+        this.memoTable = switch (options.memoBackend()) {
+            case HEAP -> new MemoTable(input.length());
+            case OFF_HEAP -> new OffHeapMemoTable(input.length());
+        };
+        this.notMemoized = new boolean[grammar.allClauses().size()];
+        this.compiledMatcher = options.engine() == ParserOptions.Engine.COMPILED ? grammar.compiledMatcher() : null;
+        this.instructionVM = options.engine() == ParserOptions.Engine.VM
+            ? new InstructionVM(this, grammar.vmProgram()) : null;
+        if (options.adaptiveMemo()) {
+            this.memoProfile = options.memoProfile() != null
+                ? options.memoProfile().copyFor(grammar)
+                : new MemoProfile(grammar);
+            for (Clause clause : grammar.allClauses()) {
+                notMemoized[clause.clauseIdx()] = memoProfile.isLowHitRate(clause) && !grammar.isMemoRequired(clause);
             }
+        } else {
+            this.memoProfile = null;
         }
     }
 
-    public Map<String, Clause> rules() { return rules; }
-    public Set<String> transparentRules() { return transparentRules; }
-    public String topRuleName() { return topRuleName; }
-    public String input() { return input; }
-    public int[] memoVersion() { return memoVersion; }
+    public Grammar grammar() { return grammar; }
+    public Map<String, Clause> rules() { return grammar.rules(); }
+    public Set<String> transparentRules() { return grammar.transparentRules(); }
+    public String topRuleName() { return grammar.topRuleName(); }
+    public CharSequence input() { return input; }
+
+    /**
+     * Get the input if it is parsed as UTF-8 bytes, otherwise null.
+     */
+    public Utf8Input utf8Input() { return utf8Input; }
+    public ParserOptions options() { return options; }
+    public MemoStore memoTable() { return memoTable; }
+
+    /**
+     * Get the memo profile recorded by this parser (including the counts of the profile it
+     * started with), or null if adaptive memoization is not enabled.
+     */
+    public MemoProfile memoProfile() { return memoProfile; }
+
+    /**
+     * Get the memo version of a clause at a position (CONSTRAINT A4: an LR seed is stale once the
+     * version it was computed at changes).
+     */
+    public int memoVersion(Clause clause, int pos) {
+        return memoTable.version(grammar.analysis().leftRecursiveCycle(clause), pos);
+    }
+
+    /**
+     * Increment the memo version at a position on expanding the LR seed of a clause, and return
+     * the new version of the clause. In the discovery phase, outside of recovery probes, only the
+     * clauses on the clause's left-recursive cycle can depend on the seed (a clause that reaches
+     * the clause at the same position is on the same cycle), so only their version is incremented,
+     * and results at the position for the grammar's other cycles stay valid. Elsewhere, clauses
+     * can be re-entered dynamically (see {@link #canSkipLeftRecursion}), so the versions of all
+     * clauses at the position are incremented.
+     */
+    public int incrementMemoVersion(Clause clause, int pos) {
+        int cycle = grammar.analysis().leftRecursiveCycle(clause);
+        if (cycle >= 0 && !inRecoveryPhase && probeDepth == 0) {
+            return memoTable.incrementVersion(cycle, pos);
+        }
+        memoTable.incrementVersion(-1, pos);
+        return memoTable.version(cycle, pos);
+    }
+
     public boolean inRecoveryPhase() { return inRecoveryPhase; }
 
+    /**
+     * Whether a memo entry for the clause can skip left recursion detection and expansion: the
+     * clause is not on a left-recursive cycle of the grammar, and the parse is in the discovery
+     * phase, outside of recovery probes. There, clauses only call their sub-clauses, so only the
+     * grammar's left-recursive cycles can re-enter a clause at the same position. (In the recovery
+     * phase, a repetition also probes its bound clause, which may re-enter an enclosing clause.)
+     */
+    boolean canSkipLeftRecursion(Clause clause) {
+        return !inRecoveryPhase && probeDepth == 0 && !grammar.analysis().isLeftRecursive(clause);
+    }
+
     /**
      * Match a clause at a position, using memoization.
      */
@@ -56,73 +153,512 @@ public final class Parser {
         if (pos > input.length()) {
             return mismatch();
         }
+        if (clause == trackedClause) {
+            return matchTracked(clause, pos, bound);
+        }
 
         // C5 (Ref Transparency): Don't memoize Ref independently
         if (clause instanceof Ref) {
             return clause.match(this, pos, bound);
         }
 
-        @SuppressWarnings("unused")
-        MemoEntry memoEntry = memoTable
-            .computeIfAbsent(clause, k -> new HashMap<>())
-            .computeIfAbsent(pos, k -> new MemoEntry());
-        return memoEntry.match(this, clause, pos, bound);
+        if (!usesMemoTable(clause)) {
+            // Cheap, single-use or low hit rate clause: re-running it is cheaper than a lookup
+            ParserStats.recordMatch();
+            return matchClause(clause, pos, bound);
+        }
+        return memoTable.match(this, clause, pos, bound);
+    }
+
+    /**
+     * Whether a match of a clause (other than a Ref) is looked up in the memo table, rather than
+     * matched directly. For adaptive memoization, this records the lookup.
+     */
+    boolean usesMemoTable(Clause clause) {
+        if (clause.clauseIdx() < 0) {
+            throw new IllegalArgumentException("Clause is not part of the grammar: " + clause);
+        }
+        int clauseIdx = clause.clauseIdx();
+        if (!grammar.isMemoized(clause) || notMemoized[clauseIdx]) {
+            return false;
+        }
+        if (memoProfile != null && memoProfile.recordLookup(clauseIdx) && !grammar.isMemoRequired(clause)) {
+            // Adaptive memoization: entries of this clause are almost never re-read
+            notMemoized[clauseIdx] = true;
+        }
+        return true;
     }
 
     public MatchResult match(Clause clause, int pos) {
         return match(clause, pos, null);
     }
 
+    /**
+     * Match a clause at a position without memoization, with the compiled engine if it is enabled.
+     */
+    MatchResult matchClause(Clause clause, int pos, Clause bound) {
+        return compiledMatcher != null ? compiledMatcher.match(clause.clauseIdx(), this, pos, bound)
+            : clause.match(this, pos, bound);
+    }
+
+    /**
+     * Record a memo table hit for a clause.
+     */
+    void recordCacheHit(Clause clause) {
+        ParserStats.recordCacheHit();
+        if (memoProfile != null) {
+            memoProfile.recordHit(clause.clauseIdx());
+        }
+    }
+
     /**
      * Match a named rule at a position.
      */
     public MatchResult matchRule(String ruleName, int pos) {
-        Clause clause = rules.get(ruleName);
+        return matchTop(rule(ruleName), pos);
+    }
+
+    /**
+     * Match a clause at a position from outside of any match, with the instruction VM if it is
+     * enabled (clauses match their sub-clauses with {@link #match}).
+     */
+    MatchResult matchTop(Clause clause, int pos) {
+        return instructionVM != null ? instructionVM.match(clause, pos) : match(clause, pos);
+    }
+
+    private Clause rule(String ruleName) {
+        Clause clause = grammar.rules().get(ruleName);
         if (clause == null) {
             throw new IllegalArgumentException("Rule \"" + ruleName + "\" not found");
         }
-        return match(clause, pos);
+        return clause;
     }
 
     /**
-     * Get the MemoEntry for a clause at a position (if it exists).
+     * Get the MemoEntry for a clause at a position (if it exists, and the heap memo backend is in use).
      */
     public MemoEntry getMemoEntry(Clause clause, int pos) {
-        var clauseMap = memoTable.get(clause);
-        return clauseMap != null ? clauseMap.get(pos) : null;
+        return memoTable instanceof MemoTable heapMemoTable ? heapMemoTable.get(clause.clauseIdx(), pos) : null;
+    }
+
+    /**
+     * Record that the input before the end position has been examined (terminals call this, so
+     * that each memo entry knows which part of the input its result depends on). Examining the
+     * end of the input counts as examining the position after the last character.
+     */
+    public void examine(int end) {
+        if (end > examinedEnd) {
+            examinedEnd = end;
+        }
+    }
+
+    /**
+     * Start tracking the input examined by a memo entry at a position.
+     *
+     * @return The examined end of the enclosing memo entry, to pass to {@link #endExamining}
+     */
+    int startExamining(int pos) {
+        int enclosingExaminedEnd = examinedEnd;
+        examinedEnd = pos;
+        return enclosingExaminedEnd;
+    }
+
+    /**
+     * Stop tracking the input examined by a memo entry.
+     *
+     * @return The end of the input examined by the memo entry
+     */
+    int endExamining(int enclosingExaminedEnd) {
+        int end = examinedEnd;
+        examine(enclosingExaminedEnd);
+        return end;
+    }
+
+    /** The end of the input examined so far by the current memo entry. */
+    int examinedEnd() {
+        return examinedEnd;
+    }
+
+    /**
+     * Record the end of the input examined by the matches of a clause at each position, in either
+     * phase (see {@link #trackedExaminedEnd}). Matches of the clause nested in a match of it are
+     * not recorded. Used by {@link ParallelParser} to find the items of a chunk whose match depends
+     * on the end of the chunk.
+     */
+    void trackExamined(Clause clause) {
+        trackedClause = clause;
+        trackedExaminedEnds = new int[input.length() + 1];
+    }
+
+    /**
+     * The end of the input examined by the matches of the tracked clause at a position, or 0 if it
+     * was not matched there through {@link #match}.
+     */
+    int trackedExaminedEnd(int pos) {
+        return trackedExaminedEnds[pos];
+    }
+
+    /** The clause whose examined input is recorded (see {@link #trackExamined}), or null. */
+    Clause trackedClause() {
+        return trackedClause;
+    }
+
+    private MatchResult matchTracked(Clause clause, int pos, Clause bound) {
+        int enclosingExaminedEnd = beginTracked(pos);
+        MatchResult result = match(clause, pos, bound);
+        endTracked(clause, pos, enclosingExaminedEnd);
+        return result;
+    }
+
+    /**
+     * Start a match of the tracked clause at a position. Matches of the clause nested in it are
+     * not tracked until the matching {@link #endTracked}.
+     *
+     * @return The examined end of the enclosing memo entry, to pass to {@link #endTracked}
+     */
+    int beginTracked(int pos) {
+        trackedClause = null;
+        return startExamining(pos);
+    }
+
+    void endTracked(Clause clause, int pos, int enclosingExaminedEnd) {
+        trackedClause = clause;
+        int end = endExamining(enclosingExaminedEnd);
+        trackedExaminedEnds[pos] = Math.max(trackedExaminedEnds[pos], end);
+    }
+
+    /**
+     * Start collecting the children of a match on the parser's child stack, rather than in a list
+     * allocated per attempt, so that a failed attempt allocates nothing. Matches of sub-clauses
+     * (which may collect their own children above the mark) must complete before the children
+     * are popped or dropped.
+     *
+     * @return The mark to pass to {@link #popChildren} or {@link #dropChildren}
+     */
+    public int childMark() {
+        return childStackTop;
+    }
+
+    /**
+     * Push a child of the match being built.
+     */
+    public void pushChild(MatchResult child) {
+        if (childStackTop == childStack.length) {
+            childStack = Arrays.copyOf(childStack, childStackTop * 2);
+        }
+        childStack[childStackTop++] = child;
+    }
+
+    /**
+     * The number of children pushed since the mark.
+     */
+    public int numChildren(int mark) {
+        return childStackTop - mark;
+    }
+
+    /**
+     * Pop the children pushed since the mark, as a list for a successful match.
+     */
+    public List<MatchResult> popChildren(int mark) {
+        if (childStackTop == mark) {
+            return List.of();
+        }
+        List<MatchResult> children = Arrays.asList(Arrays.copyOfRange(childStack, mark, childStackTop));
+        childStackTop = mark;
+        return children;
+    }
+
+    /**
+     * Get a child on the child stack, by its index from the bottom of the stack (for the instruction
+     * VM, which reads the children of a lazy match without popping them).
+     */
+    MatchResult childAt(int index) {
+        return childStack[index];
+    }
+
+    /**
+     * Drop the children pushed since the mark, when the match fails.
+     */
+    public void dropChildren(int mark) {
+        childStackTop = mark;
+    }
+
+    /**
+     * Whether a nonterminal should return a lazy match (see {@link Match#lazy}) rather than
+     * building its children. Matches are only lazy in the discovery phase (including recovery
+     * probes), and never for clauses on a left-recursive cycle, since rebuilding those would
+     * require replaying the seed expansion. A compact tree is always built from lazy matches.
+     */
+    public boolean buildsLazyMatch(Clause clause) {
+        return (options.lazyTree() || options.compactTree()) && !inRecoveryPhase && materializeDepth == 0
+            && !grammar.analysis().isLeftRecursive(clause);
+    }
+
+    /**
+     * Rebuild the children of lazy matches in a parse tree, top-down. Each lazy match is matched
+     * again, in the discovery phase it was created in, with tree building on; its memoized
+     * sub-clause matches are memo hits, which are in turn rebuilt if they are lazy. So only the
+     * successful path is rebuilt, plus the direct attempts of each node on it. Cuts don't commit
+     * while matches are being rebuilt. The tree is walked with an explicit stack, so a deep tree
+     * can't overflow the thread's stack.
+     */
+    public MatchResult materialize(MatchResult result) {
+        Deque<Materializing> stack = new ArrayDeque<>();
+        MatchResult built = rebuild(result);
+        while (true) {
+            if (!built.isMismatch() && !(built instanceof SyntaxError) && !built.subClauseMatches().isEmpty()) {
+                stack.push(new Materializing(built));
+            } else if (stack.isEmpty()) {
+                return built;
+            } else {
+                stack.peek().add(built);
+            }
+            // Rebuild the next child, finishing the nodes whose children have all been rebuilt
+            while (stack.peek().next == stack.peek().children.size()) {
+                MatchResult finished = stack.pop().result();
+                if (stack.isEmpty()) {
+                    return finished;
+                }
+                stack.peek().add(finished);
+            }
+            Materializing parent = stack.peek();
+            built = rebuild(parent.children.get(parent.next));
+        }
+    }
+
+    /**
+     * A node whose children are being materialized: the children so far are rebuilt, and are
+     * only copied into a new list once one of them changes.
+     */
+    private static final class Materializing {
+        final MatchResult built;
+        final List<MatchResult> children;
+        int next;
+        List<MatchResult> builtChildren;
+
+        Materializing(MatchResult built) {
+            this.built = built;
+            this.children = built.subClauseMatches();
+        }
+
+        void add(MatchResult builtChild) {
+            if (builtChild != children.get(next) && builtChildren == null) {
+                builtChildren = new ArrayList<>(children.subList(0, next));
+            }
+            if (builtChildren != null) {
+                builtChildren.add(builtChild);
+            }
+            next++;
+        }
+
+        MatchResult result() {
+            if (builtChildren == null) {
+                return built;
+            }
+            return new Match(built.clause(), built.pos(), built.len(), builtChildren, built.isComplete(),
+                             built.isFromLRContext(), built.totDescendantErrors());
+        }
+    }
+
+    /**
+     * Rebuild a lazy match with its children (which may themselves be lazy).
+     */
+    private MatchResult rebuild(MatchResult result) {
+        if (!(result instanceof Match match) || !match.isLazy()) {
+            return result;
+        }
+        boolean savedPhase = inRecoveryPhase;
+        inRecoveryPhase = false;
+        materializeDepth++;
+        noCommitDepth++;
+        MatchResult built = instructionVM != null ? instructionVM.matchClause(result.clause(), result.pos())
+            : matchClause(result.clause(), result.pos(), null);
+        noCommitDepth--;
+        materializeDepth--;
+        inRecoveryPhase = savedPhase;
+        if (built.isMismatch() || built.len() != result.len()) {
+            throw new IllegalStateException("Rebuilding " + result.clause() + " at pos " + result.pos()
+                + " did not give the same match");
+        }
+        return built;
     }
 
     /**
      * Probe: Temporarily switch out of recovery mode to check if clause can match.
+     * Cuts inside a probe don't commit, since the probe may look ahead of the parse.
      */
     public MatchResult probe(Clause clause, int pos) {
+        boolean savedPhase = beginProbe();
+        MatchResult result = match(clause, pos);
+        endProbe(savedPhase);
+        return result;
+    }
+
+    /**
+     * Start a probe (see {@link #probe}), for the instruction VM, which matches the probed clause
+     * in frames of its own.
+     *
+     * @return The phase before the probe, to pass to {@link #endProbe}
+     */
+    boolean beginProbe() {
         boolean savedPhase = inRecoveryPhase;
         inRecoveryPhase = false;
-        MatchResult result = match(clause, pos);
+        noCommitDepth++;
+        probeDepth++;
+        return savedPhase;
+    }
+
+    void endProbe(boolean savedPhase) {
+        probeDepth--;
+        noCommitDepth--;
         inRecoveryPhase = savedPhase;
+    }
+
+    /**
+     * Match the sub-clause of a lookahead. Cuts inside a lookahead don't commit.
+     */
+    public MatchResult matchLookahead(Clause clause, int pos, Clause bound) {
+        noCommitDepth++;
+        MatchResult result = match(clause, pos, bound);
+        noCommitDepth--;
         return result;
     }
 
+    /**
+     * Stop cuts from committing until the matching {@link #endNoCommit} (for the lookaheads of the
+     * instruction VM, which can't wrap the match in {@link #matchLookahead}).
+     */
+    void beginNoCommit() {
+        noCommitDepth++;
+    }
+
+    void endNoCommit() {
+        noCommitDepth--;
+    }
+
+    /**
+     * Commit the parse to a position after a cut has been passed: memo entries for earlier
+     * positions are evicted, since the parse is not expected to backtrack before this position.
+     * (If it does, evicted results are simply recomputed.)
+     */
+    public void commit(int pos) {
+        if (noCommitDepth == 0 && pos > committedPos) {
+            committedPos = pos;
+            memoTable.evictBefore(pos);
+        }
+    }
+
     /**
      * Enable recovery mode (Phase 2).
      */
     public void enableRecovery() {
         inRecoveryPhase = true;
+        committedPos = 0;
     }
 
     /**
-     * Check if clause can match non-zero characters at position.
+     * Check if clause can match non-zero characters at position. The probe is skipped when the
+     * clause's FIRST set shows that it can't consume the next character (or any character, if it
+     * can only match empty).
      */
     public boolean canMatchNonzeroAt(Clause clause, int pos) {
+        if (ruledOutWithoutProbe(clause, pos)) {
+            return false;
+        }
         MatchResult result = probe(clause, pos);
         return !result.isMismatch() && result.len() > 0;
     }
 
+    /**
+     * Whether {@link #canMatchNonzeroAt} is false without a probe, by the clause's FIRST set.
+     */
+    boolean ruledOutWithoutProbe(Clause clause, int pos) {
+        return options.recoveryBoundCheck() && !canStartWithCharAt(clause, pos);
+    }
+
+    /**
+     * Whether the character at pos is in the FIRST set of the clause, i.e. whether a match of the
+     * clause outside of recovery could consume it. (At the end of the input, nothing can be consumed.)
+     */
+    private boolean canStartWithCharAt(Clause clause, int pos) {
+        FirstSet firstSet = grammar.analysis().firstSet(clause);
+        if (firstSet.isAny()) {
+            return true;
+        }
+        if (pos >= input.length()) {
+            examine(pos + 1);
+            return false;
+        }
+        if (utf8Input != null) {
+            int c = utf8Input.codePointAt(pos);
+            if (c < 0) {
+                return true; // A malformed UTF-8 sequence has no code point, so it is left to the probe
+            }
+            examine(pos + Utf8Input.encodedLength(c));
+            return firstSet.contains(c);
+        }
+        int c = Character.codePointAt(input, pos);
+        examine(pos + Character.charCount(c));
+        return firstSet.contains(c);
+    }
+
+    /**
+     * Replace oldLen characters at start with newText, keeping the memo entries that do not depend
+     * on the replaced input. Entries after the edit are moved by the change in length, and entries
+     * that examined any of the replaced input (including entries before it that looked ahead into
+     * it) are dropped. Call {@link #reparse()} after one or more edits to parse the new input.
+     *
+     * The first edit copies the input into a buffer that later edits change in place (a gap
+     * buffer, see {@link GapBuffer}), so an edit takes time linear in the length of the new text
+     * and the distance from the previous edit, and the memo entries are checked and moved lazily,
+     * when the reparse looks them up (see {@link MemoTable#applyEdit}). So the input of a
+     * ParseResult from before an edit changes with the edit (copy it with toString() to keep it).
+     *
+     * For UTF-8 input, start and oldLen are byte offsets. Only the heap memo backend supports edits.
+     */
+    public void applyEdit(int start, int oldLen, CharSequence newText) {
+        if (start < 0 || oldLen < 0 || start + oldLen > input.length()) {
+            throw new IllegalArgumentException("Edit [" + start + ", " + (start + oldLen)
+                + ") is outside the input (length " + input.length() + ")");
+        }
+        if (!(memoTable instanceof MemoTable heapMemoTable)) {
+            throw new IllegalArgumentException("Incremental reparsing requires the heap memo backend");
+        }
+        int newLen;
+        if (utf8Input != null) {
+            byte[] newBytes = newText.toString().getBytes(StandardCharsets.UTF_8);
+            newLen = newBytes.length;
+            if (!isEditedInput) {
+                utf8Input = utf8Input.editableCopy();
+                input = utf8Input;
+            }
+            utf8Input.replace(start, oldLen, newBytes);
+        } else {
+            newLen = newText.length();
+            GapBuffer buffer = isEditedInput ? (GapBuffer) input : new GapBuffer(input);
+            buffer.replace(start, oldLen, newText);
+            input = buffer;
+        }
+        isEditedInput = true;
+        heapMemoTable.applyEdit(start, oldLen, newLen, input.length());
+    }
+
+    /**
+     * Parse the input again after edits, reusing the memo entries that were not affected by them.
+     */
+    public ParseResult reparse() {
+        inRecoveryPhase = false;
+        committedPos = 0;
+        examinedEnd = 0;
+        return parse();
+    }
+
     /**
      * Parse input with two-phase error recovery.
      */
     public ParseResult parse() {
         // Phase 1: Discovery (try to parse without recovery from syntax errors)
+        String topRuleName = grammar.topRuleName();
         MatchResult result = matchRule(topRuleName, 0);
         boolean hasSyntaxErrors = result.isMismatch() || result.pos() != 0 || result.len() != input.length();
         if (hasSyntaxErrors) {
@@ -131,13 +667,21 @@ public final class Parser {
             result = matchRule(topRuleName, 0);
         }
 
+        if (options.lazyTree() && !options.compactTree()) {
+            result = materialize(result);
+        }
+
+        MatchResult root = !result.isMismatch() ? result : new SyntaxError(0, input.length());
         return new ParseResult(
             input,
-            !result.isMismatch() ? result : new SyntaxError(0, input.length()),
+            options.compactTree() ? null : root,
+            // Each lazy match is rebuilt as the compact tree reaches it (see materialize)
+            options.compactTree() ? ParseTree.of(root, grammar.allClauses(), this::rebuild) : null,
             topRuleName,
-            transparentRules,
+            grammar.transparentRules(),
             hasSyntaxErrors,
-            hasSyntaxErrors && result.len() < input.length()
+            // A whole-parse mismatch is already covered by the root syntax error
+            hasSyntaxErrors && !result.isMismatch() && result.len() < input.length()
                 ? new SyntaxError(result.len(), input.length() - result.len())
                 : null
         );
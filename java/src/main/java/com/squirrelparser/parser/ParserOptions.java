@@ -0,0 +1,117 @@
+package com.squirrelparser.parser;
+
+import java.util.Objects;
+
+/**
+ * Options for a parser.
+ *
+ * @param memoBackend  Where memo table entries are stored
+ * @param adaptiveMemo Whether to stop memoizing clauses with a low memo hit rate while parsing
+ *                     (see {@link MemoProfile})
+ * @param memoProfile  A memo profile from earlier runs with the same grammar, used to decide which
+ *                     clauses not to memoize from the start of the parse when adaptiveMemo is set
+ *                     (may be null)
+ * @param compactTree  Whether the ParseResult holds the parse tree as a compact {@link ParseTree}
+ *                     rather than as Match objects. The parse builds lazy matches (as for lazyTree),
+ *                     and the compact tree is added node by node from them, rebuilding each lazy
+ *                     match only when it is reached, so no Match tree of the whole input is built
+ *                     (except for the parts matched in the recovery phase)
+ * @param lazyTree     Whether nonterminals record only their span and flags while parsing, with the
+ *                     parse tree rebuilt along the successful path after the parse (see
+ *                     {@link Parser#materialize(MatchResult)}), so that backtracked attempts don't
+ *                     allocate child lists
+ * @param engine       How clauses are matched (see {@link Engine})
+ * @param recoveryBoundCheck Whether the recovery phase skips probing a repetition's bound where the
+ *                     bound's FIRST set excludes the next character (see
+ *                     {@link Parser#canMatchNonzeroAt(com.squirrelparser.clause.Clause, int)}).
+ *                     Turning it off only makes recovery slower: the syntax errors are the same
+ */
+public record ParserOptions(MemoBackend memoBackend, boolean adaptiveMemo, MemoProfile memoProfile,
+                            boolean compactTree, boolean lazyTree, Engine engine, boolean recoveryBoundCheck) {
+    /**
+     * The default options: memo entries are stored on the heap, the memo policy is static, the
+     * parse tree is built eagerly, from Match objects, clauses are interpreted, and recovery skips
+     * the bound probes that the FIRST set rules out.
+     */
+    public static final ParserOptions DEFAULT = new ParserOptions(MemoBackend.HEAP, false, null, false, false,
+                                                                  Engine.INTERPRETER, true);
+
+    /**
+     * Memo table storage.
+     */
+    public enum MemoBackend {
+        /** One MemoEntry object per (clause, pos) pair, in an open-addressed hash table. */
+        HEAP,
+
+        /**
+         * Entry state (length, flags, error count and version) stored off-heap in MemorySegments,
+         * so huge inputs don't put millions of small objects under GC management. Only
+         * mismatches, terminal matches and lazy matches are off-heap: they are rebuilt from the
+         * stored length on a cache hit. Matches with children are still kept on the heap, and
+         * reachable from the memo table, so the parse tree is under GC management as with
+         * {@link #HEAP} (use {@link ParserOptions#lazyTree()} to avoid building it).
+         */
+        OFF_HEAP
+    }
+
+    /**
+     * How clauses are matched.
+     */
+    public enum Engine {
+        /** Each clause's match method walks its sub-clauses. */
+        INTERPRETER,
+
+        /**
+         * The grammar is compiled at runtime into a hidden class with a method per sequence,
+         * choice and literal (see {@link MatcherCompiler}), so matching doesn't go through
+         * megamorphic Clause.match calls. Memoization, left recursion and error recovery are the
+         * same as for the interpreter.
+         */
+        COMPILED,
+
+        /**
+         * Both phases run in a single loop over a flat instruction array compiled from the
+         * grammar, with an explicit stack on the heap (see {@link InstructionVM}), so deeply
+         * nested input doesn't overflow the thread's stack, with or without syntax errors, and
+         * with any memo backend. Lazy matches are rebuilt by the same loop. The matches are the
+         * same as for the interpreter.
+         */
+        VM
+    }
+
+    public ParserOptions {
+        Objects.requireNonNull(memoBackend, "memoBackend");
+        Objects.requireNonNull(engine, "engine");
+    }
+
+    public ParserOptions withMemoBackend(MemoBackend memoBackend) {
+        return new ParserOptions(memoBackend, adaptiveMemo, memoProfile, compactTree, lazyTree, engine, recoveryBoundCheck);
+    }
+
+    public ParserOptions withAdaptiveMemo(boolean adaptiveMemo) {
+        return new ParserOptions(memoBackend, adaptiveMemo, memoProfile, compactTree, lazyTree, engine, recoveryBoundCheck);
+    }
+
+    /**
+     * Use a memo profile from earlier runs (this also enables adaptive memoization).
+     */
+    public ParserOptions withMemoProfile(MemoProfile memoProfile) {
+        return new ParserOptions(memoBackend, memoProfile != null || adaptiveMemo, memoProfile, compactTree, lazyTree, engine, recoveryBoundCheck);
+    }
+
+    public ParserOptions withCompactTree(boolean compactTree) {
+        return new ParserOptions(memoBackend, adaptiveMemo, memoProfile, compactTree, lazyTree, engine, recoveryBoundCheck);
+    }
+
+    public ParserOptions withLazyTree(boolean lazyTree) {
+        return new ParserOptions(memoBackend, adaptiveMemo, memoProfile, compactTree, lazyTree, engine, recoveryBoundCheck);
+    }
+
+    public ParserOptions withEngine(Engine engine) {
+        return new ParserOptions(memoBackend, adaptiveMemo, memoProfile, compactTree, lazyTree, engine, recoveryBoundCheck);
+    }
+
+    public ParserOptions withRecoveryBoundCheck(boolean recoveryBoundCheck) {
+        return new ParserOptions(memoBackend, adaptiveMemo, memoProfile, compactTree, lazyTree, engine, recoveryBoundCheck);
+    }
+}
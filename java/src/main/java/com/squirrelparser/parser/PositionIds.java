@@ -0,0 +1,166 @@
+package com.squirrelparser.parser;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Ids for input positions that don't change when the input is edited, so that the heap memo table
+ * can key its entries by position id and doesn't have to move the entries after an edit (see
+ * {@link MemoTable#applyEdit}).
+ *
+ * Before any edit, the id of a position is the position. An edit gives the inserted positions new
+ * ids, and the ids of the deleted positions are never used again, so the input is a list of
+ * pieces, each a run of positions with consecutive ids. Each piece records the number of the edit
+ * that started it, if any, so a memo entry can check whether an edit since the entry was stored fell
+ * inside the input it examined. An edit takes time linear in the number of pieces, i.e. in the
+ * number of edits since the ids were last reset, rather than in the length of the input.
+ */
+final class PositionIds {
+    private int[] starts = new int[16];  // Position of the start of each piece, in increasing order
+    private int[] ids = new int[16];     // Id of the start of each piece
+    private int[] edits = new int[16];   // Number of the edit that started each piece, or 0
+    private int numPieces;
+    private int nextId;                  // Id of the next inserted position
+    private int numEdits = 0;
+    private int lastPiece;               // The piece of the last lookup (lookups are mostly local)
+
+    PositionIds(int inputLength) {
+        reset(inputLength);
+    }
+
+    /**
+     * Make the id of each position the position again (the memo table must have rekeyed its
+     * entries first, see {@link #positions}).
+     */
+    void reset(int inputLength) {
+        numPieces = 1;
+        starts[0] = 0;
+        ids[0] = 0;
+        edits[0] = 0;
+        nextId = inputLength + 1; // (The end of the input is a position too)
+        lastPiece = 0;
+    }
+
+    /** The number of edits so far. */
+    int numEdits() { return numEdits; }
+
+    /** The number of pieces. */
+    int numPieces() { return numPieces; }
+
+    /** The id of a position. */
+    int id(int pos) {
+        if (numPieces == 1) {
+            return ids[0] + pos;
+        }
+        int piece = pieceAt(pos);
+        return ids[piece] + pos - starts[piece];
+    }
+
+    private int pieceAt(int pos) {
+        int piece = lastPiece;
+        if (starts[piece] > pos || (piece + 1 < numPieces && starts[piece + 1] <= pos)) {
+            int i = Arrays.binarySearch(starts, 0, numPieces, pos);
+            piece = i >= 0 ? i : -i - 2;
+            lastPiece = piece;
+        }
+        return piece;
+    }
+
+    /**
+     * Whether no edit after the given edit number fell inside the input examined from pos, i.e.
+     * no such edit started a piece after pos and before pos + examinedLen. (An edit that deleted
+     * pos itself deleted its id, so the memo entries at pos can't be looked up any more.)
+     */
+    boolean unchangedSince(int numEditsThen, int pos, int examinedLen) {
+        for (int piece = pieceAt(pos) + 1; piece < numPieces && starts[piece] < pos + examinedLen; piece++) {
+            if (edits[piece] > numEditsThen) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace oldLen positions at start with newLen new positions.
+     */
+    void applyEdit(int start, int oldLen, int newLen) {
+        numEdits++;
+        if (oldLen == 0 && newLen == 0) {
+            return;
+        }
+        int first = split(start);
+        int end = split(start + oldLen);
+        int numInserted = newLen > 0 ? 1 : 0;
+        int newNumPieces = numPieces - (end - first) + numInserted;
+        if (newNumPieces > starts.length) {
+            int capacity = Math.max(starts.length * 2, newNumPieces);
+            starts = Arrays.copyOf(starts, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            edits = Arrays.copyOf(edits, capacity);
+        }
+        int after = first + numInserted;
+        System.arraycopy(starts, end, starts, after, numPieces - end);
+        System.arraycopy(ids, end, ids, after, numPieces - end);
+        System.arraycopy(edits, end, edits, after, numPieces - end);
+        numPieces = newNumPieces;
+        if (numInserted > 0) {
+            starts[first] = start;
+            ids[first] = nextId;
+            edits[first] = numEdits;
+            nextId += newLen;
+        }
+        edits[after] = numEdits;
+        int delta = newLen - oldLen;
+        for (int piece = after; piece < numPieces; piece++) {
+            starts[piece] += delta;
+        }
+        lastPiece = 0;
+    }
+
+    /** Split the piece containing pos so that a piece starts at pos, and return that piece. */
+    private int split(int pos) {
+        int piece = pieceAt(pos);
+        if (starts[piece] == pos) {
+            return piece;
+        }
+        if (numPieces == starts.length) {
+            starts = Arrays.copyOf(starts, numPieces * 2);
+            ids = Arrays.copyOf(ids, numPieces * 2);
+            edits = Arrays.copyOf(edits, numPieces * 2);
+        }
+        System.arraycopy(starts, piece + 1, starts, piece + 2, numPieces - piece - 1);
+        System.arraycopy(ids, piece + 1, ids, piece + 2, numPieces - piece - 1);
+        System.arraycopy(edits, piece + 1, edits, piece + 2, numPieces - piece - 1);
+        numPieces++;
+        starts[piece + 1] = pos;
+        ids[piece + 1] = ids[piece] + pos - starts[piece];
+        edits[piece + 1] = 0; // The ids run on across the split, so no edit started the piece
+        return piece + 1;
+    }
+
+    /**
+     * The inverse of {@link #id}: a function from each id to its position, or -1 if the position
+     * was deleted.
+     */
+    IntUnaryOperator positions(int inputLength) {
+        Integer[] byId = new Integer[numPieces];
+        for (int piece = 0; piece < numPieces; piece++) {
+            byId[piece] = piece;
+        }
+        Arrays.sort(byId, (a, b) -> Integer.compare(ids[a], ids[b]));
+        int[] pieceIds = new int[numPieces];
+        int[] pieceStarts = new int[numPieces];
+        int[] pieceLens = new int[numPieces];
+        for (int i = 0; i < numPieces; i++) {
+            int piece = byId[i];
+            pieceIds[i] = ids[piece];
+            pieceStarts[i] = starts[piece];
+            pieceLens[i] = (piece + 1 < numPieces ? starts[piece + 1] : inputLength + 1) - starts[piece];
+        }
+        return id -> {
+            int i = Arrays.binarySearch(pieceIds, id);
+            i = i >= 0 ? i : -i - 2;
+            return i >= 0 && id - pieceIds[i] < pieceLens[i] ? pieceStarts[i] + id - pieceIds[i] : -1;
+        };
+    }
+}
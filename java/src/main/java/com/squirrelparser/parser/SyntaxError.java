@@ -31,6 +31,11 @@ public final class SyntaxError extends MatchResult {
         return this; // SyntaxErrors don't need LR context
     }
 
+    @Override
+    MatchResult shifted(int delta) {
+        return new SyntaxError(pos() + delta, len(), clause());
+    }
+
     @Override
     public String toString() {
         // If len == 0, this is a deletion of a grammar element;
@@ -41,7 +46,7 @@ public final class SyntaxError extends MatchResult {
     }
 
     @Override
-    public String toPrettyString(String input, int indent) {
+    public String toPrettyString(CharSequence input, int indent) {
         return "  ".repeat(indent) + "<SyntaxError>: " + toString() + "\n";
     }
 }
@@ -0,0 +1,207 @@
+package com.squirrelparser.parser;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 input, parsed at the byte level: the input is a CharSequence of bytes (each char is one
+ * byte, 0-255), so all positions and lengths, including those of matches and parse tree nodes,
+ * are byte offsets. The bytes are parsed in place, without being decoded to UTF-16 first.
+ *
+ * When the parser is given a Utf8Input, terminals match UTF-8: string and character literals
+ * are compared against their UTF-8 encoding, and character sets and {@code .} decode one code
+ * point (1 to 4 bytes) at a time. Sub-sequences (e.g. from
+ * {@link com.squirrelparser.tree.Node#getInputSpan(CharSequence)}) are byte range views, and
+ * {@link #toString()} decodes the bytes.
+ *
+ * For incremental reparsing, the parser edits a copy of the input in place (see
+ * {@link #editableCopy()}), with a gap in the bytes at the last edit, as in {@link GapBuffer}.
+ */
+public final class Utf8Input implements CharSequence {
+    private MemorySegment bytes;
+    private int gapStart;       // The bytes in [gapStart, gapStart + gapLen) are not part of the input
+    private int gapLen = 0;
+
+    private Utf8Input(MemorySegment bytes) {
+        if (bytes.byteSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Input is too large to parse (" + bytes.byteSize() + " bytes)");
+        }
+        this.bytes = bytes;
+        gapStart = (int) bytes.byteSize();
+    }
+
+    /**
+     * Wrap UTF-8 bytes, from the buffer's position to its limit (the bytes are not copied).
+     */
+    public static Utf8Input of(ByteBuffer bytes) {
+        return new Utf8Input(MemorySegment.ofBuffer(bytes));
+    }
+
+    /**
+     * Wrap UTF-8 bytes in a MemorySegment (the bytes are not copied).
+     */
+    public static Utf8Input of(MemorySegment bytes) {
+        return new Utf8Input(bytes);
+    }
+
+    /**
+     * Encode a String as UTF-8.
+     */
+    public static Utf8Input of(String text) {
+        return of(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * The UTF-8 encoding of a String, as a String of byte chars (each char is one byte, 0-255),
+     * for matching literals against a Utf8Input.
+     */
+    public static String encode(String text) {
+        return new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public int length() {
+        return (int) bytes.byteSize() - gapLen;
+    }
+
+    /**
+     * Get the byte at an index, as a char in the range 0-255.
+     */
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(ValueLayout.JAVA_BYTE, index < gapStart ? index : index + gapLen) & 0xFF);
+    }
+
+    /**
+     * Decode the code point starting at a byte position.
+     *
+     * @return The code point, or -1 if the bytes at pos are not a well-formed UTF-8 sequence
+     *         (including overlong encodings, surrogates and truncated sequences)
+     */
+    public int codePointAt(int pos) {
+        int b0 = charAt(pos);
+        if (b0 < 0x80) {
+            return b0;
+        }
+        int len;
+        int cp;
+        int min;
+        if ((b0 & 0xE0) == 0xC0) {
+            len = 2;
+            cp = b0 & 0x1F;
+            min = 0x80;
+        } else if ((b0 & 0xF0) == 0xE0) {
+            len = 3;
+            cp = b0 & 0x0F;
+            min = 0x800;
+        } else if ((b0 & 0xF8) == 0xF0) {
+            len = 4;
+            cp = b0 & 0x07;
+            min = 0x10000;
+        } else {
+            return -1;
+        }
+        if (pos + len > length()) {
+            return -1;
+        }
+        for (int i = 1; i < len; i++) {
+            int b = charAt(pos + i);
+            if ((b & 0xC0) != 0x80) {
+                return -1;
+            }
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        if (cp < min || cp > Character.MAX_CODE_POINT
+            || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)) {
+            return -1;
+        }
+        return cp;
+    }
+
+    /**
+     * The number of bytes in the UTF-8 encoding of a code point.
+     */
+    public static int encodedLength(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * Get a view of a byte range (or a copy, if the range spans the gap of an edited input).
+     */
+    @Override
+    public Utf8Input subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        if (end <= gapStart) {
+            return new Utf8Input(bytes.asSlice(start, end - start));
+        }
+        if (start >= gapStart) {
+            return new Utf8Input(bytes.asSlice(start + gapLen, end - start));
+        }
+        byte[] copy = new byte[end - start];
+        copyTo(start, end, copy, 0);
+        return new Utf8Input(MemorySegment.ofArray(copy));
+    }
+
+    /**
+     * Copy the bytes in [start, end) to an array.
+     */
+    public void copyTo(int start, int end, byte[] dest, int destPos) {
+        int beforeGap = Math.max(0, Math.min(end, gapStart) - start);
+        MemorySegment.copy(bytes, ValueLayout.JAVA_BYTE, start, dest, destPos, beforeGap);
+        MemorySegment.copy(bytes, ValueLayout.JAVA_BYTE, start + beforeGap + gapLen, dest, destPos + beforeGap,
+                           end - start - beforeGap);
+    }
+
+    /**
+     * Copy the input into a heap buffer that {@link #replace} edits in place.
+     */
+    Utf8Input editableCopy() {
+        int length = length();
+        byte[] buffer = new byte[length + length / 8 + 16];
+        copyTo(0, length, buffer, 0);
+        Utf8Input copy = new Utf8Input(MemorySegment.ofArray(buffer));
+        copy.gapStart = length;
+        copy.gapLen = buffer.length - length;
+        return copy;
+    }
+
+    /**
+     * Replace oldLen bytes at start with newBytes, moving the gap to the edit (only call this on an
+     * {@link #editableCopy()}).
+     */
+    void replace(int start, int oldLen, byte[] newBytes) {
+        if (start < gapStart) {
+            MemorySegment.copy(bytes, start, bytes, start + gapLen, gapStart - start);
+        } else {
+            MemorySegment.copy(bytes, gapStart + gapLen, bytes, gapStart, start - gapStart);
+        }
+        gapStart = start;
+        gapLen += oldLen;
+        if (gapLen < newBytes.length) {
+            int length = length();
+            byte[] buffer = new byte[length + newBytes.length + (length + newBytes.length) / 8 + 16];
+            int afterGap = length - gapStart;
+            MemorySegment.copy(bytes, ValueLayout.JAVA_BYTE, 0, buffer, 0, gapStart);
+            MemorySegment.copy(bytes, ValueLayout.JAVA_BYTE, gapStart + gapLen, buffer, buffer.length - afterGap, afterGap);
+            bytes = MemorySegment.ofArray(buffer);
+            gapLen = buffer.length - length;
+        }
+        MemorySegment.copy(newBytes, 0, bytes, ValueLayout.JAVA_BYTE, gapStart, newBytes.length);
+        gapStart += newBytes.length;
+        gapLen -= newBytes.length;
+    }
+
+    /**
+     * Decode the bytes to a String (malformed sequences are replaced with U+FFFD).
+     */
+    @Override
+    public String toString() {
+        byte[] copy = new byte[length()];
+        copyTo(0, copy.length, copy, 0);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+}
@@ -5,10 +5,11 @@ import java.util.List;
 import java.util.Set;
 
 import com.squirrelparser.clause.Clause;
-import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.terminal.Cut;
 import com.squirrelparser.clause.terminal.Terminal;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParseTree;
 import com.squirrelparser.parser.SyntaxError;
 
 /**
@@ -22,6 +23,15 @@ public final class ASTBuilder {
             ? ASTNode.syntaxError(parseResult.unmatchedInput())
             : null;
 
+        if (parseResult.tree() != null) {
+            return newASTNode(
+                parseResult.topRuleName(),
+                parseResult.tree(),
+                0,
+                parseResult.transparentRules(),
+                extraNode
+            );
+        }
         return newASTNode(
             parseResult.topRuleName(),
             parseResult.root(),
@@ -30,14 +40,14 @@ public final class ASTBuilder {
         );
     }
 
-    private static ASTNode newASTNode(String label, MatchResult refdMatchResult,
+    private static ASTNode newASTNode(String label, MatchResult ruleMatchResult,
                                        Set<String> transparentRules, ASTNode addExtraASTNode) {
         List<ASTNode> childASTNodes = new ArrayList<>();
-        collectChildASTNodes(refdMatchResult, childASTNodes, transparentRules);
+        collectRuleASTNodes(ruleMatchResult, childASTNodes, transparentRules);
         if (addExtraASTNode != null) {
             childASTNodes.add(addExtraASTNode);
         }
-        return ASTNode.nonTerminal(label, refdMatchResult.pos(), refdMatchResult.len(), childASTNodes);
+        return ASTNode.nonTerminal(label, ruleMatchResult.pos(), ruleMatchResult.len(), childASTNodes);
     }
 
     private static void collectChildASTNodes(MatchResult matchResult,
@@ -46,21 +56,30 @@ public final class ASTBuilder {
         if (matchResult.isMismatch()) {
             return;
         }
+        String ruleName = matchResult instanceof SyntaxError ? null : matchResult.clause().ownerRule();
+        if (ruleName == null) {
+            collectRuleASTNodes(matchResult, collectedAstNodes, transparentRules);
+        } else if (!transparentRules.contains(ruleName)) {
+            // A match of a rule's clause is a rule boundary
+            collectedAstNodes.add(newASTNode(ruleName, matchResult, transparentRules, null));
+        }
+    }
+
+    /** Collect the AST nodes of a match within a rule (the rule's own clause is not a boundary). */
+    private static void collectRuleASTNodes(MatchResult matchResult,
+                                             List<ASTNode> collectedAstNodes,
+                                             Set<String> transparentRules) {
+        if (matchResult.isMismatch()) {
+            return;
+        }
         if (matchResult instanceof SyntaxError se) {
             collectedAstNodes.add(ASTNode.syntaxError(se));
         } else {
             Clause clause = matchResult.clause();
-            if (clause instanceof Terminal) {
+            if (clause instanceof Cut) {
+                // Cuts don't appear in the AST
+            } else if (clause instanceof Terminal) {
                 collectedAstNodes.add(ASTNode.terminal(matchResult));
-            } else if (clause instanceof Ref ref) {
-                if (!transparentRules.contains(ref.ruleName())) {
-                    collectedAstNodes.add(newASTNode(
-                        ref.ruleName(),
-                        matchResult.subClauseMatches().getFirst(),
-                        transparentRules,
-                        null
-                    ));
-                }
             } else {
                 for (MatchResult subClauseMatch : matchResult.subClauseMatches()) {
                     collectChildASTNodes(subClauseMatch, collectedAstNodes, transparentRules);
@@ -68,4 +87,46 @@ public final class ASTBuilder {
             }
         }
     }
+
+    // Compact parse tree (see ParseTree): the same traversal, over node indices
+
+    private static ASTNode newASTNode(String label, ParseTree tree, int ruleNode,
+                                       Set<String> transparentRules, ASTNode addExtraASTNode) {
+        List<ASTNode> childASTNodes = new ArrayList<>();
+        collectRuleASTNodes(tree, ruleNode, childASTNodes, transparentRules);
+        if (addExtraASTNode != null) {
+            childASTNodes.add(addExtraASTNode);
+        }
+        return ASTNode.nonTerminal(label, tree.pos(ruleNode), tree.len(ruleNode), childASTNodes);
+    }
+
+    private static void collectChildASTNodes(ParseTree tree, int node,
+                                              List<ASTNode> collectedAstNodes,
+                                              Set<String> transparentRules) {
+        String ruleName = tree.isSyntaxError(node) ? null : tree.clause(node).ownerRule();
+        if (ruleName == null) {
+            collectRuleASTNodes(tree, node, collectedAstNodes, transparentRules);
+        } else if (!transparentRules.contains(ruleName)) {
+            collectedAstNodes.add(newASTNode(ruleName, tree, node, transparentRules, null));
+        }
+    }
+
+    private static void collectRuleASTNodes(ParseTree tree, int node,
+                                             List<ASTNode> collectedAstNodes,
+                                             Set<String> transparentRules) {
+        if (tree.isSyntaxError(node)) {
+            collectedAstNodes.add(ASTNode.syntaxError(tree.syntaxError(node)));
+        } else {
+            Clause clause = tree.clause(node);
+            if (clause instanceof Cut) {
+                // Cuts don't appear in the AST
+            } else if (clause instanceof Terminal) {
+                collectedAstNodes.add(ASTNode.terminal(tree.pos(node), tree.len(node)));
+            } else {
+                for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) {
+                    collectChildASTNodes(tree, child, collectedAstNodes, transparentRules);
+                }
+            }
+        }
+    }
 }
@@ -15,7 +15,11 @@ public final class ASTNode extends Node<ASTNode> {
     }
 
     static ASTNode terminal(MatchResult terminalMatch) {
-        return new ASTNode(Terminal.NODE_LABEL, terminalMatch.pos(), terminalMatch.len(), null, List.of());
+        return terminal(terminalMatch.pos(), terminalMatch.len());
+    }
+
+    static ASTNode terminal(int pos, int len) {
+        return new ASTNode(Terminal.NODE_LABEL, pos, len, null, List.of());
     }
 
     static ASTNode nonTerminal(String label, int pos, int len, List<ASTNode> children) {
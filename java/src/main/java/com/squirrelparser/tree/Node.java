@@ -32,18 +32,26 @@ public abstract class Node<T extends Node<T>> {
         return input.substring(pos, pos + len);
     }
 
+    /**
+     * Get the input span of this node as a view over the input (for a CharBuffer input, e.g. a
+     * memory-mapped file, the characters are not copied).
+     */
+    public CharSequence getInputSpan(CharSequence input) {
+        return input.subSequence(pos, pos + len);
+    }
+
     @Override
     public String toString() {
         return label + ": pos: " + pos + ", len: " + len;
     }
 
-    public String toPrettyString(String input) {
+    public String toPrettyString(CharSequence input) {
         var buffer = new StringBuilder();
         buildTree(input, "", buffer, true);
         return buffer.toString();
     }
 
-    protected void buildTree(String input, String prefix, StringBuilder buffer, boolean isRoot) {
+    protected void buildTree(CharSequence input, String prefix, StringBuilder buffer, boolean isRoot) {
         if (!isRoot) {
             buffer.append("\n");
         }
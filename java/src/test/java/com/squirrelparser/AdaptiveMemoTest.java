@@ -0,0 +1,98 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MemoProfile;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.ParserOptions;
+
+/**
+ * Adaptive memoization tests: low hit rate clauses stop being memoized, and memo profiles.
+ */
+class AdaptiveMemoTest {
+    private static final ParserOptions ADAPTIVE = TestUtils.OPTIONS.withAdaptiveMemo(true);
+
+    private static final Grammar JSON = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+    private static final String INPUT = BenchmarkInputs.json(2000);
+
+    @Test
+    void staticPolicyDoesNotRecordProfile() {
+        assertNull(JSON.newParser("[]", TestUtils.OPTIONS).memoProfile());
+    }
+
+    @Test
+    void lowHitRateClausesStopBeingMemoized() {
+        Parser staticParser = JSON.newParser(INPUT, TestUtils.OPTIONS);
+        ParseResult staticResult = staticParser.parse();
+        Parser adaptiveParser = JSON.newParser(INPUT, ADAPTIVE);
+        ParseResult adaptiveResult = adaptiveParser.parse();
+
+        assertFalse(adaptiveResult.hasSyntaxErrors());
+        assertEquals(staticResult.root().toPrettyString(INPUT), adaptiveResult.root().toPrettyString(INPUT));
+
+        Clause string = JSON.rules().get("String");
+        MemoProfile profile = adaptiveParser.memoProfile();
+        assertTrue(profile.isLowHitRate(string));
+        // Lookups stop once the clause is found to have a low hit rate
+        assertTrue(profile.lookups(string) < 2 * MemoProfile.MIN_LOOKUPS);
+        assertTrue(adaptiveParser.memoTable().size() < staticParser.memoTable().size());
+    }
+
+    @Test
+    void recursiveRulesStayMemoized() {
+        Grammar grammar = Grammar.compile("""
+            S <- E;
+            E <- E '+' N / N;
+            N <- [0-9]+;
+            """, "S");
+        String input = "1" + "+1".repeat(5000);
+        Parser parser = grammar.newParser(input, ADAPTIVE);
+        ParseResult result = parser.parse();
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.length(), result.root().len());
+
+        Clause e = grammar.rules().get("E");
+        assertTrue(grammar.isMemoRequired(e));
+        assertTrue(parser.memoProfile().lookups(e) > MemoProfile.MIN_LOOKUPS);
+    }
+
+    @Test
+    void profileRoundTrip(@TempDir Path tempDir) throws Exception {
+        Parser parser = JSON.newParser(INPUT, ADAPTIVE);
+        parser.parse();
+        Path path = tempDir.resolve("json.memoprofile");
+        parser.memoProfile().save(path);
+        MemoProfile loaded = MemoProfile.load(path);
+        assertEquals(parser.memoProfile(), loaded);
+
+        // With a loaded profile, low hit rate clauses are not memoized from the start
+        Parser profiledParser = JSON.newParser(INPUT, TestUtils.OPTIONS.withMemoProfile(loaded));
+        ParseResult result = profiledParser.parse();
+        assertFalse(result.hasSyntaxErrors());
+        assertTrue(profiledParser.memoTable().size() < parser.memoTable().size());
+        // The profile carries on accumulating counts
+        Clause value = JSON.rules().get("Value");
+        assertEquals(2 * loaded.lookups(value), profiledParser.memoProfile().lookups(value));
+    }
+
+    @Test
+    void profileFromDifferentGrammarThrows() {
+        Parser parser = JSON.newParser("[1, 2]", ADAPTIVE);
+        parser.parse();
+        Grammar other = Grammar.compile("S <- 'a'+;", "S");
+        var options = TestUtils.OPTIONS.withMemoProfile(parser.memoProfile());
+        assertThrows(IllegalArgumentException.class, () -> other.newParser("aaa", options));
+    }
+}
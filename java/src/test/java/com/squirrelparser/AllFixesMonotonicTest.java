@@ -141,7 +141,7 @@ class AllFixesMonotonicTest {
 
     @Test
     void testF6LRDeletion() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(EOF_LR, "S", "1+2+3");
+        ParseResult parseResult = TestUtils.parsePT(EOF_LR, "S", "1+2+3");
         MatchResult result = parseResult.root();
         assertTrue(!result.isMismatch(), "should succeed with recovery");
         assertTrue(countDeletions(List.of(result)) >= 1, "should have at least 1 deletion");
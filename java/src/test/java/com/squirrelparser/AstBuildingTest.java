@@ -9,6 +9,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
 import com.squirrelparser.parser.Parser;
@@ -26,7 +27,7 @@ class AstBuildingTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -46,7 +47,7 @@ class AstBuildingTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "aaabbb");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "aaabbb", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -67,7 +68,7 @@ class AstBuildingTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Number", "123");
+        Parser parser = new Parser(Grammar.compile(rules, "Number"), "123", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -85,7 +86,7 @@ class AstBuildingTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Expr", "1+2-3");
+        Parser parser = new Parser(Grammar.compile(rules, "Expr"), "1+2-3", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -106,7 +107,7 @@ class AstBuildingTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -126,7 +127,7 @@ class AstBuildingTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -9,6 +9,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -26,7 +27,7 @@ class BasicSyntaxTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
         assertTrue(rules.containsKey("Hello"));
 
-        Parser parser = new Parser(rules, "Hello", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Hello"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -40,7 +41,7 @@ class BasicSyntaxTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "A", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "A"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -54,7 +55,7 @@ class BasicSyntaxTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "AB", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "AB"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -69,13 +70,13 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "AorB", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "AorB"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(1, result.len());
 
-        parser = new Parser(rules, "AorB", "b");
+        parser = new Parser(Grammar.compile(rules, "AorB"), "b", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -90,13 +91,13 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "As", "");
+        Parser parser = new Parser(Grammar.compile(rules, "As"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(0, result.len());
 
-        parser = new Parser(rules, "As", "aaa");
+        parser = new Parser(Grammar.compile(rules, "As"), "aaa", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -111,12 +112,12 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "As", "");
+        Parser parser = new Parser(Grammar.compile(rules, "As"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertTrue(result instanceof SyntaxError);
 
-        parser = new Parser(rules, "As", "aaa");
+        parser = new Parser(Grammar.compile(rules, "As"), "aaa", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -131,13 +132,13 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "OptA", "");
+        Parser parser = new Parser(Grammar.compile(rules, "OptA"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(0, result.len());
 
-        parser = new Parser(rules, "OptA", "a");
+        parser = new Parser(Grammar.compile(rules, "OptA"), "a", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -152,13 +153,13 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "AFollowedByB", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "AFollowedByB"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(2, result.len()); // Both 'a' and 'b' consumed
 
-        parser = new Parser(rules, "AFollowedByB", "ac");
+        parser = new Parser(Grammar.compile(rules, "AFollowedByB"), "ac", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertTrue(result instanceof SyntaxError);
@@ -172,13 +173,13 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "ANotFollowedByB", "ac");
+        Parser parser = new Parser(Grammar.compile(rules, "ANotFollowedByB"), "ac", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(2, result.len()); // Both 'a' and 'c' consumed
 
-        parser = new Parser(rules, "ANotFollowedByB", "ab");
+        parser = new Parser(Grammar.compile(rules, "ANotFollowedByB"), "ab", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertTrue(result instanceof SyntaxError);
@@ -192,13 +193,13 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "AnyOne", "x");
+        Parser parser = new Parser(Grammar.compile(rules, "AnyOne"), "x", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(1, result.len());
 
-        parser = new Parser(rules, "AnyOne", "9");
+        parser = new Parser(Grammar.compile(rules, "AnyOne"), "9", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -213,13 +214,13 @@ class BasicSyntaxTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Group", "ac");
+        Parser parser = new Parser(Grammar.compile(rules, "Group"), "ac", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(2, result.len());
 
-        parser = new Parser(rules, "Group", "bc");
+        parser = new Parser(Grammar.compile(rules, "Group"), "bc", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
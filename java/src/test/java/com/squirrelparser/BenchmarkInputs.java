@@ -0,0 +1,110 @@
+package com.squirrelparser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared grammars and input generators for the JMH benchmarks.
+ */
+final class BenchmarkInputs {
+    private BenchmarkInputs() {}
+
+    static final String JSON_GRAMMAR = """
+        JSON <- WS Value WS;
+        Value <- Object / Array / String / Number / Boolean / Null;
+        Object <- '{' WS (Member (WS ',' WS Member)*)? WS '}';
+        Member <- String WS ':' WS Value;
+        Array <- '[' WS (Value (WS ',' WS Value)*)? WS ']';
+        String <- '"' Character* '"';
+        Character <- [^\\"\\\\] / ('\\\\' Escape);
+        Escape <- '"' / '\\\\' / '/' / 'b' / 'f' / 'n' / 'r' / 't' / ('u' [0-9a-fA-F] [0-9a-fA-F] [0-9a-fA-F] [0-9a-fA-F]);
+        Number <- Integer Fraction? Exponent?;
+        Integer <- '-'? (([1-9] [0-9]+) / [0-9]);
+        Fraction <- '.' [0-9]+;
+        Exponent <- ("e" / "E") ("+" / "-")? [0-9]+;
+        Boolean <- "true" / "false";
+        Null <- "null";
+        ~WS <- [ \\t\\n\\r]*;
+        """;
+
+    /**
+     * Generate a JSON array of the given number of records.
+     */
+    static String json(int numRecords) {
+        var buf = new StringBuilder("[\n");
+        for (int i = 0; i < numRecords; i++) {
+            if (i > 0) {
+                buf.append(",\n");
+            }
+            buf.append("  {\"id\": ").append(i)
+                .append(", \"name\": \"item \\\"").append(i).append("\\\"\"")
+                .append(", \"price\": ").append(i % 1000).append('.').append(i % 100).append("e-2")
+                .append(", \"tags\": [\"a\", \"b\", \"c\"], \"active\": ").append(i % 2 == 0)
+                .append(", \"parent\": null}");
+        }
+        return buf.append("\n]\n").toString();
+    }
+
+    /**
+     * A statement grammar in which most attempts fail: each statement tries several keyword
+     * alternatives, most of which fail partway through a sequence.
+     */
+    static final String STATEMENT_GRAMMAR = """
+        Program <- WS (Stmt WS)*;
+        Stmt <- If / While / Return / Assign;
+        If <- "if" WS "(" WS Expr WS ")" WS Block;
+        While <- "while" WS "(" WS Expr WS ")" WS Block;
+        Return <- "return" WS Expr WS ";";
+        Assign <- Ident WS "=" WS Expr WS ";";
+        Block <- "{" WS (Stmt WS)* "}";
+        Expr <- Term (WS ('-' / [+*]) WS Term)*;
+        Term <- "(" WS Expr WS ")" / Ident / [0-9]+;
+        Ident <- [a-z]+;
+        ~WS <- [ \\n]*;
+        """;
+
+    /**
+     * Generate the given number of statements for {@link #STATEMENT_GRAMMAR}, most of them
+     * assignments to identifiers that start with a keyword.
+     */
+    static String statements(int numStatements) {
+        var buf = new StringBuilder();
+        for (int i = 0; i < numStatements; i++) {
+            switch (i % 8) {
+                case 0 -> buf.append("if (x + ").append(i).append(") { y = y * 2; }\n");
+                case 1 -> buf.append("while (n) { n = n - 1; }\n");
+                case 7 -> buf.append("return (a + b) * ").append(i).append(";\n");
+                default -> buf.append("iffy = whilst + returned * ").append(i).append(";\n");
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * An edit of the input: oldLen characters at start are replaced with newText.
+     */
+    record Edit(int start, int oldLen, String newText) {}
+
+    /**
+     * An editor keystroke trace for a document generated by {@link #json(int)}: a new member is
+     * typed one character at a time into the record in the middle of the document, a value is
+     * retyped, and then the new member is deleted one character at a time, so that replaying the
+     * trace returns the document to its original text (the trace can be replayed repeatedly).
+     */
+    static List<Edit> editTrace(String json) {
+        List<Edit> trace = new ArrayList<>();
+        int pos = json.indexOf(", \"parent\"", json.length() / 2);
+        String typed = ", \"note\": \"checked by QA\"";
+        for (int i = 0; i < typed.length(); i++) {
+            trace.add(new Edit(pos + i, 0, typed.substring(i, i + 1)));
+        }
+        int valuePos = pos + typed.indexOf("QA");
+        trace.add(new Edit(valuePos, 2, ""));
+        trace.add(new Edit(valuePos, 0, "Q"));
+        trace.add(new Edit(valuePos + 1, 0, "A"));
+        for (int i = typed.length() - 1; i >= 0; i--) {
+            trace.add(new Edit(pos + i, 1, ""));
+        }
+        return trace;
+    }
+}
@@ -41,7 +41,7 @@ class BoundaryTest {
 
     @Test
     void e04_seqEmptyRecovery() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" ;", "S", "");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" ;", "S", "");
         MatchResult result = parseResult.root();
         assertFalse(result.isMismatch(), "should succeed with recovery");
         assertEquals(2, countDeletions(List.of(result)), "should have 2 deletions");
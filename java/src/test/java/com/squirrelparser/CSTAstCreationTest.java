@@ -1,6 +1,6 @@
 package com.squirrelparser;
 
-import static com.squirrelparser.SquirrelParser.squirrelParseCST;
+import static com.squirrelparser.TestUtils.parseCST;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
@@ -141,7 +141,7 @@ class CSTAstCreationTest {
             Term <- [0-9]+;
             """;
 
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "Expr",
             Map.of(
@@ -170,7 +170,7 @@ class CSTAstCreationTest {
             Number <- [0-9]+;
             """;
 
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "Sum",
             Map.of(
@@ -204,7 +204,7 @@ class CSTAstCreationTest {
             Element <- [a-z]+;
             """;
 
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "List",
             Map.of(
@@ -237,7 +237,7 @@ class CSTAstCreationTest {
             Second <- [0-9]+;
             """;
 
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "Pair",
             Map.of(
@@ -275,7 +275,7 @@ class CSTAstCreationTest {
             """;
 
         @SuppressWarnings("unused")
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "Text",
             Map.of(
@@ -304,7 +304,7 @@ class CSTAstCreationTest {
             """;
 
         @SuppressWarnings("unused")
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "Expr",
             Map.of(
@@ -334,7 +334,7 @@ class CSTAstCreationTest {
             """;
 
         @SuppressWarnings("unused")
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "Doc",
             Map.of(
@@ -371,7 +371,7 @@ class CSTAstCreationTest {
             Word <- [a-z]+;
             """;
 
-        CSTNode cst = squirrelParseCST(
+        CSTNode cst = parseCST(
             grammar,
             "Sentence",
             Map.of(
@@ -1,7 +1,7 @@
 package com.squirrelparser;
 
-import static com.squirrelparser.SquirrelParser.squirrelParseCST;
-import static com.squirrelparser.SquirrelParser.squirrelParsePT;
+import static com.squirrelparser.TestUtils.parseCST;
+import static com.squirrelparser.TestUtils.parsePT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -50,7 +50,7 @@ class CSTTest {
             Name <- [a-z]+;
             """;
 
-        ParseResult parseResult = squirrelParsePT(grammar, "Greeting", "helloworld");
+        ParseResult parseResult = parsePT(grammar, "Greeting", "helloworld");
 
         assertNotNull(parseResult);
         assertFalse(parseResult.root().isMismatch());
@@ -70,7 +70,7 @@ class CSTTest {
         );
 
         assertThrows(IllegalArgumentException.class, () ->
-            squirrelParseCST(grammar, "Greeting", factories, "hello world", false)
+            parseCST(grammar, "Greeting", factories, "hello world", false)
         );
     }
 
@@ -87,7 +87,7 @@ class CSTTest {
         );
 
         assertThrows(IllegalArgumentException.class, () ->
-            squirrelParseCST(grammar, "Greeting", factories, "hello", false)
+            parseCST(grammar, "Greeting", factories, "hello", false)
         );
     }
 
@@ -104,7 +104,7 @@ class CSTTest {
             "<Terminal>", (astNode, children) -> new SimpleCST(astNode, children)
         );
 
-        CSTNode cst = squirrelParseCST(grammar, "Main", factories, "test", false);
+        CSTNode cst = parseCST(grammar, "Main", factories, "test", false);
 
         assertNotNull(cst);
         assertEquals("Main", cst.label());
@@ -121,7 +121,7 @@ class CSTTest {
             "<Terminal>", (astNode, children) -> new SimpleCST(astNode, children)
         );
 
-        CSTNode cst = squirrelParseCST(grammar, "Test", factories, "hello", false);
+        CSTNode cst = SquirrelParser.squirrelParseCST(grammar, "Test", factories, "hello", false);
 
         assertNotNull(cst);
         assertEquals("Test", cst.label());
@@ -143,7 +143,7 @@ class CSTTest {
         );
 
         // This should work without a factory for Whitespace
-        CSTNode cst = squirrelParseCST(grammar, "Expr", factories, " x ", false);
+        CSTNode cst = parseCST(grammar, "Expr", factories, " x ", false);
 
         assertNotNull(cst);
     }
@@ -12,6 +12,7 @@ import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
 import com.squirrelparser.clause.terminal.CharSet;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -28,16 +29,16 @@ class CharacterClassTest {
             CharSet charSet = CharSet.range("a", "z");
             Map<String, Clause> rules = Map.of("S", charSet);
 
-            Parser parser = new Parser(rules, "S", "a");
+            Parser parser = new Parser(Grammar.compile(rules, "S"), "a", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match a");
 
-            parser = new Parser(rules, "S", "m");
+            parser = new Parser(Grammar.compile(rules, "S"), "m", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match m");
 
-            parser = new Parser(rules, "S", "z");
+            parser = new Parser(Grammar.compile(rules, "S"), "z", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match z");
 
-            parser = new Parser(rules, "S", "A");
+            parser = new Parser(Grammar.compile(rules, "S"), "A", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match A");
         }
 
@@ -46,10 +47,10 @@ class CharacterClassTest {
             CharSet charSet = CharSet.ofChar("x");
             Map<String, Clause> rules = Map.of("S", charSet);
 
-            Parser parser = new Parser(rules, "S", "x");
+            Parser parser = new Parser(Grammar.compile(rules, "S"), "x", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match x");
 
-            parser = new Parser(rules, "S", "y");
+            parser = new Parser(Grammar.compile(rules, "S"), "y", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match y");
         }
 
@@ -64,27 +65,27 @@ class CharacterClassTest {
             Map<String, Clause> rules = Map.of("S", charSet);
 
             // Test lowercase
-            Parser parser = new Parser(rules, "S", "a");
+            Parser parser = new Parser(Grammar.compile(rules, "S"), "a", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError);
-            parser = new Parser(rules, "S", "z");
+            parser = new Parser(Grammar.compile(rules, "S"), "z", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError);
 
             // Test uppercase
-            parser = new Parser(rules, "S", "A");
+            parser = new Parser(Grammar.compile(rules, "S"), "A", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError);
-            parser = new Parser(rules, "S", "Z");
+            parser = new Parser(Grammar.compile(rules, "S"), "Z", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError);
 
             // Test digits
-            parser = new Parser(rules, "S", "0");
+            parser = new Parser(Grammar.compile(rules, "S"), "0", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError);
-            parser = new Parser(rules, "S", "9");
+            parser = new Parser(Grammar.compile(rules, "S"), "9", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError);
 
             // Test non-alphanumeric
-            parser = new Parser(rules, "S", "!");
+            parser = new Parser(Grammar.compile(rules, "S"), "!", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError);
-            parser = new Parser(rules, "S", " ");
+            parser = new Parser(Grammar.compile(rules, "S"), " ", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError);
         }
 
@@ -97,19 +98,19 @@ class CharacterClassTest {
             Map<String, Clause> rules = Map.of("S", charSet);
 
             // Should NOT match lowercase
-            Parser parser = new Parser(rules, "S", "a");
+            Parser parser = new Parser(Grammar.compile(rules, "S"), "a", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match a");
-            parser = new Parser(rules, "S", "m");
+            parser = new Parser(Grammar.compile(rules, "S"), "m", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match m");
-            parser = new Parser(rules, "S", "z");
+            parser = new Parser(Grammar.compile(rules, "S"), "z", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match z");
 
             // Should match uppercase, digits, symbols
-            parser = new Parser(rules, "S", "A");
+            parser = new Parser(Grammar.compile(rules, "S"), "A", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match A");
-            parser = new Parser(rules, "S", "5");
+            parser = new Parser(Grammar.compile(rules, "S"), "5", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match 5");
-            parser = new Parser(rules, "S", "!");
+            parser = new Parser(Grammar.compile(rules, "S"), "!", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match !");
         }
 
@@ -123,15 +124,15 @@ class CharacterClassTest {
             Map<String, Clause> rules = Map.of("S", charSet);
 
             // Should NOT match letters
-            Parser parser = new Parser(rules, "S", "a");
+            Parser parser = new Parser(Grammar.compile(rules, "S"), "a", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match a");
-            parser = new Parser(rules, "S", "Z");
+            parser = new Parser(Grammar.compile(rules, "S"), "Z", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match Z");
 
             // Should match digits and symbols
-            parser = new Parser(rules, "S", "5");
+            parser = new Parser(Grammar.compile(rules, "S"), "5", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match 5");
-            parser = new Parser(rules, "S", "!");
+            parser = new Parser(Grammar.compile(rules, "S"), "!", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match !");
         }
 
@@ -141,11 +142,11 @@ class CharacterClassTest {
             Map<String, Clause> rules = Map.of("S", charSet);
 
             // Should NOT match digits
-            Parser parser = new Parser(rules, "S", "5");
+            Parser parser = new Parser(Grammar.compile(rules, "S"), "5", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match 5");
 
             // Should match non-digits
-            parser = new Parser(rules, "S", "a");
+            parser = new Parser(Grammar.compile(rules, "S"), "a", TestUtils.OPTIONS);
             assertFalse(parser.parse().root() instanceof SyntaxError, "should match a");
         }
 
@@ -167,7 +168,7 @@ class CharacterClassTest {
             CharSet charSet = CharSet.range("a", "z");
             Map<String, Clause> rules = Map.of("S", charSet);
 
-            Parser parser = new Parser(rules, "S", "");
+            Parser parser = new Parser(Grammar.compile(rules, "S"), "", TestUtils.OPTIONS);
             assertTrue(parser.parse().root() instanceof SyntaxError, "should not match empty");
         }
     }
@@ -183,13 +184,13 @@ class CharacterClassTest {
 
             Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-            Parser parser = new Parser(rules, "Digit", "5");
+            Parser parser = new Parser(Grammar.compile(rules, "Digit"), "5", TestUtils.OPTIONS);
             ParseResult parseResult = parser.parse();
             MatchResult result = parseResult.root();
             assertFalse(result instanceof SyntaxError, "should match digit");
             assertEquals(1, result.len());
 
-            parser = new Parser(rules, "Digit", "a");
+            parser = new Parser(Grammar.compile(rules, "Digit"), "a", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertTrue(result instanceof SyntaxError, "should fail on non-digit");
@@ -203,22 +204,22 @@ class CharacterClassTest {
 
             Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-            Parser parser = new Parser(rules, "AlphaNum", "a");
+            Parser parser = new Parser(Grammar.compile(rules, "AlphaNum"), "a", TestUtils.OPTIONS);
             ParseResult parseResult = parser.parse();
             MatchResult result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "AlphaNum", "Z");
+            parser = new Parser(Grammar.compile(rules, "AlphaNum"), "Z", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "AlphaNum", "5");
+            parser = new Parser(Grammar.compile(rules, "AlphaNum"), "5", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "AlphaNum", "!");
+            parser = new Parser(Grammar.compile(rules, "AlphaNum"), "!", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertTrue(result instanceof SyntaxError, "should fail on non-alphanumeric");
@@ -232,17 +233,17 @@ class CharacterClassTest {
 
             Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-            Parser parser = new Parser(rules, "Vowel", "a");
+            Parser parser = new Parser(Grammar.compile(rules, "Vowel"), "a", TestUtils.OPTIONS);
             ParseResult parseResult = parser.parse();
             MatchResult result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "Vowel", "e");
+            parser = new Parser(Grammar.compile(rules, "Vowel"), "e", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "Vowel", "b");
+            parser = new Parser(Grammar.compile(rules, "Vowel"), "b", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertTrue(result instanceof SyntaxError, "should fail on consonant");
@@ -256,12 +257,12 @@ class CharacterClassTest {
 
             Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-            Parser parser = new Parser(rules, "NotDigit", "a");
+            Parser parser = new Parser(Grammar.compile(rules, "NotDigit"), "a", TestUtils.OPTIONS);
             ParseResult parseResult = parser.parse();
             MatchResult result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "NotDigit", "5");
+            parser = new Parser(Grammar.compile(rules, "NotDigit"), "5", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertTrue(result instanceof SyntaxError, "should fail on digit");
@@ -275,20 +276,68 @@ class CharacterClassTest {
 
             Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-            Parser parser = new Parser(rules, "Special", "\t");
+            Parser parser = new Parser(Grammar.compile(rules, "Special"), "\t", TestUtils.OPTIONS);
             ParseResult parseResult = parser.parse();
             MatchResult result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "Special", "\n");
+            parser = new Parser(Grammar.compile(rules, "Special"), "\n", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertFalse(result instanceof SyntaxError);
 
-            parser = new Parser(rules, "Special", " ");
+            parser = new Parser(Grammar.compile(rules, "Special"), " ", TestUtils.OPTIONS);
             parseResult = parser.parse();
             result = parseResult.root();
             assertTrue(result instanceof SyntaxError, "should fail on space");
         }
     }
+
+    @Nested
+    class CharSetLookup {
+
+        @Test
+        void overlappingAndUnsortedRanges() {
+            CharSet charSet = new CharSet(List.of(new int[]{'m', 'z'}, new int[]{'a', 'n'}, new int[]{'0', '0'}));
+            for (char c = 'a'; c <= 'z'; c++) {
+                assertTrue(charSet.contains(c), "should contain " + c);
+            }
+            assertTrue(charSet.contains('0'));
+            assertFalse(charSet.contains('1'));
+            assertFalse(charSet.contains('{'));
+            assertFalse(charSet.contains('`'));
+        }
+
+        @Test
+        void rangeStraddlingBmpBoundary() {
+            CharSet charSet = new CharSet(List.of(new int[]{0xFFF0, 0x10010}, new int[]{0x1F600, 0x1F64F}));
+            assertFalse(charSet.contains(0xFFEF));
+            assertTrue(charSet.contains(0xFFFF));
+            assertTrue(charSet.contains(0x10000));
+            assertTrue(charSet.contains(0x10010));
+            assertFalse(charSet.contains(0x10011));
+            assertTrue(charSet.contains(0x1F600));
+            assertFalse(charSet.contains(0x1F650));
+        }
+
+        @Test
+        void invertedSetContainsComplement() {
+            CharSet charSet = new CharSet(List.of(new int[]{'a', 'z'}, new int[]{0x1F600, 0x1F64F}), true);
+            assertFalse(charSet.contains('q'));
+            assertTrue(charSet.contains('A'));
+            assertTrue(charSet.contains(0));
+            assertTrue(charSet.contains(0xFFFF));
+            assertFalse(charSet.contains(0x1F600));
+            assertTrue(charSet.contains(0x1F650));
+            assertTrue(charSet.contains(Character.MAX_CODE_POINT));
+        }
+
+        @Test
+        void supplementaryCodePointMatchesWholeSurrogatePair() {
+            Map<String, Clause> rules = MetaGrammar.parseGrammar("S <- [😀-🙏]+ ;");
+            ParseResult parseResult = new Parser(Grammar.compile(rules, "S"), "😀🙏", TestUtils.OPTIONS).parse();
+            assertFalse(parseResult.hasSyntaxErrors());
+            assertEquals(4, parseResult.root().len());
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.parser.Utf8Input;
+
+/**
+ * Compiled engine tests: the compiled engine must give the same parse trees, ASTs and syntax
+ * errors as the interpreter. (The whole test suite is also run with the compiled engine as the
+ * default engine, see pom.xml.)
+ */
+class CompiledEngineTest {
+    private static final ParserOptions INTERPRETER = TestUtils.OPTIONS.withEngine(ParserOptions.Engine.INTERPRETER);
+    private static final ParserOptions COMPILED = TestUtils.OPTIONS.withEngine(ParserOptions.Engine.COMPILED);
+
+    private static final String EXPR_GRAMMAR = """
+        Program <- (Stmt ';' WS)*;
+        Stmt <- Ident WS '=' WS Expression;
+        Expression <- Sum;
+        Sum <- Sum WS Op WS Term / Term;
+        Op <- '+' / '-' / [*/];
+        Term <- '(' WS Expression WS ')' / Ident / Digits / "null";
+        Ident <- Letter (Letter / Digit)*;
+        Letter <- [a-z];
+        Digit <- [0-9];
+        Digits <- Digit+;
+        ~WS <- (' ' / '\\n')*;
+        """;
+
+    private static void assertSameAsInterpreter(Grammar grammar, String input, ParserOptions options) {
+        assertSameParse(grammar, input, options.withEngine(ParserOptions.Engine.INTERPRETER),
+                        options.withEngine(ParserOptions.Engine.COMPILED));
+    }
+
+    @Test
+    void compiledEngineParsesTheSame() {
+        Grammar expr = Grammar.compile(EXPR_GRAMMAR, "Program");
+        for (String input : List.of("x = 1;", "a = (b + 2) * c;\nd = a - null;", "x = 1 +;", "x = (1;", "")) {
+            assertSameAsInterpreter(expr, input, INTERPRETER);
+        }
+        Grammar json = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        for (String input : List.of(BenchmarkInputs.json(5), "{\"a\": [1, 2,, 3]}", "[tru]")) {
+            assertSameAsInterpreter(json, input, INTERPRETER);
+        }
+        Grammar statements = Grammar.compile(BenchmarkInputs.STATEMENT_GRAMMAR, "Program");
+        for (String input : List.of("if (x) { y = 1; }\nreturn y;", "while (n { n = n - 1; }")) {
+            assertSameAsInterpreter(statements, input, INTERPRETER);
+        }
+    }
+
+    @Test
+    void lazyTreeAndCompactTree() {
+        Grammar json = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        String input = BenchmarkInputs.json(3);
+        assertSameAsInterpreter(json, input, INTERPRETER.withLazyTree(true));
+        assertSameAsInterpreter(json, input, INTERPRETER.withCompactTree(true));
+    }
+
+    @Test
+    void cutCommitsToAlternative() {
+        Grammar grammar = Grammar.compile("S <- 'a' ^ 'b' / 'a' 'c';", "S");
+        assertTrue(grammar.parse("ac", COMPILED).hasSyntaxErrors());
+        assertFalse(grammar.parse("ab", COMPILED).hasSyntaxErrors());
+    }
+
+    @Test
+    void cutIsScopedToReferencedRule() {
+        // The Seq of the first alternative matches A directly, skipping the Ref, so it must not let
+        // A's cut escape into S
+        Grammar grammar = Grammar.compile("""
+            S <- (A 'x') / 'a' 'c';
+            A <- 'a' ^ 'b';
+            """, "S");
+        assertFalse(grammar.parse("ac", COMPILED).hasSyntaxErrors());
+        assertSameAsInterpreter(grammar, "ac", INTERPRETER);
+        assertSameAsInterpreter(grammar, "abx", INTERPRETER);
+        Grammar alternative = Grammar.compile("""
+            S <- A / B 'c';
+            A <- 'a' ^ 'b';
+            B <- 'a';
+            """, "S");
+        assertFalse(alternative.parse("ac", COMPILED).hasSyntaxErrors());
+        assertSameAsInterpreter(alternative, "ac", INTERPRETER);
+    }
+
+    @Test
+    void literalsInUtf8Input() {
+        Grammar grammar = Grammar.compile("S <- \"é\" 'x' \"😀\";", "S");
+        String input = "éx😀";
+        ParseResult result = grammar.parse(Utf8Input.of(input), COMPILED);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(grammar.parse(Utf8Input.of(input), INTERPRETER).root().len(), result.root().len());
+    }
+
+    @Test
+    void reparseWithCompiledEngine() {
+        Grammar expr = Grammar.compile(EXPR_GRAMMAR, "Program");
+        Parser parser = expr.newParser("x = 1;", COMPILED);
+        assertFalse(parser.parse().hasSyntaxErrors());
+        parser.applyEdit(5, 0, " + y");
+        ParseResult reparsed = parser.reparse();
+        assertFalse(reparsed.hasSyntaxErrors());
+        assertEquals(10, reparsed.root().len());
+    }
+
+    @Test
+    void grammarIsCompiledOnce() {
+        Grammar expr = Grammar.compile(EXPR_GRAMMAR, "Program");
+        // Both parses, and the grammar with another top rule, share the generated matcher
+        assertFalse(expr.parse("x = 1;", COMPILED).hasSyntaxErrors());
+        assertFalse(expr.parse("y = 2;", COMPILED).hasSyntaxErrors());
+        assertFalse(expr.withTopRule("Stmt").parse("z = 3", COMPILED).hasSyntaxErrors());
+    }
+}
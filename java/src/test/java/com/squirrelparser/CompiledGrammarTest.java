@@ -0,0 +1,215 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.Str;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MatchResult;
+import com.squirrelparser.parser.MetaGrammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.tree.ASTBuilder;
+import com.squirrelparser.tree.ASTNode;
+
+/**
+ * Compiled grammar tests: reuse, caching, and sharing between threads.
+ */
+class CompiledGrammarTest {
+
+    private static final String GRAMMAR = """
+        Sum <- Sum '+' Num / Num;
+        Num <- [0-9]+;
+        ~WS <- ' '*;
+        """;
+
+    @Test
+    void compiledGrammarStripsTransparentPrefix() {
+        Grammar grammar = Grammar.compile(GRAMMAR, "Sum");
+        assertTrue(grammar.rules().containsKey("WS"));
+        assertFalse(grammar.rules().containsKey("~WS"));
+        assertEquals(Set.of("WS"), grammar.transparentRules());
+        assertEquals("Sum", grammar.topRuleName());
+    }
+
+    @Test
+    void clauseIndicesAreDense() {
+        Grammar grammar = Grammar.compile(GRAMMAR, "Sum");
+        for (int i = 0; i < grammar.allClauses().size(); i++) {
+            assertEquals(i, grammar.allClauses().get(i).clauseIdx());
+        }
+    }
+
+    @Test
+    void compiledGrammarIsReusable() {
+        Grammar grammar = Grammar.compile(GRAMMAR, "Sum");
+        for (String input : List.of("1", "1+2", "10+20+30")) {
+            ParseResult result = grammar.parse(input, TestUtils.OPTIONS);
+            assertFalse(result.hasSyntaxErrors());
+            assertEquals(input.length(), result.root().len());
+        }
+        assertTrue(grammar.parse("1+", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void withTopRuleSharesCompiledState() {
+        Grammar grammar = Grammar.compile(GRAMMAR, "Sum");
+        Grammar numGrammar = grammar.withTopRule("Num");
+        assertSame(grammar.rules(), numGrammar.rules());
+        assertSame(grammar.allClauses(), numGrammar.allClauses());
+        assertEquals(3, numGrammar.parse("123", TestUtils.OPTIONS).root().len());
+        assertSame(grammar, grammar.withTopRule("Sum"));
+    }
+
+    @Test
+    void missingTopRuleThrows() {
+        Grammar grammar = Grammar.compile(GRAMMAR, "Missing");
+        assertThrows(IllegalArgumentException.class, () -> grammar.parse("1", TestUtils.OPTIONS));
+    }
+
+    @Test
+    void grammarCacheReturnsSameInstance() {
+        Grammar first = SquirrelParser.compileGrammar(GRAMMAR);
+        Grammar second = SquirrelParser.compileGrammar(GRAMMAR);
+        assertSame(first, second);
+    }
+
+    @Test
+    void refsAreResolvedAtCompileTime() {
+        Grammar grammar = Grammar.compile(GRAMMAR, "Sum");
+        for (Clause clause : grammar.allClauses()) {
+            if (clause instanceof Ref ref) {
+                assertSame(grammar.rules().get(ref.ruleName()), ref.target());
+            }
+        }
+        grammar.rules().forEach((ruleName, clause) -> assertEquals(ruleName, clause.ownerRule()));
+    }
+
+    @Test
+    void ruleMatchesAreNotWrapped() {
+        Grammar grammar = Grammar.compile("""
+            Sum <- Sum '+' Num / Num;
+            Num <- Digits;
+            Digits <- [0-9]+;
+            """, "Sum");
+        String input = "1+2";
+        ParseResult result = grammar.parse(input, TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        // Only the alias rule Num (Num <- Digits) gets a match of a Ref
+        assertEquals(2, countRefMatches(result.root()));
+        // The AST still has a node per rule
+        assertEquals("Sum(Sum(Num(Digits(<Terminal>))),<Terminal>,Num(Digits(<Terminal>)))",
+                     labels(ASTBuilder.buildAST(result)));
+    }
+
+    private static String labels(ASTNode node) {
+        return node.children().isEmpty() ? node.label()
+            : node.label() + node.children().stream().map(CompiledGrammarTest::labels).collect(Collectors.joining(",", "(", ")"));
+    }
+
+    private static int countRefMatches(MatchResult result) {
+        int count = result.clause() instanceof Ref ? 1 : 0;
+        for (MatchResult child : result.subClauseMatches()) {
+            count += countRefMatches(child);
+        }
+        return count;
+    }
+
+    @Test
+    void compilingDoesNotModifyTheRuleMap() {
+        Map<String, Clause> rules = MetaGrammar.parseGrammar(GRAMMAR);
+        Grammar grammar = Grammar.compile(rules, "Sum");
+        for (Clause clause : rules.values()) {
+            assertEquals(-1, clause.clauseIdx());
+            assertNull(clause.ownerRule());
+        }
+        // The same clauses compiled into a second grammar with other rules don't renumber the first
+        Map<String, Clause> moreRules = new HashMap<>(rules);
+        moreRules.put("Pair", new Seq(List.of(new Ref("Num"), new Str(","), new Ref("Num"))));
+        Grammar second = Grammar.compile(moreRules, "Pair");
+        assertEquals(3, second.parse("1,2", TestUtils.OPTIONS).root().len());
+        for (int i = 0; i < grammar.allClauses().size(); i++) {
+            assertEquals(i, grammar.allClauses().get(i).clauseIdx());
+        }
+        assertEquals(5, grammar.parse("1+2+3", TestUtils.OPTIONS).root().len());
+    }
+
+    @Test
+    void rulesMayShareAClauseInstance() {
+        // A and B are the same clause instance
+        Clause digits = MetaGrammar.parseGrammar("A <- [0-9]+;").get("A");
+        Map<String, Clause> rules = Map.of(
+            "S", new Seq(List.of(new Ref("A"), new Str(","), new Ref("B"))),
+            "A", digits,
+            "B", digits);
+        Grammar grammar = Grammar.compile(rules, "S");
+        assertEquals("A", grammar.rules().get("A").ownerRule());
+        assertEquals("B", grammar.rules().get("B").ownerRule());
+
+        ParseResult result = grammar.parse("1,2", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals("S(A(<Terminal>),<Terminal>,B(<Terminal>))", labels(ASTBuilder.buildAST(result)));
+    }
+
+    @Test
+    void parsersFromTheSameRuleMapInParallel() throws Exception {
+        Map<String, Clause> rules = MetaGrammar.parseGrammar(GRAMMAR);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 64; t++) {
+                String input = "1" + "+1".repeat(t + 1);
+                futures.add(executor.submit(() -> {
+                    ParseResult result = new Parser(Grammar.compile(rules, "Sum"), input, TestUtils.OPTIONS).parse();
+                    return result.hasSyntaxErrors() ? -1 : result.root().len();
+                }));
+            }
+            for (int t = 0; t < futures.size(); t++) {
+                assertEquals(1 + 2 * (t + 1), futures.get(t).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void compiledGrammarIsThreadSafe() throws Exception {
+        Grammar grammar = Grammar.compile(GRAMMAR, "Sum");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 64; t++) {
+                int n = t + 1;
+                futures.add(executor.submit(() -> {
+                    String input = "1" + "+1".repeat(n);
+                    ParseResult result = grammar.parse(input, TestUtils.OPTIONS);
+                    return result.hasSyntaxErrors() ? -1 : result.root().len();
+                }));
+            }
+            for (int t = 0; t < futures.size(); t++) {
+                assertEquals(1 + 2 * (t + 1), futures.get(t).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
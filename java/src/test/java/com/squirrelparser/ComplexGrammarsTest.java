@@ -9,6 +9,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -27,25 +28,25 @@ class ComplexGrammarsTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Expr", "42");
+        Parser parser = new Parser(Grammar.compile(rules, "Expr"), "42", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(2, result.len());
 
-        parser = new Parser(rules, "Expr", "1+2");
+        parser = new Parser(Grammar.compile(rules, "Expr"), "1+2", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
         assertEquals(3, result.len());
 
-        parser = new Parser(rules, "Expr", "1+2*3");
+        parser = new Parser(Grammar.compile(rules, "Expr"), "1+2*3", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
         assertEquals(5, result.len());
 
-        parser = new Parser(rules, "Expr", "(1+2)*3");
+        parser = new Parser(Grammar.compile(rules, "Expr"), "(1+2)*3", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -61,17 +62,17 @@ class ComplexGrammarsTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Ident", "foo");
+        Parser parser = new Parser(Grammar.compile(rules, "Ident"), "foo", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // Use matchRule for negative test to avoid recovery
-        parser = new Parser(rules, "Ident", "if");
+        parser = new Parser(Grammar.compile(rules, "Ident"), "if", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Ident", 0);
         assertTrue(matchResult.isMismatch()); // 'if' is a keyword
 
-        parser = new Parser(rules, "Ident", "iffy");
+        parser = new Parser(Grammar.compile(rules, "Ident"), "iffy", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result); // 'iffy' is not a keyword
@@ -91,22 +92,22 @@ class ComplexGrammarsTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Value", "{}");
+        Parser parser = new Parser(Grammar.compile(rules, "Value"), "{}", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Value", "[]");
+        parser = new Parser(Grammar.compile(rules, "Value"), "[]", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Value", "\"hello\"");
+        parser = new Parser(Grammar.compile(rules, "Value"), "\"hello\"", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Value", "123");
+        parser = new Parser(Grammar.compile(rules, "Value"), "123", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -121,17 +122,17 @@ class ComplexGrammarsTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Main", "helloworld");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "helloworld", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Main", "  hello   world  ");
+        parser = new Parser(Grammar.compile(rules, "Main"), "  hello   world  ", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Main", "hello\n\tworld");
+        parser = new Parser(Grammar.compile(rules, "Main"), "hello\n\tworld", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -148,7 +149,7 @@ class ComplexGrammarsTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
         assertTrue(rules.containsKey("Main"));
 
-        Parser parser = new Parser(rules, "Main", "test");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "test", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
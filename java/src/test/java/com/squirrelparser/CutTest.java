@@ -0,0 +1,124 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.Cut;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MetaGrammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.tree.ASTBuilder;
+import com.squirrelparser.tree.ASTNode;
+
+/**
+ * Cut operator tests: syntax, ordered choice semantics, and memo eviction.
+ */
+class CutTest {
+
+    @Test
+    void cutIsParsedByMetaGrammar() {
+        var rules = MetaGrammar.parseGrammar("S <- 'a' ^ 'b';");
+        var seq = assertInstanceOf(Seq.class, rules.get("S"));
+        assertInstanceOf(Cut.class, seq.subClauses().get(1));
+    }
+
+    @Test
+    void cutMatchesEmpty() {
+        ParseResult result = Grammar.compile("S <- 'a' ^ 'b';", "S").parse("ab", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(2, result.root().len());
+    }
+
+    @Test
+    void withoutCutChoiceBacktracks() {
+        ParseResult result = Grammar.compile("S <- 'a' 'b' / 'a' 'c';", "S").parse("ac", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+    }
+
+    @Test
+    void cutPreventsTryingLaterAlternatives() {
+        ParseResult result = Grammar.compile("S <- 'a' ^ 'b' / 'a' 'c';", "S").parse("ac", TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+    }
+
+    @Test
+    void failureBeforeCutStillBacktracks() {
+        ParseResult result = Grammar.compile("S <- 'x' ^ 'b' / 'a' 'c';", "S").parse("ac", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+    }
+
+    @Test
+    void cutInNestedSequenceCutsEnclosingChoice() {
+        ParseResult result = Grammar.compile("S <- ('a' ^) 'b' / 'a' 'c';", "S").parse("ac", TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+    }
+
+    @Test
+    void cutIsScopedToItsRule() {
+        ParseResult result = Grammar.compile("""
+            S <- A / 'a' 'c';
+            A <- 'a' ^ 'b';
+            """, "S").parse("ac", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+    }
+
+    @Test
+    void cutInsideLookaheadDoesNotCutChoice() {
+        ParseResult result = Grammar.compile("S <- &('a' ^ 'b') 'a' 'b' / 'a' 'c';", "S").parse("ac", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+    }
+
+    @Test
+    void cutDoesNotAppearInAST() {
+        var grammar = Grammar.compile("""
+            S <- (R ^)*;
+            R <- 'a' 'b';
+            """, "S");
+        ASTNode ast = ASTBuilder.buildAST(grammar.parse("abab", TestUtils.OPTIONS));
+        assertEquals(2, ast.children().size());
+        assertTrue(ast.children().stream().allMatch(c -> c.label().equals("R")));
+    }
+
+    @Test
+    void cutEvictsEarlierMemoEntries() {
+        String grammarSpec = """
+            Doc <- (Record ^)*;
+            @memo Record <- [a-z]+ ';';
+            """;
+        String noCutGrammarSpec = grammarSpec.replace(" ^", "");
+        String input = "abcdefgh;".repeat(20000);
+
+        Parser cutParser = new Parser(Grammar.compile(grammarSpec, "Doc"), input, TestUtils.OPTIONS);
+        ParseResult cutResult = cutParser.parse();
+        Parser noCutParser = new Parser(Grammar.compile(noCutGrammarSpec, "Doc"), input, TestUtils.OPTIONS);
+        ParseResult noCutResult = noCutParser.parse();
+
+        assertFalse(cutResult.hasSyntaxErrors());
+        assertEquals(input.length(), cutResult.root().len());
+        assertFalse(noCutResult.hasSyntaxErrors());
+
+        // Memo table size is bounded by the records since the last eviction, not the whole input
+        assertTrue(cutParser.memoTable().size() < 5000,
+            "Memo table should be bounded, got " + cutParser.memoTable().size());
+        assertTrue(noCutParser.memoTable().size() >= 20000,
+            "Memo table without cut should grow with input, got " + noCutParser.memoTable().size());
+    }
+
+    @Test
+    void cutWithRecoveryStillRecovers() {
+        var grammar = Grammar.compile("""
+            Doc <- (Record ^)*;
+            Record <- [a-z]+ ';';
+            """, "Doc");
+        String input = "abc;def;12;ghi;".repeat(100);
+        ParseResult result = grammar.parse(input, TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+        assertEquals(100, result.getSyntaxErrors().size());
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -25,7 +26,7 @@ class EmptyParenthesesTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
         assertTrue(rules.containsKey("Empty"));
 
-        Parser parser = new Parser(rules, "Empty", "");
+        Parser parser = new Parser(Grammar.compile(rules, "Empty"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -39,7 +40,7 @@ class EmptyParenthesesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "AB", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "AB"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -53,7 +54,7 @@ class EmptyParenthesesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Parens", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Parens"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -67,7 +68,7 @@ class EmptyParenthesesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Nested", "");
+        Parser parser = new Parser(Grammar.compile(rules, "Nested"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -81,7 +82,7 @@ class EmptyParenthesesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Opt", "test");
+        Parser parser = new Parser(Grammar.compile(rules, "Opt"), "test", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -97,14 +98,14 @@ class EmptyParenthesesTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Should match 'a'
-        Parser parser1 = new Parser(rules, "Choice", "a");
+        Parser parser1 = new Parser(Grammar.compile(rules, "Choice"), "a", TestUtils.OPTIONS);
         ParseResult parseResult1 = parser1.parse();
         MatchResult result1 = parseResult1.root();
         assertNotNull(result1);
         assertEquals(1, result1.len());
 
         // Should match empty string
-        Parser parser2 = new Parser(rules, "Choice", "");
+        Parser parser2 = new Parser(Grammar.compile(rules, "Choice"), "", TestUtils.OPTIONS);
         ParseResult parseResult2 = parser2.parse();
         MatchResult result2 = parseResult2.root();
         assertNotNull(result2);
@@ -119,7 +120,7 @@ class EmptyParenthesesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "A", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "A"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
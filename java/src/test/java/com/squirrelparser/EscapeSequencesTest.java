@@ -8,6 +8,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -22,7 +23,7 @@ class EscapeSequencesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Newline", "\n");
+        Parser parser = new Parser(Grammar.compile(rules, "Newline"), "\n", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -36,7 +37,7 @@ class EscapeSequencesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Tab", "\t");
+        Parser parser = new Parser(Grammar.compile(rules, "Tab"), "\t", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -50,7 +51,7 @@ class EscapeSequencesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Backslash", "\\");
+        Parser parser = new Parser(Grammar.compile(rules, "Backslash"), "\\", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -66,12 +67,12 @@ class EscapeSequencesTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "DoubleQuote", "\"");
+        Parser parser = new Parser(Grammar.compile(rules, "DoubleQuote"), "\"", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "SingleQuote", "'");
+        parser = new Parser(Grammar.compile(rules, "SingleQuote"), "'", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -84,7 +85,7 @@ class EscapeSequencesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Message", "Hello\nWorld");
+        Parser parser = new Parser(Grammar.compile(rules, "Message"), "Hello\nWorld", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -0,0 +1,51 @@
+package com.squirrelparser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+
+/**
+ * Failure path benchmark: a grammar in which most attempts fail (see
+ * {@link BenchmarkInputs#STATEMENT_GRAMMAR}). Failed attempts of Seq, First and Repetition should
+ * allocate nothing, so gc.alloc.rate.norm should track the size of the parse tree and memo table,
+ * not the number of attempts.
+ *
+ * <p>Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=FailurePath
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--enable-preview"})
+public class FailurePathBenchmark {
+    @Param({"20000"})
+    int numStatements;
+
+    Grammar grammar;
+    String input;
+
+    @Setup
+    public void setUp() {
+        grammar = Grammar.compile(BenchmarkInputs.STATEMENT_GRAMMAR, "Program");
+        input = BenchmarkInputs.statements(numStatements);
+    }
+
+    @Benchmark
+    public ParseResult parseStatements() {
+        return grammar.parse(input);
+    }
+}
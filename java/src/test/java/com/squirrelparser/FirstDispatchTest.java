@@ -0,0 +1,113 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.parser.FirstSet;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Utf8Input;
+
+/**
+ * FIRST set and First dispatch tests: skipping alternatives by the next character must not change
+ * which alternative matches.
+ */
+class FirstDispatchTest {
+    private static final Grammar JSON = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+
+    private static FirstSet firstSet(Grammar grammar, String ruleName) {
+        return grammar.analysis().firstSet(grammar.rules().get(ruleName));
+    }
+
+    @Test
+    void firstSetsOfJsonGrammar() {
+        FirstSet value = firstSet(JSON, "Value");
+        for (char c : "{[\"-0123456789tfn".toCharArray()) {
+            assertTrue(value.contains(c), "Value can start with " + c);
+        }
+        for (char c : " ]}x,:".toCharArray()) {
+            assertFalse(value.contains(c), "Value can't start with " + c);
+        }
+        // [^"\\] is inverted, so everything but those two characters
+        FirstSet character = firstSet(JSON, "Character");
+        assertTrue(character.contains('a') && character.contains('\\') && character.contains(0x1F600));
+        assertFalse(character.contains('"'));
+        // WS is nullable, so JSON can start with a space or any character of Value
+        assertTrue(firstSet(JSON, "JSON").contains(' ') && firstSet(JSON, "JSON").contains('{'));
+    }
+
+    @Test
+    void dispatchKeepsOrderedChoice() {
+        // "a" wins over "ab", so the rest of the input is unmatched
+        Grammar grammar = Grammar.compile("S <- (\"a\" / \"ab\" / \"b\") !.;", "S");
+        assertTrue(grammar.parse("ab", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertFalse(grammar.parse("b", TestUtils.OPTIONS).hasSyntaxErrors());
+        // A nullable alternative is always tried, in its place
+        Grammar optional = Grammar.compile("S <- \"x\" / \"y\"? / \"z\";", "S");
+        ParseResult result = optional.parse("z", TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+        assertEquals(0, result.root().len());
+    }
+
+    @Test
+    void dispatchKeepsCutsBeforeInput() {
+        // The first alternative passes the cut on "x" before failing, which fails the whole choice
+        Grammar grammar = Grammar.compile("S <- A; A <- '-'? ^ [0-9]+ / [a-z]+;", "S");
+        assertTrue(grammar.analysis().canCutAtStart(((First) grammar.rules().get("A")).subClauses().getFirst()));
+        assertTrue(grammar.parse("x", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertFalse(grammar.parse("-12", TestUtils.OPTIONS).hasSyntaxErrors());
+        Grammar lookahead = Grammar.compile("S <- A; A <- &'x' ^ 'y' / [a-z]+;", "S");
+        assertTrue(lookahead.parse("x", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertFalse(lookahead.parse("z", TestUtils.OPTIONS).hasSyntaxErrors());
+        // A cut after input has been consumed is only reached if the first character matches
+        Grammar consumed = Grammar.compile("S <- A; A <- '-' ^ [0-9]+ / [a-z]+;", "S");
+        assertFalse(consumed.analysis().canCutAtStart(((First) consumed.rules().get("A")).subClauses().getFirst()));
+        assertTrue(((First) consumed.rules().get("A")).hasDispatch());
+        assertFalse(consumed.parse("x", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertTrue(consumed.parse("-x", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void jsonParsesWithDispatch() {
+        String input = BenchmarkInputs.json(50);
+        ParseResult result = JSON.parse(input, TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.length(), result.root().len());
+    }
+
+    @Test
+    void dispatchOnNonAsciiAndUtf8Input() {
+        Grammar grammar = Grammar.compile("""
+            S <- Item+;
+            Item <- "é" / "ü" / [α-ω] / "😀" / [a-z];
+            """, "S");
+        String input = "aéüβ😀z";
+        ParseResult utf16 = grammar.parse(input, TestUtils.OPTIONS);
+        assertFalse(utf16.hasSyntaxErrors());
+        assertEquals(6, utf16.root().subClauseMatches().size());
+        ParseResult utf8 = grammar.parse(Utf8Input.of(input), TestUtils.OPTIONS);
+        assertFalse(utf8.hasSyntaxErrors());
+        assertEquals(6, utf8.root().subClauseMatches().size());
+    }
+
+    @Test
+    void recoveryTriesAllAlternatives() {
+        // 'Z' rules out both alternatives in the discovery phase, but in the recovery phase the
+        // Seq alternative recovers by skipping it
+        ParseResult result = Grammar.compile("S <- \"x\" \"y\" / \"q\";", "S").parse("Zxy", TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+        assertEquals(3, result.root().len());
+        assertEquals(1, result.getSyntaxErrors().size());
+    }
+
+    @Test
+    void unknownFirstSetIsNotSkipped() {
+        Grammar grammar = Grammar.compile("S <- \"a\" / . ;", "S");
+        assertTrue(firstSet(grammar, "S").isAny());
+        assertFalse(grammar.parse("%", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+}
@@ -128,7 +128,7 @@ class Fix5Fix6Test {
 
     @Test
     void F6_05_EOF_del_ok() {
-        var parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ab");
+        var parseResult = TestUtils.parsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ab");
         var root = parseResult.root();
         assertFalse(root.isMismatch(), "should succeed with recovery");
         assertEquals(1, countDeletions(List.of(root)), "should have 1 deletion");
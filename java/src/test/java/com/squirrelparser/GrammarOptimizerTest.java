@@ -0,0 +1,119 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.First;
+import com.squirrelparser.clause.nonterminal.Ref;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.GrammarOptimizer;
+import com.squirrelparser.parser.MetaGrammar;
+
+/**
+ * Grammar optimizer tests: the optimized grammar must give the same parse trees, ASTs and syntax
+ * errors as the grammar as written.
+ */
+class GrammarOptimizerTest {
+    private static final String EXPR_GRAMMAR = """
+        Program <- (Stmt ';' WS)*;
+        Stmt <- Ident WS '=' WS Expression;
+        Expression <- Sum;
+        Sum <- Sum WS Op WS Term / Term;
+        Op <- '+' / '-' / [*/];
+        Term <- '(' WS Expression WS ')' / Ident / Digits;
+        Ident <- Letter (Letter / Digit)*;
+        Letter <- [a-z];
+        Digit <- [0-9];
+        Digits <- Digit+;
+        ~WS <- (' ' / '\\n')*;
+        """;
+
+    private static void assertSameAsWritten(String grammarSpec, String topRule, String input) {
+        Grammar asWritten = Grammar.compile(MetaGrammar.parseGrammar(grammarSpec), topRule);
+        Grammar optimized = Grammar.compile(grammarSpec, topRule);
+        assertSameParse(asWritten.parse(input, TestUtils.OPTIONS), optimized.parse(input, TestUtils.OPTIONS));
+    }
+
+    @Test
+    void optimizedGrammarParsesTheSame() {
+        for (String input : List.of("x = 1;", "a = (b + 2) * c;\nd = a - 10;", "x = 1 +;", "x = (1;", "x y = 1;", "")) {
+            assertSameAsWritten(EXPR_GRAMMAR, "Program", input);
+        }
+        for (String input : List.of(BenchmarkInputs.json(5), "{\"a\": [1, 2,, 3]}", "[tru]")) {
+            assertSameAsWritten(BenchmarkInputs.JSON_GRAMMAR, "JSON", input);
+        }
+        for (String input : List.of("if (x) { y = 1; }\nreturn y;", "while (n { n = n - 1; }")) {
+            assertSameAsWritten(BenchmarkInputs.STATEMENT_GRAMMAR, "Program", input);
+        }
+    }
+
+    @Test
+    void rewritesAndReportsRemovedClauses() {
+        Map<String, Clause> rules = MetaGrammar.parseGrammar(EXPR_GRAMMAR);
+        GrammarOptimizer.Result result = GrammarOptimizer.optimize(rules);
+        assertTrue(result.numClausesRemoved() > 0, "removed " + result.numClausesRemoved());
+        assertEquals(result.numClausesBefore() - result.numClausesAfter(), result.numClausesRemoved());
+
+        // '+' / '-' / [*/] is kept, since merging it into one CharSet would drop the First node
+        assertTrue(result.rules().get("Op") instanceof First);
+        // A whole-rule Ref (Expression <- Sum) is kept, so the Expression node is kept
+        assertTrue(result.rules().get("Expression") instanceof Ref);
+        // Refs to non-recursive rules are replaced by the rule's clause, and Refs to recursive
+        // rules are kept
+        var stmt = (Seq) result.rules().get("Stmt");
+        assertSame(result.rules().get("Ident"), stmt.subClauses().get(0));
+        assertSame(result.rules().get("~WS"), stmt.subClauses().get(1));
+        assertTrue(stmt.subClauses().get(4) instanceof Ref);
+        var sum = (First) result.rules().get("Sum");
+        assertTrue(((Seq) sum.subClauses().get(0)).subClauses().get(0) instanceof Ref);
+    }
+
+    @Test
+    void givenRulesAreNotModified() {
+        Map<String, Clause> rules = MetaGrammar.parseGrammar(EXPR_GRAMMAR);
+        String before = rules.get("Stmt").toString() + rules.get("Op") + rules.get("Ident");
+        GrammarOptimizer.optimize(rules);
+        assertEquals(before, rules.get("Stmt").toString() + rules.get("Op") + rules.get("Ident"));
+        assertTrue(rules.get("Op") instanceof First);
+    }
+
+    @Test
+    void nestedChoiceIsKept() {
+        String grammarSpec = "S <- (\"if\" / \"in\") / \"do\" / X; X <- 'x';";
+        var s = (First) GrammarOptimizer.optimize(MetaGrammar.parseGrammar(grammarSpec)).rules().get("S");
+        assertEquals(3, s.subClauses().size());
+        assertTrue(s.subClauses().get(0) instanceof First);
+        for (String input : List.of("in", "do", "x", "y")) {
+            assertSameAsWritten(grammarSpec, "S", input);
+        }
+    }
+
+    @Test
+    void refsToRulesWithCutsAreKept() {
+        // Each Ref scopes the cut to its rule, so the enclosing choice or repetition still
+        // backtracks when the rule fails after its cut
+        for (String grammarSpec : List.of(
+                "S <- A / 'a' 'c'; A <- 'a' ^ 'b';",
+                "S <- A? 'a' 'c'; A <- 'a' ^ 'b';",
+                "S <- A* 'a' 'c'; A <- 'a' ^ 'b';",
+                "S <- (A 'x') / 'a' 'c'; A <- 'a' ^ 'b';",
+                "S <- A / 'a' 'c'; A <- ('a' ^) 'b';")) {
+            var s = GrammarOptimizer.optimize(MetaGrammar.parseGrammar(grammarSpec)).rules().get("S");
+            assertTrue(s.toString().contains("A"), grammarSpec);
+            assertFalse(Grammar.compile(grammarSpec, "S").parse("ac", TestUtils.OPTIONS).hasSyntaxErrors(), grammarSpec);
+            for (String input : List.of("ac", "ab", "abx", "ax")) {
+                assertSameAsWritten(grammarSpec, "S", input);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.squirrelparser.parser.CompiledMatcher;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.GrammarSourceGenerator;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.tree.ASTBuilder;
+
+/**
+ * Grammar source generator tests: the generated grammar class must compile, and parse the same
+ * (with its generated matcher) as the grammar compiled at runtime.
+ */
+class GrammarSourceGeneratorTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Generate, compile and load a grammar class.
+     */
+    private Class<?> compileGrammarClass(String grammarSpec, String className, String topRuleName) throws Exception {
+        String source = GrammarSourceGenerator.generate(grammarSpec, className, topRuleName, "test.peg");
+        Path sourceFile = tempDir.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, source);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int exitCode = compiler.run(null, null, null, "--enable-preview", "--release",
+                                    String.valueOf(Runtime.version().feature()), "-d", tempDir.toString(),
+                                    sourceFile.toString());
+        assertEquals(0, exitCode, source);
+        var loader = new URLClassLoader(new URL[]{tempDir.toUri().toURL()}, getClass().getClassLoader());
+        return loader.loadClass(className);
+    }
+
+    /**
+     * Parse each input with the generated class's parse method, which uses the generated matcher,
+     * and with the grammar compiled at runtime and interpreted.
+     */
+    private void assertSameParse(String grammarSpec, String className, String topRuleName, List<String> inputs)
+            throws Exception {
+        Class<?> grammarClass = compileGrammarClass(grammarSpec, className, topRuleName);
+        assertTrue(CompiledMatcher.class.isAssignableFrom(
+            Class.forName(className + "$Matcher", false, grammarClass.getClassLoader())));
+        Grammar compiled = Grammar.compile(grammarSpec, topRuleName);
+        for (String input : inputs) {
+            ParseResult expected = compiled.parse(input, TestUtils.OPTIONS);
+            var actual = (ParseResult) grammarClass.getMethod("parse", CharSequence.class).invoke(null, input);
+            assertEquals(expected.root().toPrettyString(input), actual.root().toPrettyString(input), input);
+            assertEquals(ASTBuilder.buildAST(expected).toPrettyString(input),
+                         ASTBuilder.buildAST(actual).toPrettyString(input), input);
+            assertEquals(expected.getSyntaxErrors().toString(), actual.getSyntaxErrors().toString(), input);
+        }
+    }
+
+    @Test
+    void generatedGrammarParsesTheSame() throws Exception {
+        assertSameParse(BenchmarkInputs.JSON_GRAMMAR, "gen.JsonGrammar", "JSON",
+                        List.of(BenchmarkInputs.json(5), "{\"a\": [1, 2,, 3]}", "[tru]", "[\"é\\n\"]"));
+    }
+
+    @Test
+    void generatedMatcherScopesCuts() throws Exception {
+        assertSameParse("""
+            S <- (A 'x' / A ^ 'y' / 'a' 'c') ';';
+            A <- 'a' ^ 'b';
+            """, "gen.CutGrammar", "S", List.of("abx;", "aby;", "ac;", "abz;", "ab;"));
+    }
+
+    @Test
+    void ruleEnumSelectsTopRule() throws Exception {
+        String grammarSpec = """
+            Sum <- Sum '+' Num / Num;
+            Num <- [0-9]+ "é"? '"'?;
+            ~WS <- ' '*;
+            @memo Unused <- 'x' WS;
+            """;
+        Class<?> grammarClass = compileGrammarClass(grammarSpec, "gen.SumGrammar", null);
+        Class<?> ruleClass = Class.forName("gen.SumGrammar$Rule", true, grammarClass.getClassLoader());
+        List<String> ruleNames = List.of("Num", "Sum", "Unused", "WS");
+        Object[] rules = ruleClass.getEnumConstants();
+        assertEquals(ruleNames, List.of(rules).stream().map(Object::toString).toList());
+        Object sum = rules[1];
+        var result = (ParseResult) grammarClass.getMethod("parse", ruleClass, CharSequence.class)
+            .invoke(null, sum, "1+22+3");
+        assertEquals(6, result.root().len());
+        assertFalse(result.hasSyntaxErrors());
+    }
+
+    @Test
+    void undefinedTopRule() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> GrammarSourceGenerator.generate("A <- 'a';", "gen.A", "B", "test.peg"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.squirrelparser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squirrelparser.BenchmarkInputs.Edit;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+
+/**
+ * Incremental reparsing benchmark: replays an editor keystroke trace against a large JSON
+ * document, comparing applyEdit/reparse with parsing the edited document from scratch after
+ * each keystroke. Each operation is one keystroke. (applyEdit copies the input and rebuilds the
+ * memo table, so both operations grow with the document; the reparse saves the clause matching.)
+ *
+ * <p>Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=IncrementalReparse
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--enable-preview"})
+public class IncrementalReparseBenchmark {
+    @Param({"20000"})
+    int numRecords;
+
+    Grammar grammar;
+    List<Edit> trace;
+    int nextEdit;
+
+    /** The incrementally reparsed parser. */
+    Parser parser;
+
+    /** The current text, for parsing from scratch. */
+    String text;
+
+    @Setup
+    public void setUp() {
+        grammar = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        text = BenchmarkInputs.json(numRecords);
+        trace = BenchmarkInputs.editTrace(text);
+        parser = grammar.newParser(text);
+        parser.parse();
+    }
+
+    private Edit nextEdit() {
+        Edit edit = trace.get(nextEdit);
+        nextEdit = (nextEdit + 1) % trace.size();
+        return edit;
+    }
+
+    @Benchmark
+    public ParseResult reparse() {
+        Edit edit = nextEdit();
+        parser.applyEdit(edit.start(), edit.oldLen(), edit.newText());
+        return parser.reparse();
+    }
+
+    @Benchmark
+    public ParseResult parseFromScratch() {
+        Edit edit = nextEdit();
+        text = text.substring(0, edit.start()) + edit.newText() + text.substring(edit.start() + edit.oldLen());
+        return grammar.parse(text);
+    }
+}
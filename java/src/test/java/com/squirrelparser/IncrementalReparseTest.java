@@ -0,0 +1,165 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.parser.ParserStats;
+import com.squirrelparser.parser.Utf8Input;
+
+/**
+ * Incremental reparsing tests: a reparse after edits must give the same result as parsing the
+ * edited input from scratch.
+ */
+class IncrementalReparseTest {
+    private static final Grammar JSON = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+
+    private static final Grammar EXPR = Grammar.compile("""
+        Program <- (Stmt ';' WS)*;
+        Stmt <- Ident WS '=' WS Expr;
+        Expr <- Expr WS '+' WS Term / Expr WS '-' WS Term / Term;
+        Term <- Term WS '*' WS Factor / Factor;
+        Factor <- '(' WS Expr WS ')' / Ident / [0-9]+;
+        Ident <- !Keyword [a-z]+;
+        Keyword <- "let" ![a-z];
+        ~WS <- ' '*;
+        """, "Program");
+
+    @AfterEach
+    void tearDown() {
+        ParserStats.disable();
+    }
+
+    private static void assertSameAsFreshParse(Grammar grammar, Parser parser, ParseResult reparsed) {
+        assertSameParse(grammar.parse(parser.input().toString(), TestUtils.OPTIONS), reparsed);
+    }
+
+    @Test
+    void reparseMatchesFreshParse() {
+        String input = BenchmarkInputs.json(20);
+        Parser parser = JSON.newParser(input, TestUtils.OPTIONS);
+        parser.parse();
+
+        int start = input.indexOf("\"item");
+        parser.applyEdit(start, 5, "\"renamed item");
+        assertSameAsFreshParse(JSON, parser, parser.reparse());
+        assertTrue(parser.input().toString().contains("\"renamed item \\\"0"));
+    }
+
+    @Test
+    void reparseReusesMemoEntries() {
+        String input = BenchmarkInputs.json(2000);
+        Parser parser = JSON.newParser(input, TestUtils.OPTIONS);
+        ParserStats.enable();
+        parser.parse();
+        int fullParseWork = ParserStats.get().totalWork();
+
+        ParserStats.get().reset();
+        int pos = input.indexOf("\"price\": ", input.length() / 2) + 9;
+        parser.applyEdit(pos, 0, "1");
+        ParseResult result = parser.reparse();
+        assertFalse(result.hasSyntaxErrors());
+        assertTrue(ParserStats.get().totalWork() * 20 < fullParseWork,
+            "Reparse work " + ParserStats.get().totalWork() + " vs full parse " + fullParseWork);
+        assertSameAsFreshParse(JSON, parser, result);
+    }
+
+    @Test
+    void randomEditsMatchFreshParse() {
+        // Edits include ones that introduce and then fix syntax errors, and edits inside
+        // left-recursive expressions
+        String[] snippets = {"a", "1", " ", "+", "*", "(", ")", ";", "x = 2", "let", "b * (c + 1)", ""};
+        Random random = new Random(42);
+        String input = "x = a + b * 2; y = (x - 1) * c; zz = x + y + 3; w = ((a)); v = 1 * 2 * 3;";
+        Parser parser = EXPR.newParser(input, TestUtils.OPTIONS);
+        parser.parse();
+        for (int i = 0; i < 300; i++) {
+            int length = parser.input().length();
+            int start = random.nextInt(length + 1);
+            int oldLen = random.nextInt(Math.min(4, length - start) + 1);
+            parser.applyEdit(start, oldLen, snippets[random.nextInt(snippets.length)]);
+            assertSameAsFreshParse(EXPR, parser, parser.reparse());
+        }
+    }
+
+    @Test
+    void multipleEditsBeforeReparse() {
+        String input = "x = 1; y = 2; z = 3;";
+        Parser parser = EXPR.newParser(input, TestUtils.OPTIONS);
+        parser.parse();
+        parser.applyEdit(4, 1, "10 + 20");
+        parser.applyEdit(parser.input().length() - 2, 1, "a * b");
+        parser.applyEdit(0, 0, "w = 0; ");
+        assertEquals("w = 0; x = 10 + 20; y = 2; z = a * b;", parser.input().toString());
+        assertSameAsFreshParse(EXPR, parser, parser.reparse());
+    }
+
+    @Test
+    void editsOfUtf8InputUseByteOffsets() {
+        Grammar grammar = Grammar.compile("""
+            Words <- Word (' ' Word)*;
+            Word <- [a-zé]+;
+            """, "Words");
+        Parser parser = grammar.newParser(Utf8Input.of("café olé"), TestUtils.OPTIONS);
+        parser.parse();
+        parser.applyEdit(6, 4, "été"); // "café " is 6 bytes, "olé" is 4 bytes
+        assertEquals("café été", parser.input().toString());
+        ParseResult result = parser.reparse();
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(11, result.root().len());
+    }
+
+    private static boolean isInString(String json, int pos) {
+        return json.substring(0, pos).chars().filter(c -> c == '"').count() % 2 == 1;
+    }
+
+    @Test
+    void typingInUtf8InputMatchesFreshParse() {
+        // Enough edits for the memo table to be rebased, and for the edit buffer to grow: letters
+        // in strings are replaced, and syntax errors are inserted and then removed again
+        String[] letters = {"é", "日本", "x", ""};
+        Random random = new Random(7);
+        Parser parser = JSON.newParser(Utf8Input.of(BenchmarkInputs.json(5)), TestUtils.OPTIONS);
+        parser.parse();
+        for (int i = 0; i < 400; i++) {
+            String input = parser.input().toString();
+            int pos = random.nextInt(input.length());
+            while (!Character.isLetter(input.charAt(pos)) || !isInString(input, pos)) {
+                pos = (pos + 1) % input.length();
+            }
+            int start = Utf8Input.encode(input.substring(0, pos)).length();
+            parser.applyEdit(start, Utf8Input.encode(input.substring(pos, pos + 1)).length(),
+                             letters[random.nextInt(letters.length)]);
+            if (i % 8 == 0) {
+                assertSameParse(JSON.parse(Utf8Input.of(parser.input().toString()), TestUtils.OPTIONS), parser.reparse());
+                parser.applyEdit(start, 0, "],");
+                assertSameParse(JSON.parse(Utf8Input.of(parser.input().toString()), TestUtils.OPTIONS), parser.reparse());
+                parser.applyEdit(start, 2, "");
+            }
+        }
+        ParseResult result = parser.reparse();
+        assertFalse(result.hasSyntaxErrors());
+        assertSameParse(JSON.parse(Utf8Input.of(parser.input().toString()), TestUtils.OPTIONS), result);
+    }
+
+    @Test
+    void invalidEditsAreRejected() {
+        Parser parser = EXPR.newParser("x = 1;", TestUtils.OPTIONS);
+        parser.parse();
+        assertThrows(IllegalArgumentException.class, () -> parser.applyEdit(4, 10, ""));
+        Parser offHeapParser = EXPR.newParser("x = 1;",
+            TestUtils.OPTIONS.withMemoBackend(ParserOptions.MemoBackend.OFF_HEAP));
+        assertThrows(IllegalArgumentException.class, () -> offHeapParser.applyEdit(0, 0, "y = 2; "));
+    }
+}
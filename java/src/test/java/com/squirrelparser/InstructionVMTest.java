@@ -0,0 +1,170 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.ParserOptions;
+
+/**
+ * Instruction VM tests: the VM must give the same parse trees, ASTs and syntax errors as the
+ * interpreter, and must parse deeply nested input, with or without syntax errors, on a thread with a
+ * default-sized stack. (The
+ * whole test suite is also run with the VM as the default engine, see pom.xml.)
+ */
+class InstructionVMTest {
+    private static final ParserOptions INTERPRETER = TestUtils.OPTIONS.withEngine(ParserOptions.Engine.INTERPRETER);
+    private static final ParserOptions VM = TestUtils.OPTIONS.withEngine(ParserOptions.Engine.VM);
+
+    private static final String EXPR_GRAMMAR = """
+        Program <- (Stmt ';' WS)*;
+        Stmt <- Ident WS '=' WS Expression;
+        Expression <- Sum;
+        Sum <- Sum WS Op WS Term / Term;
+        Op <- '+' / '-' / [*/];
+        Term <- '(' WS Expression WS ')' / Ident / Digits / "null";
+        Ident <- Letter (Letter / Digit)*;
+        Letter <- [a-z];
+        Digit <- [0-9];
+        Digits <- Digit+;
+        ~WS <- (' ' / '\\n')*;
+        """;
+
+    /** Deep enough to overflow a default-sized thread stack if each level of nesting recursed. */
+    private static final int DEPTH = 200_000;
+
+    private static void assertSameAsInterpreter(Grammar grammar, String input) {
+        assertSameParse(grammar, input, INTERPRETER, VM);
+    }
+
+    @Test
+    void vmParsesTheSame() {
+        Grammar expr = Grammar.compile(EXPR_GRAMMAR, "Program");
+        for (String input : List.of("x = 1;", "a = (b + 2) * c;\nd = a - null;", "x = 1 +;", "x = (1;", "")) {
+            assertSameAsInterpreter(expr, input);
+        }
+        Grammar json = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        for (String input : List.of(BenchmarkInputs.json(5), "{\"a\": [1, 2,, 3]}", "[tru]")) {
+            assertSameAsInterpreter(json, input);
+        }
+        Grammar statements = Grammar.compile(BenchmarkInputs.STATEMENT_GRAMMAR, "Program");
+        for (String input : List.of("if (x) { y = 1; }\nreturn y;", "while (n { n = n - 1; }")) {
+            assertSameAsInterpreter(statements, input);
+        }
+    }
+
+    @Test
+    void lookaheadsOptionalsAndAliases() {
+        Grammar grammar = Grammar.compile("""
+            S <- (Word ' '?)* !.;
+            Word <- &[a-z] Name / Number;
+            Name <- Letters;
+            Letters <- [a-z]+ ('-' [a-z]+)?;
+            Number <- [0-9]+;
+            """, "S");
+        for (String input : List.of("ab cd-ef 12", "ab  cd", "ab-", "")) {
+            assertSameAsInterpreter(grammar, input);
+        }
+    }
+
+    @Test
+    void cutsCommitToAlternative() {
+        Grammar grammar = Grammar.compile("""
+            S <- A / 'a' 'c';
+            A <- 'a' ^ 'b' / 'a' 'd';
+            """, "S");
+        assertFalse(grammar.parse("ab", VM).hasSyntaxErrors());
+        assertFalse(grammar.parse("ac", VM).hasSyntaxErrors());
+        assertTrue(grammar.parse("ad", VM).hasSyntaxErrors());
+        for (String input : List.of("ab", "ac", "ad")) {
+            assertSameAsInterpreter(grammar, input);
+        }
+    }
+
+    @Test
+    void deeplyNestedInputDoesNotOverflowTheStack() {
+        Grammar nested = Grammar.compile("E <- '(' E? ')' / 'x';", "E");
+        String input = "(".repeat(DEPTH) + "x" + ")".repeat(DEPTH);
+        ParseResult result = nested.parse(input, VM);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.length(), result.root().len());
+    }
+
+    @Test
+    void deeplyNestedInputWithSyntaxErrorsDoesNotOverflowTheStack() {
+        Grammar nested = Grammar.compile("E <- '(' E? ')' / 'x';", "E");
+        assertSameAsInterpreter(nested, "(".repeat(20) + "y" + ")".repeat(20));
+        String input = "(".repeat(DEPTH / 2) + "y" + ")".repeat(DEPTH / 2);
+        ParseResult result = nested.parse(input, VM);
+        assertTrue(result.hasSyntaxErrors());
+        assertEquals(1, result.getSyntaxErrors().size());
+        assertEquals(input.length(), result.root().len());
+    }
+
+    @Test
+    void deeplyNestedInputWithEveryMemoBackendAndTreeOption() {
+        Grammar nested = Grammar.compile("E <- '(' E? ')' / 'x';", "E");
+        List<ParserOptions> vmOptions = List.of(
+            VM.withMemoBackend(ParserOptions.MemoBackend.OFF_HEAP),
+            VM.withLazyTree(true),
+            VM.withCompactTree(true),
+            VM.withLazyTree(true).withMemoBackend(ParserOptions.MemoBackend.OFF_HEAP));
+        for (ParserOptions options : vmOptions) {
+            for (String input : List.of("((x))", "((y))", "(x", "")) {
+                assertSameParse(nested, input, INTERPRETER.withLazyTree(options.lazyTree())
+                    .withMemoBackend(options.memoBackend()).withCompactTree(options.compactTree()), options);
+            }
+            String input = "(".repeat(DEPTH / 2) + "x" + ")".repeat(DEPTH / 2);
+            ParseResult result = nested.parse(input, options);
+            assertFalse(result.hasSyntaxErrors(), options.toString());
+            input = "(".repeat(DEPTH / 2) + "y" + ")".repeat(DEPTH / 2);
+            assertEquals(1, nested.parse(input, options).getSyntaxErrors().size(), options.toString());
+        }
+    }
+
+    @Test
+    void recoveryInLongRepetitionsAndChoices() {
+        Grammar expr = Grammar.compile(EXPR_GRAMMAR, "Program");
+        String input = "x = (1 + 2;\n".repeat(10) + "y = 3 + ;\n".repeat(10);
+        assertSameAsInterpreter(expr, input);
+        Grammar json = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        assertSameAsInterpreter(json, "[" + "{\"a\": [1, 2,, 3], \"b\" 4}, ".repeat(10) + "null]");
+    }
+
+    @Test
+    void deeplyNestedJsonDoesNotOverflowTheStack() {
+        Grammar json = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        String input = "[{\"a\": ".repeat(DEPTH / 2) + "1" + "}]".repeat(DEPTH / 2);
+        ParseResult result = json.parse(input, VM);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.length(), result.root().len());
+    }
+
+    @Test
+    void longLeftRecursiveChainDoesNotOverflowTheStack() {
+        Grammar sum = Grammar.compile("Sum <- Sum '+' Num / Num; Num <- [0-9]+;", "Sum");
+        String input = "1" + "+1".repeat(DEPTH);
+        ParseResult result = sum.parse(input, VM);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.length(), result.root().len());
+    }
+
+    @Test
+    void reparseWithVM() {
+        Grammar expr = Grammar.compile(EXPR_GRAMMAR, "Program");
+        Parser parser = expr.newParser("x = 1;", VM);
+        assertFalse(parser.parse().hasSyntaxErrors());
+        parser.applyEdit(5, 0, " + y");
+        ParseResult reparsed = parser.reparse();
+        assertFalse(reparsed.hasSyntaxErrors());
+        assertEquals(10, reparsed.root().len());
+    }
+}
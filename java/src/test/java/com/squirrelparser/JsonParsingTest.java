@@ -1,7 +1,7 @@
 package com.squirrelparser;
 
-import static com.squirrelparser.SquirrelParser.squirrelParseCST;
-import static com.squirrelparser.SquirrelParser.squirrelParsePT;
+import static com.squirrelparser.TestUtils.parseCST;
+import static com.squirrelparser.TestUtils.parsePT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
@@ -202,7 +202,7 @@ class JsonParsingTest {
 
     static ParseJsonResult parseJson(String input, boolean allowErrors) {
         // Parse and get syntax errors using high-level API
-        ParseResult parseResult = squirrelParsePT(JSON_GRAMMAR, "JSON", input);
+        ParseResult parseResult = parsePT(JSON_GRAMMAR, "JSON", input);
 
         List<SyntaxError> syntaxErrors = parseResult.getSyntaxErrors();
         List<String> errorStrings = syntaxErrors.stream()
@@ -292,7 +292,7 @@ class JsonParsingTest {
         }};
 
         try {
-            CSTNode cst = squirrelParseCST(
+            CSTNode cst = parseCST(
                 JSON_GRAMMAR,
                 "JSON",
                 factories,
@@ -0,0 +1,97 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.clause.terminal.Str;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.Utf8Input;
+
+/**
+ * Keyword trie tests: an ordered choice of literals matched with a trie must match the same
+ * alternative as trying the literals in order.
+ */
+class KeywordTrieTest {
+    private static final Grammar KEYWORDS = Grammar.compile("""
+        S <- (Kw ' '*)*;
+        Kw <- "interface" / "int" / "in" / "xor" / 'x' / "in";
+        """, "S");
+
+    @Test
+    void firstListedLiteralWins() {
+        // "i" is listed before "in", and 'x' before "xor", so they win even where the longer
+        // literals would match
+        Grammar grammar = Grammar.compile("S <- (\"i\" / \"in\" / 'x' / \"xor\") !.;", "S");
+        assertTrue(grammar.parse("in", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertTrue(grammar.parse("xor", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertFalse(grammar.parse("i", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertFalse(grammar.parse("x", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void laterShorterLiteralMatchesWhenEarlierLongerFails() {
+        Grammar grammar = Grammar.compile("S <- (\"interface\" / \"int\" / \"in\") ' ';", "S");
+        for (String input : List.of("interface ", "int ", "in ")) {
+            ParseResult result = grammar.parse(input, TestUtils.OPTIONS);
+            assertFalse(result.hasSyntaxErrors(), input);
+            assertEquals(input.length(), result.root().len());
+        }
+        assertTrue(grammar.parse("inter ", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void matchHasLiteralChild() {
+        Grammar grammar = Grammar.compile("S <- \"let\" / \"var\" / \"const\";", "S");
+        ParseResult result = grammar.parse("var", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        var child = result.root().subClauseMatches().get(0);
+        assertEquals("var", ((Str) child.clause()).text());
+        assertEquals(3, child.len());
+    }
+
+    @Test
+    void literalsAtEndOfInput() {
+        Grammar grammar = Grammar.compile("S <- \"ab\" / \"a\" / \"\";", "S");
+        assertEquals(1, grammar.parse("a", TestUtils.OPTIONS).root().len());
+        assertEquals(0, grammar.parse("", TestUtils.OPTIONS).root().len());
+    }
+
+    @Test
+    void utf8InputMatchesEncodedLiterals() {
+        Grammar grammar = Grammar.compile("S <- (\"é\" / \"éa\" / \"ü\" / \"😀\")+;", "S");
+        String input = "éü😀é";
+        ParseResult result = grammar.parse(Utf8Input.of(input), TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.getBytes(StandardCharsets.UTF_8).length, result.root().len());
+    }
+
+    @Test
+    void lazyTreeMatchesFullTree() {
+        String input = "int interface xor x in";
+        ParseResult full = KEYWORDS.parse(input, TestUtils.OPTIONS);
+        assertFalse(full.hasSyntaxErrors());
+        ParseResult lazy = KEYWORDS.parse(input, TestUtils.OPTIONS.withLazyTree(true));
+        assertEquals(full.root().toPrettyString(input), lazy.root().toPrettyString(input));
+    }
+
+    @Test
+    void reparseAfterExtendingLiteral() {
+        // The trie examines the character after "in", so appending to it invalidates the match
+        Grammar grammar = Grammar.compile("S <- (\"interface\" / \"in\") ' '*;", "S");
+        Parser parser = grammar.newParser("in ", TestUtils.OPTIONS);
+        assertEquals(3, parser.parse().root().len());
+        parser.applyEdit(2, 0, "terface");
+        ParseResult reparsed = parser.reparse();
+        assertFalse(reparsed.hasSyntaxErrors());
+        assertEquals(10, reparsed.root().len());
+        assertEquals(9, reparsed.root().subClauseMatches().get(0).len());
+    }
+}
@@ -0,0 +1,86 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.parser.ParserStats;
+
+/**
+ * LR seed invalidation tests: expanding the seed of one left-recursive cycle must not invalidate
+ * the memoized results of the grammar's other cycles at the same position.
+ */
+class LRInvalidationTest {
+    private static final Grammar GRAMMAR = Grammar.compile("""
+        S <- E;
+        E <- E '+' P / P;
+        P <- P '.' I / P '(' ')' / I;
+        I <- [a-z]+;
+        """, "S");
+
+    @AfterEach
+    void tearDown() {
+        ParserStats.disable();
+    }
+
+    private static int lrExpansions(String input) {
+        ParserStats.enable();
+        ParseResult result = GRAMMAR.parse(input, TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors(), input);
+        assertEquals(input.length(), result.root().len(), input);
+        return ParserStats.get().lrExpansions();
+    }
+
+    @Test
+    void otherCycleIsNotReexpanded() {
+        // E matches P at the start in its first and last expansion iterations. The second time, P's
+        // result is still valid, so each '.' costs one expansion of P (invalidating all results at
+        // the position on each expansion of E would expand P twice, so each '.' would cost two).
+        int fewDots = lrExpansions("a" + ".b".repeat(3) + "+c+d");
+        int manyDots = lrExpansions("a" + ".b".repeat(10) + "+c+d");
+        assertEquals(7, manyDots - fewDots);
+    }
+
+    @Test
+    void interleavedCyclesParseTheSameOnBothBackends() {
+        for (String input : new String[]{"a.b().c+d().e+f", "a()()+b.c.d()+e", "a+b+c"}) {
+            ParseResult heap = GRAMMAR.parse(input, TestUtils.OPTIONS);
+            ParseResult offHeap = GRAMMAR.parse(input,
+                TestUtils.OPTIONS.withMemoBackend(ParserOptions.MemoBackend.OFF_HEAP));
+            assertFalse(heap.hasSyntaxErrors(), input);
+            assertEquals(input.length(), heap.root().len(), input);
+            assertEquals(heap.root().toPrettyString(input), offHeap.root().toPrettyString(input), input);
+        }
+    }
+
+    @Test
+    void interleavedCyclesWithRecovery() {
+        // In the recovery phase, seeds are invalidated for all clauses at the position
+        String input = "a.b(+c.d";
+        ParseResult heap = GRAMMAR.parse(input, TestUtils.OPTIONS);
+        ParseResult offHeap = GRAMMAR.parse(input,
+            TestUtils.OPTIONS.withMemoBackend(ParserOptions.MemoBackend.OFF_HEAP));
+        assertTrue(heap.hasSyntaxErrors());
+        assertEquals(heap.root().toPrettyString(input), offHeap.root().toPrettyString(input));
+        assertEquals(heap.getSyntaxErrors().toString(), offHeap.getSyntaxErrors().toString());
+    }
+
+    @Test
+    void reparseAfterEditInsideExpansion() {
+        Parser parser = GRAMMAR.newParser("a.b+c.d", TestUtils.OPTIONS);
+        assertFalse(parser.parse().hasSyntaxErrors());
+        parser.applyEdit(3, 0, "()");
+        ParseResult reparsed = parser.reparse();
+        assertFalse(reparsed.hasSyntaxErrors());
+        assertEquals(9, reparsed.root().len());
+        assertEquals(GRAMMAR.parse("a.b()+c.d", TestUtils.OPTIONS).root().toPrettyString("a.b()+c.d"),
+                     reparsed.root().toPrettyString("a.b()+c.d"));
+    }
+}
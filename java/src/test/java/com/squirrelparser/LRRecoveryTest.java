@@ -81,7 +81,7 @@ class LRRecoveryTest {
     @Test
     void testLRRecovery06UnclosedParen() {
         // Input '(n+n' has unclosed paren
-        var parseResult = SquirrelParser.squirrelParsePT(PRECEDENCE_LR, "S", "(n+n");
+        var parseResult = TestUtils.parsePT(PRECEDENCE_LR, "S", "(n+n");
         var result = parseResult.root();
         // With recovery, should insert missing ')'
         assertFalse(result.isMismatch(), "should succeed with recovery");
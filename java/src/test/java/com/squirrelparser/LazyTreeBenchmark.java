@@ -0,0 +1,55 @@
+package com.squirrelparser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
+
+/**
+ * Lazy parse tree benchmark: parse time and allocation with the parse tree built eagerly, and
+ * rebuilt from lazy matches after the parse.
+ *
+ * <p>Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LazyTree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--enable-preview"})
+public class LazyTreeBenchmark {
+    @Param({"20000"})
+    int numRecords;
+
+    @Param({"false", "true"})
+    boolean lazyTree;
+
+    Grammar grammar;
+    String input;
+    ParserOptions options;
+
+    @Setup
+    public void setUp() {
+        grammar = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        input = BenchmarkInputs.json(numRecords);
+        options = ParserOptions.DEFAULT.withLazyTree(lazyTree);
+    }
+
+    @Benchmark
+    public ParseResult parseJson() {
+        return grammar.parse(input, options);
+    }
+}
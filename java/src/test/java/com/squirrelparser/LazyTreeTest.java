@@ -0,0 +1,84 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.Match;
+import com.squirrelparser.parser.MatchResult;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.tree.ASTBuilder;
+
+/**
+ * Lazy parse tree tests: rebuilding the tree from lazy matches after the parse must give the
+ * same tree as building it eagerly.
+ */
+class LazyTreeTest {
+    private static final ParserOptions LAZY = TestUtils.OPTIONS.withLazyTree(true);
+
+    private static final Grammar EXPR = Grammar.compile("""
+        Program <- (Stmt ';' WS)*;
+        Stmt <- Ident WS '=' WS Expr / "print" WS Expr;
+        Expr <- Expr WS '+' WS Term / Expr WS '-' WS Term / Term;
+        Term <- Term WS '*' WS Factor / Factor;
+        Factor <- '(' WS Expr WS ')' / Ident / [0-9]+;
+        Ident <- !Keyword [a-z]+;
+        Keyword <- "print" ![a-z];
+        ~WS <- ' '*;
+        """, "Program");
+
+    private static void assertSameAsEagerTree(Grammar grammar, String input, ParserOptions lazyOptions) {
+        ParseResult lazy = grammar.parse(input, lazyOptions);
+        assertSameParse(grammar.parse(input, TestUtils.OPTIONS), lazy);
+        assertNoLazyMatches(lazy.root());
+    }
+
+    private static void assertNoLazyMatches(MatchResult result) {
+        assertFalse(result instanceof Match match && match.isLazy(), "Lazy match in tree: " + result);
+        for (MatchResult child : result.subClauseMatches()) {
+            assertNoLazyMatches(child);
+        }
+    }
+
+    @Test
+    void lazyTreeMatchesEagerTree() {
+        assertSameAsEagerTree(EXPR, "x = a + b * 2; print (x - 1) * c; zz = x + y + 3;", LAZY);
+        assertSameAsEagerTree(Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON"), BenchmarkInputs.json(20), LAZY);
+    }
+
+    @Test
+    void lazyTreeWithSyntaxErrors() {
+        // Discovery phase matches that are reused in the recovery phase are rebuilt too
+        assertSameAsEagerTree(EXPR, "x = a + * 2; y = (x + 1 * c; z = 3;", LAZY);
+        assertSameAsEagerTree(EXPR, "x = 1; print print; y = 2;", LAZY);
+    }
+
+    @Test
+    void lazyTreeWithCut() {
+        Grammar grammar = Grammar.compile("""
+            Stmts <- Stmt*;
+            Stmt <- "if" ^ ' ' [a-z]+ ';' / [a-z]+ ';';
+            """, "Stmts");
+        assertSameAsEagerTree(grammar, "if x;abc;if y;d;", LAZY);
+    }
+
+    @Test
+    void lazyTreeWithOffHeapMemoTable() {
+        assertSameAsEagerTree(EXPR, "x = a + b * 2; print (x - 1) * c;",
+            LAZY.withMemoBackend(ParserOptions.MemoBackend.OFF_HEAP));
+    }
+
+    @Test
+    void lazyTreeWithCompactTree() {
+        String input = "x = a + b * 2; print (x - 1) * c;";
+        ParseResult result = EXPR.parse(input, LAZY.withCompactTree(true));
+        assertTrue(result.tree().size() > 1);
+        assertEquals(ASTBuilder.buildAST(EXPR.parse(input, TestUtils.OPTIONS)).toPrettyString(input),
+                     ASTBuilder.buildAST(result).toPrettyString(input));
+    }
+}
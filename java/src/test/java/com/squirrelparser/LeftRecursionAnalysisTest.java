@@ -0,0 +1,107 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.GrammarAnalysis;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.parser.ParserStats;
+
+/**
+ * Left recursion analysis tests: left-recursive cycles and their heads, and parsing of clauses
+ * that are not left-recursive without left recursion handling.
+ */
+class LeftRecursionAnalysisTest {
+    @AfterEach
+    void tearDown() {
+        ParserStats.disable();
+    }
+
+    @Test
+    void separateCyclesAndHeads() {
+        Grammar grammar = Grammar.compile("""
+            S <- E;
+            E <- E '+' P / P;
+            P <- P '.' N / N;
+            N <- [0-9]+;
+            """, "S");
+        GrammarAnalysis analysis = grammar.analysis();
+        assertEquals(2, analysis.numLeftRecursiveCycles());
+        int e = analysis.leftRecursiveCycle(grammar.rules().get("E"));
+        int p = analysis.leftRecursiveCycle(grammar.rules().get("P"));
+        assertTrue(e >= 0 && p >= 0);
+        assertNotEquals(e, p);
+        assertTrue(analysis.isLeftRecursionHead(grammar.rules().get("E")));
+        assertTrue(analysis.isLeftRecursionHead(grammar.rules().get("P")));
+        assertEquals(-1, analysis.leftRecursiveCycle(grammar.rules().get("N")));
+        assertFalse(analysis.isLeftRecursionHead(grammar.rules().get("N")));
+
+        ParseResult result = grammar.parse("1.2+3+4.5.6", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(11, result.root().len());
+    }
+
+    @Test
+    void indirectCycleHasOneHead() {
+        Grammar grammar = Grammar.compile("""
+            S <- A;
+            A <- B 'x' / 'a';
+            B <- C A 'y' / 'b';
+            C <- 'c'?;
+            """, "S");
+        GrammarAnalysis analysis = grammar.analysis();
+        assertEquals(1, analysis.numLeftRecursiveCycles());
+        assertEquals(analysis.leftRecursiveCycle(grammar.rules().get("A")),
+                     analysis.leftRecursiveCycle(grammar.rules().get("B")));
+        // B is only called at the start of A
+        assertTrue(analysis.isLeftRecursionHead(grammar.rules().get("A")));
+        assertFalse(analysis.isLeftRecursionHead(grammar.rules().get("B")));
+        assertFalse(grammar.parse("ayxyx", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void recursionAfterInputIsConsumedEntersCycle() {
+        // The second E is called after '+' is consumed, so E is entered again at a new position
+        Grammar grammar = Grammar.compile("E <- E '+' E / [0-9];", "E");
+        assertTrue(grammar.analysis().isLeftRecursionHead(grammar.rules().get("E")));
+        assertEquals(5, grammar.parse("1+2+3", TestUtils.OPTIONS).root().len());
+    }
+
+    @Test
+    void grammarWithoutLeftRecursion() {
+        Grammar grammar = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        assertEquals(0, grammar.analysis().numLeftRecursiveCycles());
+        String input = BenchmarkInputs.json(5);
+        ParserStats.enable();
+        ParseResult heap = grammar.parse(input, TestUtils.OPTIONS);
+        assertFalse(heap.hasSyntaxErrors());
+        assertEquals(0, ParserStats.get().lrExpansions());
+        ParseResult offHeap = grammar.parse(input,
+            TestUtils.OPTIONS.withMemoBackend(ParserOptions.MemoBackend.OFF_HEAP));
+        assertEquals(heap.root().toPrettyString(input), offHeap.root().toPrettyString(input));
+    }
+
+    @Test
+    void recoveryProbeReentersClauseThatIsNotLeftRecursive() {
+        // In the recovery phase, A+ probes its bound B at the start of S, and B calls S at the
+        // same position, though S is not left-recursive
+        Grammar grammar = Grammar.compile("""
+            S <- A+ B;
+            A <- 'a';
+            B <- S 'x' / 'y';
+            """, "S");
+        assertFalse(grammar.analysis().isLeftRecursive(grammar.rules().get("S")));
+        for (var backend : ParserOptions.MemoBackend.values()) {
+            var options = TestUtils.OPTIONS.withMemoBackend(backend);
+            assertFalse(grammar.parse("aay", options).hasSyntaxErrors());
+            assertTrue(grammar.parse("aazy", options).hasSyntaxErrors());
+        }
+    }
+}
@@ -54,7 +54,7 @@ class LinearityTest {
         for (int size : sizes) {
             ParserStats.get().reset();
             String input = makeInput.apply(size);
-            ParseResult parseResult = SquirrelParser.squirrelParsePT(grammarSpec, topRule, input);
+            ParseResult parseResult = TestUtils.parsePT(grammarSpec, topRule, input);
             MatchResult result = parseResult.root();
 
             int work = ParserStats.get().totalWork();
@@ -17,47 +17,47 @@ class LookaheadTest {
 
         @Test
         void positiveLookaheadSucceedsWhenPatternMatches() {
-            var result = SquirrelParser.squirrelParsePT("Test <- &\"a\" ;", "Test", "abc");
+            var result = TestUtils.parsePT("Test <- &\"a\" ;", "Test", "abc");
             assertFalse(result.root().isMismatch());
             assertEquals(0, result.root().len()); // Lookahead doesn't consume
         }
 
         @Test
         void positiveLookaheadFailsWhenPatternDoesNotMatch() {
-            var result = SquirrelParser.squirrelParsePT("Test <- &\"a\" ;", "Test", "b");
+            var result = TestUtils.parsePT("Test <- &\"a\" ;", "Test", "b");
             assertTrue(result.root() instanceof SyntaxError);
         }
 
         @Test
         void positiveLookaheadInSequence() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" &\"b\" ;", "Test", "abc");
+            var result = TestUtils.parsePT("Test <- \"a\" &\"b\" ;", "Test", "abc");
             assertFalse(result.root().isMismatch());
             assertEquals(1, result.root().len()); // Only 'a' consumed
         }
 
         @Test
         void positiveLookaheadInSequenceFailsWhenNotFollowed() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" &\"b\" ;", "Test", "ac");
+            var result = TestUtils.parsePT("Test <- \"a\" &\"b\" ;", "Test", "ac");
             assertTrue(result.root() instanceof SyntaxError); // Fails because no 'b' after 'a'
         }
 
         @Test
         void positiveLookaheadWithContinuation() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" &\"b\" \"b\" ;", "Test", "abc");
+            var result = TestUtils.parsePT("Test <- \"a\" &\"b\" \"b\" ;", "Test", "abc");
             assertFalse(result.root().isMismatch());
             assertEquals(2, result.root().len()); // 'a' and 'b' consumed
         }
 
         @Test
         void positiveLookaheadAtEndOfInput() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" &\"b\" ;", "Test", "a");
+            var result = TestUtils.parsePT("Test <- \"a\" &\"b\" ;", "Test", "a");
             // With error recovery, this succeeds but has syntax errors
             assertTrue(result.hasSyntaxErrors()); // No 'b' to look ahead to
         }
 
         @Test
         void nestedPositiveLookaheads() {
-            var result = SquirrelParser.squirrelParsePT("Test <- &&\"a\" \"a\" ;", "Test", "a");
+            var result = TestUtils.parsePT("Test <- &&\"a\" \"a\" ;", "Test", "a");
             assertFalse(result.root().isMismatch());
             assertEquals(1, result.root().len());
         }
@@ -68,40 +68,40 @@ class LookaheadTest {
 
         @Test
         void negativeLookaheadSucceedsWhenPatternDoesNotMatch() {
-            var result = SquirrelParser.squirrelParsePT("Test <- !\"a\" ;", "Test", "b");
+            var result = TestUtils.parsePT("Test <- !\"a\" ;", "Test", "b");
             assertFalse(result.root().isMismatch());
             assertEquals(0, result.root().len()); // Lookahead doesn't consume
         }
 
         @Test
         void negativeLookaheadFailsWhenPatternMatches() {
-            var result = SquirrelParser.squirrelParsePT("Test <- !\"a\" ;", "Test", "a");
+            var result = TestUtils.parsePT("Test <- !\"a\" ;", "Test", "a");
             assertTrue(result.root() instanceof SyntaxError);
         }
 
         @Test
         void negativeLookaheadInSequence() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" !\"b\" ;", "Test", "ac");
+            var result = TestUtils.parsePT("Test <- \"a\" !\"b\" ;", "Test", "ac");
             assertFalse(result.root().isMismatch());
             assertEquals(1, result.root().len()); // Only 'a' consumed
         }
 
         @Test
         void negativeLookaheadInSequenceFailsWhenFollowed() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" !\"b\" ;", "Test", "ab");
+            var result = TestUtils.parsePT("Test <- \"a\" !\"b\" ;", "Test", "ab");
             assertTrue(result.root() instanceof SyntaxError); // Fails because 'a' IS followed by 'b'
         }
 
         @Test
         void negativeLookaheadWithContinuation() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" !\"b\" \"c\" ;", "Test", "ac");
+            var result = TestUtils.parsePT("Test <- \"a\" !\"b\" \"c\" ;", "Test", "ac");
             assertFalse(result.root().isMismatch());
             assertEquals(2, result.root().len()); // 'a' and 'c' consumed
         }
 
         @Test
         void negativeLookaheadAtEndOfInput() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" !\"b\" ;", "Test", "a");
+            var result = TestUtils.parsePT("Test <- \"a\" !\"b\" ;", "Test", "a");
             assertFalse(result.root().isMismatch()); // No 'b' following, so succeeds
             assertEquals(1, result.root().len());
         }
@@ -109,7 +109,7 @@ class LookaheadTest {
         @Test
         void nestedNegativeLookaheads() {
             // !!"a" is the same as &"a"
-            var result = SquirrelParser.squirrelParsePT("Test <- !!\"a\" \"a\" ;", "Test", "a");
+            var result = TestUtils.parsePT("Test <- !!\"a\" \"a\" ;", "Test", "a");
             assertFalse(result.root().isMismatch());
             assertEquals(1, result.root().len());
         }
@@ -123,13 +123,13 @@ class LookaheadTest {
             String grammar = "Test <- &[a-z] !\"x\" [a-z] ;";
 
             // Should match any lowercase letter except 'x'
-            var result = SquirrelParser.squirrelParsePT(grammar, "Test", "a");
+            var result = TestUtils.parsePT(grammar, "Test", "a");
             assertFalse(result.root().isMismatch());
 
-            result = SquirrelParser.squirrelParsePT(grammar, "Test", "x");
+            result = TestUtils.parsePT(grammar, "Test", "x");
             assertTrue(result.root() instanceof SyntaxError);
 
-            result = SquirrelParser.squirrelParsePT(grammar, "Test", "A");
+            result = TestUtils.parsePT(grammar, "Test", "A");
             assertTrue(result.root() instanceof SyntaxError);
         }
 
@@ -137,15 +137,15 @@ class LookaheadTest {
         void lookaheadInChoice() {
             String grammar = "Test <- &\"a\" \"a\" / &\"b\" \"b\" ;";
 
-            var result = SquirrelParser.squirrelParsePT(grammar, "Test", "a");
+            var result = TestUtils.parsePT(grammar, "Test", "a");
             assertFalse(result.root().isMismatch());
             assertEquals(1, result.root().len());
 
-            result = SquirrelParser.squirrelParsePT(grammar, "Test", "b");
+            result = TestUtils.parsePT(grammar, "Test", "b");
             assertFalse(result.root().isMismatch());
             assertEquals(1, result.root().len());
 
-            result = SquirrelParser.squirrelParsePT(grammar, "Test", "c");
+            result = TestUtils.parsePT(grammar, "Test", "c");
             assertTrue(result.root() instanceof SyntaxError);
         }
 
@@ -154,12 +154,12 @@ class LookaheadTest {
             String grammar = "Test <- (!\".\" [a-z])* ;";
 
             // Match lowercase letters until '.', then parser has unmatched input
-            var result = SquirrelParser.squirrelParsePT(grammar, "Test", "abc.def");
+            var result = TestUtils.parsePT(grammar, "Test", "abc.def");
             assertFalse(result.root().isMismatch());
             // The grammar itself only matches 'abc', but error recovery captures trailing '.def'
             assertTrue(result.hasSyntaxErrors());
 
-            result = SquirrelParser.squirrelParsePT(grammar, "Test", ".abc");
+            result = TestUtils.parsePT(grammar, "Test", ".abc");
             assertFalse(result.root().isMismatch());
             // With error recovery, unmatched '.abc' is captured as syntax error
             assertTrue(result.hasSyntaxErrors());
@@ -171,7 +171,7 @@ class LookaheadTest {
 
         @Test
         void positiveLookaheadWithRuleReference() {
-            var result = SquirrelParser.squirrelParsePT("""
+            var result = TestUtils.parsePT("""
                 Test <- &Digit Digit ;
                 Digit <- [0-9] ;
             """, "Test", "5");
@@ -186,10 +186,10 @@ class LookaheadTest {
                 Digit <- [0-9] ;
             """;
 
-            var result = SquirrelParser.squirrelParsePT(grammar, "Test", "a");
+            var result = TestUtils.parsePT(grammar, "Test", "a");
             assertFalse(result.root().isMismatch());
 
-            result = SquirrelParser.squirrelParsePT(grammar, "Test", "5");
+            result = TestUtils.parsePT(grammar, "Test", "5");
             assertTrue(result.root() instanceof SyntaxError);
         }
     }
@@ -199,14 +199,14 @@ class LookaheadTest {
 
         @Test
         void lookaheadWithFullInputConsumption() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" &\"b\" \"b\" ;", "Test", "ab");
+            var result = TestUtils.parsePT("Test <- \"a\" &\"b\" \"b\" ;", "Test", "ab");
             assertNotNull(result.root());
             assertEquals(2, result.root().len()); // Both 'a' and 'b' consumed
         }
 
         @Test
         void negativeLookaheadWithFullInputConsumption() {
-            var result = SquirrelParser.squirrelParsePT("Test <- \"a\" !\"b\" \"c\" ;", "Test", "ac");
+            var result = TestUtils.parsePT("Test <- \"a\" !\"b\" \"c\" ;", "Test", "ac");
             assertNotNull(result.root());
             assertEquals(2, result.root().len()); // 'a' and 'c' consumed
         }
@@ -214,7 +214,7 @@ class LookaheadTest {
         @Test
         void identifierParserWithLookaheadValid() {
             // Parse identifiers that don't start with a digit
-            var result = SquirrelParser.squirrelParsePT("""
+            var result = TestUtils.parsePT("""
                 Identifier <- ![0-9] [a-zA-Z0-9_]+ ;
             """, "Identifier", "abc123");
             assertNotNull(result.root());
@@ -224,7 +224,7 @@ class LookaheadTest {
         @Test
         void identifierParserWithLookaheadInvalidStartsWithDigit() {
             // Parse identifiers that don't start with a digit
-            var result = SquirrelParser.squirrelParsePT("""
+            var result = TestUtils.parsePT("""
                 Identifier <- ![0-9] [a-zA-Z0-9_]+ ;
             """, "Identifier", "123abc");
             // With error recovery, this may recover by skipping digits, so check for errors
@@ -239,12 +239,12 @@ class LookaheadTest {
             """;
 
             // Valid keyword (all input consumed)
-            var result = SquirrelParser.squirrelParsePT(grammar, "Keyword", "if");
+            var result = TestUtils.parsePT(grammar, "Keyword", "if");
             assertNotNull(result.root()); // 'if' as keyword
             assertEquals(2, result.root().len());
 
             // Invalid - 'ifx' is not just 'if'
-            result = SquirrelParser.squirrelParsePT(grammar, "Keyword", "ifx");
+            result = TestUtils.parsePT(grammar, "Keyword", "ifx");
             // Total failure: result is SyntaxError spanning entire input
             assertTrue(result.root() instanceof SyntaxError);
         }
@@ -252,7 +252,7 @@ class LookaheadTest {
         @Test
         void commentParserWithLookahead() {
             // Parse // style comments until end of line
-            var result = SquirrelParser.squirrelParsePT("""
+            var result = TestUtils.parsePT("""
                 Comment <- "//" (!'\\n' .)* '\\n' ;
             """, "Comment", "//hello world\n");
             assertNotNull(result.root());
@@ -266,10 +266,10 @@ class LookaheadTest {
                 String <- '"' ("\\\\" . / !'"' .)* '"' ;
             """;
 
-            var result = SquirrelParser.squirrelParsePT(grammar, "String", "\"hello\"");
+            var result = TestUtils.parsePT(grammar, "String", "\"hello\"");
             assertNotNull(result.root());
 
-            result = SquirrelParser.squirrelParsePT(grammar, "String", "\"hello\\\"world\"");
+            result = TestUtils.parsePT(grammar, "String", "\"hello\\\"world\"");
             assertNotNull(result.root());
         }
     }
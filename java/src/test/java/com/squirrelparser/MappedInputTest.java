@@ -0,0 +1,88 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MappedInput;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.tree.ASTBuilder;
+import com.squirrelparser.tree.ASTNode;
+
+/**
+ * CharSequence and memory-mapped file input tests.
+ */
+class MappedInputTest {
+    private static final Grammar LOG_GRAMMAR = Grammar.compile("""
+        Log <- Line*;
+        Line <- Level ' ' Message '\\n';
+        Level <- "INFO" / "WARN" / "ERROR";
+        Message <- [^\\n]*;
+        """, "Log");
+
+    private static final String LOG = "INFO started\nWARN disk 91% full\nERROR failed: caf\u00e9\n".repeat(50);
+
+    @Test
+    void parsesStringBuilderInput() {
+        ParseResult result = LOG_GRAMMAR.parse(new StringBuilder(LOG), TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(LOG.length(), result.root().len());
+        assertEquals(LOG, result.input());
+    }
+
+    @Test
+    void parsesMemoryMappedLatin1File(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("app.log");
+        Files.write(path, LOG.getBytes(StandardCharsets.ISO_8859_1));
+
+        CharSequence input = MappedInput.mapLatin1(path);
+        assertEquals(LOG.length(), input.length());
+        ParseResult result = LOG_GRAMMAR.parse(input, TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(LOG_GRAMMAR.parse(LOG, TestUtils.OPTIONS).root().toPrettyString(LOG), result.root().toPrettyString(input));
+
+        ASTNode ast = ASTBuilder.buildAST(result);
+        ASTNode message = ast.children().get(2).children().get(2);
+        CharSequence span = message.getInputSpan(result.source());
+        assertFalse(span instanceof String, "Input span should be a view, not a copy");
+        assertEquals("failed: caf\u00e9", span.toString());
+    }
+
+    @Test
+    void parsesMemoryMappedUtf16File(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("app.log");
+        Files.write(path, LOG.getBytes(StandardCharsets.UTF_16BE));
+
+        CharBuffer input = MappedInput.mapUtf16(path, ByteOrder.BIG_ENDIAN);
+        ParseResult result = LOG_GRAMMAR.parse(input, TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(LOG.length(), result.root().len());
+
+        ASTNode ast = ASTBuilder.buildAST(result);
+        ASTNode level = ast.children().get(1).children().get(0);
+        CharSequence span = level.getInputSpan(result.source());
+        assertInstanceOf(CharBuffer.class, span);
+        assertEquals("WARN", span.toString());
+        assertEquals("disk 91% full", ast.children().get(1).children().get(2).getInputSpan(result.source()).toString());
+    }
+
+    @Test
+    void recoveryWorksOnCharSequenceInput() {
+        String input = "INFO ok\nDEBUG hidden\nWARN careful\n";
+        ParseResult stringResult = LOG_GRAMMAR.parse(input, TestUtils.OPTIONS);
+        ParseResult builderResult = LOG_GRAMMAR.parse(new StringBuilder(input), TestUtils.OPTIONS);
+        assertTrue(builderResult.hasSyntaxErrors());
+        assertEquals(stringResult.getSyntaxErrors().toString(), builderResult.getSyntaxErrors().toString());
+    }
+}
@@ -0,0 +1,112 @@
+package com.squirrelparser;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.parser.ParserOptions.MemoBackend;
+
+/**
+ * Memo backend benchmark: parse time, GC time and resident set size for the heap and off-heap
+ * memo backends, parsing a large JSON document.
+ *
+ * <p>Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=MemoBackend
+ *
+ * <p>gcTimeMs is the total collection time over the iteration, and rssKb is the peak resident
+ * set size seen at the end of an operation (Linux only; 0 elsewhere).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--enable-preview"})
+public class MemoBackendBenchmark {
+    @Param({"20000"})
+    int numRecords;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    MemoBackend memoBackend;
+
+    Grammar grammar;
+    String input;
+    ParserOptions options;
+
+    @Setup
+    public void setUp() {
+        grammar = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        input = BenchmarkInputs.json(numRecords);
+        options = ParserOptions.DEFAULT.withMemoBackend(memoBackend);
+    }
+
+    /**
+     * Per-iteration GC time and peak RSS, reported alongside the timing results.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MemoryCounters {
+        public long gcTimeMs;
+        public long rssKb;
+        private long gcTimeAtStart;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            gcTimeAtStart = totalGcTimeMs();
+            gcTimeMs = 0;
+            rssKb = 0;
+        }
+
+        void update() {
+            gcTimeMs = totalGcTimeMs() - gcTimeAtStart;
+            rssKb = Math.max(rssKb, currentRssKb());
+        }
+
+        private static long totalGcTimeMs() {
+            long total = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0, gc.getCollectionTime());
+            }
+            return total;
+        }
+
+        private static long currentRssKb() {
+            try {
+                for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Not Linux
+            }
+            return 0;
+        }
+    }
+
+    @Benchmark
+    public ParseResult parseJson(MemoryCounters counters) {
+        ParseResult result = grammar.parse(input, options);
+        counters.update();
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+package com.squirrelparser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
+
+/**
+ * Memo path benchmark: the JSON grammar has no left recursion, so every memo lookup takes the path
+ * without left recursion detection, expansion or memo version checks. Compare against a build
+ * before the left recursion analysis to see the cost of that machinery.
+ *
+ * <p>Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=MemoPath
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--enable-preview"})
+public class MemoPathBenchmark {
+    @Param({"20000"})
+    int numRecords;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    ParserOptions.MemoBackend memoBackend;
+
+    Grammar grammar;
+    String input;
+    ParserOptions options;
+
+    @Setup
+    public void setUp() {
+        grammar = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        input = BenchmarkInputs.json(numRecords);
+        options = ParserOptions.DEFAULT.withMemoBackend(memoBackend);
+    }
+
+    @Benchmark
+    public ParseResult parseJson() {
+        return grammar.parse(input, options);
+    }
+}
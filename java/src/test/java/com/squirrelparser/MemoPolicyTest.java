@@ -0,0 +1,160 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MemoPolicy;
+import com.squirrelparser.parser.MetaGrammar;
+import com.squirrelparser.parser.ParseResult;
+
+/**
+ * Static memoization policy tests: which clauses are memoized, and rule annotations.
+ */
+class MemoPolicyTest {
+
+    @Test
+    void terminalsAreNotMemoized() {
+        Grammar grammar = Grammar.compile("""
+            S <- A A;
+            A <- 'a';
+            """, "S");
+        Clause a = grammar.rules().get("A");
+        assertEquals(2, grammar.analysis().useCount(a));
+        assertFalse(grammar.isMemoized(a));
+    }
+
+    @Test
+    void singleUseRulesAreNotMemoized() {
+        Grammar grammar = Grammar.compile("""
+            S <- A B B;
+            A <- 'a' 'b';
+            B <- 'c' 'd';
+            """, "S");
+        assertFalse(grammar.isMemoized(grammar.rules().get("A")));
+        assertTrue(grammar.isMemoized(grammar.rules().get("B")));
+        // Sub-clauses with a single parent are not memoized
+        var s = (Seq) grammar.rules().get("S");
+        assertFalse(grammar.isMemoized(s.subClauses().getFirst()));
+    }
+
+    @Test
+    void leftRecursionHeadsAreAlwaysMemoized() {
+        Grammar grammar = Grammar.compile("""
+            S <- E;
+            @nomemo E <- E '+' N / N;
+            N <- [0-9]+;
+            """, "S");
+        Clause e = grammar.rules().get("E");
+        assertTrue(grammar.analysis().isLeftRecursive(e));
+        assertTrue(grammar.isMemoized(e));
+        assertFalse(grammar.analysis().isLeftRecursive(grammar.rules().get("N")));
+
+        ParseResult result = grammar.parse("1+22+333", TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(8, result.root().len());
+    }
+
+    @Test
+    void indirectLeftRecursionIsDetected() {
+        Grammar grammar = Grammar.compile("""
+            S <- A;
+            A <- B 'x' / 'a';
+            B <- C A 'y' / 'b';
+            C <- 'c'?;
+            """, "S");
+        assertTrue(grammar.analysis().isLeftRecursive(grammar.rules().get("A")));
+        assertTrue(grammar.analysis().isLeftRecursive(grammar.rules().get("B")));
+        assertFalse(grammar.analysis().isLeftRecursive(grammar.rules().get("C")));
+        assertTrue(grammar.analysis().isNullable(grammar.rules().get("C")));
+        assertFalse(grammar.parse("ayxyx", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void nonLeftRecursionIsRecursiveButNotLeftRecursive() {
+        Grammar grammar = Grammar.compile("""
+            S <- P;
+            P <- '(' P ')' / 'x';
+            """, "S");
+        Clause p = grammar.rules().get("P");
+        assertTrue(grammar.analysis().isRecursive(p));
+        assertFalse(grammar.analysis().isLeftRecursive(p));
+        assertTrue(grammar.isMemoized(p));
+    }
+
+    @Test
+    void annotationsOverrideDefaultPolicy() {
+        Grammar grammar = Grammar.compile("""
+            S <- A B B;
+            @memo A <- 'a';
+            @nomemo B <- 'b' 'c';
+            """, "S");
+        assertTrue(grammar.isMemoized(grammar.rules().get("A")));
+        assertFalse(grammar.isMemoized(grammar.rules().get("B")));
+        assertFalse(grammar.parse("abcbc", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void annotationsAreParsedWithTransparentRules() {
+        var rules = MetaGrammar.parseGrammar("""
+            S <- 'a' WS;
+            @nomemo ~WS <- ' '*;
+            """);
+        assertEquals(MemoPolicy.Annotation.NOMEMO, rules.get("~WS").memoAnnotation());
+    }
+
+    @Test
+    void unknownAnnotationThrows() {
+        assertThrows(IllegalArgumentException.class, () -> MetaGrammar.parseGrammar("@fast S <- 'a';"));
+    }
+
+    @Test
+    void multipleAnnotationsThrow() {
+        var e = assertThrows(IllegalArgumentException.class,
+                             () -> MetaGrammar.parseGrammar("S <- A; @memo @nomemo A <- 'a' 'b';"));
+        assertTrue(e.getMessage().contains("\"A\""), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> MetaGrammar.parseGrammar("@memo @memo S <- 'a';"));
+        assertThrows(IllegalArgumentException.class, () -> MetaGrammar.parseGrammar("@nomemo @nomemo ~S <- 'a';"));
+    }
+
+    @Test
+    void annotationOnAliasRuleThrows() {
+        // The clause of an alias rule is a Ref, which is never memoized
+        var e = assertThrows(IllegalArgumentException.class, () -> Grammar.compile("""
+            S <- A ';' A;
+            @memo A <- B;
+            B <- 'b' 'c';
+            """, "S"));
+        assertTrue(e.getMessage().contains("annotate \"B\""), e.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                     () -> Grammar.compile(MetaGrammar.parseGrammar("S <- A; @nomemo ~A <- B; B <- 'b';"), "S"));
+
+        // Annotating the target rule instead applies the annotation
+        Grammar grammar = Grammar.compile("""
+            S <- A ';' A;
+            A <- B;
+            @memo B <- 'b' 'c';
+            """, "S");
+        assertTrue(grammar.isMemoized(grammar.rules().get("B")));
+    }
+
+    @Test
+    void recoveryIsUnchangedByPolicy() {
+        String grammarSpec = """
+            S <- (A ';')+;
+            A <- 'a' 'b' 'c';
+            """;
+        Grammar grammar = Grammar.compile(grammarSpec, "S");
+        Grammar memoAllGrammar = Grammar.compile(grammarSpec.replace("A <-", "@memo A <-"), "S");
+        assertFalse(grammar.isMemoized(grammar.rules().get("A")));
+        String input = "abc;aXbc;abc;ab;abcc;";
+        assertEquals(memoAllGrammar.parse(input, TestUtils.OPTIONS).getSyntaxErrors().toString(),
+            grammar.parse(input, TestUtils.OPTIONS).getSyntaxErrors().toString());
+    }
+}
@@ -0,0 +1,109 @@
+package com.squirrelparser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MemoEntry;
+import com.squirrelparser.parser.MemoTable;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
+
+/**
+ * Memo table benchmark: the dense (clauseIdx, pos) MemoTable against the previous
+ * Map&lt;Clause, Map&lt;Integer, MemoEntry&gt;&gt; layout, replaying the same packrat-style access
+ * pattern (each (clause, pos) pair is looked up once to create it, and once more as a cache hit).
+ *
+ * <p>parseJsonAdaptive parses with adaptive memoization; compare their gc.alloc.rate.norm.
+ *
+ * <p>Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=MemoTable
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoTableBenchmark {
+    private static final int CLAUSES_PER_POS = 8;
+    private static final ParserOptions ADAPTIVE = ParserOptions.DEFAULT.withAdaptiveMemo(true);
+
+    @Param({"1000", "10000"})
+    int numRecords;
+
+    Grammar grammar;
+    String input;
+    List<Clause> clauses;
+
+    @Setup
+    public void setUp() {
+        grammar = Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON");
+        input = BenchmarkInputs.json(numRecords);
+        clauses = grammar.allClauses();
+    }
+
+    private Clause clauseAt(int pos, int j) {
+        return clauses.get((pos * 7 + j * 13) % clauses.size());
+    }
+
+    @Benchmark
+    public int mapOfMaps() {
+        Map<Clause, Map<Integer, MemoEntry>> memoTable = new HashMap<>();
+        int found = 0;
+        for (int pos = 0; pos < input.length(); pos++) {
+            for (int j = 0; j < CLAUSES_PER_POS; j++) {
+                Clause clause = clauseAt(pos, j);
+                memoTable.computeIfAbsent(clause, k -> new HashMap<>()).computeIfAbsent(pos, k -> new MemoEntry());
+            }
+            for (int j = 0; j < CLAUSES_PER_POS; j++) {
+                Map<Integer, MemoEntry> clauseMap = memoTable.get(clauseAt(pos, j));
+                if (clauseMap != null && clauseMap.get(pos) != null) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int memoTable() {
+        MemoTable memoTable = new MemoTable(input.length());
+        int found = 0;
+        for (int pos = 0; pos < input.length(); pos++) {
+            for (int j = 0; j < CLAUSES_PER_POS; j++) {
+                memoTable.getOrCreate(clauseAt(pos, j).clauseIdx(), pos);
+            }
+            for (int j = 0; j < CLAUSES_PER_POS; j++) {
+                if (memoTable.get(clauseAt(pos, j).clauseIdx(), pos) != null) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public ParseResult parseJson() {
+        return grammar.parse(input);
+    }
+
+    @Benchmark
+    public ParseResult parseJsonAdaptive() {
+        return grammar.parse(input, ADAPTIVE);
+    }
+}
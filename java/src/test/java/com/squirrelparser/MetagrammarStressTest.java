@@ -10,6 +10,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -27,7 +28,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -45,19 +46,19 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Test first alternative
-        Parser parser = new Parser(rules, "Rule", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // Test middle alternative
-        parser = new Parser(rules, "Rule", "j");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "j", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // Test last alternative
-        parser = new Parser(rules, "Rule", "t");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "t", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -72,17 +73,17 @@ class MetagrammarStressTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "abde");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "abde", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "acdg");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "acdg", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "acdf");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "acdf", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -97,7 +98,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "abcdefghijklmnopqrst");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "abcdefghijklmnopqrst", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -115,19 +116,19 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Empty input (optional matches)
-        Parser parser = new Parser(rules, "Rule", "");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // One 'a'
-        parser = new Parser(rules, "Rule", "a");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "a", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // Multiple 'a's
-        parser = new Parser(rules, "Rule", "aaa");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "aaa", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -143,13 +144,13 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Should match letters not preceded by digits
-        Parser parser = new Parser(rules, "Rule", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // Should fail on digit start
-        parser = new Parser(rules, "Rule", "5hello");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "5hello", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Rule", 0);
         assertTrue(matchResult.isMismatch());
     }
@@ -163,7 +164,7 @@ class MetagrammarStressTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "Test_123-name.email@");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "Test_123-name.email@", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -178,13 +179,13 @@ class MetagrammarStressTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // Should stop at first digit
-        parser = new Parser(rules, "Rule", "test123");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "test123", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Rule", 0);
         assertEquals(4, matchResult.len()); // Matches 'test'
     }
@@ -199,7 +200,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "  \thello\t  world \t");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "  \thello\t  world \t", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -219,7 +220,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "A", "x");
+        Parser parser = new Parser(Grammar.compile(rules, "A"), "x", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -233,7 +234,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "line1\n\tquote\"test");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "line1\n\tquote\"test", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -252,7 +253,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -268,19 +269,19 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Just 'a'
-        Parser parser = new Parser(rules, "A", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "A"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // 'aba'
-        parser = new Parser(rules, "A", "aba");
+        parser = new Parser(Grammar.compile(rules, "A"), "aba", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // 'ababa'
-        parser = new Parser(rules, "A", "ababa");
+        parser = new Parser(Grammar.compile(rules, "A"), "ababa", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -294,7 +295,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "hello world end");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello world end", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -311,13 +312,13 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Just letters
-        Parser parser = new Parser(rules, "Rule", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // Digit then letters
-        parser = new Parser(rules, "Rule", "5hello");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "5hello", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -333,19 +334,19 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Empty
-        Parser parser = new Parser(rules, "Rule", "");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // One pair
-        parser = new Parser(rules, "Rule", "a5");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "a5", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // Multiple pairs
-        parser = new Parser(rules, "Rule", "a5b3c7");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "a5b3c7", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -363,17 +364,17 @@ class MetagrammarStressTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "WORLD");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "WORLD", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "123");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "123", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -388,17 +389,17 @@ class MetagrammarStressTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "abaab");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "abaab", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "aaabaaaa");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "aaabaaaa", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -412,7 +413,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -429,19 +430,19 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Basic identifier
-        Parser parser = new Parser(rules, "Rule", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // With underscores
-        parser = new Parser(rules, "Rule", "hello_world_test");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "hello_world_test", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // With trailing digits
-        parser = new Parser(rules, "Rule", "test_var123");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "test_var123", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -455,7 +456,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "aaaaab");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "aaaaab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -472,7 +473,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "abc");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "abc", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         ASTNode ast = ASTBuilder.buildAST(parseResult);
 
@@ -493,7 +494,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "test.name_value@");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "test.name_value@", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -518,13 +519,13 @@ class MetagrammarStressTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // Should fail for 'd' (doesn't match second lookahead)
-        parser = new Parser(rules, "Rule", "d");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "d", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Rule", 0);
         assertTrue(matchResult.isMismatch());
     }
@@ -539,19 +540,19 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // 'aaa' matches first alternative
-        Parser parser = new Parser(rules, "Rule", "aaa");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "aaa", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // 'bbb' matches second alternative
-        parser = new Parser(rules, "Rule", "bbb");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "bbb", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // Empty input matches third alternative
-        parser = new Parser(rules, "Rule", "");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Rule", 0);
         assertFalse(matchResult.isMismatch());
         assertEquals(0, matchResult.len());
@@ -568,19 +569,19 @@ class MetagrammarStressTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Regular identifier works
-        Parser parser = new Parser(rules, "Rule", "hello");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "hello", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
         // Keyword prefix works (iffy)
-        parser = new Parser(rules, "Rule", "iffy");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "iffy", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // Pure keyword should fail
-        parser = new Parser(rules, "Rule", "if");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "if", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Rule", 0);
         assertTrue(matchResult.isMismatch());
     }
@@ -593,7 +594,7 @@ class MetagrammarStressTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Rule", "abccbaabccc");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "abccbaabccc", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
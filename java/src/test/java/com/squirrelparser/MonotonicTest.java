@@ -338,7 +338,7 @@ class MonotonicTest {
     @Test
     void testLRRecoveryTrailingPlus() {
         // Input 'n+n+n+' has trailing '+' with no 'n' after
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(
+        ParseResult parseResult = TestUtils.parsePT(
             DIRECT_LR_SIMPLE,
             "E",
             "n+n+n+"
@@ -0,0 +1,109 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.OffHeapMemoTable;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.parser.ParserOptions.MemoBackend;
+import com.squirrelparser.parser.ParserStats;
+
+/**
+ * Off-heap memo backend tests: parse results must be identical to the heap backend.
+ */
+class OffHeapMemoTableTest {
+    private static final ParserOptions OFF_HEAP = TestUtils.OPTIONS.withMemoBackend(MemoBackend.OFF_HEAP);
+
+    private static final String PRECEDENCE_LR = """
+        S <- E ;
+        E <- E "+" T / E "-" T / T ;
+        T <- T "*" F / T "/" F / F ;
+        F <- "(" E ")" / "n" ;
+        """;
+
+    private static final String INDIRECT_LR = """
+        S <- A ;
+        A <- B "x" / "a" ;
+        B <- A "y" / "b" ;
+        """;
+
+    private static void assertSameAsHeap(String grammarSpec, String topRule, String input) {
+        assertSameParse(Grammar.compile(grammarSpec, topRule), input, TestUtils.OPTIONS, OFF_HEAP);
+    }
+
+    @Test
+    void parserOptionSelectsBackend() {
+        Grammar grammar = Grammar.compile(PRECEDENCE_LR, "S");
+        Parser parser = grammar.newParser("n+n", OFF_HEAP);
+        assertInstanceOf(OffHeapMemoTable.class, parser.memoTable());
+        assertNull(parser.getMemoEntry(grammar.rules().get("E"), 0));
+        assertFalse(parser.parse().hasSyntaxErrors());
+        assertTrue(parser.memoTable().size() > 0);
+    }
+
+    @Test
+    void leftRecursionMatchesHeapBackend() {
+        assertSameAsHeap(PRECEDENCE_LR, "S", "n+n*n-(n/n)*n");
+        assertSameAsHeap(INDIRECT_LR, "S", "ayxyx");
+        assertSameAsHeap(INDIRECT_LR, "S", "bxyx");
+    }
+
+    @Test
+    void recoveryMatchesHeapBackend() {
+        assertSameAsHeap(PRECEDENCE_LR, "S", "n+*n-(n/)n");
+        assertSameAsHeap(PRECEDENCE_LR, "S", "n+n+nXXX");
+        assertSameAsHeap("S <- 'a' 'b' 'c' ;", "S", "aXbc");
+        assertSameAsHeap("S <- ('a' ';')+ ;", "S", "a;Xa;a;YYa;");
+    }
+
+    @Test
+    void recoveryCacheRulesMatchHeapBackend() {
+        // Probes in the recovery phase reuse complete results cached in the recovery phase, and
+        // both backends must reuse the same ones
+        Grammar grammar = Grammar.compile(PRECEDENCE_LR, "S");
+        for (String input : new String[]{"n+*n-(n/)n", "(n+n*)n+(n", "n+n+nXXX"}) {
+            try {
+                ParserStats.enable();
+                grammar.parse(input, TestUtils.OPTIONS);
+                int heapWork = ParserStats.get().totalWork();
+                int heapCacheHits = ParserStats.get().cacheHits();
+                ParserStats.enable();
+                grammar.parse(input, OFF_HEAP);
+                assertEquals(heapWork, ParserStats.get().totalWork(), input);
+                assertEquals(heapCacheHits, ParserStats.get().cacheHits(), input);
+            } finally {
+                ParserStats.disable();
+            }
+        }
+    }
+
+    @Test
+    void largeInputMatchesHeapBackend() {
+        // Large enough to grow the index and allocate several entry pages
+        assertSameAsHeap(BenchmarkInputs.JSON_GRAMMAR, "JSON", BenchmarkInputs.json(300));
+    }
+
+    @Test
+    void cutEvictsOffHeapEntries() {
+        Grammar grammar = Grammar.compile("""
+            Doc <- (Record ^)*;
+            @memo Record <- [a-z]+ ';';
+            """, "Doc");
+        String input = "abcdefgh;".repeat(20000);
+        Parser parser = grammar.newParser(input, OFF_HEAP);
+        ParseResult result = parser.parse();
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.length(), result.root().len());
+        assertTrue(parser.memoTable().size() < 5000,
+            "Memo table should be bounded, got " + parser.memoTable().size());
+    }
+}
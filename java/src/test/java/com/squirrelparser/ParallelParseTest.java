@@ -0,0 +1,132 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MatchResult;
+import com.squirrelparser.parser.ParallelParser;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Utf8Input;
+
+/**
+ * Parallel chunked parsing tests: the stitched result must match a sequential parse, including
+ * when sync points fall inside items.
+ */
+class ParallelParseTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static final Grammar STATEMENTS = Grammar.compile("""
+        Program <- Stmt*;
+        Stmt <- WS Ident WS '=' WS Value WS ';';
+        Value <- '"' [^"]* '"' / [0-9]+ / Ident;
+        Ident <- [a-z]+;
+        ~WS <- [ \\n]*;
+        """, "Program");
+
+    @AfterAll
+    static void tearDown() {
+        POOL.shutdown();
+    }
+
+    private static ParallelParser parallelParser(Grammar grammar) {
+        return new ParallelParser(grammar, TestUtils.OPTIONS, POOL).withChunkLength(16);
+    }
+
+    private static String statements(int n) {
+        var buf = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            buf.append(i > 0 ? "\n" : "").append("x").append((char) ('a' + i % 26)).append(" = ").append(i).append(';');
+        }
+        return buf.toString();
+    }
+
+    private static void assertSameAsSequentialParse(Grammar grammar, String input, ParseResult parallel) {
+        assertSameParse(grammar.parse(input, TestUtils.OPTIONS), parallel);
+    }
+
+    @Test
+    void parallelParseMatchesSequentialParse() {
+        String input = statements(200);
+        ParseResult result = parallelParser(STATEMENTS).parse(input);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(input.length(), result.root().len());
+        assertEquals(200, result.root().subClauseMatches().size());
+        assertSameAsSequentialParse(STATEMENTS, input, result);
+    }
+
+    @Test
+    void wrongSyncPointsFallBackToMergedChunks() {
+        // The ';' delimiter also appears inside string literals, so some sync points are wrong
+        String input = "s = \"a;b;c;d;e;f;g;h;i;j;k;l;m;n\";\nn = 1;\n".repeat(100).strip();
+        assertSameAsSequentialParse(STATEMENTS, input, parallelParser(STATEMENTS).parse(input));
+    }
+
+    @Test
+    void itemsThatExaminedTheChunkEndAreVerified() {
+        Grammar csv = Grammar.compile("""
+            File <- Line*;
+            Line <- Field (',' Field)* '\\n';
+            Field <- '"' [^"]* '"' / [^,\\n]*;
+            """, "File");
+        // The input is split after "c\n", inside the quoted field. In the first chunk, the quoted
+        // field reaches the end of the chunk unterminated, so the line before the last one falls
+        // back to an unquoted field and ends at "b\n"; the last line "c\n" matches the same in the
+        // whole input.
+        String input = "x\n".repeat(20) + "a,\"b\nc\n\",d\n" + "y\n".repeat(20);
+        assertEquals(46, input.indexOf("c\n") + 1);
+        ParseResult result = new ParallelParser(csv, TestUtils.OPTIONS, POOL)
+            .withChunkLength(input.length() / 2).parse(input);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(41, result.root().subClauseMatches().size());
+        assertSameAsSequentialParse(csv, input, result);
+    }
+
+    @Test
+    void syntaxErrorsAreRecoveredPerChunk() {
+        String input = statements(100).replace("xe = 4;", "xe = 4 4;");
+        ParseResult result = parallelParser(STATEMENTS).parse(input);
+        assertTrue(result.hasSyntaxErrors());
+        assertSameAsSequentialParse(STATEMENTS, input, result);
+        assertEquals(input.length(), result.root().len());
+    }
+
+    @Test
+    void declaredSyncDelimiter() {
+        Grammar lines = Grammar.compile("""
+            Lines <- Line*;
+            Line <- Word (' ' Word)* ('\\n' / !.);
+            Word <- [a-z]+;
+            """, "Lines");
+        String input = "the quick brown fox\njumps over the\nlazy dog\n".repeat(20);
+        ParseResult result = parallelParser(lines).withSyncDelimiter("\n").parse(input);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(60, result.root().subClauseMatches().size());
+        assertSameAsSequentialParse(lines, input, result);
+    }
+
+    @Test
+    void utf8InputIsSplitAtByteOffsets() {
+        String text = "s = \"é;ü\";\nn = 1;\n".repeat(50).strip();
+        ParseResult result = parallelParser(STATEMENTS).parse(Utf8Input.of(text));
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(100, result.root().subClauseMatches().size());
+        assertEquals(Utf8Input.of(text).length(), result.root().len());
+        MatchResult last = result.root().subClauseMatches().getLast();
+        assertEquals("\nn = 1;", result.source().subSequence(last.pos(), last.pos() + last.len()).toString());
+    }
+
+    @Test
+    void topRuleWithoutRepetitionIsParsedSequentially() {
+        Grammar grammar = Grammar.compile("Sum <- Sum '+' Num / Num; Num <- [0-9]+;", "Sum");
+        String input = "1+2+3+4+5+6+7+8+9+10+11+12+13+14+15+16+17+18+19+20";
+        assertSameAsSequentialParse(grammar, input, parallelParser(grammar).parse(input));
+    }
+}
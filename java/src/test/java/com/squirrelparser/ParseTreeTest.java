@@ -0,0 +1,116 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.assertSameParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParseTree;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.ParserOptions;
+
+/**
+ * Compact parse tree tests: a compact tree must give the same AST, syntax errors and Match tree
+ * as the Match object tree.
+ */
+class ParseTreeTest {
+    private static final ParserOptions COMPACT = TestUtils.OPTIONS.withCompactTree(true);
+
+    private static final Grammar EXPR = Grammar.compile("""
+        Program <- (Stmt ';' WS)*;
+        Stmt <- Ident WS '=' WS Expr;
+        Expr <- Expr WS '+' WS Term / Term;
+        Term <- Term WS '*' WS Factor / Factor;
+        Factor <- '(' WS Expr WS ')' / Ident / [0-9]+;
+        Ident <- [a-z]+;
+        ~WS <- ' '*;
+        """, "Program");
+
+    private static void assertSameAsMatchTree(Grammar grammar, String input) {
+        ParseResult compact = grammar.parse(input, COMPACT);
+        assertNotNull(compact.tree());
+        assertSameParse(grammar.parse(input, TestUtils.OPTIONS), compact);
+    }
+
+    @Test
+    void compactTreeMatchesMatchTree() {
+        assertSameAsMatchTree(EXPR, "x = a + b * 2; y = (x + 1) * c;");
+        assertSameAsMatchTree(Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON"), BenchmarkInputs.json(10));
+    }
+
+    @Test
+    void compactTreeWithSyntaxErrors() {
+        assertSameAsMatchTree(EXPR, "x = a + * 2; y = (x + 1 * c; z = 3;");
+        assertSameAsMatchTree(EXPR, "x = 1; !!!");
+    }
+
+    @Test
+    void compactTreeIsBuiltFromLazyMatches() {
+        Parser parser = EXPR.newParser("x = a;", COMPACT);
+        assertTrue(parser.buildsLazyMatch(EXPR.rules().get("Stmt")));
+        assertFalse(parser.buildsLazyMatch(EXPR.rules().get("Expr")));
+        assertSameAsMatchTree(EXPR, "x = (a + (b * (c + 1))) * 2;");
+        assertSameAsMatchTree(Grammar.compile(BenchmarkInputs.JSON_GRAMMAR, "JSON"), "[{\"a\": [1, {\"b\": []}]}]");
+    }
+
+    @Test
+    void cursorWalksTreeInPreorder() {
+        String input = "x = 1 + 2;";
+        ParseTree tree = EXPR.parse(input, COMPACT).tree();
+        ParseTree.Cursor cursor = tree.cursor();
+        int visited = 0;
+        int maxEnd = 0;
+        while (true) {
+            assertEquals(visited, cursor.node());
+            visited++;
+            maxEnd = Math.max(maxEnd, cursor.pos() + cursor.len());
+            if (cursor.gotoFirstChild()) {
+                continue;
+            }
+            boolean done = false;
+            while (!cursor.gotoNextSibling()) {
+                if (!cursor.gotoParent()) {
+                    done = true;
+                    break;
+                }
+            }
+            if (done) {
+                break;
+            }
+        }
+        assertEquals(tree.size(), visited);
+        assertEquals(input.length(), maxEnd);
+        assertEquals(0, cursor.depth());
+    }
+
+    @Test
+    void syntaxErrorSubtreesAreCounted() {
+        String input = "x = 1; y = 2 2; z = 3;";
+        ParseTree tree = EXPR.parse(input, COMPACT).tree();
+        // (Recovery skips input from pos 4, in the first statement, not just the extra "2")
+        assertEquals(5, tree.errorCount(0));
+        assertEquals(tree.errorCount(0), tree.syntaxErrors().size());
+        assertEquals(4, tree.syntaxErrors().getFirst().pos());
+        assertEquals(EXPR.parse(input, TestUtils.OPTIONS).getSyntaxErrors().toString(), tree.syntaxErrors().toString());
+        assertFalse(tree.isSyntaxError(0));
+    }
+
+    @Test
+    void deeplyNestedTreeIsFlattenedAndRebuiltWithoutRecursion() {
+        Grammar nested = Grammar.compile("E <- '(' E ')' / 'x';", "E");
+        int depth = 50_000;
+        String input = "(".repeat(depth) + "x" + ")".repeat(depth);
+        // (The instruction VM parses the input without recursing)
+        ParseResult result = nested.parse(input, COMPACT.withEngine(ParserOptions.Engine.VM));
+        assertFalse(result.hasSyntaxErrors());
+        assertTrue(result.tree().size() > depth);
+        assertEquals(input.length(), result.root().len());
+        assertSame(result.root(), result.root());
+    }
+}
@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.TestUtils.ParseTestResult;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.ParseResult;
 import com.squirrelparser.parser.Parser;
@@ -131,7 +132,7 @@ class PerformanceEdgeCaseTest {
             assertTrue(opt.ok(), "Optional should succeed on empty");
 
             // Empty sequence (no elements) matches empty input
-            ParseResult parseResult = SquirrelParser.squirrelParsePT(
+            ParseResult parseResult = TestUtils.parsePT(
                 "S <- \"\"? ;",  // Optional empty string
                 "S",
                 ""
@@ -212,7 +213,7 @@ class PerformanceEdgeCaseTest {
 
             for (String[] testCase : cases) {
                 String input = testCase[0];
-                ParseResult parseResult = SquirrelParser.squirrelParsePT(
+                ParseResult parseResult = TestUtils.parsePT(
                     "S <- \"a\" \"b\" ;",
                     "S",
                     input
@@ -260,7 +261,7 @@ class PerformanceEdgeCaseTest {
         void testEDGE13_NoGrammarRules() {
             // Empty grammar (edge case that should fail gracefully)
             assertThrows(IllegalArgumentException.class, () -> {
-                new Parser(Map.of(), "S", "x").parse();
+                new Parser(Grammar.compile(Map.of(), "S"), "x", TestUtils.OPTIONS).parse();
             }, "should throw error for non-existent rule");
         }
 
@@ -268,7 +269,7 @@ class PerformanceEdgeCaseTest {
         void testEDGE14_CircularRefWithBaseCase() {
             // A -> A | 'x' (left-recursive with base case)
             // Should work correctly with LR detection
-            ParseResult parseResult = SquirrelParser.squirrelParsePT(
+            ParseResult parseResult = TestUtils.parsePT(
                 "A <- A \"y\" / \"x\" ;",
                 "A",
                 "xy"
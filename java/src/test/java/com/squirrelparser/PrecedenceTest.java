@@ -10,6 +10,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -58,17 +59,17 @@ class PrecedenceTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Test that it parses "ab" and "c", but not "ac"
-        Parser parser = new Parser(rules, "Rule", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "c");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "c", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "ac");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "ac", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertTrue(result instanceof SyntaxError);
@@ -104,34 +105,34 @@ class PrecedenceTest {
         Map<String, Clause> rules2 = MetaGrammar.parseGrammar(grammar2);
 
         // Grammar 1: should match "a" or "bc"
-        Parser parser = new Parser(rules1, "Rule", "a");
+        Parser parser = new Parser(Grammar.compile(rules1, "Rule"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules1, "Rule", "bc");
+        parser = new Parser(Grammar.compile(rules1, "Rule"), "bc", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // 'ac' should not fully match - only matches 'a', leaving 'c'
-        parser = new Parser(rules1, "Rule", "ac");
+        parser = new Parser(Grammar.compile(rules1, "Rule"), "ac", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Rule", 0);
         assertTrue(matchResult.isMismatch() || matchResult.len() != 2); // Either mismatch or doesn't consume all
 
         // Grammar 2: should match "ac" or "bc"
-        parser = new Parser(rules2, "Rule", "ac");
+        parser = new Parser(Grammar.compile(rules2, "Rule"), "ac", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules2, "Rule", "bc");
+        parser = new Parser(Grammar.compile(rules2, "Rule"), "bc", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // 'a' should not match grammar2 - needs 'c' after choice
-        parser = new Parser(rules2, "Rule", "a");
+        parser = new Parser(Grammar.compile(rules2, "Rule"), "a", TestUtils.OPTIONS);
         matchResult = parser.matchRule("Rule", 0);
         assertTrue(matchResult.isMismatch());
     }
@@ -145,22 +146,22 @@ class PrecedenceTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "aaa");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "aaa", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "bbb");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "bbb", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "aba");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "aba", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "bab");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "bab", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -176,28 +177,28 @@ class PrecedenceTest {
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
         // Should match "a", "aa", "aaa", etc.
-        Parser parser = new Parser(rules, "Rule", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "aaa");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "aaa", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
         // Should match "c", "bc", "bbc", etc.
-        parser = new Parser(rules, "Rule", "c");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "c", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "bc");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "bc", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
 
-        parser = new Parser(rules, "Rule", "bbc");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "bbc", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -212,7 +213,7 @@ class PrecedenceTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "aaa");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "aaa", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
 
         // Rule should be transparent, so it should be successfully parsed
@@ -260,7 +261,7 @@ class PrecedenceTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "abc");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "abc", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -276,14 +277,14 @@ class PrecedenceTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Rule", "abc");
+        Parser parser = new Parser(Grammar.compile(rules, "Rule"), "abc", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(3, result.len());
 
         // Use matchRule for partial match test
-        parser = new Parser(rules, "Rule", "a1");
+        parser = new Parser(Grammar.compile(rules, "Rule"), "a1", TestUtils.OPTIONS);
         MatchResult matchResult = parser.matchRule("Rule", 0);
         assertFalse(matchResult.isMismatch());
         assertEquals(1, matchResult.len()); // Only 'a' matches
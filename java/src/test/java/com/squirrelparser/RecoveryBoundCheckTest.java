@@ -0,0 +1,79 @@
+package com.squirrelparser;
+
+import static com.squirrelparser.TestUtils.testParse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
+import com.squirrelparser.parser.ParserStats;
+import com.squirrelparser.parser.Utf8Input;
+
+/**
+ * Recovery bound check tests: in the recovery phase, a repetition doesn't probe its bound where
+ * the bound's FIRST set excludes the next character, and the result is the same as with a probe.
+ */
+class RecoveryBoundCheckTest {
+    // The bound "end" has FIRST set {e}, and so does the bound &"end" . "nd" (from its lookahead),
+    // though its recovery differs, since it is a sequence
+    private static final String LITERAL_BOUND = "S <- \"ab\"+ \"end\" ;";
+    private static final String LOOKAHEAD_BOUND = "S <- \"ab\"+ &\"end\" . \"nd\" ;";
+
+    private static final ParserOptions NO_BOUND_CHECK = TestUtils.OPTIONS.withRecoveryBoundCheck(false);
+
+    @AfterEach
+    void tearDown() {
+        ParserStats.disable();
+    }
+
+    private static int work(String grammarSpec, String input, ParserOptions options) {
+        Grammar grammar = Grammar.compile(grammarSpec, "S");
+        ParserStats.enable();
+        grammar.parse(input, options);
+        return ParserStats.get().totalWork();
+    }
+
+    @Test
+    void sameRecoveryWithoutProbe() {
+        for (String grammarSpec : List.of(LITERAL_BOUND, LOOKAHEAD_BOUND)) {
+            Grammar grammar = Grammar.compile(grammarSpec, "S");
+            for (String input : List.of("XabYabZabend", "abXXend", "abXabeXend", "abXab", "")) {
+                ParseResult probed = grammar.parse(input, NO_BOUND_CHECK);
+                ParseResult checked = grammar.parse(input, TestUtils.OPTIONS);
+                assertEquals(probed.root().toPrettyString(input), checked.root().toPrettyString(input), input);
+                assertEquals(probed.getSyntaxErrors().toString(), checked.getSyntaxErrors().toString(), input);
+            }
+        }
+    }
+
+    @Test
+    void skippedProbesReduceWork() {
+        String input = "abXab".repeat(50) + "end";
+        var result = testParse(LITERAL_BOUND, input);
+        assertTrue(result.ok());
+        assertEquals(50, result.errorCount());
+        for (String grammarSpec : List.of(LITERAL_BOUND, LOOKAHEAD_BOUND)) {
+            assertTrue(work(grammarSpec, input, TestUtils.OPTIONS) < work(grammarSpec, input, NO_BOUND_CHECK),
+                       grammarSpec);
+        }
+    }
+
+    @Test
+    void boundCheckInUtf8Input() {
+        Grammar grammar = Grammar.compile("S <- \"é\"+ \"😀\" ;", "S");
+        for (String input : List.of("ééxé😀", "éé😀", "éxéé")) {
+            ParseResult utf16 = grammar.parse(input, TestUtils.OPTIONS);
+            ParseResult utf8 = grammar.parse(Utf8Input.of(input), TestUtils.OPTIONS);
+            assertEquals(utf16.hasSyntaxErrors(), utf8.hasSyntaxErrors(), input);
+            assertEquals(utf16.getSyntaxErrors().size(), utf8.getSyntaxErrors().size(), input);
+            assertEquals(grammar.parse(Utf8Input.of(input), NO_BOUND_CHECK).getSyntaxErrors().toString(),
+                         utf8.getSyntaxErrors().toString(), input);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.squirrelparser.clause.nonterminal.NotFollowedBy;
+import com.squirrelparser.clause.nonterminal.Seq;
+import com.squirrelparser.clause.terminal.AnyChar;
+import com.squirrelparser.clause.terminal.CharSet;
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MatchResult;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Parser;
+import com.squirrelparser.parser.Utf8Input;
+
+/**
+ * Run tests: a repetition of a single-character terminal, or of (!t .), is scanned in one pass,
+ * and must give the same matches and children as matching each iteration.
+ */
+class RepetitionRunTest {
+    private static final Grammar GRAMMAR = Grammar.compile("""
+        S <- Num (WS Str)* WS;
+        Num <- [0-9]+;
+        Str <- '"' (!'"' .)* '"';
+        WS <- [ \\t]*;
+        """, "S");
+
+    private static MatchResult rule(ParseResult result, int idx) {
+        return result.root().subClauseMatches().get(idx);
+    }
+
+    @Test
+    void runHasOneChildPerCharacter() {
+        String input = "123 \"ab\"";
+        ParseResult result = GRAMMAR.parse(input, TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        List<MatchResult> digits = rule(result, 0).subClauseMatches();
+        assertEquals(3, digits.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(digits.get(i).clause() instanceof CharSet);
+            assertEquals(i, digits.get(i).pos());
+            assertEquals(1, digits.get(i).len());
+        }
+    }
+
+    @Test
+    void notFollowedByIdiomHasSeqChildren() {
+        String input = "1 \"ab\"";
+        ParseResult result = GRAMMAR.parse(input, TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        // Str <- '"' (!'"' .)* '"'
+        MatchResult str = rule(result, 1).subClauseMatches().get(0).subClauseMatches().get(1);
+        MatchResult chars = str.subClauseMatches().get(1);
+        assertEquals(2, chars.subClauseMatches().size());
+        MatchResult b = chars.subClauseMatches().get(1);
+        assertTrue(b.clause() instanceof Seq);
+        assertEquals(4, b.pos());
+        assertTrue(b.subClauseMatches().get(0).clause() instanceof NotFollowedBy);
+        assertEquals(0, b.subClauseMatches().get(0).len());
+        assertTrue(b.subClauseMatches().get(1).clause() instanceof AnyChar);
+        assertEquals(1, b.subClauseMatches().get(1).len());
+    }
+
+    @Test
+    void wideCharactersInRun() {
+        Grammar grammar = Grammar.compile("S <- [^x]* 'x';", "S");
+        String input = "aé😀bx";
+        ParseResult utf16 = grammar.parse(input, TestUtils.OPTIONS);
+        assertFalse(utf16.hasSyntaxErrors());
+        List<MatchResult> chars = utf16.root().subClauseMatches().get(0).subClauseMatches();
+        assertEquals(4, chars.size());
+        assertEquals(2, chars.get(2).len());
+        assertEquals(4, chars.get(3).pos());
+
+        ParseResult utf8 = grammar.parse(Utf8Input.of(input), TestUtils.OPTIONS);
+        assertFalse(utf8.hasSyntaxErrors());
+        chars = utf8.root().subClauseMatches().get(0).subClauseMatches();
+        assertEquals(List.of(1, 2, 4, 1), chars.stream().map(MatchResult::len).toList());
+    }
+
+    @Test
+    void runStopsAtMismatchBeforeEndOfInput() {
+        Grammar grammar = Grammar.compile("S <- [a-z]+;", "S");
+        ParseResult result = grammar.parse("abc1", TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+        assertTrue(grammar.parse("", TestUtils.OPTIONS).hasSyntaxErrors());
+        assertFalse(grammar.parse("abc", TestUtils.OPTIONS).hasSyntaxErrors());
+    }
+
+    @Test
+    void recoveryInsideRun() {
+        // The recovery phase matches each iteration, so the bad character is skipped as before
+        Grammar grammar = Grammar.compile("S <- [a-z]+ ';';", "S");
+        ParseResult result = grammar.parse("ab1cd;", TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+        assertEquals(1, result.getSyntaxErrors().size());
+        assertEquals(6, result.root().len());
+    }
+
+    @Test
+    void lazyTreeMatchesFullTree() {
+        String input = "42 \"x y\"\t\"\" \"z\" ";
+        ParseResult full = GRAMMAR.parse(input, TestUtils.OPTIONS);
+        assertFalse(full.hasSyntaxErrors());
+        ParseResult lazy = GRAMMAR.parse(input, TestUtils.OPTIONS.withLazyTree(true));
+        assertEquals(full.root().toPrettyString(input), lazy.root().toPrettyString(input));
+    }
+
+    @Test
+    void reparseAfterExtendingRun() {
+        Parser parser = GRAMMAR.newParser("12 \"a\"", TestUtils.OPTIONS);
+        assertFalse(parser.parse().hasSyntaxErrors());
+        parser.applyEdit(2, 0, "34");
+        ParseResult reparsed = parser.reparse();
+        assertFalse(reparsed.hasSyntaxErrors());
+        assertEquals(4, rule(reparsed, 0).len());
+        assertEquals(4, rule(reparsed, 0).subClauseMatches().size());
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import com.squirrelparser.clause.Clause;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.MetaGrammar;
 import com.squirrelparser.parser.ParseResult;
@@ -23,7 +24,7 @@ class RuleReferencesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "ab");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "ab", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -40,7 +41,7 @@ class RuleReferencesTest {
         """;
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
-        Parser parser = new Parser(rules, "Main", "abc");
+        Parser parser = new Parser(Grammar.compile(rules, "Main"), "abc", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
@@ -55,13 +56,13 @@ class RuleReferencesTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "List", "a");
+        Parser parser = new Parser(Grammar.compile(rules, "List"), "a", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(1, result.len());
 
-        parser = new Parser(rules, "List", "aaa");
+        parser = new Parser(Grammar.compile(rules, "List"), "aaa", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -77,13 +78,13 @@ class RuleReferencesTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "A", "aba");
+        Parser parser = new Parser(Grammar.compile(rules, "A"), "aba", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(3, result.len());
 
-        parser = new Parser(rules, "A", "bab");
+        parser = new Parser(Grammar.compile(rules, "A"), "bab", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -98,19 +99,19 @@ class RuleReferencesTest {
 
         Map<String, Clause> rules = MetaGrammar.parseGrammar(grammar);
 
-        Parser parser = new Parser(rules, "Expr", "n");
+        Parser parser = new Parser(Grammar.compile(rules, "Expr"), "n", TestUtils.OPTIONS);
         ParseResult parseResult = parser.parse();
         MatchResult result = parseResult.root();
         assertNotNull(result);
         assertEquals(1, result.len());
 
-        parser = new Parser(rules, "Expr", "n+n");
+        parser = new Parser(Grammar.compile(rules, "Expr"), "n+n", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
         assertEquals(3, result.len());
 
-        parser = new Parser(rules, "Expr", "n+n+n");
+        parser = new Parser(Grammar.compile(rules, "Expr"), "n+n+n", TestUtils.OPTIONS);
         parseResult = parser.parse();
         result = parseResult.root();
         assertNotNull(result);
@@ -76,7 +76,7 @@ class SequenceTest {
         // Cannot delete grammar elements mid-parse (Fix #8 - Visibility Constraint)
         // Input "ac" with grammar "a" "b" "c" would require deleting "b" at position 1
         // Position 1 is not EOF (still have "c" to parse), so this violates constraints
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(
+        ParseResult parseResult = TestUtils.parsePT(
             "S <- \"a\" \"b\" \"c\" ;",
             "S",
             "ac"
@@ -90,7 +90,7 @@ class SequenceTest {
 
     @Test
     void s07_delEnd() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(
+        ParseResult parseResult = TestUtils.parsePT(
             "S <- \"a\" \"b\" \"c\" ;",
             "S",
             "ab"
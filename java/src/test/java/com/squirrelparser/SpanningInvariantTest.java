@@ -103,7 +103,7 @@ class SpanningInvariantTest {
 
     @Test
     void span01_emptyInput() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" ;", "S", "");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" ;", "S", "");
         MatchResult result = getSpanningResult(parseResult);
 
         assertTrue(result instanceof SyntaxError, "Empty input with no match should be SyntaxError");
@@ -113,7 +113,7 @@ class SpanningInvariantTest {
 
     @Test
     void span02_completeMatchNoWrapper() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" \"c\" ;", "S", "abc");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" \"c\" ;", "S", "abc");
         MatchResult result = getSpanningResult(parseResult);
 
         assertFalse(result instanceof SyntaxError, "Complete match should not be SyntaxError");
@@ -123,7 +123,7 @@ class SpanningInvariantTest {
 
     @Test
     void span03_totalFailureReturnsSyntaxError() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" ;", "S", "xyz");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" ;", "S", "xyz");
         MatchResult result = getSpanningResult(parseResult);
 
         assertTrue(result instanceof SyntaxError, "Total failure should be SyntaxError");
@@ -132,7 +132,7 @@ class SpanningInvariantTest {
 
     @Test
     void span04_trailingGarbageWrapped() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" ;", "S", "abXYZ");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" ;", "S", "abXYZ");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(5, result.len(), "Result should span entire input");
@@ -142,7 +142,7 @@ class SpanningInvariantTest {
 
     @Test
     void span05_singleCharTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" ;", "S", "aX");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" ;", "S", "aX");
         MatchResult result = getSpanningResult(parseResult);
 
         assertNotNull(parseResult.unmatchedInput(), "Should have unmatchedInput for trailing X");
@@ -153,7 +153,7 @@ class SpanningInvariantTest {
 
     @Test
     void span06_multipleErrorsThroughout() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" \"c\" ;", "S", "aXbYc");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" \"c\" ;", "S", "aXbYc");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(5, result.len(), "Should span entire input");
@@ -164,7 +164,7 @@ class SpanningInvariantTest {
 
     @Test
     void span07_recoveryWithDeletion() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ab");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ab");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(2, result.len(), "Should span full input (no trailing capture here)");
@@ -173,7 +173,7 @@ class SpanningInvariantTest {
 
     @Test
     void span08_firstAlternativeWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" \"c\" / \"a\" ;", "S", "abcX");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" \"c\" / \"a\" ;", "S", "abcX");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(4, result.len(), "Should span entire input");
@@ -182,7 +182,7 @@ class SpanningInvariantTest {
 
     @Test
     void span09_leftRecursionWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("E <- E \"+\" \"n\" / \"n\" ;", "E", "n+nX");
+        ParseResult parseResult = TestUtils.parsePT("E <- E \"+\" \"n\" / \"n\" ;", "E", "n+nX");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(4, result.len(), "Should span entire input");
@@ -191,7 +191,7 @@ class SpanningInvariantTest {
 
     @Test
     void span10_repetitionWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\"+ ;", "S", "aaaX");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\"+ ;", "S", "aaaX");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(4, result.len(), "Should span entire input");
@@ -200,7 +200,7 @@ class SpanningInvariantTest {
 
     @Test
     void span11_nestedRulesWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("""
+        ParseResult parseResult = TestUtils.parsePT("""
             S <- A ";" ;
             A <- "a" "b" ;
         """, "S", "ab;X");
@@ -211,7 +211,7 @@ class SpanningInvariantTest {
 
     @Test
     void span12_zeroOrMoreWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\"* ;", "S", "XYZ");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\"* ;", "S", "XYZ");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(3, result.len(), "Should span entire input");
@@ -221,7 +221,7 @@ class SpanningInvariantTest {
 
     @Test
     void span13_optionalWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\"? ;", "S", "XYZ");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\"? ;", "S", "XYZ");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(3, result.len(), "Should span entire input");
@@ -230,7 +230,7 @@ class SpanningInvariantTest {
 
     @Test
     void span14_followedBySuccessWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- &\"a\" \"a\" \"b\" ;", "S", "abX");
+        ParseResult parseResult = TestUtils.parsePT("S <- &\"a\" \"a\" \"b\" ;", "S", "abX");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(3, result.len(), "Should span entire input");
@@ -239,7 +239,7 @@ class SpanningInvariantTest {
 
     @Test
     void span15_notFollowedByFailureTotal() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- !\"x\" \"y\" ;", "S", "xz");
+        ParseResult parseResult = TestUtils.parsePT("S <- !\"x\" \"y\" ;", "S", "xz");
         MatchResult result = getSpanningResult(parseResult);
 
         assertTrue(result instanceof SyntaxError, "Should be total failure");
@@ -248,7 +248,7 @@ class SpanningInvariantTest {
 
     @Test
     void span16_notFollowedBySuccessWithTrailing() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"b\" \"c\"? ;", "S", "bX");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"b\" \"c\"? ;", "S", "bX");
         MatchResult result = getSpanningResult(parseResult);
 
         assertEquals(2, result.len(), "Should span entire input");
@@ -270,7 +270,7 @@ class SpanningInvariantTest {
             String grammarSpec = testCase[0];
             String input = testCase[1];
 
-            ParseResult parseResult = SquirrelParser.squirrelParsePT(grammarSpec, "S", input);
+            ParseResult parseResult = TestUtils.parsePT(grammarSpec, "S", input);
             MatchResult result = getSpanningResult(parseResult);
 
             assertNotNull(result, "parse() should never return null for input: " + input);
@@ -281,7 +281,7 @@ class SpanningInvariantTest {
     @Test
     void span18_longInputWithSingleTrailingError() {
         String input = "abcdefghijklmnopqrstuvwxyzX";
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(
+        ParseResult parseResult = TestUtils.parsePT(
             "S <- \"a\" \"b\" \"c\" \"d\" \"e\" \"f\" \"g\" \"h\" \"i\" \"j\" \"k\" \"l\" \"m\" \"n\" \"o\" \"p\" \"q\" \"r\" \"s\" \"t\" \"u\" \"v\" \"w\" \"x\" \"y\" \"z\" ;",
             "S", input);
         MatchResult result = getSpanningResult(parseResult);
@@ -292,7 +292,7 @@ class SpanningInvariantTest {
 
     @Test
     void span19_complexGrammarWithErrors() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("""
+        ParseResult parseResult = TestUtils.parsePT("""
             S <- E ";" ;
             E <- E "+" T / T ;
             T <- "n" ;
@@ -307,7 +307,7 @@ class SpanningInvariantTest {
 
     @Test
     void span20_recoveryPreservesMatchedContent() {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(
+        ParseResult parseResult = TestUtils.parsePT(
             "S <- \"hello\" \" \" \"world\" ;", "S", "hello X world");
         MatchResult result = getSpanningResult(parseResult);
 
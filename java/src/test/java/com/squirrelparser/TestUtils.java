@@ -1,15 +1,24 @@
 package com.squirrelparser;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import com.squirrelparser.clause.nonterminal.First;
-import com.squirrelparser.clause.nonterminal.Ref;
 import com.squirrelparser.clause.nonterminal.Seq;
 import com.squirrelparser.clause.terminal.Str;
+import com.squirrelparser.parser.Grammar;
 import com.squirrelparser.parser.MatchResult;
 import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.ParserOptions;
 import com.squirrelparser.parser.SyntaxError;
+import com.squirrelparser.tree.ASTBuilder;
+import com.squirrelparser.tree.CSTBuilder;
+import com.squirrelparser.tree.CSTNode;
+import com.squirrelparser.tree.CSTNodeFactoryFn;
 
 /**
  * Test utilities for Squirrel Parser tests.
@@ -17,6 +26,67 @@ import com.squirrelparser.parser.SyntaxError;
 public final class TestUtils {
     private TestUtils() {}
 
+    /**
+     * The options the tests parse with: the default options, with the engine selected by the
+     * squirrel.engine system property ("compiled" or "vm", otherwise the interpreter). The surefire
+     * executions in pom.xml set it to run the whole suite against each engine.
+     */
+    public static final ParserOptions OPTIONS = ParserOptions.DEFAULT.withEngine(
+        switch (String.valueOf(System.getProperty("squirrel.engine")).toLowerCase(Locale.ROOT)) {
+            case "compiled" -> ParserOptions.Engine.COMPILED;
+            case "vm" -> ParserOptions.Engine.VM;
+            default -> ParserOptions.Engine.INTERPRETER;
+        });
+
+    /**
+     * Parse input with the given grammar and top rule, with the test options (see
+     * {@link SquirrelParser#squirrelParsePT(String, String, CharSequence)}).
+     */
+    public static ParseResult parsePT(String grammarSpec, String topRuleName, CharSequence input) {
+        return parsePT(SquirrelParser.compileGrammar(grammarSpec), topRuleName, input);
+    }
+
+    /**
+     * Parse input with a compiled grammar and the given top rule, with the test options.
+     */
+    public static ParseResult parsePT(Grammar grammar, String topRuleName, CharSequence input) {
+        return grammar.withTopRule(topRuleName).parse(input, OPTIONS);
+    }
+
+    /**
+     * Parse input and build a CST, with the test options (see
+     * {@link SquirrelParser#squirrelParseCST(String, String, Map, CharSequence, boolean)}).
+     */
+    public static CSTNode parseCST(String grammarSpec, String topRuleName, Map<String, CSTNodeFactoryFn> factories,
+                                   CharSequence input, boolean allowSyntaxErrors) {
+        return CSTBuilder.buildCST(ASTBuilder.buildAST(parsePT(grammarSpec, topRuleName, input)), factories,
+                                   allowSyntaxErrors);
+    }
+
+    /**
+     * Assert that two parses of the same input give the same parse tree, AST and syntax errors
+     * (e.g. parses with different options or engines, or a reparse and a fresh parse).
+     */
+    public static void assertSameParse(ParseResult expected, ParseResult actual) {
+        CharSequence input = expected.source();
+        String message = input.toString();
+        assertEquals(message, actual.source().toString());
+        assertEquals(expected.hasSyntaxErrors(), actual.hasSyntaxErrors(), message);
+        assertEquals(expected.root().toPrettyString(input), actual.root().toPrettyString(input), message);
+        assertEquals(ASTBuilder.buildAST(expected).toPrettyString(input),
+                     ASTBuilder.buildAST(actual).toPrettyString(input), message);
+        assertEquals(expected.getSyntaxErrors().toString(), actual.getSyntaxErrors().toString(), message);
+    }
+
+    /**
+     * Assert that parsing the input with the actual options gives the same parse tree, AST and
+     * syntax errors as with the expected options.
+     */
+    public static void assertSameParse(Grammar grammar, CharSequence input, ParserOptions expectedOptions,
+                                       ParserOptions actualOptions) {
+        assertSameParse(grammar.parse(input, expectedOptions), grammar.parse(input, actualOptions));
+    }
+
     /**
      * Result of parsing with error recovery.
      */
@@ -33,7 +103,7 @@ public final class TestUtils {
      * Parse input with error recovery and return (success, errorCount, skippedStrings).
      */
     public static ParseTestResult testParse(String grammarSpec, String input, String topRule) {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(grammarSpec, topRule, input);
+        ParseResult parseResult = parsePT(grammarSpec, topRule, input);
 
         MatchResult result = parseResult.root();
         boolean isCompleteFailure = result instanceof SyntaxError && result.len() == parseResult.input().length();
@@ -109,7 +179,7 @@ public final class TestUtils {
      * Returns null if the entire input is a SyntaxError.
      */
     public static MatchResult parseForTree(String grammarSpec, String input, String topRule) {
-        ParseResult parseResult = SquirrelParser.squirrelParsePT(grammarSpec, topRule, input);
+        ParseResult parseResult = parsePT(grammarSpec, topRule, input);
         MatchResult result = parseResult.root();
         return result instanceof SyntaxError ? null : result;
     }
@@ -122,7 +192,7 @@ public final class TestUtils {
             return 0;
         }
         int count = 0;
-        if (result.clause() instanceof Ref ref && ref.ruleName().equals(ruleName)) {
+        if (isRuleMatch(result, ruleName)) {
             count = 1;
         }
         for (MatchResult child : result.subClauseMatches()) {
@@ -172,7 +242,7 @@ public final class TestUtils {
 
     private static List<MatchResult> findRuleInstances(MatchResult result, String ruleName) {
         List<MatchResult> instances = new ArrayList<>();
-        if (result.clause() instanceof Ref ref && ref.ruleName().equals(ruleName)) {
+        if (isRuleMatch(result, ruleName)) {
             instances.add(result);
         }
         for (MatchResult child : result.subClauseMatches()) {
@@ -194,7 +264,8 @@ public final class TestUtils {
         }
 
         MatchResult firstChild = children.get(0);
-        while (firstChild.clause() instanceof Seq || firstChild.clause() instanceof First) {
+        while (!isRuleMatch(firstChild, null)
+               && (firstChild.clause() instanceof Seq || firstChild.clause() instanceof First)) {
             List<MatchResult> innerChildren = firstChild.subClauseMatches().stream()
                 .filter(c -> !c.isMismatch())
                 .toList();
@@ -204,10 +275,18 @@ public final class TestUtils {
             firstChild = innerChildren.get(0);
         }
 
-        boolean isSameRule = firstChild.clause() instanceof Ref ref && ref.ruleName().equals(ruleName);
+        boolean isSameRule = isRuleMatch(firstChild, ruleName);
         return new FirstSemanticChildResult(firstChild, isSameRule);
     }
 
+    /**
+     * Check if a match is a match of a rule's clause (of the named rule, unless ruleName is null).
+     */
+    private static boolean isRuleMatch(MatchResult result, String ruleName) {
+        String ownerRule = result.clause() == null ? null : result.clause().ownerRule();
+        return ownerRule != null && (ruleName == null || ruleName.equals(ownerRule));
+    }
+
     private static int countOperators(MatchResult result, String opStr) {
         int count = 0;
         if (result.clause() instanceof Str str && str.text().equals(opStr)) {
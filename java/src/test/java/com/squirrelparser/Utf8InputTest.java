@@ -0,0 +1,141 @@
+package com.squirrelparser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.squirrelparser.parser.Grammar;
+import com.squirrelparser.parser.MappedInput;
+import com.squirrelparser.parser.ParseResult;
+import com.squirrelparser.parser.Utf8Input;
+import com.squirrelparser.tree.ASTBuilder;
+import com.squirrelparser.tree.ASTNode;
+
+/**
+ * UTF-8 byte-level input tests.
+ */
+class Utf8InputTest {
+    private static final Grammar WORDS_GRAMMAR = Grammar.compile("""
+        Words <- Word (' ' Word)*;
+        Word <- [a-zà-ÿ一-鿿]+;
+        """, "Words");
+
+    private static final String WORDS = "café naïve 你好";
+
+    private static List<String> wordSpans(ParseResult result) {
+        ASTNode ast = ASTBuilder.buildAST(result);
+        return ast.children().stream()
+            .filter(c -> c.label().equals("Word"))
+            .map(c -> c.getInputSpan(result.source()).toString())
+            .toList();
+    }
+
+    @Test
+    void positionsAreByteOffsets() {
+        byte[] bytes = WORDS.getBytes(StandardCharsets.UTF_8);
+        ParseResult result = WORDS_GRAMMAR.parse(Utf8Input.of(ByteBuffer.wrap(bytes)), TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(bytes.length, result.root().len());
+        assertEquals(List.of("café", "naïve", "你好"), wordSpans(result));
+
+        ASTNode ast = ASTBuilder.buildAST(result);
+        ASTNode last = ast.children().get(ast.children().size() - 1);
+        assertEquals(bytes.length - 6, last.pos());
+        assertEquals(6, last.len());
+        assertInstanceOf(Utf8Input.class, last.getInputSpan(result.source()));
+    }
+
+    @Test
+    void literalsAreMatchedAsUtf8() {
+        Grammar grammar = Grammar.compile("S <- \"café\" 'é' . [é];", "S");
+        ParseResult result = grammar.parse(Utf8Input.of("caféé你é"), TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(5 + 2 + 3 + 2, result.root().len());
+    }
+
+    @Test
+    void parsesMemorySegmentInput() {
+        byte[] bytes = WORDS.getBytes(StandardCharsets.UTF_8);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(bytes.length);
+            segment.copyFrom(MemorySegment.ofArray(bytes));
+            ParseResult result = WORDS_GRAMMAR.parse(Utf8Input.of(segment), TestUtils.OPTIONS);
+            assertFalse(result.hasSyntaxErrors());
+            assertEquals(List.of("café", "naïve", "你好"), wordSpans(result));
+        }
+    }
+
+    @Test
+    void parsesMemoryMappedUtf8File(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("words.txt");
+        Files.writeString(path, WORDS, StandardCharsets.UTF_8);
+        ParseResult result = WORDS_GRAMMAR.parse(MappedInput.mapUtf8(path), TestUtils.OPTIONS);
+        assertFalse(result.hasSyntaxErrors());
+        assertEquals(WORDS, result.input());
+    }
+
+    @Test
+    void malformedUtf8IsNotMatchedByCharSet() {
+        byte[] bytes = {'a', (byte) 0xC3, 'b'}; // Truncated 2-byte sequence
+        ParseResult result = WORDS_GRAMMAR.parse(Utf8Input.of(ByteBuffer.wrap(bytes)), TestUtils.OPTIONS);
+        assertTrue(result.hasSyntaxErrors());
+
+        Utf8Input overlong = Utf8Input.of(ByteBuffer.wrap(new byte[]{(byte) 0xC0, (byte) 0x80}));
+        assertEquals(-1, overlong.codePointAt(0));
+        Utf8Input surrogate = Utf8Input.of(ByteBuffer.wrap(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80}));
+        assertEquals(-1, surrogate.codePointAt(0));
+    }
+
+    @Test
+    void supplementaryCodePoints() {
+        String emoji = "😀";
+        Grammar grammar = Grammar.compile("S <- [^x] \"end\";", "S");
+
+        // UTF-16: the character set consumes the whole surrogate pair
+        ParseResult utf16 = grammar.parse(emoji + "end", TestUtils.OPTIONS);
+        assertFalse(utf16.hasSyntaxErrors());
+        assertEquals(5, utf16.root().len());
+
+        // UTF-8: the character set consumes all 4 bytes
+        ParseResult utf8 = grammar.parse(Utf8Input.of(emoji + "end"), TestUtils.OPTIONS);
+        assertFalse(utf8.hasSyntaxErrors());
+        assertEquals(7, utf8.root().len());
+    }
+
+    @Test
+    void anyCharConsumesSupplementaryCodePoint() {
+        Grammar grammar = Grammar.compile("S <- . \"end\";", "S");
+        ParseResult utf16 = grammar.parse("😀end", TestUtils.OPTIONS);
+        assertFalse(utf16.hasSyntaxErrors());
+        assertEquals(5, utf16.root().len());
+        ParseResult utf8 = grammar.parse(Utf8Input.of("😀end"), TestUtils.OPTIONS);
+        assertFalse(utf8.hasSyntaxErrors());
+        assertEquals(7, utf8.root().len());
+    }
+
+    @Test
+    void recoverySkipsTheSameCharactersInUtf8Input() {
+        // The skipped "éé" is 2 chars but 4 bytes, and the literal "ab" is 2 chars and 2 bytes
+        Grammar grammar = Grammar.compile("S <- \"ab\" \"c\";", "S");
+        for (String input : List.of("ééabc", "xxabc", "éabc", "aéabc")) {
+            ParseResult utf16 = grammar.parse(input, TestUtils.OPTIONS);
+            ParseResult utf8 = grammar.parse(Utf8Input.of(input), TestUtils.OPTIONS);
+            assertEquals(utf16.hasSyntaxErrors(), utf8.hasSyntaxErrors(), input);
+            assertEquals(utf16.getSyntaxErrors().size(), utf8.getSyntaxErrors().size(), input);
+            assertEquals(utf16.root().len() == input.length(),
+                         utf8.root().len() == Utf8Input.encode(input).length(), input);
+        }
+    }
+}
@@ -25,7 +25,7 @@ class VisibilityConstraintTest {
     @Test
     void vis01_terminalAtomicity() {
         // Multi-char terminals are atomic - can't skip through them
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"abc\" \"def\" ;", "S", "abXdef");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"abc\" \"def\" ;", "S", "abXdef");
         MatchResult result = parseResult.root();
         // Should fail - can't match 'abc' with 'abX', and can't skip 'X' mid-terminal
         // Total failure: result is a SyntaxError spanning entire input
@@ -38,14 +38,14 @@ class VisibilityConstraintTest {
         var result = testParse("S <- \"a\" \"b\" \"c\" ;", "ab");
         assertTrue(result.ok(), "should succeed (delete c at EOF)");
 
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ab");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ab");
         assertEquals(1, countDeletions(List.of(parseResult.root())), "should have 1 deletion");
     }
 
     @Test
     void vis03_grammarDeletionMidParseForbidden() {
         // Grammar deletion NOT allowed mid-parse (FIX #8)
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ac");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" \"c\" ;", "S", "ac");
         MatchResult result = parseResult.root();
         // Should fail - cannot delete 'b' at position 1 (not EOF)
         // Total failure: result is a SyntaxError spanning entire input
@@ -66,7 +66,7 @@ class VisibilityConstraintTest {
     @Test
     void vis05_hiddenDeletionCreatesMismatch() {
         // First tries alternatives; Seq needs 'b' but input is just 'a'
-        ParseResult parseResult = SquirrelParser.squirrelParsePT("S <- \"a\" \"b\" / \"c\" ;", "S", "a");
+        ParseResult parseResult = TestUtils.parsePT("S <- \"a\" \"b\" / \"c\" ;", "S", "a");
         MatchResult result = parseResult.root();
         // First alternative: Try Seq - 'a' matches, 'b' missing at EOF
         //   - Could delete 'b' at EOF, but that gives len=1
@@ -106,7 +106,7 @@ class VisibilityConstraintTest {
         assertTrue(comp.ok(), "completion should succeed");
 
         // Correction (mid-parse): "user typed wrong thing" - NOT allowed via grammar deletion
-        ParseResult corrResult = SquirrelParser.squirrelParsePT("S <- \"if\" \"(\" \"x\" \")\" ;", "S", "if()");
+        ParseResult corrResult = TestUtils.parsePT("S <- \"if\" \"(\" \"x\" \")\" ;", "S", "if()");
         // Would need to delete 'x' at position 3, but ')' remains - not EOF
         MatchResult result = corrResult.root();
         // Total failure: result is a SyntaxError spanning entire input